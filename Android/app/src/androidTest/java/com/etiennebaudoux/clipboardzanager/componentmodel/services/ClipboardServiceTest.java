@@ -3,15 +3,24 @@ package com.etiennebaudoux.clipboardzanager.componentmodel.services;
 import android.content.ClipData;
 import android.support.test.runner.AndroidJUnit4;
 
+import com.etiennebaudoux.clipboardzanager.App;
 import com.etiennebaudoux.clipboardzanager.TestUtilities;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.DataHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.IoUtils;
+import com.etiennebaudoux.clipboardzanager.models.DataEntry;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.util.UUID;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(AndroidJUnit4.class)
 public class ClipboardServiceTest {
@@ -26,8 +35,7 @@ public class ClipboardServiceTest {
         // GetDataService().RemoveAllDataAsync().Wait();
         // GetDataService().Cache.Clear();
 
-        getDataService().getCache().clear();
-        getDataService().getDataEntries().clear();
+        getDataService().clearHistoryAsync().await();
     }
 
     @Test
@@ -63,10 +71,81 @@ public class ClipboardServiceTest {
         assertEquals(dataService.getDataEntries().size(), 2);
 
         TestUtilities.getSettingProvider().AvoidCreditCard = "false";
+        TestUtilities.refreshSettings();
 
         service.onClipboardChanged(new ClipData.Item("  4974- 0411-3451- 7895 "));
 
+        // The same number is already in the history, so it is moved on top instead of being added again.
+        assertEquals(dataService.getDataEntries().size(), 2);
+
+        service.onClipboardChanged(new ClipData.Item("  4974- 0411-3456- 7895 "));
+
+        assertEquals(dataService.getDataEntries().size(), 2);
+        assertEquals(DataHelper.fromBase64(dataService.getDataEntries().get(0).getThumbnail().getValue(), String.class), "4974-••••-••••-7895");
+    }
+
+    @Test
+    public void clipboardServiceDuplicate() throws Exception {
+        DataService dataService = getDataService();
+        ClipboardService service = getClipboardService();
+
+        service.onClipboardChanged(new ClipData.Item("Hello"));
+        service.onClipboardChanged(new ClipData.Item("World"));
+
+        assertEquals(dataService.getDataEntries().size(), 2);
+        UUID helloIdentifier = dataService.getDataEntries().get(1).getIdentifier();
+
+        service.onClipboardChanged(new ClipData.Item("Hello"));
+
+        assertEquals(dataService.getDataEntries().size(), 2);
+        assertEquals(dataService.getDataEntries().get(0).getIdentifier(), helloIdentifier);
+        assertEquals(DataHelper.fromBase64(dataService.getDataEntries().get(0).getThumbnail().getValue(), String.class), "Hello");
+    }
+
+    @Test
+    public void clipboardServiceDeltaEncoding() throws Exception {
+        DataService dataService = getDataService();
+        ClipboardService service = getClipboardService();
+
+        TestUtilities.getSettingProvider().DeltaEncodeClipboardData = "true";
+        TestUtilities.refreshSettings();
+
+        StringBuilder textBuilder = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            textBuilder.append("Line ").append(i).append(" of a long document that the user edits and copies again.\n");
+        }
+        String text1 = textBuilder.toString();
+        String text2 = text1.replace("Line 100 of a long", "Line 100 of a very long");
+        String text3 = text2.replace("Line 150 of a long", "Line 150 of a very long");
+
+        service.onClipboardChanged(new ClipData.Item(text1));
+        service.onClipboardChanged(new ClipData.Item(text2));
+        service.onClipboardChanged(new ClipData.Item(text3));
+
         assertEquals(dataService.getDataEntries().size(), 3);
+
+        DataEntry entry1 = dataService.getDataEntries().get(2);
+        DataEntry entry3 = dataService.getDataEntries().get(0);
+        String deltaFileName = entry3.getDataIdentifiers().get(0).getIdentifier().toString() + "." + dataService.getDataEntries().get(1).getDataIdentifiers().get(0).getIdentifier().toString() + ".delta";
+
+        assertTrue(App.getContext().getFileStreamPath(deltaFileName).exists());
+        assertEquals(readData(dataService, entry3), text3);
+
+        dataService.removeDataAsync(entry1.getIdentifier(), entry1.getDataIdentifiers()).await();
+        dataService.removeDataAsync(dataService.getDataEntries().get(1).getIdentifier(), dataService.getDataEntries().get(1).getDataIdentifiers()).await();
+
+        assertEquals(dataService.getDataEntries().size(), 1);
+        assertEquals(readData(dataService, entry3), text3);
+
+        // the removed data are kept as bases until the delta is saved again in the background.
+        String entry1FileName = entry1.getDataIdentifiers().get(0).getIdentifier().toString() + ".dat";
+        for (int i = 0; i < 500 && App.getContext().getFileStreamPath(entry1FileName).exists(); i++) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(App.getContext().getFileStreamPath(entry1FileName).exists());
+        assertFalse(App.getContext().getFileStreamPath(deltaFileName).exists());
+        assertEquals(readData(dataService, entry3), text3);
     }
 
     /**
@@ -146,6 +225,100 @@ public class ClipboardServiceTest {
 
         service.onClipboardChanged(new ClipData.Item(largeText));
         assertEquals(dataService.getDataEntries().size(), 1);
+
+        // The text is compressed before being encrypted.
+        DataEntry entry = dataService.getDataEntries().get(0);
+        assertTrue(App.getContext().getFileStreamPath(entry.getDataIdentifiers().get(0).getIdentifier().toString() + ".dat").length() < largeText.length());
+        assertEquals(readData(dataService, entry), largeText);
+    }
+
+    @Test
+    public void clipboardServiceGetClipData() throws Exception {
+        DataService dataService = getDataService();
+        ClipboardService service = getClipboardService();
+
+        service.onClipboardChanged(new ClipData.Item("Hello World"));
+        DataEntry entry = dataService.getDataEntries().get(0);
+
+        ClipData clipData = dataService.getClipData(entry);
+        assertEquals(clipData.getItemCount(), 1);
+        assertEquals(clipData.getItemAt(0).getText().toString(), "Hello World");
+
+        // The text is now read from memory.
+        App.getContext().deleteFile(entry.getDataIdentifiers().get(0).getIdentifier().toString() + ".dat");
+        assertEquals(dataService.getClipData(entry).getItemAt(0).getText().toString(), "Hello World");
+
+        try (BufferedReader reader = new BufferedReader(dataService.openDataReader(entry.getDataIdentifiers().get(0)))) {
+            assertEquals(reader.readLine(), "Hello World");
+        }
+    }
+
+    @Test
+    public void dataCacheSkipsLargeData() throws Exception {
+        DataService dataService = getDataService();
+        ClipboardService service = getClipboardService();
+
+        StringBuilder textBuilder = new StringBuilder();
+        while (textBuilder.length() <= dataService.getDataCacheMaximumDataLength()) {
+            textBuilder.append("A line of a text too large to be kept in memory.\n");
+        }
+        String largeText = textBuilder.toString();
+
+        service.onClipboardChanged(new ClipData.Item(largeText));
+        DataEntry entry = dataService.getDataEntries().get(0);
+
+        assertEquals(readData(dataService, entry), largeText);
+        assertFalse(dataService.getDataCache().snapshot().containsKey(entry.getDataIdentifiers().get(0).getIdentifier()));
+    }
+
+    @Test
+    public void dataCacheStaysWithinItsBound() throws Exception {
+        DataService dataService = getDataService();
+        ClipboardService service = getClipboardService();
+
+        int maxSize = dataService.getDataCache().maxSize();
+        dataService.getDataCache().resize(4 * 1024);
+        try {
+            for (int i = 0; i < 20; i++) {
+                StringBuilder textBuilder = new StringBuilder();
+                while (textBuilder.length() < dataService.getDataCacheMaximumDataLength() - 100) {
+                    textBuilder.append("Text number ").append(i).append(". ");
+                }
+                service.onClipboardChanged(new ClipData.Item(textBuilder.toString()));
+                readData(dataService, dataService.getDataEntries().get(0));
+
+                assertTrue(dataService.getDataCache().size() <= dataService.getDataCache().maxSize());
+            }
+
+            // the oldest data has been evicted, and it is too old to be read again in advance.
+            DataEntry oldestEntry = dataService.getDataEntries().get(dataService.getDataEntries().size() - 1);
+            assertFalse(dataService.getDataCache().snapshot().containsKey(oldestEntry.getDataIdentifiers().get(0).getIdentifier()));
+        } finally {
+            dataService.getDataCache().resize(maxSize);
+        }
+    }
+
+    @Test
+    public void removeDataDropsCachedData() throws Exception {
+        DataService dataService = getDataService();
+        ClipboardService service = getClipboardService();
+
+        service.onClipboardChanged(new ClipData.Item("Hello World"));
+        DataEntry entry = dataService.getDataEntries().get(0);
+        UUID dataIdentifier = entry.getDataIdentifiers().get(0).getIdentifier();
+
+        assertEquals(readData(dataService, entry), "Hello World");
+        assertTrue(dataService.getDataCache().snapshot().containsKey(dataIdentifier));
+
+        dataService.removeDataAsync(entry.getIdentifier(), entry.getDataIdentifiers()).await();
+
+        assertFalse(dataService.getDataCache().snapshot().containsKey(dataIdentifier));
+    }
+
+    private String readData(DataService dataService, DataEntry entry) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IoUtils.copy(dataService.openDataStream(entry.getDataIdentifiers().get(0)), output);
+        return new String(output.toByteArray(), "UTF-8");
     }
 
     private ClipboardService getClipboardService() {
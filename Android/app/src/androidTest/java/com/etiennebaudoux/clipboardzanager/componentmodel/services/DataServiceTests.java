@@ -6,6 +6,8 @@ import com.etiennebaudoux.clipboardzanager.App;
 import com.etiennebaudoux.clipboardzanager.TestUtilities;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.DataHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.DataEntryEventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventHandler;
 import com.etiennebaudoux.clipboardzanager.enums.DataEntryStatus;
 import com.etiennebaudoux.clipboardzanager.enums.ThumbnailDataType;
 import com.etiennebaudoux.clipboardzanager.models.ClipboardData;
@@ -22,6 +24,7 @@ import org.junit.runner.RunWith;
 import java.util.Date;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
@@ -44,8 +47,7 @@ public class DataServiceTests {
     public void testCleanUp() throws Exception {
         getDataService().removeAllDataAsync().await();
 
-        getDataService().getCache().clear();
-        getDataService().getDataEntries().clear();
+        getDataService().clearHistoryAsync().await();
 
         for (String file : App.getContext().fileList()) {
             App.getContext().deleteFile(file);
@@ -98,12 +100,14 @@ public class DataServiceTests {
         assertFalse(service.keepOrIgnoreCreditCard(CreditCardNumber));
 
         TestUtilities.getSettingProvider().AvoidCreditCard = "false";
+        TestUtilities.refreshSettings();
 
         assertFalse(service.keepOrIgnoreCreditCard(CreditCardNumber));
         assertFalse(service.keepOrIgnoreCreditCard(CreditCardNumber));
         assertFalse(service.keepOrIgnoreCreditCard(CreditCardNumber));
 
         TestUtilities.getSettingProvider().AvoidCreditCard = "true";
+        TestUtilities.refreshSettings();
 
         assertTrue(service.keepOrIgnoreCreditCard("  4974- 0412-3456- 7895 "));
         assertTrue(service.keepOrIgnoreCreditCard(CreditCardNumber));
@@ -118,12 +122,14 @@ public class DataServiceTests {
         assertFalse(service.keepOrIgnorePassword(MicrosoftPassword));
 
         TestUtilities.getSettingProvider().AvoidPasswords = "false";
+        TestUtilities.refreshSettings();
 
         assertFalse(service.keepOrIgnorePassword(MicrosoftPassword));
         assertFalse(service.keepOrIgnorePassword(MicrosoftPassword));
         assertFalse(service.keepOrIgnorePassword(MicrosoftPassword));
 
         TestUtilities.getSettingProvider().AvoidPasswords = "true";
+        TestUtilities.refreshSettings();
 
         assertTrue(service.keepOrIgnorePassword("M||cr0sof t"));
         assertTrue(service.keepOrIgnorePassword("M|||cr0sof t"));
@@ -138,6 +144,16 @@ public class DataServiceTests {
 
         assertEquals(identifiers.size(), 1);
         assertEquals(identifiers.get(0).getFormatName(), "Text");
+
+        QueryableArrayList<String> formats = new QueryableArrayList<>();
+        formats.add("Bitmap");
+        formats.add("FileDrop");
+        identifiers = service.getDataIdentifiers(formats);
+
+        assertEquals(identifiers.size(), 2);
+        assertEquals(identifiers.get(0).getFormatName(), "Bitmap");
+        assertEquals(identifiers.get(1).getFormatName(), "FileDrop");
+        assertNotEquals(identifiers.get(0).getIdentifier(), identifiers.get(1).getIdentifier());
     }
 
     @Test
@@ -152,24 +168,24 @@ public class DataServiceTests {
 
         ClipboardData entry = new ClipboardData("Hello World", new Date(System.currentTimeMillis()));
         service.addDataEntry(entry, new QueryableArrayList<>(), false, false);
-        UUID guid1 = service.getDataEntries().last().getIdentifier();
-        UUID guid11 = service.getCache().last().getIdentifier();
+        UUID guid1 = last(service.getDataEntries()).getIdentifier();
+        UUID guid11 = last(service.getCache()).getIdentifier();
 
         entry = new ClipboardData("Hello World 2", new Date(System.currentTimeMillis()));
         service.addDataEntry(entry, new QueryableArrayList<>(), false, false);
-        UUID guid2 = service.getDataEntries().first().getIdentifier();
-        UUID guid22 = service.getCache().first().getIdentifier();
+        UUID guid2 = service.getDataEntries().get(0).getIdentifier();
+        UUID guid22 = service.getCache().get(0).getIdentifier();
 
         assertNotEquals(guid1, guid2);
         assertNotEquals(guid1, guid22);
         assertNotEquals(guid11, guid2);
 
-        service.removeDataAsync(service.getDataEntries().first().getIdentifier(), service.getDataEntries().first().getDataIdentifiers()).await();
+        service.removeDataAsync(service.getDataEntries().get(0).getIdentifier(), service.getDataEntries().get(0).getDataIdentifiers()).await();
 
         assertEquals(1, service.getDataEntries().size());
         assertEquals(2, service.getCache().size());
-        assertEquals(DataEntryStatus.DELETED, service.getCache().first().getStatus());
-        assertEquals(DataEntryStatus.ADDED, service.getCache().last().getStatus());
+        assertEquals(DataEntryStatus.DELETED, service.getCache().get(0).getStatus());
+        assertEquals(DataEntryStatus.ADDED, last(service.getCache()).getStatus());
     }
 
     @Test
@@ -209,13 +225,24 @@ public class DataServiceTests {
     public void dataEntryThumbnailLink() throws Exception {
         DataService service = getDataService();
 
+        CountDownLatch titleRetrieved = new CountDownLatch(1);
+        EventHandler<DataEntryEventArgs> handler = (sender, args) -> titleRetrieved.countDown();
+        service.DataEntryChanged.addHandler(handler);
+
         String value = "http://www.google.com";
         ClipboardData entry = new ClipboardData(value, new Date(System.currentTimeMillis()));
         service.addDataEntry(entry, new QueryableArrayList<>(), false, false);
         DataEntry dataEntry = service.getDataEntries().get(0);
 
+        // The title is retrieved in the background.
         assertEquals(dataEntry.getThumbnail().getType(), ThumbnailDataType.LINK);
         assertEquals(DataHelper.fromBase64(dataEntry.getThumbnail().getValue(), Link.class).getUri(), "http://www.google.com");
+
+        assertTrue(titleRetrieved.await(30, TimeUnit.SECONDS));
+        service.DataEntryChanged.removeHandler(handler);
+
+        // the data entry with the title replaces the captured one.
+        dataEntry = service.getDataEntries().get(0);
         assertEquals(DataHelper.fromBase64(dataEntry.getThumbnail().getValue(), Link.class).getTitle(), "Google");
     }
 
@@ -224,6 +251,7 @@ public class DataServiceTests {
         DataService service = getDataService();
 
         TestUtilities.getSettingProvider().MaxDataToKeep = Integer.toString(Integer.parseInt(TestUtilities.getSettingProvider().MaxDataToKeep) + 5);
+        TestUtilities.refreshSettings();
 
         for (int i = 0; i < Integer.parseInt(TestUtilities.getSettingProvider().DateExpireLimit) + 5; i++) {
             String value = Integer.toString(Integer.parseInt(TestUtilities.getSettingProvider().DateExpireLimit) + 5 - i);
@@ -232,8 +260,8 @@ public class DataServiceTests {
         }
 
         assertEquals(service.getDataEntries().size(), Integer.parseInt(TestUtilities.getSettingProvider().DateExpireLimit) - 1);
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().first().getThumbnail().getValue(), String.class), "1");
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().last().getThumbnail().getValue(), String.class), Integer.toString(Integer.parseInt(TestUtilities.getSettingProvider().DateExpireLimit) - 1));
+        assertEquals(DataHelper.fromBase64(service.getDataEntries().get(0).getThumbnail().getValue(), String.class), "1");
+        assertEquals(DataHelper.fromBase64(last(service.getDataEntries()).getThumbnail().getValue(), String.class), Integer.toString(Integer.parseInt(TestUtilities.getSettingProvider().DateExpireLimit) - 1));
     }
 
     @Test
@@ -247,8 +275,30 @@ public class DataServiceTests {
         }
 
         assertEquals(service.getDataEntries().size(), Integer.parseInt(TestUtilities.getSettingProvider().MaxDataToKeep));
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().first().getThumbnail().getValue(), String.class), "1");
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().last().getThumbnail().getValue(), String.class), TestUtilities.getSettingProvider().MaxDataToKeep);
+        assertEquals(DataHelper.fromBase64(service.getDataEntries().get(0).getThumbnail().getValue(), String.class), "1");
+        assertEquals(DataHelper.fromBase64(last(service.getDataEntries()).getThumbnail().getValue(), String.class), TestUtilities.getSettingProvider().MaxDataToKeep);
+    }
+
+    @Test
+    public void collapseNearDuplicates() throws Exception {
+        DataService service = getDataService();
+
+        TestUtilities.getSettingProvider().CollapseNearDuplicates = "true";
+        TestUtilities.refreshSettings();
+
+        for (int i = 0; i < 10; i++) {
+            Date date = new Date(System.currentTimeMillis());
+            service.addDataEntry(new ClipboardData("2017-03-12 10:42:0" + i + " [ERROR] Unable to reach the synchronization server.", date), new QueryableArrayList<>(), false, false);
+        }
+
+        for (int i = 0; i < Integer.parseInt(TestUtilities.getSettingProvider().MaxDataToKeep) - 5; i++) {
+            Date date = new Date(System.currentTimeMillis());
+            service.addDataEntry(new ClipboardData(Integer.toString(i), date), new QueryableArrayList<>(), false, false);
+        }
+
+        assertEquals(service.getDataEntries().size(), Integer.parseInt(TestUtilities.getSettingProvider().MaxDataToKeep));
+        assertEquals(DataHelper.fromBase64(last(service.getDataEntries()).getThumbnail().getValue(), String.class), "2017-03-12 10:42:05 [ERROR] Unable to reach the synchronization server.");
+        assertEquals(service.getNearDuplicates(last(service.getDataEntries())).size(), 4);
     }
 
     @Test
@@ -264,14 +314,14 @@ public class DataServiceTests {
         service.addDataEntry(new ClipboardData("-1", new Date(System.currentTimeMillis())), new QueryableArrayList<>(), false, false);
 
         assertEquals(service.getDataEntries().size(), 11);
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().first().getThumbnail().getValue(), String.class), "-1");
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().last().getThumbnail().getValue(), String.class), "0");
+        assertEquals(DataHelper.fromBase64(service.getDataEntries().get(0).getThumbnail().getValue(), String.class), "-1");
+        assertEquals(DataHelper.fromBase64(last(service.getDataEntries()).getThumbnail().getValue(), String.class), "0");
 
-        service.getDataEntries().last().setIsFavorite(true);
-        service.reorganizeAsync(true).await();
+        // the published entries are immutable, the favorite goes through the history writer, which moves it on top.
+        service.setFavoriteAsync(last(service.getDataEntries()).getIdentifier(), true).await();
 
         assertEquals(service.getDataEntries().size(), 11);
-        assertEquals(DataHelper.fromBase64(service.getDataEntries().first().getThumbnail().getValue(), String.class), "0");
+        assertEquals(DataHelper.fromBase64(service.getDataEntries().get(0).getThumbnail().getValue(), String.class), "0");
         assertEquals(DataHelper.fromBase64(service.getDataEntries().get(1).getThumbnail().getValue(), String.class), "-1");
     }
 
@@ -288,17 +338,47 @@ public class DataServiceTests {
         assertEquals(service.getDataEntries().size(), 10);
         assertEquals(service.getCache().size(), 10);
 
-        assertTrue(service.getCache().all(dataEntryCache -> dataEntryCache.getStatus() == DataEntryStatus.ADDED));
+        assertTrue(service.getCache().asQuery().all(dataEntryCache -> dataEntryCache.getStatus() == DataEntryStatus.ADDED));
 
         service.removeAllDataAsync().await();
 
         assertEquals(service.getDataEntries().size(), 0);
         assertEquals(service.getCache().size(), 10);
 
-        assertTrue(service.getCache().all(dataEntryCache -> dataEntryCache.getStatus() == DataEntryStatus.DELETED));
+        assertTrue(service.getCache().asQuery().all(dataEntryCache -> dataEntryCache.getStatus() == DataEntryStatus.DELETED));
+    }
+
+    @Test
+    public void changesSince() throws Exception {
+        DataService service = getDataService();
+        long cursor = service.getLastSequenceNumber();
+
+        for (int i = 0; i < 5; i++) {
+            service.addDataEntry(new ClipboardData(Integer.toString(i), new Date(System.currentTimeMillis())), new QueryableArrayList<>(), false, false);
+        }
+
+        UUID removed = last(service.getDataEntries()).getIdentifier();
+        service.removeDataAsync(removed, last(service.getDataEntries()).getDataIdentifiers()).await();
+
+        List<DataEntryCache> firstPage = service.changesSince(cursor, 3);
+        assertEquals(3, firstPage.size());
+        assertTrue(firstPage.get(0).getSequenceNumber() > cursor);
+        assertTrue(firstPage.get(1).getSequenceNumber() > firstPage.get(0).getSequenceNumber());
+
+        List<DataEntryCache> secondPage = service.changesSince(firstPage.get(2).getSequenceNumber(), 3);
+        assertEquals(2, secondPage.size());
+        assertEquals(removed, secondPage.get(1).getIdentifier());
+        assertEquals(DataEntryStatus.DELETED, secondPage.get(1).getStatus());
+        assertEquals(service.getLastSequenceNumber(), secondPage.get(1).getSequenceNumber());
+
+        assertEquals(0, service.changesSince(service.getLastSequenceNumber(), 3).size());
     }
 
     private DataService getDataService() {
         return ServiceLocator.getService(DataService.class);
     }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
 }
\ No newline at end of file
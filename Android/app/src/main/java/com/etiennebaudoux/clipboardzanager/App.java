@@ -4,6 +4,7 @@ import android.app.Activity;
 import android.app.Application;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 
 import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudStorageProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.providers.DropBoxProvider;
@@ -14,11 +15,20 @@ import com.etiennebaudoux.clipboardzanager.componentmodel.core.CoreHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.services.ServiceLocator;
 import com.etiennebaudoux.clipboardzanager.componentmodel.services.ServiceSettingProvider;
+import com.etiennebaudoux.clipboardzanager.componentmodel.services.SettingsService;
 
 public class App extends Application {
     private static Context _context;
     private static Activity _activity;
 
+    // the preferences only keep a weak reference to their listeners.
+    private final SharedPreferences.OnSharedPreferenceChangeListener _settingChangedListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            ServiceLocator.getService(SettingsService.class).onSettingChanged(key);
+        }
+    };
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -37,6 +47,7 @@ public class App extends Application {
             CoreHelper.setSetting("KeepDataAfterReboot", "true");
 
             ServiceLocator.setSettingProvider(new SettingProvider());
+            CoreHelper.registerSettingChangedListener(_settingChangedListener);
 
             Intent newIntent = new Intent(this, BootService.class);
             startService(newIntent);
@@ -56,17 +67,22 @@ public class App extends Application {
     }
 
     private class SettingProvider implements ServiceSettingProvider {
+        private QueryableArrayList<CloudStorageProvider> _cloudStorageProviders;
+
         @Override
         public String getSetting(String settingName) {
             return CoreHelper.getSetting(settingName);
         }
 
         @Override
-        public QueryableArrayList<CloudStorageProvider> getCloudStorageProviders() {
-            QueryableArrayList<CloudStorageProvider> result = new QueryableArrayList<>();
-            result.add(new DropBoxProvider(new DropBoxTokenProvider()));
-            result.add(new OneDriveProvider(new OneDriveTokenProdiver()));
-            return result;
+        public synchronized QueryableArrayList<CloudStorageProvider> getCloudStorageProviders() {
+            // the providers keep their authentication state, so they are created once.
+            if (_cloudStorageProviders == null) {
+                _cloudStorageProviders = new QueryableArrayList<>();
+                _cloudStorageProviders.add(new DropBoxProvider(new DropBoxTokenProvider()));
+                _cloudStorageProviders.add(new OneDriveProvider(new OneDriveTokenProdiver()));
+            }
+            return _cloudStorageProviders;
         }
 
         @Override
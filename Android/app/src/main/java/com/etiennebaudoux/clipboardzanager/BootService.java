@@ -4,11 +4,15 @@ import android.app.Service;
 import android.content.Intent;
 import android.os.IBinder;
 import android.support.annotation.Nullable;
+import android.util.Log;
 
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Continuation;
 import com.etiennebaudoux.clipboardzanager.componentmodel.services.ClipboardService;
 import com.etiennebaudoux.clipboardzanager.componentmodel.services.DataService;
 import com.etiennebaudoux.clipboardzanager.componentmodel.services.ServiceLocator;
 
+import java.io.StringWriter;
+
 /**
  * Basic service started with Android.
  */
@@ -24,7 +28,18 @@ public class BootService extends Service {
     public void onCreate() {
         super.onCreate();
 
-        ServiceLocator.getService(DataService.class);
+        // the history is loaded in the background, and the clipboard is listened immediately.
+        final DataService dataService = ServiceLocator.getService(DataService.class);
         ServiceLocator.getService(ClipboardService.class);
+
+        dataService.getStartupTask().thenApply(new Continuation<Void, Void>() {
+            @Override
+            public Void call(Void result) throws Exception {
+                StringWriter writer = new StringWriter();
+                dataService.getStartupPipeline().dump(writer);
+                Log.d(BootService.class.getSimpleName(), writer.toString());
+                return null;
+            }
+        });
     }
 }
@@ -2,6 +2,7 @@ package com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage;
 
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.Event;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
 
 import java.io.InputStream;
@@ -98,6 +99,16 @@ public interface CloudStorageProvider {
      */
     Task<CloudFile> uploadFileAsync(InputStream baseStream, String remotePath);
 
+    /**
+     * Upload a file to the specified remote path and overwrite if it already exists. When the cancellation is requested, the connection is closed and the task finishes immediately.
+     *
+     * @param baseStream        The stream that contains the data to upload.
+     * @param remotePath        The destination path on the could service.
+     * @param cancellationToken The {@link CancellationToken} that stops the upload.
+     * @return A {@link CloudFile} that contains information about the uploaded file.
+     */
+    Task<CloudFile> uploadFileAsync(InputStream baseStream, String remotePath, CancellationToken cancellationToken);
+
     /**
      * Download a file to the specified local path and overwrite if it already exists.
      *
@@ -107,6 +118,16 @@ public interface CloudStorageProvider {
      */
     Task<Void> downloadFileAsync(String remotePath, OutputStream targetStream);
 
+    /**
+     * Download a file to the specified local path and overwrite if it already exists. When the cancellation is requested, the connection is closed and the task finishes immediately.
+     *
+     * @param remotePath        The remote file to download.
+     * @param targetStream      The stream where the data will be saved.
+     * @param cancellationToken The {@link CancellationToken} that stops the download.
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    Task<Void> downloadFileAsync(String remotePath, OutputStream targetStream, CancellationToken cancellationToken);
+
     /**
      * Delete a file on the server.
      *
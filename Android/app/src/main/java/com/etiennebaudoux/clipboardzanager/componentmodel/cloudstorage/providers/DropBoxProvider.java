@@ -4,7 +4,7 @@ import com.dropbox.core.DbxDownloader;
 import com.dropbox.core.DbxRequestConfig;
 import com.dropbox.core.android.Auth;
 import com.dropbox.core.http.HttpRequestor;
-import com.dropbox.core.http.StandardHttpRequestor;
+import com.dropbox.core.http.OkHttp3Requestor;
 import com.dropbox.core.v2.DbxClientV2;
 import com.dropbox.core.v2.files.FileMetadata;
 import com.dropbox.core.v2.files.ListFolderResult;
@@ -18,14 +18,18 @@ import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudFold
 import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudStorageProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudTokenProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.CoreHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.HttpClientProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.StringUtils;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.Event;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
 import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.NotAuthenticatedException;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.CancellableInputStream;
 import com.etiennebaudoux.clipboardzanager.componentmodel.io.IoUtils;
 
 import java.io.InputStream;
@@ -164,7 +168,7 @@ public class DropBoxProvider implements CloudStorageProvider {
                 }
                 return isAuthenticated();
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -193,7 +197,7 @@ public class DropBoxProvider implements CloudStorageProvider {
                 setIsAuthenticated(false);
                 return isAuthenticated();
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -206,7 +210,7 @@ public class DropBoxProvider implements CloudStorageProvider {
                 setIsAuthenticated(false);
                 return null;
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -217,7 +221,7 @@ public class DropBoxProvider implements CloudStorageProvider {
                 throwIfNotConnected();
                 return _client.users().getCurrentAccount().getName().getDisplayName();
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -228,7 +232,7 @@ public class DropBoxProvider implements CloudStorageProvider {
                 throwIfNotConnected();
                 return _client.users().getCurrentAccount().getAccountId();
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -266,46 +270,84 @@ public class DropBoxProvider implements CloudStorageProvider {
                 result.setFiles(files);
                 return result;
             }
-        });
+        }, TaskLane.SYNC);
     }
 
     @Override
     public Task<CloudFile> uploadFileAsync(InputStream baseStream, String remotePath) {
+        return uploadFileAsync(baseStream, remotePath, CancellationToken.None);
+    }
+
+    @Override
+    public Task<CloudFile> uploadFileAsync(final InputStream baseStream, final String remotePath, final CancellationToken cancellationToken) {
         return new Task<>(new Callable<CloudFile>() {
             @Override
             public CloudFile call() throws Exception {
                 throwIfNotConnected();
+                cancellationToken.throwIfCancellationRequested();
 
                 UploadBuilder builder = _client.files().uploadBuilder(remotePath);
                 builder.withMode(WriteMode.OVERWRITE);
 
-                try (UploadUploader uploader = builder.start()) {
-                    FileMetadata fileInfo = uploader.uploadAndFinish(baseStream);
-
-                    CloudFile result = new CloudFile();
-                    result.setName(fileInfo.getName());
-                    result.setFullPath(fileInfo.getPathDisplay());
-                    result.setLastModificationUtcDate(fileInfo.getServerModified());
-                    return result;
+                try (final UploadUploader uploader = builder.start()) {
+                    // aborting the upload closes the connection, which unblocks the thread.
+                    Runnable abort = new Runnable() {
+                        @Override
+                        public void run() {
+                            uploader.abort();
+                        }
+                    };
+                    cancellationToken.register(abort);
+
+                    try {
+                        FileMetadata fileInfo = uploader.uploadAndFinish(new CancellableInputStream(baseStream, cancellationToken));
+
+                        CloudFile result = new CloudFile();
+                        result.setName(fileInfo.getName());
+                        result.setFullPath(fileInfo.getPathDisplay());
+                        result.setLastModificationUtcDate(fileInfo.getServerModified());
+                        return result;
+                    } finally {
+                        cancellationToken.unregister(abort);
+                    }
                 }
             }
-        });
+        }, TaskLane.SYNC, cancellationToken);
     }
 
     @Override
     public Task<Void> downloadFileAsync(String remotePath, OutputStream targetStream) {
+        return downloadFileAsync(remotePath, targetStream, CancellationToken.None);
+    }
+
+    @Override
+    public Task<Void> downloadFileAsync(final String remotePath, final OutputStream targetStream, final CancellationToken cancellationToken) {
         return new Task<>(new Callable<Void>() {
             @Override
             public Void call() throws Exception {
                 throwIfNotConnected();
+                cancellationToken.throwIfCancellationRequested();
 
-                try (DbxDownloader response = _client.files().download(remotePath);
+                try (final DbxDownloader response = _client.files().download(remotePath);
                      InputStream stream = response.getInputStream()) {
-                    IoUtils.copy(stream, targetStream);
+                    // closing the response closes the connection, which unblocks the thread.
+                    Runnable close = new Runnable() {
+                        @Override
+                        public void run() {
+                            response.close();
+                        }
+                    };
+                    cancellationToken.register(close);
+
+                    try {
+                        IoUtils.copy(stream, targetStream, cancellationToken);
+                    } finally {
+                        cancellationToken.unregister(close);
+                    }
                 }
                 return null;
             }
-        });
+        }, TaskLane.SYNC, cancellationToken);
     }
 
     @Override
@@ -317,7 +359,7 @@ public class DropBoxProvider implements CloudStorageProvider {
                 _client.files().permanentlyDelete(remotePath);
                 return null;
             }
-        });
+        }, TaskLane.SYNC);
     }
 
     /**
@@ -336,10 +378,9 @@ public class DropBoxProvider implements CloudStorageProvider {
      * @return a {@link DbxRequestConfig}
      */
     private DbxRequestConfig getRequestConfig() {
-        StandardHttpRequestor.Config.Builder configBuilder = StandardHttpRequestor.Config.builder();
-        configBuilder.withConnectTimeout(20, TimeUnit.MINUTES);
-        configBuilder.withReadTimeout(20, TimeUnit.MINUTES);
-        HttpRequestor httpClient = new StandardHttpRequestor(configBuilder.build());
+        // the requests go through the shared HTTP client, so they reuse its connections.
+        long timeout = TimeUnit.MINUTES.toMillis(20);
+        HttpRequestor httpClient = new OkHttp3Requestor(HttpClientProvider.getClient(timeout, timeout));
 
         DbxRequestConfig.Builder config = DbxRequestConfig.newBuilder(CoreHelper.getApplicationName());
         config.withHttpRequestor(httpClient);
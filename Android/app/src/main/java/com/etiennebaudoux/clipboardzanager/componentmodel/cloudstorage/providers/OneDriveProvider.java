@@ -6,13 +6,16 @@ import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudFold
 import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudStorageProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudTokenProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.DefaultCallback;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.HttpClientProvider;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.StringUtils;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.Event;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
 import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.NotAuthenticatedException;
 import com.etiennebaudoux.clipboardzanager.componentmodel.io.IoUtils;
 import com.onedrive.sdk.authentication.MSAAuthenticator;
@@ -29,12 +32,12 @@ import com.onedrive.sdk.logger.LoggerLevel;
 import org.json.JSONObject;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URL;
 import java.util.concurrent.Callable;
 
-import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
@@ -166,7 +169,7 @@ public class OneDriveProvider implements CloudStorageProvider {
                 setIsAuthenticated(!authenticator.getAccountInfo().isExpired());
                 return isAuthenticated();
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -213,7 +216,7 @@ public class OneDriveProvider implements CloudStorageProvider {
                 setAuthenticationWithUiInProgress(false);
                 return tryAuthenticateAsync().await();
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -231,7 +234,7 @@ public class OneDriveProvider implements CloudStorageProvider {
                 setIsAuthenticated(false);
                 return null;
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -248,7 +251,7 @@ public class OneDriveProvider implements CloudStorageProvider {
 
                 return "";
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -265,7 +268,7 @@ public class OneDriveProvider implements CloudStorageProvider {
 
                 return "";
             }
-        });
+        }, TaskLane.UI);
     }
 
     @Override
@@ -310,19 +313,28 @@ public class OneDriveProvider implements CloudStorageProvider {
                 result.setFiles(files);
                 return result;
             }
-        });
+        }, TaskLane.SYNC);
     }
 
     @Override
     public Task<CloudFile> uploadFileAsync(InputStream baseStream, String remotePath) {
+        return uploadFileAsync(baseStream, remotePath, CancellationToken.None);
+    }
+
+    @Override
+    public Task<CloudFile> uploadFileAsync(final InputStream baseStream, final String remotePath, final CancellationToken cancellationToken) {
         return new Task<>(new Callable<CloudFile>() {
             @Override
             public CloudFile call() throws Exception {
                 throwIfNotConnected();
 
                 try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
-                    IoUtils.copy(baseStream, stream);
+                    IoUtils.copy(baseStream, stream, cancellationToken);
+
+                    // the SDK cannot abort a request, so the cancellation is checked right before and after it.
+                    cancellationToken.throwIfCancellationRequested();
                     Item fileInfo = _client.getDrive().getRoot().getItemWithPath(remotePath).getContent().buildRequest().put(stream.toByteArray());
+                    cancellationToken.throwIfCancellationRequested();
 
                     CloudFile result = new CloudFile();
                     result.setName(fileInfo.name);
@@ -331,22 +343,45 @@ public class OneDriveProvider implements CloudStorageProvider {
                     return result;
                 }
             }
-        });
+        }, TaskLane.SYNC, cancellationToken);
     }
 
     @Override
     public Task<Void> downloadFileAsync(String remotePath, OutputStream targetStream) {
+        return downloadFileAsync(remotePath, targetStream, CancellationToken.None);
+    }
+
+    @Override
+    public Task<Void> downloadFileAsync(final String remotePath, final OutputStream targetStream, final CancellationToken cancellationToken) {
         return new Task<>(new Callable<Void>() {
             @Override
             public Void call() throws Exception {
                 throwIfNotConnected();
+                cancellationToken.throwIfCancellationRequested();
 
-                try (InputStream stream = _client.getDrive().getRoot().getItemWithPath(remotePath).getContent().buildRequest().get()) {
-                    IoUtils.copy(stream, targetStream);
+                try (final InputStream stream = _client.getDrive().getRoot().getItemWithPath(remotePath).getContent().buildRequest().get()) {
+                    // closing the stream closes the connection, which unblocks the thread.
+                    Runnable close = new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                stream.close();
+                            } catch (IOException exception) {
+                                exception.printStackTrace();
+                            }
+                        }
+                    };
+                    cancellationToken.register(close);
+
+                    try {
+                        IoUtils.copy(stream, targetStream, cancellationToken);
+                    } finally {
+                        cancellationToken.unregister(close);
+                    }
                 }
                 return null;
             }
-        });
+        }, TaskLane.SYNC, cancellationToken);
     }
 
     @Override
@@ -358,7 +393,7 @@ public class OneDriveProvider implements CloudStorageProvider {
                 _client.getDrive().getRoot().getItemWithPath(remotePath).buildRequest().delete();
                 return null;
             }
-        });
+        }, TaskLane.SYNC);
     }
 
     /**
@@ -433,10 +468,9 @@ public class OneDriveProvider implements CloudStorageProvider {
                 String accessToken = getAccessToken();
                 URL uri = new URL("https://apis.live.net/v5.0/me?access_token=" + accessToken);
 
-                OkHttpClient client = new OkHttpClient();
                 Request request = new Request.Builder().url(uri).build();
 
-                try (Response response = client.newCall(request).execute()) {
+                try (Response response = HttpClientProvider.getClient().newCall(request).execute()) {
                     String jsonUserInfo = response.body().string();
                     if (!StringUtils.isEmptyOrWhiteSpace(jsonUserInfo)) {
                         return new JSONObject(jsonUserInfo);
@@ -445,7 +479,7 @@ public class OneDriveProvider implements CloudStorageProvider {
 
                 return null;
             }
-        });
+        }, TaskLane.UI);
     }
 
     /**
@@ -0,0 +1,149 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides a set of functions designed to decode bitmaps without loading them fully in memory.
+ */
+public final class BitmapHelper {
+    /**
+     * Determines whether the specified {@link Uri} points to an image.
+     *
+     * @param resolver The {@link ContentResolver} used to read the content.
+     * @param uri      The {@link Uri} to test.
+     * @return True if the content type of the {@link Uri} is an image.
+     */
+    public static boolean isImage(ContentResolver resolver, Uri uri) {
+        Requires.notNull(resolver, "resolver");
+        Requires.notNull(uri, "uri");
+
+        String mimeType = resolver.getType(uri);
+        return mimeType != null && mimeType.startsWith("image/");
+    }
+
+    /**
+     * Decodes a downsampled version of the image behind the specified {@link Uri}. Only the bounds of the image are read first, so the full size image is never allocated.
+     *
+     * @param resolver The {@link ContentResolver} used to read the content.
+     * @param uri      The {@link Uri} of the image.
+     * @param maxSize  The maximum width and height of the result, in pixels.
+     * @return A {@link Bitmap} that fits in the specified size, or null if the content is not a supported image.
+     * @throws IOException
+     */
+    public static Bitmap decodeSampledBitmap(ContentResolver resolver, Uri uri, int maxSize) throws IOException {
+        Requires.notNull(resolver, "resolver");
+        Requires.notNull(uri, "uri");
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+
+        try (InputStream stream = resolver.openInputStream(uri)) {
+            BitmapFactory.decodeStream(stream, null, options);
+        }
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, maxSize);
+        options.inJustDecodeBounds = false;
+
+        Bitmap bitmap;
+        try (InputStream stream = resolver.openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(stream, null, options);
+        }
+
+        if (bitmap == null) {
+            return null;
+        }
+
+        return scaleToFit(bitmap, maxSize);
+    }
+
+    /**
+     * Decodes a downsampled version of the image behind the specified {@link Uri} and converts it to a base64 {@link String}.
+     *
+     * @param resolver The {@link ContentResolver} used to read the content.
+     * @param uri      The {@link Uri} of the image.
+     * @param maxSize  The maximum width and height of the result, in pixels.
+     * @return A base64 {@link String} that represents a PNG image, or null if the content is not a supported image.
+     * @throws IOException
+     */
+    public static String toBase64Thumbnail(ContentResolver resolver, Uri uri, int maxSize) throws IOException {
+        Bitmap bitmap = decodeSampledBitmap(resolver, uri, maxSize);
+        if (bitmap == null) {
+            return null;
+        }
+
+        try (ByteArrayOutputStream stream = new ByteArrayOutputStream()) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, stream);
+            bitmap.recycle();
+            return DataHelper.toBase64(stream.toByteArray());
+        }
+    }
+
+    /**
+     * Decodes a thumbnail generated by {@link BitmapHelper#toBase64Thumbnail(ContentResolver, Uri, int)}.
+     *
+     * @param base64String The base64 {@link String} that represents the image.
+     * @return A {@link Bitmap}.
+     */
+    public static Bitmap fromBase64Thumbnail(String base64String) {
+        Requires.notNullOrEmpty(base64String, "base64String");
+
+        byte[] data = DataHelper.byteArrayFromBase64(base64String);
+        return BitmapFactory.decodeByteArray(data, 0, data.length, null);
+    }
+
+    /**
+     * Calculates the largest power of two sample size that keeps the larger dimension of the image greater or equal to the requested size. The result is then scaled down to fit, so a panorama is not decoded at its full resolution.
+     *
+     * @param width   The width of the original image.
+     * @param height  The height of the original image.
+     * @param maxSize The requested maximum width and height.
+     * @return The sample size to use with {@link BitmapFactory.Options#inSampleSize}.
+     */
+    static int calculateInSampleSize(int width, int height, int maxSize) {
+        int inSampleSize = 1;
+
+        int largerDimension = Math.max(width, height);
+
+        while (largerDimension / (inSampleSize * 2) >= maxSize) {
+            inSampleSize *= 2;
+        }
+
+        return inSampleSize;
+    }
+
+    /**
+     * Scales down a {@link Bitmap} so it fits into the specified size, by keeping its ratio.
+     *
+     * @param bitmap  The {@link Bitmap} to scale.
+     * @param maxSize The maximum width and height.
+     * @return The scaled {@link Bitmap}, or the original one if it already fits.
+     */
+    private static Bitmap scaleToFit(Bitmap bitmap, int maxSize) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+
+        if (width <= maxSize && height <= maxSize) {
+            return bitmap;
+        }
+
+        float ratio = Math.min((float) maxSize / width, (float) maxSize / height);
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(width * ratio)), Math.max(1, Math.round(height * ratio)), true);
+
+        if (scaled != bitmap) {
+            bitmap.recycle();
+        }
+
+        return scaled;
+    }
+}
@@ -8,6 +8,53 @@ public final class Consts {
     // Clipboard
     public static final String DataEntryFileName = ".clipboard";
     public static final String CacheFileName = ".clipboardCache";
+    public static final String SequenceFileName = ".clipboardSequence";
     public static final String PasswordMask = "•";
     public static final int ClipboardDataBufferSize = 2048;
+    public static final String TextFormatName = "Text";
+    public static final String BitmapFormatName = "Bitmap";
+    public static final String FileDropFormatName = "FileDrop";
+    public static final String DeltaFileExtension = ".delta";
+    public static final int DeltaMinimumDataLength = 4 * 1024;
+    public static final int DeltaMaximumChainLength = 8;
+    public static final String CompressionDictionaryFileName = ".clipboardDictionary";
+    public static final String PreviousCompressionDictionaryFileName = ".clipboardPreviousDictionary";
+    public static final String CompressionDictionarySamplesFileName = ".clipboardDictionarySamples";
+    public static final String TemporaryFileExtension = ".tmp";
+    public static final int CompressionDictionaryMaximumLength = 32 * 1024;
+    public static final int CompressionDictionaryMaximumDataLength = 4 * 1024;
+    public static final int CompressionDictionaryMaximumSampleLength = 1024;
+    public static final int CompressionDictionaryMinimumSampleCount = 20;
+    public static final long HistoryChangeFrameMilliseconds = 16;
+    public static final int DataCacheDivider = 32;
+    public static final int DataCacheMaximumDataLength = 256 * 1024;
+    public static final int DataPrefetchCount = 8;
+
+    // Network
+    public static final int HttpMaximumRequests = 64;
+    public static final int HttpMaximumRequestsPerHost = 4;
+    public static final int HttpMaximumIdleConnections = 5;
+    public static final long HttpKeepAliveMilliseconds = 5 * 60 * 1000;
+    public static final long HttpConnectTimeoutMilliseconds = 15000;
+    public static final long HttpReadTimeoutMilliseconds = 30000;
+    public static final String HttpCacheFolderName = "http";
+    public static final long HttpCacheMaximumSize = 10 * 1024 * 1024;
+
+    // Links
+    public static final int LinkPreviewTimeoutMilliseconds = 10000;
+    public static final long LinkPreviewDeadlineMilliseconds = 20000;
+    public static final int LinkPreviewMaximumHeadLength = 64 * 1024;
+    public static final String LinkMetadataFolderName = "links";
+    public static final int LinkMetadataMemoryCapacity = 128;
+    public static final int LinkMetadataDiskCapacity = 1024;
+    public static final long LinkMetadataTimeToLiveMilliseconds = 7L * 24 * 60 * 60 * 1000;
+    public static final long LinkMetadataFailureTimeToLiveMilliseconds = 60L * 60 * 1000;
+
+    // Security
+    public static final int SaltKeyCacheCapacity = 4;
+    public static final String ContentHashKeySalt = "ClipboardZanager.ContentHash";
+
+    // Thumbnails
+    public static final int ThumbnailMaxSize = 256;
+    public static final int ThumbnailCacheDivider = 16;
 }
@@ -72,6 +72,15 @@ public final class CoreHelper {
         _settings.edit().putString(settingName, value).apply();
     }
 
+    /**
+     * Registers a listener called when an application's setting changes. The settings only keep a weak reference to the listener, so the caller must keep it.
+     *
+     * @param listener The listener to register.
+     */
+    public static void registerSettingChangedListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
+        _settings.registerOnSharedPreferenceChangeListener(listener);
+    }
+
     /**
      * Returns the version of the executable
      *
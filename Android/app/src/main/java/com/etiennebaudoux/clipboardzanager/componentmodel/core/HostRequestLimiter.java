@@ -0,0 +1,180 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * Limits the number of requests that run at the same time, in total and for each host.
+ * <p>
+ * The limits of the {@link okhttp3.Dispatcher} only apply to the asynchronous calls, while this interceptor also applies to the calls that run on the current thread with execute(). A request keeps its place until its response body is closed, so a long download counts as long as it runs.
+ */
+final class HostRequestLimiter implements Interceptor {
+    //region Fields
+
+    private final Object _lock = new Object();
+    private final HashMap<String, Integer> _runningRequestsPerHost = new HashMap<>();
+    private final int _maxRequests;
+    private final int _maxRequestsPerHost;
+    private int _runningRequests;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link HostRequestLimiter} class.
+     *
+     * @param maxRequests        The maximum number of requests that run at the same time.
+     * @param maxRequestsPerHost The maximum number of requests that run at the same time on each host.
+     */
+    HostRequestLimiter(int maxRequests, int maxRequestsPerHost) {
+        Requires.isTrue(maxRequests > 0);
+        Requires.isTrue(maxRequestsPerHost > 0);
+        _maxRequests = maxRequests;
+        _maxRequestsPerHost = maxRequestsPerHost;
+    }
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        final String host = request.url().host();
+
+        acquire(host);
+
+        final AtomicBoolean isReleased = new AtomicBoolean();
+        Runnable release = new Runnable() {
+            @Override
+            public void run() {
+                if (isReleased.compareAndSet(false, true)) {
+                    release(host);
+                }
+            }
+        };
+
+        Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException | RuntimeException exception) {
+            release.run();
+            throw exception;
+        }
+
+        ResponseBody body = response.body();
+        if (body == null) {
+            release.run();
+            return response;
+        }
+
+        return response.newBuilder().body(new ReleasingResponseBody(body, release)).build();
+    }
+
+    /**
+     * Gets the number of requests that are running on a host.
+     *
+     * @param host The name of the host.
+     * @return The number of running requests.
+     */
+    int getRunningRequestCount(String host) {
+        synchronized (_lock) {
+            Integer count = _runningRequestsPerHost.get(host);
+            return count == null ? 0 : count;
+        }
+    }
+
+    /**
+     * Waits until a request to a host can start, and counts it.
+     *
+     * @param host The name of the host.
+     * @throws InterruptedIOException
+     */
+    private void acquire(String host) throws InterruptedIOException {
+        synchronized (_lock) {
+            while (_runningRequests >= _maxRequests || getRunningRequestCount(host) >= _maxRequestsPerHost) {
+                try {
+                    _lock.wait();
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+
+            _runningRequests++;
+            _runningRequestsPerHost.put(host, getRunningRequestCount(host) + 1);
+        }
+    }
+
+    /**
+     * Counts the end of a request to a host, and wakes up the requests that wait for it.
+     *
+     * @param host The name of the host.
+     */
+    private void release(String host) {
+        synchronized (_lock) {
+            _runningRequests--;
+
+            // the hosts without running requests are forgotten, so the link previews of many websites do not accumulate.
+            int count = getRunningRequestCount(host) - 1;
+            if (count == 0) {
+                _runningRequestsPerHost.remove(host);
+            } else {
+                _runningRequestsPerHost.put(host, count);
+            }
+
+            _lock.notifyAll();
+        }
+    }
+
+    //endregion
+
+    /**
+     * A {@link ResponseBody} that releases the place of its request when it is closed.
+     */
+    private static final class ReleasingResponseBody extends ResponseBody {
+        private final ResponseBody _body;
+        private final BufferedSource _source;
+
+        ReleasingResponseBody(ResponseBody body, final Runnable release) {
+            _body = body;
+            _source = Okio.buffer(new ForwardingSource(body.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release.run();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return _body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return _body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return _source;
+        }
+    }
+}
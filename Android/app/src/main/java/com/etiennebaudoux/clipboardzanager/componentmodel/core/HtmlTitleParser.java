@@ -0,0 +1,275 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Provides a set of functions designed to extract the title of an HTML page without downloading the whole page. Only the head of the page is read.
+ */
+public final class HtmlTitleParser {
+    //region Fields
+
+    private static final int BufferSize = 1024 * 2;
+    private static final byte[][] _headEndTags = new byte[][]{"</head".getBytes(Charset.forName("US-ASCII")), "<body".getBytes(Charset.forName("US-ASCII"))};
+
+    private static final Pattern _titlePattern = Pattern.compile("<title[^>]*>(.*?)</title\\s*>", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern _metaPattern = Pattern.compile("<meta\\s[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern _openGraphTitlePattern = Pattern.compile("\\s(?:property|name)\\s*=\\s*[\"']?og:title[\"'\\s/>]", Pattern.CASE_INSENSITIVE);
+    private static final Pattern _contentPattern = Pattern.compile("\\scontent\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)')", Pattern.CASE_INSENSITIVE);
+    private static final Pattern _charsetPattern = Pattern.compile("<meta[^>]+charset\\s*=\\s*[\"']?\\s*([a-zA-Z0-9_.:\\-]+)", Pattern.CASE_INSENSITIVE);
+    private static final Pattern _entityPattern = Pattern.compile("&(#[0-9]{1,7}|#[xX][0-9a-fA-F]{1,6}|[a-zA-Z][a-zA-Z0-9]{1,7});");
+    private static final Pattern _whiteSpacePattern = Pattern.compile("\\s+");
+
+    private static final HashMap<String, Character> _entities = new HashMap<>();
+
+    static {
+        _entities.put("amp", '&');
+        _entities.put("lt", '<');
+        _entities.put("gt", '>');
+        _entities.put("quot", '"');
+        _entities.put("apos", '\'');
+        _entities.put("nbsp", ' ');
+        _entities.put("copy", '\u00a9');
+        _entities.put("reg", '\u00ae');
+        _entities.put("trade", '\u2122');
+        _entities.put("laquo", '\u00ab');
+        _entities.put("raquo", '\u00bb');
+        _entities.put("middot", '\u00b7');
+        _entities.put("bull", '\u2022');
+        _entities.put("ndash", '\u2013');
+        _entities.put("mdash", '\u2014');
+        _entities.put("hellip", '\u2026');
+        _entities.put("lsquo", '\u2018');
+        _entities.put("rsquo", '\u2019');
+        _entities.put("ldquo", '\u201c');
+        _entities.put("rdquo", '\u201d');
+        _entities.put("euro", '\u20ac');
+        _entities.put("agrave", '\u00e0');
+        _entities.put("aacute", '\u00e1');
+        _entities.put("acirc", '\u00e2');
+        _entities.put("auml", '\u00e4');
+        _entities.put("ccedil", '\u00e7');
+        _entities.put("egrave", '\u00e8');
+        _entities.put("eacute", '\u00e9');
+        _entities.put("ecirc", '\u00ea');
+        _entities.put("euml", '\u00eb');
+        _entities.put("icirc", '\u00ee');
+        _entities.put("iuml", '\u00ef');
+        _entities.put("ntilde", '\u00f1');
+        _entities.put("ocirc", '\u00f4');
+        _entities.put("ouml", '\u00f6');
+        _entities.put("ugrave", '\u00f9');
+        _entities.put("ucirc", '\u00fb');
+        _entities.put("uuml", '\u00fc');
+        _entities.put("szlig", '\u00df');
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Reads the head of an HTML page from a stream and extracts its title. The reading stops at the end of the head, or when the maximum length is reached.
+     *
+     * @param stream        The stream that contains the HTML page.
+     * @param charsetName   The charset given by the server, or null if it is unknown.
+     * @param maximumLength The maximum number of bytes to read.
+     * @return The Open Graph title of the page if there is one, otherwise the content of the title tag, or an empty string.
+     * @throws IOException
+     */
+    public static String parse(InputStream stream, String charsetName, int maximumLength) throws IOException {
+        Requires.notNull(stream, "stream");
+
+        byte[] data = new byte[Math.min(BufferSize, maximumLength)];
+        int length = 0;
+        int readLength;
+
+        while (length < maximumLength) {
+            if (length == data.length) {
+                data = Arrays.copyOf(data, Math.min(data.length * 2, maximumLength));
+            }
+
+            readLength = stream.read(data, length, data.length - length);
+            if (readLength == -1) {
+                break;
+            }
+
+            // the tags can be cut between two reads, so the end of the previous block is searched again.
+            int searchStart = Math.max(0, length - _headEndTags[0].length);
+            length += readLength;
+
+            if (indexOfHeadEnd(data, searchStart, length) > -1) {
+                break;
+            }
+        }
+
+        Charset charset = detectCharset(data, length, charsetName);
+        return extractTitle(new String(data, 0, length, charset));
+    }
+
+    /**
+     * Extracts the title of an HTML text.
+     *
+     * @param html The HTML text.
+     * @return The Open Graph title of the page if there is one, otherwise the content of the title tag, or an empty string.
+     */
+    static String extractTitle(String html) {
+        Requires.notNull(html, "html");
+
+        Matcher metaMatcher = _metaPattern.matcher(html);
+        while (metaMatcher.find()) {
+            String meta = metaMatcher.group();
+            if (_openGraphTitlePattern.matcher(meta).find()) {
+                Matcher contentMatcher = _contentPattern.matcher(meta);
+                if (contentMatcher.find()) {
+                    String title = normalize(contentMatcher.group(1) != null ? contentMatcher.group(1) : contentMatcher.group(2));
+                    if (!title.isEmpty()) {
+                        return title;
+                    }
+                }
+            }
+        }
+
+        Matcher titleMatcher = _titlePattern.matcher(html);
+        if (titleMatcher.find()) {
+            return normalize(titleMatcher.group(1));
+        }
+
+        return "";
+    }
+
+    /**
+     * Replaces the HTML entities of a text by the characters they represent.
+     *
+     * @param text The text to decode.
+     * @return The decoded text. The unknown entities are kept as is.
+     */
+    static String decodeEntities(String text) {
+        if (text.indexOf('&') == -1) {
+            return text;
+        }
+
+        Matcher matcher = _entityPattern.matcher(text);
+        StringBuilder result = new StringBuilder(text.length());
+        int position = 0;
+
+        while (matcher.find()) {
+            result.append(text, position, matcher.start());
+            position = matcher.end();
+
+            String entity = matcher.group(1);
+            if (entity.charAt(0) == '#') {
+                boolean isHexadecimal = entity.length() > 1 && (entity.charAt(1) == 'x' || entity.charAt(1) == 'X');
+                int codePoint = Integer.parseInt(entity.substring(isHexadecimal ? 2 : 1), isHexadecimal ? 16 : 10);
+
+                if (Character.isValidCodePoint(codePoint) && codePoint != 0) {
+                    result.appendCodePoint(codePoint);
+                } else {
+                    result.append(matcher.group());
+                }
+            } else {
+                Character character = _entities.get(entity.toLowerCase());
+                if (character != null) {
+                    result.append(character.charValue());
+                } else {
+                    result.append(matcher.group());
+                }
+            }
+        }
+
+        result.append(text, position, text.length());
+        return result.toString();
+    }
+
+    private static String normalize(String text) {
+        return _whiteSpacePattern.matcher(decodeEntities(text)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Determines the charset of a page from the charset given by the server, the byte order mark, or the meta tags of the page.
+     *
+     * @param data        The beginning of the page.
+     * @param length      The number of bytes of data.
+     * @param charsetName The charset given by the server, or null if it is unknown.
+     * @return The charset to use to decode the page. UTF-8 by default.
+     */
+    private static Charset detectCharset(byte[] data, int length, String charsetName) {
+        Charset charset = getCharset(charsetName);
+        if (charset != null) {
+            return charset;
+        }
+
+        if (length >= 3 && (data[0] & 0xff) == 0xef && (data[1] & 0xff) == 0xbb && (data[2] & 0xff) == 0xbf) {
+            return Charset.forName("UTF-8");
+        }
+
+        if (length >= 2 && (data[0] & 0xff) == 0xfe && (data[1] & 0xff) == 0xff) {
+            return Charset.forName("UTF-16BE");
+        }
+
+        if (length >= 2 && (data[0] & 0xff) == 0xff && (data[1] & 0xff) == 0xfe) {
+            return Charset.forName("UTF-16LE");
+        }
+
+        // the meta tags are ASCII, so any ASCII compatible charset can read them.
+        Matcher matcher = _charsetPattern.matcher(new String(data, 0, length, Charset.forName("ISO-8859-1")));
+        if (matcher.find()) {
+            charset = getCharset(matcher.group(1));
+            if (charset != null) {
+                return charset;
+            }
+        }
+
+        return Charset.forName("UTF-8");
+    }
+
+    private static Charset getCharset(String charsetName) {
+        if (StringUtils.isEmptyOrWhiteSpace(charsetName)) {
+            return null;
+        }
+
+        try {
+            return Charset.forName(charsetName.trim());
+        } catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    private static int indexOfHeadEnd(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            for (byte[] tag : _headEndTags) {
+                if (regionEqualsIgnoreCase(data, i, end, tag)) {
+                    return i;
+                }
+            }
+        }
+
+        return -1;
+    }
+
+    private static boolean regionEqualsIgnoreCase(byte[] data, int offset, int end, byte[] tag) {
+        if (offset + tag.length > end) {
+            return false;
+        }
+
+        for (int i = 0; i < tag.length; i++) {
+            byte value = data[offset + i];
+            if (value >= 'A' && value <= 'Z') {
+                value += 'a' - 'A';
+            }
+
+            if (value != tag[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    //endregion
+}
@@ -0,0 +1,92 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import android.content.Context;
+
+import com.etiennebaudoux.clipboardzanager.App;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Provides the HTTP client shared by all the network accesses of the application.
+ * <p>
+ * All the clients given by this class share the same connection pool and dispatcher, so a connection to a server is reused by the next requests, whatever the feature that sends them, and HTTP/2 servers multiplex the requests on one connection. They also share the limit of requests per host, which applies to the calls that run with execute() as well as the ones that are enqueued.
+ */
+public final class HttpClientProvider {
+    //region Fields
+
+    private static final Object _lock = new Object();
+    private static volatile OkHttpClient _client;
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets the shared HTTP client, with the default timeouts and the disk cache when the application is running.
+     *
+     * @return The shared {@link OkHttpClient}.
+     */
+    public static OkHttpClient getClient() {
+        OkHttpClient client = _client;
+        if (client == null) {
+            synchronized (_lock) {
+                client = _client;
+                if (client == null) {
+                    client = createClient();
+                    _client = client;
+                }
+            }
+        }
+
+        return client;
+    }
+
+    /**
+     * Gets a HTTP client with specific timeouts and without disk cache. It shares the connections of the shared client.
+     *
+     * @param connectTimeout The maximum time to connect to a server, in milliseconds.
+     * @param readTimeout    The maximum time to wait for each read and write, in milliseconds.
+     * @return A {@link OkHttpClient}.
+     */
+    public static OkHttpClient getClient(long connectTimeout, long readTimeout) {
+        return getClient().newBuilder()
+                .connectTimeout(connectTimeout, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeout, TimeUnit.MILLISECONDS)
+                .cache(null)
+                .build();
+    }
+
+    private static OkHttpClient createClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Consts.HttpMaximumRequests);
+        dispatcher.setMaxRequestsPerHost(Consts.HttpMaximumRequestsPerHost);
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(Consts.HttpMaximumIdleConnections, Consts.HttpKeepAliveMilliseconds, TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .addInterceptor(new HostRequestLimiter(Consts.HttpMaximumRequests, Consts.HttpMaximumRequestsPerHost))
+                .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectTimeout(Consts.HttpConnectTimeoutMilliseconds, TimeUnit.MILLISECONDS)
+                .readTimeout(Consts.HttpReadTimeoutMilliseconds, TimeUnit.MILLISECONDS)
+                .writeTimeout(Consts.HttpReadTimeoutMilliseconds, TimeUnit.MILLISECONDS);
+
+        // the context does not exist out of the application, for example during the unit tests.
+        Context context = App.getContext();
+        if (context != null) {
+            builder.cache(new Cache(new File(context.getCacheDir(), Consts.HttpCacheFolderName), Consts.HttpCacheMaximumSize));
+        }
+
+        return builder.build();
+    }
+
+    //endregion
+}
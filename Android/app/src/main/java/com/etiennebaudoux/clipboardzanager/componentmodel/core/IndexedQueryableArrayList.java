@@ -0,0 +1,169 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Provides a {@link QueryableArrayList} that maintains hash indexes on keys of its elements, so a lookup by key does not scan the list.
+ * <p>
+ * The indexes are updated by {@link IndexedQueryableArrayList#add(Object)}, {@link IndexedQueryableArrayList#remove(int)}, {@link IndexedQueryableArrayList#set(int, Object)}, {@link IndexedQueryableArrayList#clear()} and their variants. Any other modification, like through an iterator or a sub list, is detected with the modification count of the list, and the indexes are rebuilt before the next lookup. The list is serialized as a {@link QueryableArrayList}, without its indexes.
+ *
+ * @param <T> The type of the data in the data source.
+ */
+public class IndexedQueryableArrayList<T> extends QueryableArrayList<T> {
+    //region Fields
+
+    private static final long serialVersionUID = -6137581230867218394L;
+
+    private final ArrayList<KeyIndex<T, ?>> _indexes = new ArrayList<>();
+    private int _indexedModCount;
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Creates an index on a key of the elements. The existing elements are indexed immediately.
+     *
+     * @param keySelector A function to extract the key of an element. The key of an element must not change while the element is in the list.
+     * @param <K>         The type of the key.
+     * @return A {@link KeyIndex} that finds the elements by key.
+     */
+    public <K> KeyIndex<T, K> addIndex(Selector<T, K> keySelector) {
+        Requires.notNull(keySelector, "keySelector");
+
+        ensureIndexesAreUpToDate();
+
+        KeyIndex<T, K> index = new KeyIndex<>(this, keySelector);
+        for (int i = 0; i < size(); i++) {
+            index.add(get(i));
+        }
+
+        _indexes.add(index);
+        return index;
+    }
+
+    @Override
+    public boolean add(T item) {
+        ensureIndexesAreUpToDate();
+        super.add(item);
+        onAdded(item);
+        return true;
+    }
+
+    @Override
+    public void add(int index, T item) {
+        ensureIndexesAreUpToDate();
+        super.add(index, item);
+        onAdded(item);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        ensureIndexesAreUpToDate();
+        Object[] items = collection.toArray();
+        boolean result = super.addAll(collection);
+        onAdded(items);
+        return result;
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends T> collection) {
+        ensureIndexesAreUpToDate();
+        Object[] items = collection.toArray();
+        boolean result = super.addAll(index, collection);
+        onAdded(items);
+        return result;
+    }
+
+    @Override
+    public T set(int index, T item) {
+        ensureIndexesAreUpToDate();
+        T previousItem = super.set(index, item);
+        for (KeyIndex<T, ?> keyIndex : _indexes) {
+            keyIndex.remove(previousItem);
+            keyIndex.add(item);
+        }
+        return previousItem;
+    }
+
+    @Override
+    public T remove(int index) {
+        ensureIndexesAreUpToDate();
+        T item = super.remove(index);
+        for (KeyIndex<T, ?> keyIndex : _indexes) {
+            keyIndex.remove(item);
+        }
+        _indexedModCount = modCount;
+        return item;
+    }
+
+    @Override
+    public boolean remove(Object item) {
+        int index = indexOf(item);
+        if (index == -1) {
+            return false;
+        }
+
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        for (KeyIndex<T, ?> keyIndex : _indexes) {
+            keyIndex.clear();
+        }
+        _indexedModCount = modCount;
+    }
+
+    /**
+     * Rebuilds the indexes if the list has been modified without updating them.
+     */
+    void ensureIndexesAreUpToDate() {
+        if (_indexedModCount == modCount) {
+            return;
+        }
+
+        for (KeyIndex<T, ?> keyIndex : _indexes) {
+            keyIndex.clear();
+            for (int i = 0; i < size(); i++) {
+                keyIndex.add(get(i));
+            }
+        }
+        _indexedModCount = modCount;
+    }
+
+    private void onAdded(T item) {
+        for (KeyIndex<T, ?> keyIndex : _indexes) {
+            keyIndex.add(item);
+        }
+        _indexedModCount = modCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onAdded(Object[] items) {
+        for (KeyIndex<T, ?> keyIndex : _indexes) {
+            for (Object item : items) {
+                keyIndex.add((T) item);
+            }
+        }
+        _indexedModCount = modCount;
+    }
+
+    /**
+     * Replaces this list by a {@link QueryableArrayList} when it is serialized, so the serialized data does not depend on the indexes.
+     *
+     * @return A {@link QueryableArrayList} that contains the same elements.
+     * @throws ObjectStreamException
+     */
+    protected Object writeReplace() throws ObjectStreamException {
+        QueryableArrayList<T> result = new QueryableArrayList<>();
+        result.addAll(this);
+        return result;
+    }
+
+    //endregion
+}
@@ -0,0 +1,165 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.QueryableArrayListException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Represents a hash index on a key of the elements of an {@link IndexedQueryableArrayList}, which finds the elements that have a given key without scanning the list.
+ * <p>
+ * The key of an element must not change while the element is in the list.
+ *
+ * @param <T> The type of the elements.
+ * @param <K> The type of the key.
+ */
+public final class KeyIndex<T, K> {
+    //region Fields
+
+    private final IndexedQueryableArrayList<T> _list;
+    private final Selector<T, K> _keySelector;
+
+    // the value is the element, or an ArrayList of the elements when several elements have the same key.
+    private final HashMap<K, Object> _elements = new HashMap<>();
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link KeyIndex} class.
+     *
+     * @param list        The list to index.
+     * @param keySelector A function to extract the key of an element.
+     */
+    KeyIndex(IndexedQueryableArrayList<T> list, Selector<T, K> keySelector) {
+        _list = list;
+        _keySelector = keySelector;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Determines whether the list contains an element with the specified key.
+     *
+     * @param key The key to locate.
+     * @return True if an element has this key.
+     */
+    public boolean contains(K key) {
+        _list.ensureIndexesAreUpToDate();
+        return _elements.containsKey(key);
+    }
+
+    /**
+     * Returns the first element of the list that has the specified key, or a default value if no such element is found.
+     *
+     * @param key The key to locate.
+     * @return Null if no element has this key; otherwise, the first element in the list that has this key.
+     */
+    @SuppressWarnings("unchecked")
+    public T firstOrDefault(K key) {
+        _list.ensureIndexesAreUpToDate();
+
+        Object value = _elements.get(key);
+        if (!(value instanceof DuplicateElements)) {
+            return (T) value;
+        }
+
+        // the index does not know the order of the duplicates, so the list is scanned in this rare case.
+        DuplicateElements duplicates = (DuplicateElements) value;
+        for (T item : _list) {
+            if (duplicates.contains(item)) {
+                return item;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Returns the only element of the list that has the specified key, and throws an exception if there is not exactly one such element.
+     *
+     * @param key The key to locate.
+     * @return The single element that has this key.
+     * @throws QueryableArrayListException
+     */
+    public T single(K key) throws QueryableArrayListException {
+        T result = singleOrDefault(key);
+        if (result == null) {
+            throw new QueryableArrayListException("No match.");
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the only element of the list that has the specified key, or a default value if there is none; this method throws an exception if there is more than one such element.
+     *
+     * @param key The key to locate.
+     * @return The single element that has this key, or null if there is none.
+     * @throws QueryableArrayListException
+     */
+    @SuppressWarnings("unchecked")
+    public T singleOrDefault(K key) throws QueryableArrayListException {
+        _list.ensureIndexesAreUpToDate();
+
+        Object value = _elements.get(key);
+        if (value instanceof DuplicateElements) {
+            throw new QueryableArrayListException("More than one item match this key.");
+        }
+
+        return (T) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(T item) {
+        if (item == null) {
+            return;
+        }
+
+        K key = _keySelector.apply(item);
+        Object value = _elements.get(key);
+        if (value == null) {
+            _elements.put(key, item);
+        } else if (value instanceof DuplicateElements) {
+            ((DuplicateElements) value).add(item);
+        } else {
+            DuplicateElements duplicates = new DuplicateElements();
+            duplicates.add(value);
+            duplicates.add(item);
+            _elements.put(key, duplicates);
+        }
+    }
+
+    void remove(T item) {
+        if (item == null) {
+            return;
+        }
+
+        K key = _keySelector.apply(item);
+        Object value = _elements.get(key);
+        if (value instanceof DuplicateElements) {
+            DuplicateElements duplicates = (DuplicateElements) value;
+            duplicates.remove(item);
+            if (duplicates.size() == 1) {
+                _elements.put(key, duplicates.get(0));
+            }
+        } else if (value != null && value.equals(item)) {
+            _elements.remove(key);
+        }
+    }
+
+    void clear() {
+        _elements.clear();
+    }
+
+    //endregion
+
+    /**
+     * Represents the elements that have the same key.
+     */
+    private static final class DuplicateElements extends ArrayList<Object> {
+    }
+}
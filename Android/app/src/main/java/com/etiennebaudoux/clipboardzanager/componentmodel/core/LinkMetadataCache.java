@@ -0,0 +1,285 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.AesInputStream;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.AesOutputStream;
+import com.etiennebaudoux.clipboardzanager.models.LinkMetadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Provides a cache of the {@link LinkMetadata} retrieved from the web pages. The most recently used metadata are kept in memory, and all of them are saved encrypted on the storage, one file per link, so they survive a restart of the application.
+ */
+public class LinkMetadataCache {
+    //region Fields
+
+    private static final String FileExtension = ".link";
+
+    private final File _directory;
+    private final String _password;
+    private final byte[] _salt;
+    private final int _diskCapacity;
+    private final LinkedHashMap<String, LinkMetadata> _memoryCache;
+    private final Object _diskLock = new Object();
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link LinkMetadataCache} class.
+     *
+     * @param directory      The folder in which the metadata are saved.
+     * @param password       The password used to encrypt the files.
+     * @param memoryCapacity The maximum number of metadata kept in memory.
+     * @param diskCapacity   The maximum number of metadata saved on the storage. The least recently used are deleted first.
+     */
+    public LinkMetadataCache(File directory, String password, final int memoryCapacity, int diskCapacity) {
+        Requires.notNull(directory, "directory");
+        Requires.notNullOrEmpty(password, "password");
+        Requires.isTrue(memoryCapacity > 0);
+        Requires.isTrue(diskCapacity > 0);
+
+        _directory = directory;
+        _password = password;
+        _diskCapacity = diskCapacity;
+        _memoryCache = new LinkedHashMap<String, LinkMetadata>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LinkMetadata> eldest) {
+                return size() > memoryCapacity;
+            }
+        };
+
+        try {
+            _salt = SecurityHelper.getSaltKeys(password).getEncoded();
+        } catch (GeneralSecurityException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets the metadata of a link, from the memory or from the storage.
+     *
+     * @param uri The uri of the link.
+     * @return The metadata, which can be expired, or null if the link is unknown.
+     */
+    public LinkMetadata get(String uri) {
+        Requires.notNullOrWhiteSpace(uri, "uri");
+
+        String key = normalizeUri(uri);
+        synchronized (_memoryCache) {
+            LinkMetadata metadata = _memoryCache.get(key);
+            if (metadata != null) {
+                return metadata;
+            }
+        }
+
+        LinkMetadata metadata = readFile(key);
+        if (metadata != null) {
+            synchronized (_memoryCache) {
+                _memoryCache.put(key, metadata);
+            }
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Adds or replaces the metadata of a link, in memory and on the storage.
+     *
+     * @param metadata The metadata to keep.
+     */
+    public void put(LinkMetadata metadata) {
+        Requires.notNull(metadata, "metadata");
+        Requires.notNullOrWhiteSpace(metadata.getUri(), "metadata.getUri()");
+
+        String key = normalizeUri(metadata.getUri());
+        synchronized (_memoryCache) {
+            _memoryCache.put(key, metadata);
+        }
+
+        writeFile(key, metadata);
+    }
+
+    /**
+     * Removes all the metadata from the memory and the storage.
+     */
+    public void clear() {
+        synchronized (_memoryCache) {
+            _memoryCache.clear();
+        }
+
+        synchronized (_diskLock) {
+            for (File file : listFiles()) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * Normalizes a uri, so two uris that represent the same page share the same metadata. The scheme and the host are lowercased, the default port, the fragment and the empty path are removed.
+     *
+     * @param uri The uri.
+     * @return The normalized uri, or the trimmed uri if it cannot be parsed.
+     */
+    public static String normalizeUri(String uri) {
+        Requires.notNull(uri, "uri");
+
+        String result = uri.trim();
+        try {
+            URI parsedUri = new URI(result);
+            if (parsedUri.getScheme() == null || parsedUri.getHost() == null) {
+                return result;
+            }
+
+            String scheme = parsedUri.getScheme().toLowerCase();
+            int port = parsedUri.getPort();
+            if ((scheme.equals("http") && port == 80) || (scheme.equals("https") && port == 443)) {
+                port = -1;
+            }
+
+            String path = parsedUri.getRawPath();
+            if (path == null || path.isEmpty()) {
+                path = "/";
+            }
+
+            StringBuilder builder = new StringBuilder();
+            builder.append(scheme).append("://");
+            if (parsedUri.getRawUserInfo() != null) {
+                builder.append(parsedUri.getRawUserInfo()).append('@');
+            }
+            builder.append(parsedUri.getHost().toLowerCase());
+            if (port != -1) {
+                builder.append(':').append(port);
+            }
+            builder.append(path);
+            if (parsedUri.getRawQuery() != null) {
+                builder.append('?').append(parsedUri.getRawQuery());
+            }
+
+            return builder.toString();
+        } catch (URISyntaxException exception) {
+            return result;
+        }
+    }
+
+    /**
+     * Gets the file that contains the metadata of a link. The name of the file is a keyed hash of the uri, so the copied links cannot be guessed from the file names.
+     *
+     * @param key The normalized uri.
+     * @return The file.
+     */
+    private File getFile(String key) {
+        long hash = SipHash.hash(_salt, key.getBytes(Charset.forName("UTF-8")));
+        return new File(_directory, Long.toHexString(hash) + FileExtension);
+    }
+
+    private LinkMetadata readFile(String key) {
+        synchronized (_diskLock) {
+            File file = getFile(key);
+            if (!file.exists()) {
+                return null;
+            }
+
+            try (AesInputStream aesStream = new AesInputStream(new FileInputStream(file), _password, _salt)) {
+                ByteArrayOutputStream data = new ByteArrayOutputStream();
+                byte[] buffer = new byte[Consts.ClipboardDataBufferSize];
+                int readLength;
+
+                // AesInputStream only supports reading from the beginning of a buffer.
+                while ((readLength = aesStream.read(buffer, 0, buffer.length)) > 0) {
+                    data.write(buffer, 0, readLength);
+                }
+
+                LinkMetadata metadata = DataHelper.fromByteArray(data.toByteArray(), LinkMetadata.class);
+                if (metadata != null && key.equals(normalizeUri(metadata.getUri()))) {
+                    // the date of the file is used to know which files are the least recently used.
+                    file.setLastModified(System.currentTimeMillis());
+                    return metadata;
+                }
+            } catch (IOException | ClassNotFoundException | ClassCastException exception) {
+                // the file is corrupted, it will be replaced by the next download.
+                exception.printStackTrace();
+                file.delete();
+            }
+
+            return null;
+        }
+    }
+
+    private void writeFile(String key, LinkMetadata metadata) {
+        synchronized (_diskLock) {
+            if (!_directory.exists() && !_directory.mkdirs()) {
+                return;
+            }
+
+            File file = getFile(key);
+            try {
+                byte[] data = DataHelper.toByteArray(metadata);
+                try (AesOutputStream aesStream = new AesOutputStream(new FileOutputStream(file), _password, _salt)) {
+                    aesStream.write(data, 0, data.length);
+                }
+            } catch (IOException exception) {
+                exception.printStackTrace();
+                file.delete();
+                return;
+            }
+
+            trimFiles();
+        }
+    }
+
+    /**
+     * Deletes the least recently used files when there are more files than the capacity of the storage cache.
+     */
+    private void trimFiles() {
+        File[] files = listFiles();
+        if (files.length <= _diskCapacity) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File file1, File file2) {
+                return Long.compare(file1.lastModified(), file2.lastModified());
+            }
+        });
+
+        for (int i = 0; i < files.length - _diskCapacity; i++) {
+            files[i].delete();
+        }
+    }
+
+    private File[] listFiles() {
+        File[] files = _directory.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(FileExtension)) {
+                files[count++] = file;
+            }
+        }
+
+        return Arrays.copyOf(files, count);
+    }
+
+    //endregion
+}
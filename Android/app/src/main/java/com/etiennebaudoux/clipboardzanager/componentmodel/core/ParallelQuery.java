@@ -0,0 +1,261 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.android.internal.util.Predicate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Provides a query on a list that splits the list into ranges evaluated in parallel on a {@link ForkJoinPool}.
+ * <p>
+ * Splitting a list and waking up the threads has a cost, so a list smaller than the threshold, or any list on a single core device, is evaluated on the current thread. The list must not be modified while the query runs, and the predicates and selectors must be thread-safe.
+ *
+ * @param <T> The type of the elements of the list.
+ */
+public final class ParallelQuery<T> {
+    //region Fields
+
+    /**
+     * The default number of elements under which the query is evaluated on the current thread.
+     * <p>
+     * The value is a conservative estimate, not a measurement on a device: with four chunks per core, a list at the threshold gives chunks of a few hundred elements on a phone, and a smaller chunk of cheap predicates, such as a test on a field of a data entry, is scanned faster than a pool thread is woken up to take it. The history is limited by the MaxDataToKeep setting, so its queries stay on the current thread with the default limits. A caller with an expensive predicate passes a lower threshold to {@link QueryableArrayList#asParallel(int)}.
+     */
+    public static final int DefaultThreshold = 2048;
+
+    private static final int ChunksPerThread = 4;
+    private static volatile ForkJoinPool _pool;
+
+    private final List<T> _source;
+    private final int _threshold;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link ParallelQuery} class.
+     *
+     * @param source    The list to query.
+     * @param threshold The number of elements under which the query is evaluated on the current thread.
+     */
+    public ParallelQuery(List<T> source, int threshold) {
+        Requires.notNull(source, "source");
+        Requires.isTrue(threshold > 0);
+
+        _source = source;
+        _threshold = threshold;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Filters a sequence of values based on a predicate.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return A {@link QueryableArrayList} that contains the elements that satisfy the condition, in their original order.
+     */
+    public QueryableArrayList<T> where(final Predicate<T> predicate) {
+        Requires.notNull(predicate, "predicate");
+
+        return evaluate(new RangeFunction<T, QueryableArrayList<T>>() {
+            @Override
+            public QueryableArrayList<T> apply(List<T> source, int start, int end) {
+                QueryableArrayList<T> result = new QueryableArrayList<>();
+                for (int i = start; i < end; i++) {
+                    T item = source.get(i);
+                    if (predicate.apply(item)) {
+                        result.add(item);
+                    }
+                }
+                return result;
+            }
+
+            @Override
+            public QueryableArrayList<T> combine(QueryableArrayList<T> left, QueryableArrayList<T> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+    }
+
+    /**
+     * Projects each element of a sequence into a new form.
+     *
+     * @param selector A transform function to apply to each element.
+     * @param <R>      The type of the value returned by the selector.
+     * @return A {@link QueryableArrayList} that contains the result of the selector for each element, in the original order.
+     */
+    public <R> QueryableArrayList<R> select(final Selector<T, R> selector) {
+        Requires.notNull(selector, "selector");
+
+        return evaluate(new RangeFunction<T, QueryableArrayList<R>>() {
+            @Override
+            public QueryableArrayList<R> apply(List<T> source, int start, int end) {
+                QueryableArrayList<R> result = new QueryableArrayList<>();
+                result.ensureCapacity(end - start);
+                for (int i = start; i < end; i++) {
+                    result.add(selector.apply(source.get(i)));
+                }
+                return result;
+            }
+
+            @Override
+            public QueryableArrayList<R> combine(QueryableArrayList<R> left, QueryableArrayList<R> right) {
+                left.addAll(right);
+                return left;
+            }
+        });
+    }
+
+    /**
+     * Determines whether any element of a sequence satisfies a condition. The ranges not evaluated yet are skipped as soon as an element is found.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return true if any element passes the test; otherwise, false.
+     */
+    public boolean any(final Predicate<T> predicate) {
+        Requires.notNull(predicate, "predicate");
+
+        final AtomicBoolean isFound = new AtomicBoolean();
+        return evaluate(new RangeFunction<T, Boolean>() {
+            @Override
+            public Boolean apply(List<T> source, int start, int end) {
+                for (int i = start; i < end && !isFound.get(); i++) {
+                    if (predicate.apply(source.get(i))) {
+                        isFound.set(true);
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public Boolean combine(Boolean left, Boolean right) {
+                return left || right;
+            }
+        });
+    }
+
+    /**
+     * Determines whether all elements of a sequence satisfy a condition. The ranges not evaluated yet are skipped as soon as an element does not satisfy it.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return true if every element passes the test, or if the sequence is empty; otherwise, false.
+     */
+    public boolean all(final Predicate<T> predicate) {
+        Requires.notNull(predicate, "predicate");
+
+        return !any(new Predicate<T>() {
+            @Override
+            public boolean apply(T item) {
+                return !predicate.apply(item);
+            }
+        });
+    }
+
+    /**
+     * Returns the number of elements that satisfy a condition.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return The number of elements that pass the test.
+     */
+    public int count(final Predicate<T> predicate) {
+        Requires.notNull(predicate, "predicate");
+
+        return evaluate(new RangeFunction<T, Integer>() {
+            @Override
+            public Integer apply(List<T> source, int start, int end) {
+                int count = 0;
+                for (int i = start; i < end; i++) {
+                    if (predicate.apply(source.get(i))) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+
+            @Override
+            public Integer combine(Integer left, Integer right) {
+                return left + right;
+            }
+        });
+    }
+
+    private <R> R evaluate(RangeFunction<T, R> function) {
+        int size = _source.size();
+        if (size < _threshold || Runtime.getRuntime().availableProcessors() == 1) {
+            return function.apply(_source, 0, size);
+        }
+
+        ForkJoinPool pool = getPool();
+        int chunkSize = Math.max(_threshold / 2, size / (pool.getParallelism() * ChunksPerThread) + 1);
+        return pool.invoke(new RangeTask<>(_source, 0, size, chunkSize, function));
+    }
+
+    /**
+     * Gets the pool shared by the parallel queries. The common pool of Java 8 does not exist on the oldest supported Android versions, so the queries have their own pool.
+     *
+     * @return The {@link ForkJoinPool}.
+     */
+    private static ForkJoinPool getPool() {
+        if (_pool == null) {
+            synchronized (ParallelQuery.class) {
+                if (_pool == null) {
+                    _pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+                }
+            }
+        }
+
+        return _pool;
+    }
+
+    //endregion
+
+    /**
+     * Represents an operation evaluated on a range of the list, whose results are combined in the order of the ranges.
+     */
+    private interface RangeFunction<T, R> {
+        R apply(List<T> source, int start, int end);
+
+        R combine(R left, R right);
+    }
+
+    /**
+     * Splits a range in two until it is smaller than the chunk size.
+     */
+    private static final class RangeTask<T, R> extends RecursiveTask<R> {
+        private final List<T> _source;
+        private final int _start;
+        private final int _end;
+        private final int _chunkSize;
+        private final RangeFunction<T, R> _function;
+
+        RangeTask(List<T> source, int start, int end, int chunkSize, RangeFunction<T, R> function) {
+            _source = source;
+            _start = start;
+            _end = end;
+            _chunkSize = chunkSize;
+            _function = function;
+        }
+
+        @Override
+        protected R compute() {
+            if (_end - _start <= _chunkSize) {
+                return _function.apply(_source, _start, _end);
+            }
+
+            int middle = (_start + _end) >>> 1;
+            RangeTask<T, R> left = new RangeTask<>(_source, _start, middle, _chunkSize, _function);
+            RangeTask<T, R> right = new RangeTask<>(_source, middle, _end, _chunkSize, _function);
+
+            left.fork();
+            R rightResult = right.compute();
+            return _function.combine(left.join(), rightResult);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Represents an immutable list. Adding, removing or replacing an element returns a new list that shares all but O(log n) of its nodes with this one, so an old version stays valid and costs nothing to keep.
+ * <p>
+ * The elements are stored in a balanced binary tree ordered by position. Getting, adding and removing an element at any position are O(log n), and iterating over the list is O(n). The list can be read from any thread without lock. The methods of {@link java.util.List} that modify the list throw an {@link UnsupportedOperationException}.
+ *
+ * @param <T> The type of the elements.
+ */
+public final class PersistentList<T> extends AbstractList<T> {
+    //region Fields
+
+    private static final PersistentList<Object> _empty = new PersistentList<>(null);
+
+    private final Node<T> _root;
+
+    //endregion
+
+    //region Constructors
+
+    private PersistentList(Node<T> root) {
+        _root = root;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets an empty list.
+     *
+     * @param <T> The type of the elements.
+     * @return An empty {@link PersistentList}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> empty() {
+        return (PersistentList<T>) _empty;
+    }
+
+    /**
+     * Creates a list that contains the elements of a collection, in the same order.
+     *
+     * @param collection The collection to copy.
+     * @param <T>        The type of the elements.
+     * @return A {@link PersistentList}.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentList<T> from(Collection<? extends T> collection) {
+        Requires.notNull(collection, "collection");
+
+        Object[] items = collection.toArray();
+        if (items.length == 0) {
+            return empty();
+        }
+
+        return new PersistentList<>((Node<T>) build(items, 0, items.length));
+    }
+
+    @Override
+    public T get(int index) {
+        checkIndex(index, size());
+
+        Node<T> node = _root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index < leftSize) {
+                node = node.left;
+            } else if (index == leftSize) {
+                return node.item;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return size(_root);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new NodeIterator<>(_root);
+    }
+
+    /**
+     * Creates a query on this list that is evaluated lazily, without copying the list.
+     *
+     * @return A {@link Query} that reads this list each time it is enumerated.
+     */
+    public Query<T> asQuery() {
+        return Query.from(this);
+    }
+
+    /**
+     * Returns a new list with an element added at the end.
+     *
+     * @param item The element to add.
+     * @return A new {@link PersistentList}.
+     */
+    public PersistentList<T> plus(T item) {
+        return plus(size(), item);
+    }
+
+    /**
+     * Returns a new list with an element inserted at a position.
+     *
+     * @param index The position of the new element.
+     * @param item  The element to insert.
+     * @return A new {@link PersistentList}.
+     */
+    public PersistentList<T> plus(int index, T item) {
+        checkIndex(index, size() + 1);
+        return new PersistentList<>(insert(_root, index, item));
+    }
+
+    /**
+     * Returns a new list without the element at a position.
+     *
+     * @param index The position of the element to remove.
+     * @return A new {@link PersistentList}.
+     */
+    public PersistentList<T> minus(int index) {
+        checkIndex(index, size());
+        return new PersistentList<>(remove(_root, index));
+    }
+
+    /**
+     * Returns a new list with the element at a position replaced.
+     *
+     * @param index The position of the element to replace.
+     * @param item  The new element.
+     * @return A new {@link PersistentList}.
+     */
+    public PersistentList<T> with(int index, T item) {
+        checkIndex(index, size());
+        return new PersistentList<>(replace(_root, index, item));
+    }
+
+    private static void checkIndex(int index, int size) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+
+    private static int size(Node<?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static int height(Node<?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static Node<Object> build(Object[] items, int start, int end) {
+        if (start == end) {
+            return null;
+        }
+
+        int middle = (start + end) >>> 1;
+        return new Node<>(items[middle], build(items, start, middle), build(items, middle + 1, end));
+    }
+
+    private static <T> Node<T> insert(Node<T> node, int index, T item) {
+        if (node == null) {
+            return new Node<>(item, null, null);
+        }
+
+        int leftSize = size(node.left);
+        if (index <= leftSize) {
+            return balance(node.item, insert(node.left, index, item), node.right);
+        }
+
+        return balance(node.item, node.left, insert(node.right, index - leftSize - 1, item));
+    }
+
+    private static <T> Node<T> remove(Node<T> node, int index) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return balance(node.item, remove(node.left, index), node.right);
+        }
+        if (index > leftSize) {
+            return balance(node.item, node.left, remove(node.right, index - leftSize - 1));
+        }
+
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+
+        // the removed node is replaced by the first node of its right branch.
+        Node<T> first = node.right;
+        while (first.left != null) {
+            first = first.left;
+        }
+
+        return balance(first.item, node.left, remove(node.right, 0));
+    }
+
+    private static <T> Node<T> replace(Node<T> node, int index, T item) {
+        int leftSize = size(node.left);
+        if (index < leftSize) {
+            return new Node<>(node.item, replace(node.left, index, item), node.right);
+        }
+        if (index > leftSize) {
+            return new Node<>(node.item, node.left, replace(node.right, index - leftSize - 1, item));
+        }
+
+        return new Node<>(item, node.left, node.right);
+    }
+
+    /**
+     * Creates a node, and rotates it if the heights of its branches differ by more than one.
+     */
+    private static <T> Node<T> balance(T item, Node<T> left, Node<T> right) {
+        int difference = height(left) - height(right);
+
+        if (difference > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.item, left.left, new Node<>(item, left.right, right));
+            }
+
+            return new Node<>(left.right.item, new Node<>(left.item, left.left, left.right.left), new Node<>(item, left.right.right, right));
+        }
+
+        if (difference < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.item, new Node<>(item, left, right.left), right.right);
+            }
+
+            return new Node<>(right.left.item, new Node<>(item, left, right.left.left), new Node<>(right.item, right.left.right, right.right));
+        }
+
+        return new Node<>(item, left, right);
+    }
+
+    //endregion
+
+    /**
+     * Represents a node of the tree, with the number of elements and the height of the branch it starts.
+     */
+    private static final class Node<T> {
+        final T item;
+        final Node<T> left;
+        final Node<T> right;
+        final int size;
+        final int height;
+
+        Node(T item, Node<T> left, Node<T> right) {
+            this.item = item;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+    }
+
+    /**
+     * Iterates over the nodes in order, with the path to the current node in a stack.
+     */
+    private static final class NodeIterator<T> implements Iterator<T> {
+        private final ArrayDeque<Node<T>> _path = new ArrayDeque<>();
+
+        NodeIterator(Node<T> root) {
+            pushLeftBranch(root);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !_path.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            if (_path.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+
+            Node<T> node = _path.pop();
+            pushLeftBranch(node.right);
+            return node.item;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private void pushLeftBranch(Node<T> node) {
+            while (node != null) {
+                _path.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
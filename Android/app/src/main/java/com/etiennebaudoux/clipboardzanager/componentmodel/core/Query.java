@@ -0,0 +1,515 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.android.internal.util.Predicate;
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.QueryableArrayListException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+/**
+ * Provides a query on a sequence that is evaluated lazily, like the queries of a {@link QueryableArrayList} but without creating a list for each operator.
+ * <p>
+ * The operators only describe the query. The elements flow one by one through all the operators when the query is enumerated, so a chain of operators reads the source once, and the terminal operations like {@link Query#any(Predicate)} stop reading as soon as the result is known. The consecutive {@link Query#where(Predicate)} are merged into a single step, and {@link Query#skip(int)} and {@link Query#take(int)} on a list are applied to its indexes. The query reads the source each time it is enumerated.
+ *
+ * @param <T> The type of the elements of the query.
+ */
+public abstract class Query<T> implements Iterable<T> {
+    //region Methods
+
+    /**
+     * Creates a query on a sequence.
+     *
+     * @param source The sequence to query.
+     * @param <T>    The type of the elements of the sequence.
+     * @return A {@link Query} that returns the elements of the sequence.
+     */
+    public static <T> Query<T> from(Iterable<T> source) {
+        Requires.notNull(source, "source");
+        return new SourceQuery<>(source, 0, Integer.MAX_VALUE);
+    }
+
+    //region Operators
+
+    /**
+     * Filters a sequence of values based on a predicate.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return A {@link Query} that returns the elements that satisfy the condition.
+     */
+    public Query<T> where(Predicate<T> predicate) {
+        Requires.notNull(predicate, "predicate");
+        return new WhereQuery<>(this, predicate);
+    }
+
+    /**
+     * Projects each element of a sequence into a new form.
+     *
+     * @param selector A transform function to apply to each element.
+     * @param <R>      The type of the value returned by the selector.
+     * @return A {@link Query} that returns the result of the selector for each element.
+     */
+    public <R> Query<R> select(final Selector<T, R> selector) {
+        Requires.notNull(selector, "selector");
+
+        return new Query<R>() {
+            @Override
+            public Iterator<R> iterator() {
+                final Iterator<T> source = Query.this.iterator();
+                return new Iterator<R>() {
+                    @Override
+                    public boolean hasNext() {
+                        return source.hasNext();
+                    }
+
+                    @Override
+                    public R next() {
+                        return selector.apply(source.next());
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Filters the elements of a sequence based on a specified type.
+     *
+     * @param type The type to filter the elements of the sequence on.
+     * @param <U>  The type to filter the elements of the sequence on.
+     * @return A {@link Query} that returns the elements of type {@link U}.
+     */
+    public <U> Query<U> ofType(final Class<U> type) {
+        Requires.notNull(type, "type");
+
+        return where(new Predicate<T>() {
+            @Override
+            public boolean apply(T item) {
+                return item != null && type.isAssignableFrom(item.getClass());
+            }
+        }).select(new Selector<T, U>() {
+            @Override
+            public U apply(T item) {
+                return type.cast(item);
+            }
+        });
+    }
+
+    /**
+     * Bypasses a specified number of elements in a sequence and then returns the remaining elements.
+     *
+     * @param count The number of elements to skip.
+     * @return A {@link Query} that returns the elements that occur after the specified index.
+     */
+    public Query<T> skip(int count) {
+        Requires.isTrue(count >= 0);
+        return new SourceQuery<>(this, count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns a specified number of elements from the start of a sequence.
+     *
+     * @param count The number of elements to return.
+     * @return A {@link Query} that returns at most the specified number of elements.
+     */
+    public Query<T> take(int count) {
+        Requires.isTrue(count >= 0);
+        return new SourceQuery<>(this, 0, count);
+    }
+
+    /**
+     * Returns distinct elements from a sequence, in the order of their first occurrence. The elements are compared with their hash code and equals method.
+     *
+     * @return A {@link Query} that returns the distinct elements.
+     */
+    public Query<T> distinct() {
+        return new SetQuery<>(this, null, null);
+    }
+
+    /**
+     * Produces the set union of two sequences: the distinct elements of this sequence, then the distinct elements of the second sequence that are not in this one.
+     *
+     * @param source The second sequence.
+     * @return A {@link Query} that returns the elements from both sequences, excluding duplicates.
+     */
+    public Query<T> union(Iterable<T> source) {
+        Requires.notNull(source, "source");
+        return new SetQuery<>(this, source, null);
+    }
+
+    /**
+     * Produces the set difference of two sequences: the distinct elements of this sequence that are not in the second sequence.
+     *
+     * @param source The sequence whose elements are removed from this sequence.
+     * @return A {@link Query} that returns the elements that are only in this sequence.
+     */
+    public Query<T> except(Iterable<T> source) {
+        Requires.notNull(source, "source");
+        return new SetQuery<>(this, null, source);
+    }
+
+    /**
+     * Sorts the elements of a sequence. The sort is stable, so the equal elements keep their order. Unlike the other operators, all the elements are read before the first one is returned.
+     *
+     * @param comparator The {@link Comparator} used to compare the elements.
+     * @return A {@link Query} that returns the sorted elements.
+     */
+    public Query<T> orderBy(final Comparator<? super T> comparator) {
+        Requires.notNull(comparator, "comparator");
+
+        return new Query<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                ArrayList<T> items = new ArrayList<>();
+                for (T item : Query.this) {
+                    items.add(item);
+                }
+
+                Collections.sort(items, comparator);
+                return Collections.unmodifiableList(items).iterator();
+            }
+        };
+    }
+
+    //endregion
+
+    //region Terminal operations
+
+    /**
+     * Returns the first element of a sequence.
+     *
+     * @return The first element.
+     * @throws QueryableArrayListException
+     */
+    public T first() throws QueryableArrayListException {
+        Iterator<T> iterator = iterator();
+        if (!iterator.hasNext()) {
+            throw new QueryableArrayListException("Collection is empty.");
+        }
+
+        return iterator.next();
+    }
+
+    /**
+     * Returns the first element of a sequence, or a default value if the sequence contains no elements.
+     *
+     * @return Null if the sequence is empty; otherwise, the first element.
+     */
+    public T firstOrDefault() {
+        Iterator<T> iterator = iterator();
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Returns the first element of the sequence that satisfies a condition or a default value if no such element is found.
+     *
+     * @param predicate A function to test each element for a condition.
+     * @return Null if no element passes the test; otherwise, the first element that passes the test.
+     */
+    public T firstOrDefault(Predicate<T> predicate) {
+        return where(predicate).firstOrDefault();
+    }
+
+    /**
+     * Determines whether a sequence contains any elements.
+     *
+     * @return true if the sequence contains any elements; otherwise, false.
+     */
+    public boolean any() {
+        return iterator().hasNext();
+    }
+
+    /**
+     * Determines whether any element of a sequence satisfies a condition.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return true if any element passes the test; otherwise, false.
+     */
+    public boolean any(Predicate<T> predicate) {
+        return where(predicate).any();
+    }
+
+    /**
+     * Determines whether all elements of a sequence satisfy a condition.
+     *
+     * @param predicate A function to test an element for a condition.
+     * @return true if every element passes the test, or if the sequence is empty; otherwise, false.
+     */
+    public boolean all(Predicate<T> predicate) {
+        Requires.notNull(predicate, "predicate");
+
+        for (T item : this) {
+            if (!predicate.apply(item)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Returns the number of elements in a sequence.
+     *
+     * @return The number of elements.
+     */
+    public int count() {
+        int count = 0;
+        for (Iterator<T> iterator = iterator(); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Evaluates the query.
+     *
+     * @return A new {@link QueryableArrayList} that contains the elements of the query.
+     */
+    public QueryableArrayList<T> toList() {
+        QueryableArrayList<T> result = new QueryableArrayList<>();
+        for (T item : this) {
+            result.add(item);
+        }
+
+        return result;
+    }
+
+    //endregion
+
+    //endregion
+
+    /**
+     * Provides an {@link Iterator} that computes its next element on demand.
+     *
+     * @param <T> The type of the elements.
+     */
+    private static abstract class LazyIterator<T> implements Iterator<T> {
+        private T _next;
+        private boolean _hasNext;
+        private boolean _isComputed;
+
+        /**
+         * Computes the next element.
+         *
+         * @return False if there is no more element.
+         */
+        abstract boolean computeNext();
+
+        void setNext(T value) {
+            _next = value;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!_isComputed) {
+                _hasNext = computeNext();
+                _isComputed = true;
+            }
+
+            return _hasNext;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            T result = _next;
+            _next = null;
+            _isComputed = false;
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Represents a range of a sequence. The consecutive skip and take are merged, and the range of a list is read with its indexes.
+     */
+    private static final class SourceQuery<T> extends Query<T> {
+        private final Iterable<T> _source;
+        private final int _skip;
+        private final int _take;
+
+        SourceQuery(Iterable<T> source, int skip, int take) {
+            if (source instanceof SourceQuery) {
+                SourceQuery<T> range = (SourceQuery<T>) source;
+
+                // skip(a).take(b) reads [a, a + b[, and take(a).skip(b) reads [b, a[.
+                _source = range._source;
+                _skip = (int) Math.min(Integer.MAX_VALUE, (long) range._skip + skip);
+                _take = range._take == Integer.MAX_VALUE ? take : Math.min(take, Math.max(0, range._take - skip));
+            } else {
+                _source = source;
+                _skip = skip;
+                _take = take;
+            }
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            if (_source instanceof List && _source instanceof RandomAccess) {
+                final List<T> list = (List<T>) _source;
+                return new LazyIterator<T>() {
+                    private int _index = _skip;
+                    private int _remaining = _take;
+
+                    @Override
+                    boolean computeNext() {
+                        if (_remaining == 0 || _index >= list.size()) {
+                            return false;
+                        }
+
+                        setNext(list.get(_index++));
+                        _remaining--;
+                        return true;
+                    }
+                };
+            }
+
+            final Iterator<T> source = _source.iterator();
+            return new LazyIterator<T>() {
+                private int _toSkip = _skip;
+                private int _remaining = _take;
+
+                @Override
+                boolean computeNext() {
+                    for (; _toSkip > 0 && source.hasNext(); _toSkip--) {
+                        source.next();
+                    }
+
+                    if (_remaining == 0 || !source.hasNext()) {
+                        return false;
+                    }
+
+                    setNext(source.next());
+                    _remaining--;
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public int count() {
+            if (_source instanceof Collection) {
+                long count = ((Collection<T>) _source).size() - (long) _skip;
+                return (int) Math.max(0, Math.min(count, _take));
+            }
+
+            return super.count();
+        }
+    }
+
+    /**
+     * Represents a filter. The consecutive filters are merged in a single step.
+     */
+    private static final class WhereQuery<T> extends Query<T> {
+        private final Query<T> _source;
+        private final ArrayList<Predicate<T>> _predicates = new ArrayList<>();
+
+        WhereQuery(Query<T> source, Predicate<T> predicate) {
+            if (source instanceof WhereQuery) {
+                WhereQuery<T> filter = (WhereQuery<T>) source;
+                _source = filter._source;
+                _predicates.addAll(filter._predicates);
+            } else {
+                _source = source;
+            }
+
+            _predicates.add(predicate);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final Iterator<T> source = _source.iterator();
+            final int predicateCount = _predicates.size();
+
+            return new LazyIterator<T>() {
+                @Override
+                boolean computeNext() {
+                    while (source.hasNext()) {
+                        T item = source.next();
+
+                        boolean isMatch = true;
+                        for (int i = 0; i < predicateCount && isMatch; i++) {
+                            isMatch = _predicates.get(i).apply(item);
+                        }
+
+                        if (isMatch) {
+                            setNext(item);
+                            return true;
+                        }
+                    }
+
+                    return false;
+                }
+            };
+        }
+    }
+
+    /**
+     * Represents a distinct, a union or an except, which use a {@link HashSet} of the elements already returned.
+     */
+    private static final class SetQuery<T> extends Query<T> {
+        private final Query<T> _source;
+        private final Iterable<T> _union;
+        private final Iterable<T> _except;
+
+        SetQuery(Query<T> source, Iterable<T> union, Iterable<T> except) {
+            _source = source;
+            _union = union;
+            _except = except;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            final HashSet<T> returnedItems = new HashSet<>();
+            if (_except != null) {
+                // the excluded elements are considered as already returned.
+                for (T item : _except) {
+                    returnedItems.add(item);
+                }
+            }
+
+            return new LazyIterator<T>() {
+                private Iterator<T> _current = _source.iterator();
+                private boolean _isUnionStarted;
+
+                @Override
+                boolean computeNext() {
+                    while (true) {
+                        while (_current.hasNext()) {
+                            T item = _current.next();
+                            if (returnedItems.add(item)) {
+                                setNext(item);
+                                return true;
+                            }
+                        }
+
+                        if (_union == null || _isUnionStarted) {
+                            return false;
+                        }
+
+                        _current = _union.iterator();
+                        _isUnionStarted = true;
+                    }
+                }
+            };
+        }
+    }
+}
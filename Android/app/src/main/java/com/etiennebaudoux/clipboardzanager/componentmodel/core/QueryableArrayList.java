@@ -15,12 +15,50 @@ import java.util.Set;
 public class QueryableArrayList<T> extends ArrayList<T> {
     //region Fields
 
+    private static final long serialVersionUID = 7524911026824926162L;
+
     private final String EmptyCollection = "Collection is empty.";
 
     //endregion
 
     //region Methods
 
+    //region AsQuery
+
+    /**
+     * Creates a query on this list that is evaluated lazily, so a chain of operators does not create intermediate lists.
+     *
+     * @return A {@link Query} that reads this list each time it is enumerated.
+     */
+    public Query<T> asQuery() {
+        return Query.from(this);
+    }
+
+    //endregion
+
+    //region AsParallel
+
+    /**
+     * Creates a query on this list that is evaluated in parallel when the list has at least {@link ParallelQuery#DefaultThreshold} elements.
+     *
+     * @return A {@link ParallelQuery} on this list.
+     */
+    public ParallelQuery<T> asParallel() {
+        return new ParallelQuery<>(this, ParallelQuery.DefaultThreshold);
+    }
+
+    /**
+     * Creates a query on this list that is evaluated in parallel when the list has at least a given number of elements.
+     *
+     * @param threshold The number of elements under which the query is evaluated on the current thread.
+     * @return A {@link ParallelQuery} on this list.
+     */
+    public ParallelQuery<T> asParallel(int threshold) {
+        return new ParallelQuery<>(this, threshold);
+    }
+
+    //endregion
+
     //region First
 
     /**
@@ -1,9 +1,12 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.core;
 
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -17,6 +20,17 @@ import javax.crypto.spec.SecretKeySpec;
  */
 
 public final class SecurityHelper {
+    private static final byte[] _salt = new byte[]{0x53, 0x69, 0x75, 0x6f, 0x65, 0x20, 0x43, 0x69, 0x61, 0x68, 0x6d, 0x6c, 0x6f, 0x72, 0x64, 0x69, 0x64};
+
+    // deriving a key takes a thousand iterations of PBKDF2, and encryptString comes back with the application version for every file.
+    // the keys are indexed by a hash of the password and the salt, so the passwords themselves are not kept in memory.
+    private static final LinkedHashMap<String, SecretKey> _saltKeys = new LinkedHashMap<String, SecretKey>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, SecretKey> eldest) {
+            return size() > Consts.SaltKeyCacheCapacity;
+        }
+    };
+
     /**
      * Encrypt a {@link String}
      *
@@ -36,7 +50,7 @@ public final class SecurityHelper {
      */
     public static String encryptString(String input, String password) {
         try {
-            byte[] salt = getSaltKeys(password).getEncoded();
+            byte[] salt = getCachedSaltKeys(password).getEncoded();
             byte[] key = new byte[8];
             byte[] iv = new byte[8];
 
@@ -72,7 +86,7 @@ public final class SecurityHelper {
      */
     public static String decryptString(String encryptedData, String password) {
         try {
-            byte[] salt = getSaltKeys(password).getEncoded();
+            byte[] salt = getCachedSaltKeys(password).getEncoded();
             byte[] key = new byte[8];
             byte[] iv = new byte[8];
 
@@ -98,8 +112,39 @@ public final class SecurityHelper {
      * @throws InvalidKeySpecException
      */
     public static SecretKey getSaltKeys(String password) throws InvalidKeySpecException, NoSuchAlgorithmException {
-        byte[] salt = new byte[]{0x53, 0x69, 0x75, 0x6f, 0x65, 0x20, 0x43, 0x69, 0x61, 0x68, 0x6d, 0x6c, 0x6f, 0x72, 0x64, 0x69, 0x64};
-        return getSaltKeys(password, salt);
+        return getSaltKeys(password, _salt);
+    }
+
+    /**
+     * Generate a {@link SecretKey} that we can use to retrieve the KEY and IV. The keys of the most recent passwords are kept in memory, so they are derived once. Only use it for the few passwords of the application, not for a password per file.
+     *
+     * @param password The password
+     * @return a {@link SecretKey}
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     */
+    public static SecretKey getCachedSaltKeys(String password) throws InvalidKeySpecException, NoSuchAlgorithmException {
+        Requires.notNullOrEmpty(password, "password");
+
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(password.getBytes(StandardCharsets.UTF_8));
+        digest.update(_salt);
+        String cacheKey = DataHelper.toBase64(digest.digest());
+
+        synchronized (_saltKeys) {
+            SecretKey key = _saltKeys.get(cacheKey);
+            if (key != null) {
+                return key;
+            }
+        }
+
+        SecretKey key = getSaltKeys(password, _salt);
+
+        synchronized (_saltKeys) {
+            _saltKeys.put(cacheKey, key);
+        }
+
+        return key;
     }
 
     /**
@@ -0,0 +1,17 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+/**
+ * Represents a function that projects an element of a sequence into a new form.
+ *
+ * @param <T> The type of the element.
+ * @param <R> The type of the projected value.
+ */
+public interface Selector<T, R> {
+    /**
+     * Projects an element.
+     *
+     * @param item The element to project.
+     * @return The projected value.
+     */
+    R apply(T item);
+}
@@ -0,0 +1,127 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Provides a set of functions designed to compute a locality-sensitive sketch of a text. Two texts that are almost the same have sketches with a small Hamming distance.
+ */
+public final class SimHash {
+    //region Fields
+
+    private static final int ShingleLength = 4;
+    private static final int MinimumLength = 8;
+    private static final int MaximumLength = 16 * 1024;
+
+    private static final Pattern _uriPattern = Pattern.compile("^(https?|ftp)://[^?#\\s]*(\\?[^#\\s]*)?(#\\S*)?$");
+    private static final Pattern _queryValuePattern = Pattern.compile("=[^&]*");
+    private static final Pattern _numberPattern = Pattern.compile("\\d+");
+    private static final Pattern _whiteSpacePattern = Pattern.compile("\\s+");
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Computes the sketch of a text. The numbers, the white spaces and the values of the query string of a URL are normalized first, so a log line with a new timestamp or a URL with other parameters get the same sketch.
+     *
+     * @param text The text.
+     * @return The 64 bits sketch, or zero if the text is too short to be compared.
+     */
+    public static long compute(String text) {
+        Requires.notNull(text, "text");
+
+        if (text.length() > MaximumLength) {
+            // the beginning of a large text is enough to recognize it, and it keeps the capture fast.
+            text = text.substring(0, MaximumLength);
+        }
+
+        String normalized = normalize(text);
+        if (normalized.length() < MinimumLength) {
+            return 0;
+        }
+
+        int[] weights = new int[64];
+
+        for (int i = 0; i + ShingleLength <= normalized.length(); i++) {
+            long shingleHash = hashShingle(normalized, i);
+            for (int bit = 0; bit < 64; bit++) {
+                if (((shingleHash >>> bit) & 1) == 1) {
+                    weights[bit]++;
+                } else {
+                    weights[bit]--;
+                }
+            }
+        }
+
+        long sketch = 0;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                sketch |= 1L << bit;
+            }
+        }
+
+        return sketch == 0 ? 1 : sketch; // zero means that there is no sketch.
+    }
+
+    /**
+     * Computes the Hamming distance between two sketches.
+     *
+     * @param sketch1 The first sketch.
+     * @param sketch2 The second sketch.
+     * @return The number of different bits.
+     */
+    public static int distance(long sketch1, long sketch2) {
+        return Long.bitCount(sketch1 ^ sketch2);
+    }
+
+    /**
+     * Normalizes a text before computing its sketch.
+     *
+     * @param text The text.
+     * @return The normalized text.
+     */
+    static String normalize(String text) {
+        String result = text.trim().toLowerCase();
+
+        if (_uriPattern.matcher(result).matches()) {
+            int fragmentIndex = result.indexOf('#');
+            if (fragmentIndex > -1) {
+                result = result.substring(0, fragmentIndex);
+            }
+
+            int queryIndex = result.indexOf('?');
+            if (queryIndex > -1) {
+                Matcher matcher = _queryValuePattern.matcher(result.substring(queryIndex));
+                result = result.substring(0, queryIndex) + matcher.replaceAll("=");
+            }
+        }
+
+        result = _numberPattern.matcher(result).replaceAll("0");
+        return _whiteSpacePattern.matcher(result).replaceAll(" ");
+    }
+
+    /**
+     * Computes a well mixed 64 bits hash of a shingle of the text (FNV-1a followed by the MurmurHash3 finalizer).
+     *
+     * @param text   The text.
+     * @param offset The position of the shingle in the text.
+     * @return The hash of the shingle.
+     */
+    private static long hashShingle(String text, int offset) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + ShingleLength; i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    //endregion
+}
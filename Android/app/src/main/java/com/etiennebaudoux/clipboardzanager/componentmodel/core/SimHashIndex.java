@@ -0,0 +1,208 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Provides a locality-sensitive index of {@link SimHash} sketches, used to find the near-duplicates of an item without comparing it to all the others.
+ * <p>
+ * The 64 bits sketches are split into 8 bands of 8 bits. Two sketches that differ by {@link SimHashIndex#MaxDistance} bits or less have at least one identical band, so only the items that share a band with the searched sketch are compared.
+ * <p>
+ * The buckets shared by several items are tracked, so the items that may have near-duplicates are found without going through the whole index, and without keeping a link between each pair of near-duplicates.
+ *
+ * @param <T> The type of the indexed items.
+ */
+public class SimHashIndex<T> {
+    //region Fields
+
+    /**
+     * The maximum Hamming distance between two sketches to consider that the items are near-duplicates.
+     */
+    public static final int MaxDistance = 7;
+
+    private static final int BandCount = MaxDistance + 1;
+    private static final int BandSize = 64 / BandCount;
+
+    private final ArrayList<HashMap<Integer, ArrayList<T>>> _bands = new ArrayList<>();
+    private final HashMap<T, Long> _sketches = new HashMap<>();
+    private final Set<ArrayList<T>> _sharedBuckets = Collections.newSetFromMap(new IdentityHashMap<ArrayList<T>, Boolean>());
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link SimHashIndex} class.
+     */
+    public SimHashIndex() {
+        for (int i = 0; i < BandCount; i++) {
+            _bands.add(new HashMap<Integer, ArrayList<T>>());
+        }
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Adds an item to the index. An item with a sketch equals to zero is ignored.
+     *
+     * @param item   The item to add.
+     * @param sketch The {@link SimHash} sketch of the item.
+     */
+    public void add(T item, long sketch) {
+        Requires.notNull(item, "item");
+
+        if (sketch == 0) {
+            return;
+        }
+
+        remove(item);
+        _sketches.put(item, sketch);
+
+        for (int i = 0; i < BandCount; i++) {
+            HashMap<Integer, ArrayList<T>> band = _bands.get(i);
+            int key = getBandKey(sketch, i);
+
+            ArrayList<T> bucket = band.get(key);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                band.put(key, bucket);
+            }
+            bucket.add(item);
+            if (bucket.size() == 2) {
+                _sharedBuckets.add(bucket);
+            }
+        }
+    }
+
+    /**
+     * Removes an item from the index.
+     *
+     * @param item The item to remove.
+     */
+    public void remove(T item) {
+        Long sketch = _sketches.remove(item);
+        if (sketch == null) {
+            return;
+        }
+
+        for (int i = 0; i < BandCount; i++) {
+            HashMap<Integer, ArrayList<T>> band = _bands.get(i);
+            int key = getBandKey(sketch, i);
+
+            ArrayList<T> bucket = band.get(key);
+            if (bucket != null) {
+                bucket.remove(item);
+                if (bucket.size() == 1) {
+                    _sharedBuckets.remove(bucket);
+                } else if (bucket.isEmpty()) {
+                    band.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all the items from the index.
+     */
+    public void clear() {
+        _sketches.clear();
+        _sharedBuckets.clear();
+        for (HashMap<Integer, ArrayList<T>> band : _bands) {
+            band.clear();
+        }
+    }
+
+    /**
+     * Gets the number of items in the index.
+     *
+     * @return The number of items in the index.
+     */
+    public int size() {
+        return _sketches.size();
+    }
+
+    /**
+     * Finds the items which have a sketch close to the specified one.
+     *
+     * @param sketch The {@link SimHash} sketch to search.
+     * @return The list of items whose sketch is at {@link SimHashIndex#MaxDistance} bits or less of the specified sketch.
+     */
+    public QueryableArrayList<T> find(long sketch) {
+        QueryableArrayList<T> result = new QueryableArrayList<>();
+
+        if (sketch == 0) {
+            return result;
+        }
+
+        for (int i = 0; i < BandCount; i++) {
+            ArrayList<T> bucket = _bands.get(i).get(getBandKey(sketch, i));
+            if (bucket == null) {
+                continue;
+            }
+
+            for (T candidate : bucket) {
+                long candidateSketch = _sketches.get(candidate);
+
+                // an item that shares several bands with the sketch is only reported by the first one.
+                if (SimHash.distance(sketch, candidateSketch) <= MaxDistance && firstSharedBand(sketch, candidateSketch) == i) {
+                    result.add(candidate);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the items which share a band with at least one other item. Only these items can have near-duplicates, and they are read from the shared buckets only, so the cost depends on the number of similar items rather than on the size of the index.
+     *
+     * @return The set of items which may have near-duplicates.
+     */
+    public HashSet<T> findNearDuplicateCandidates() {
+        HashSet<T> result = new HashSet<>();
+        for (ArrayList<T> bucket : _sharedBuckets) {
+            result.addAll(bucket);
+        }
+
+        return result;
+    }
+
+    /**
+     * Finds the near-duplicates of an item of the index.
+     *
+     * @param item The indexed item.
+     * @return The list of items whose sketch is close to the sketch of the specified item, excluding this one.
+     */
+    public QueryableArrayList<T> findNearDuplicates(T item) {
+        Long sketch = _sketches.get(item);
+        if (sketch == null) {
+            return new QueryableArrayList<>();
+        }
+
+        QueryableArrayList<T> result = find(sketch);
+        result.remove(item);
+        return result;
+    }
+
+    private static int getBandKey(long sketch, int band) {
+        return (int) ((sketch >>> (band * BandSize)) & ((1L << BandSize) - 1));
+    }
+
+    private static int firstSharedBand(long sketch1, long sketch2) {
+        for (int i = 0; i < BandCount; i++) {
+            if (getBandKey(sketch1, i) == getBandKey(sketch2, i)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    //endregion
+}
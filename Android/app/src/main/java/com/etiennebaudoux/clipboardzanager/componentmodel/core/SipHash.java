@@ -0,0 +1,161 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+/**
+ * Provides an incremental implementation of the SipHash-2-4 keyed hash function, which produces a 64 bits hash.
+ */
+public final class SipHash {
+    //region Fields
+
+    private long _v0;
+    private long _v1;
+    private long _v2;
+    private long _v3;
+    private long _tail;
+    private int _tailLength;
+    private long _length;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link SipHash} class.
+     *
+     * @param key The 128 bits key. Only the 16 first bytes are used.
+     */
+    public SipHash(byte[] key) {
+        Requires.notNull(key, "key");
+        Requires.isTrue(key.length >= 16);
+
+        long k0 = readLong(key, 0);
+        long k1 = readLong(key, 8);
+
+        _v0 = k0 ^ 0x736f6d6570736575L;
+        _v1 = k1 ^ 0x646f72616e646f6dL;
+        _v2 = k0 ^ 0x6c7967656e657261L;
+        _v3 = k1 ^ 0x7465646279746573L;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Computes the hash of a {@link Byte} array.
+     *
+     * @param key  The 128 bits key.
+     * @param data The data to hash.
+     * @return The 64 bits hash.
+     */
+    public static long hash(byte[] key, byte[] data) {
+        Requires.notNull(data, "data");
+
+        SipHash sipHash = new SipHash(key);
+        sipHash.update(data, 0, data.length);
+        return sipHash.finish();
+    }
+
+    /**
+     * Adds a 64 bits value to the hash.
+     *
+     * @param value The value to add.
+     */
+    public void update(long value) {
+        for (int i = 0; i < 8; i++) {
+            updateByte((byte) (value >>> (8 * i)));
+        }
+    }
+
+    /**
+     * Adds a block of bytes to the hash.
+     *
+     * @param buffer The {@link Byte} array to add.
+     * @param offset The offset in the buffer.
+     * @param count  The number of bytes to add.
+     */
+    public void update(byte[] buffer, int offset, int count) {
+        Requires.notNull(buffer, "buffer");
+
+        int i = offset;
+        int end = offset + count;
+
+        // complete a pending block first, then process the aligned blocks without going byte per byte.
+        while (_tailLength != 0 && i < end) {
+            updateByte(buffer[i++]);
+        }
+
+        while (end - i >= 8) {
+            processBlock(readLong(buffer, i));
+            _length += 8;
+            i += 8;
+        }
+
+        while (i < end) {
+            updateByte(buffer[i++]);
+        }
+    }
+
+    /**
+     * Finalizes the hash. The instance must not be used after calling this method.
+     *
+     * @return The 64 bits hash.
+     */
+    public long finish() {
+        long last = ((_length & 0xff) << 56) | _tail;
+
+        processBlock(last);
+
+        _v2 ^= 0xff;
+        for (int i = 0; i < 4; i++) {
+            round();
+        }
+
+        return _v0 ^ _v1 ^ _v2 ^ _v3;
+    }
+
+    private void updateByte(byte value) {
+        _tail |= (value & 0xffL) << (8 * _tailLength);
+        _tailLength++;
+        _length++;
+
+        if (_tailLength == 8) {
+            processBlock(_tail);
+            _tail = 0;
+            _tailLength = 0;
+        }
+    }
+
+    private void processBlock(long block) {
+        _v3 ^= block;
+        round();
+        round();
+        _v0 ^= block;
+    }
+
+    private void round() {
+        _v0 += _v1;
+        _v1 = Long.rotateLeft(_v1, 13);
+        _v1 ^= _v0;
+        _v0 = Long.rotateLeft(_v0, 32);
+        _v2 += _v3;
+        _v3 = Long.rotateLeft(_v3, 16);
+        _v3 ^= _v2;
+        _v0 += _v3;
+        _v3 = Long.rotateLeft(_v3, 21);
+        _v3 ^= _v0;
+        _v2 += _v1;
+        _v1 = Long.rotateLeft(_v1, 17);
+        _v1 ^= _v2;
+        _v2 = Long.rotateLeft(_v2, 32);
+    }
+
+    private static long readLong(byte[] buffer, int offset) {
+        long result = 0;
+        for (int i = 7; i >= 0; i--) {
+            result = (result << 8) | (buffer[offset + i] & 0xffL);
+        }
+        return result;
+    }
+
+    //endregion
+}
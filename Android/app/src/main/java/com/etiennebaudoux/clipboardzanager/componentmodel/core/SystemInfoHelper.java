@@ -1,16 +1,22 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.core;
 
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
+import com.etiennebaudoux.clipboardzanager.models.LinkMetadata;
 
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Date;
 import java.util.concurrent.Callable;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
+import okhttp3.Call;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
  * Provides a set of functions used to retrieve information about the operating system.
@@ -26,26 +32,165 @@ public final class SystemInfoHelper {
         return new Task<>(new Callable<String>() {
             @Override
             public String call() throws Exception {
-                try {
-                    URL url = new URL(uri);
-                    OkHttpClient client = new OkHttpClient();
-                    Request request = new Request.Builder().url(url).build();
-
-                    try (Response response = client.newCall(request).execute()) {
-                        String html = response.body().string();
-                        html = html.replaceAll("\\s+", " ");
-                        Pattern p = Pattern.compile("<title>(.*?)</title>");
-                        Matcher m = p.matcher(html);
-                        if (m.find()) {
-                            return m.group(1);
-                        }
-                    }
-                } catch (IOException e) {
-                    e.printStackTrace();
+                return downloadWebPageTitle(uri, Consts.LinkPreviewTimeoutMilliseconds);
+            }
+        }, TaskLane.PREVIEW);
+    }
+
+    /**
+     * Try to retrieve the title tag of an HTML page from a URI, synchronously.
+     *
+     * @param uri     The uri of the page
+     * @param timeout The maximum time to connect to the server, and then to wait for each read, in milliseconds.
+     * @return Returns the title of the page, or an empty string if it cannot be retrieved.
+     */
+    public static String downloadWebPageTitle(String uri, int timeout) {
+        return downloadWebPageMetadata(uri, null, timeout).getTitle();
+    }
+
+    /**
+     * Try to retrieve the title of an HTML page from a cache, and download it only if the cache does not know it or if it expired. The result is saved in the cache, including the failures.
+     *
+     * @param uri     The uri of the page
+     * @param cache   The {@link LinkMetadataCache} to use.
+     * @param timeout The maximum time to connect to the server, and then to wait for each read, in milliseconds.
+     * @return Returns the title of the page, or an empty string if it cannot be retrieved.
+     */
+    public static String retrieveWebPageTitle(String uri, LinkMetadataCache cache, int timeout) {
+        return retrieveWebPageTitle(uri, cache, timeout, CancellationToken.None);
+    }
+
+    /**
+     * Try to retrieve the title of an HTML page from a cache, and download it only if the cache does not know it or if it expired. The result is saved in the cache, including the failures.
+     *
+     * @param uri               The uri of the page
+     * @param cache             The {@link LinkMetadataCache} to use.
+     * @param timeout           The maximum time to connect to the server, and then to wait for each read, in milliseconds.
+     * @param cancellationToken The {@link CancellationToken} that stops the download.
+     * @return Returns the title of the page, or an empty string if it cannot be retrieved.
+     */
+    public static String retrieveWebPageTitle(String uri, LinkMetadataCache cache, int timeout, CancellationToken cancellationToken) {
+        Requires.notNull(cache, "cache");
+
+        LinkMetadata metadata = cache.get(uri);
+        if (metadata != null && !metadata.isExpired(new Date())) {
+            return metadata.getTitle();
+        }
+
+        metadata = downloadWebPageMetadata(uri, metadata, timeout, cancellationToken);
+        cache.put(metadata);
+        return metadata.getTitle();
+    }
+
+    /**
+     * Try to retrieve the title tag of an HTML page from a URI, synchronously. When expired metadata are given and the server says that the page did not change, the page is not downloaded again.
+     *
+     * @param uri      The uri of the page
+     * @param previous The expired metadata of the page, or null.
+     * @param timeout  The maximum time to connect to the server, and then to wait for each read, in milliseconds.
+     * @return Returns the metadata of the page. If the title cannot be retrieved, it is empty and the metadata expires sooner.
+     */
+    public static LinkMetadata downloadWebPageMetadata(String uri, LinkMetadata previous, int timeout) {
+        return downloadWebPageMetadata(uri, previous, timeout, CancellationToken.None);
+    }
+
+    /**
+     * Try to retrieve the title tag of an HTML page from a URI, synchronously. When expired metadata are given and the server says that the page did not change, the page is not downloaded again.
+     *
+     * @param uri               The uri of the page
+     * @param previous          The expired metadata of the page, or null.
+     * @param timeout           The maximum time to connect to the server, and then to wait for each read, in milliseconds.
+     * @param cancellationToken The {@link CancellationToken} that cancels the request, for example when a deadline is reached.
+     * @return Returns the metadata of the page. If the title cannot be retrieved, it is empty and the metadata expires sooner.
+     */
+    public static LinkMetadata downloadWebPageMetadata(String uri, LinkMetadata previous, int timeout, CancellationToken cancellationToken) {
+        LinkMetadata metadata = new LinkMetadata();
+        metadata.setUri(uri);
+        metadata.setTitle("");
+
+        try {
+            URL url = new URL(uri);
+            OkHttpClient client = HttpClientProvider.getClient(timeout, timeout);
+            Request.Builder requestBuilder = new Request.Builder().url(url);
+            if (previous != null && !previous.isFailure()) {
+                if (previous.getEntityTag() != null) {
+                    requestBuilder.header("If-None-Match", previous.getEntityTag());
                 }
+                if (previous.getLastModified() != null) {
+                    requestBuilder.header("If-Modified-Since", previous.getLastModified());
+                }
+            }
+
+            final Call call = client.newCall(requestBuilder.build());
 
-                return "";
+            // canceling the call closes its connection, which unblocks the thread.
+            Runnable cancel = new Runnable() {
+                @Override
+                public void run() {
+                    call.cancel();
+                }
+            };
+            cancellationToken.register(cancel);
+
+            try (Response response = call.execute()) {
+                if (response.code() == 304 && previous != null && !previous.isFailure()) {
+                    call.cancel();
+                    metadata.setTitle(previous.getTitle());
+                    metadata.setEntityTag(previous.getEntityTag());
+                    metadata.setLastModified(previous.getLastModified());
+                    setExpirationDate(metadata);
+                    return metadata;
+                }
+
+                ResponseBody body = response.body();
+                MediaType contentType = body.contentType();
+
+                if (!response.isSuccessful() || (contentType != null && !contentType.subtype().toLowerCase().contains("html"))) {
+                    call.cancel();
+                    return setFailureExpirationDate(metadata, previous);
+                }
+
+                Charset charset = contentType == null ? null : contentType.charset();
+                metadata.setTitle(HtmlTitleParser.parse(body.byteStream(), charset == null ? null : charset.name(), Consts.LinkPreviewMaximumHeadLength));
+                metadata.setEntityTag(response.header("ETag"));
+                metadata.setLastModified(response.header("Last-Modified"));
+
+                // the rest of the page is useless, so the download stops here.
+                call.cancel();
+            } finally {
+                cancellationToken.unregister(cancel);
             }
-        });
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        if (metadata.isFailure()) {
+            return setFailureExpirationDate(metadata, previous);
+        }
+
+        setExpirationDate(metadata);
+        return metadata;
+    }
+
+    private static void setExpirationDate(LinkMetadata metadata) {
+        metadata.setExpirationDate(new Date(System.currentTimeMillis() + Consts.LinkMetadataTimeToLiveMilliseconds));
+    }
+
+    /**
+     * Makes failed metadata expire soon. When a title was known before, it is kept until the next attempt rather than being lost because of a temporary failure.
+     *
+     * @param metadata The failed metadata.
+     * @param previous The expired metadata of the page, or null.
+     * @return The metadata to keep in cache.
+     */
+    private static LinkMetadata setFailureExpirationDate(LinkMetadata metadata, LinkMetadata previous) {
+        if (previous != null && !previous.isFailure()) {
+            metadata.setTitle(previous.getTitle());
+            metadata.setEntityTag(previous.getEntityTag());
+            metadata.setLastModified(previous.getLastModified());
+        }
+
+        metadata.setExpirationDate(new Date(System.currentTimeMillis() + Consts.LinkMetadataFailureTimeToLiveMilliseconds));
+        return metadata;
     }
 }
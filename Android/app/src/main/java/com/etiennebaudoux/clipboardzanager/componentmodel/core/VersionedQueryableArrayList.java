@@ -0,0 +1,165 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Provides an {@link IndexedQueryableArrayList} that publishes an immutable version of its content after each modification, so the readers of other threads never see the list while it is modified.
+ * <p>
+ * The list itself must be modified by one thread at a time. Each modification done with {@link VersionedQueryableArrayList#add(Object)}, {@link VersionedQueryableArrayList#remove(int)}, {@link VersionedQueryableArrayList#set(int, Object)}, {@link VersionedQueryableArrayList#clear()} or their variants is mirrored in a {@link PersistentList} in O(log n), and the new version is published unless the modification is part of an update started with {@link VersionedQueryableArrayList#beginUpdate()}. Any other modification, like through an iterator or a sub list, is detected with the modification count of the list and published with the next modification. {@link VersionedQueryableArrayList#getSnapshot()} can be called from any thread without lock.
+ *
+ * @param <T> The type of the data in the data source.
+ */
+public class VersionedQueryableArrayList<T> extends IndexedQueryableArrayList<T> {
+    //region Fields
+
+    private static final long serialVersionUID = 3541806127254385109L;
+
+    private PersistentList<T> _working = PersistentList.empty();
+    private volatile PersistentList<T> _published = PersistentList.empty();
+    private int _versionedModCount;
+    private int _updateDepth;
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets the last published version of the list. The snapshot never changes, even if the list is modified later.
+     *
+     * @return A {@link PersistentList} that contains the elements of the list at the end of the last modification or update.
+     */
+    public PersistentList<T> getSnapshot() {
+        return _published;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Starts an update, so several modifications are published as one version by {@link VersionedQueryableArrayList#endUpdate()}.
+     */
+    public void beginUpdate() {
+        _updateDepth++;
+    }
+
+    /**
+     * Ends an update started with {@link VersionedQueryableArrayList#beginUpdate()}, and publishes the content of the list if it was the outermost update.
+     */
+    public void endUpdate() {
+        if (_updateDepth == 0) {
+            throw new IllegalStateException("No update to end.");
+        }
+
+        _updateDepth--;
+        ensureWorkingVersionIsUpToDate();
+        publish();
+    }
+
+    @Override
+    public boolean add(T item) {
+        boolean isInSync = isInSync();
+        super.add(item);
+        if (isInSync) {
+            _working = _working.plus(item);
+        }
+        onModified(isInSync);
+        return true;
+    }
+
+    @Override
+    public void add(int index, T item) {
+        boolean isInSync = isInSync();
+        super.add(index, item);
+        if (isInSync) {
+            _working = _working.plus(index, item);
+        }
+        onModified(isInSync);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends T> collection) {
+        return addAll(size(), collection);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(int index, Collection<? extends T> collection) {
+        boolean isInSync = isInSync();
+        Object[] items = collection.toArray();
+        boolean result = super.addAll(index, Arrays.asList((T[]) items));
+        if (isInSync) {
+            if (_working.isEmpty()) {
+                _working = PersistentList.from(Arrays.asList((T[]) items));
+            } else {
+                for (int i = 0; i < items.length; i++) {
+                    _working = _working.plus(index + i, (T) items[i]);
+                }
+            }
+        }
+        onModified(isInSync);
+        return result;
+    }
+
+    @Override
+    public T set(int index, T item) {
+        boolean isInSync = isInSync();
+        T previousItem = super.set(index, item);
+        if (isInSync) {
+            _working = _working.with(index, item);
+        }
+        onModified(isInSync);
+        return previousItem;
+    }
+
+    @Override
+    public T remove(int index) {
+        boolean isInSync = isInSync();
+        T item = super.remove(index);
+        if (isInSync) {
+            _working = _working.minus(index);
+        }
+        onModified(isInSync);
+        return item;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        _working = PersistentList.empty();
+        onModified(true);
+    }
+
+    private boolean isInSync() {
+        return _versionedModCount == modCount;
+    }
+
+    /**
+     * Rebuilds the working version if the list has been modified without updating it.
+     */
+    private void ensureWorkingVersionIsUpToDate() {
+        if (!isInSync()) {
+            _working = PersistentList.from(this);
+            _versionedModCount = modCount;
+        }
+    }
+
+    private void onModified(boolean isInSync) {
+        if (isInSync) {
+            _versionedModCount = modCount;
+        } else {
+            ensureWorkingVersionIsUpToDate();
+        }
+
+        publish();
+    }
+
+    private void publish() {
+        if (_updateDepth == 0) {
+            _published = _working;
+        }
+    }
+
+    //endregion
+}
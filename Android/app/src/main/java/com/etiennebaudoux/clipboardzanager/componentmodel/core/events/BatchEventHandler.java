@@ -0,0 +1,13 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import java.util.List;
+
+/**
+ * The event handler interface that receives several occurrences of an event at once.
+ *
+ * @param <T> The type that is used to hold the event information.
+ */
+@FunctionalInterface
+public interface BatchEventHandler<T extends EventArgs> {
+    void handle(Object sender, List<T> args);
+}
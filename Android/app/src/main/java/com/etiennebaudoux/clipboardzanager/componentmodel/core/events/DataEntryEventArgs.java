@@ -0,0 +1,36 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import com.etiennebaudoux.clipboardzanager.models.DataEntry;
+
+/**
+ * Provides the arguments of an event related to a data entry.
+ */
+public class DataEntryEventArgs extends EventArgs {
+    //region Properties
+
+    private final DataEntry _dataEntry;
+
+    /**
+     * Gets the data entry concerned by the event.
+     *
+     * @return The {@link DataEntry}.
+     */
+    public DataEntry getDataEntry() {
+        return _dataEntry;
+    }
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link DataEntryEventArgs} class.
+     *
+     * @param dataEntry The data entry concerned by the event.
+     */
+    public DataEntryEventArgs(DataEntry dataEntry) {
+        _dataEntry = dataEntry;
+    }
+
+    //endregion
+}
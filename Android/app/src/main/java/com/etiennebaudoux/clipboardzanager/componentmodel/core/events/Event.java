@@ -1,16 +1,48 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
 
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Provides a basic implementation for the event interface.
+ * <p>
+ * The handlers can be added, removed and called from any thread. The list of handlers is replaced on each change, so firing the event never takes a lock. A handler can be called on the thread that fires the event, or on an {@link Executor} so a slow handler does not delay this thread. The handlers called on an {@link Executor} receive the events in the order they have been fired, one at a time.
  *
  * @param <T> The type that is used to hold the event information.
  */
 public class Event<T extends EventArgs> {
     //region Fields
 
-    private final ArrayList<EventHandler<T>> _eventHandlers = new ArrayList<>();
+    private final Object _lock = new Object();
+    private final Executor _defaultExecutor;
+    @SuppressWarnings("unchecked")
+    private volatile Subscription<T>[] _subscriptions = new Subscription[0];
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link Event} class. By default, the handlers are called on the thread that fires the event.
+     */
+    public Event() {
+        _defaultExecutor = null;
+    }
+
+    /**
+     * Initialize a new instance of the {@link Event} class.
+     *
+     * @param defaultExecutor The {@link Executor} on which the handlers are called when they are added without executor.
+     */
+    public Event(Executor defaultExecutor) {
+        Requires.notNull(defaultExecutor, "defaultExecutor");
+        _defaultExecutor = defaultExecutor;
+    }
 
     //endregion
 
@@ -22,7 +54,54 @@ public class Event<T extends EventArgs> {
      * @param handler The handler to be added.
      */
     public void addHandler(EventHandler<T> handler) {
-        _eventHandlers.add(handler);
+        Requires.notNull(handler, "handler");
+        add(new Subscription<T>(handler, false, _defaultExecutor));
+    }
+
+    /**
+     * Adds and event handler to this event that is called on an {@link Executor} when the event is fired.
+     *
+     * @param handler  The handler to be added.
+     * @param executor The {@link Executor} on which the handler is called.
+     */
+    public void addHandler(EventHandler<T> handler, Executor executor) {
+        Requires.notNull(handler, "handler");
+        Requires.notNull(executor, "executor");
+        add(new Subscription<T>(handler, false, executor));
+    }
+
+    /**
+     * Adds and event handler to this event that is only weakly referenced, so the event does not prevent the owner of the handler from being garbage collected. The owner must keep a reference to the handler, otherwise it stops being called as soon as it is collected.
+     *
+     * @param handler The handler to be added.
+     */
+    public void addWeakHandler(EventHandler<T> handler) {
+        Requires.notNull(handler, "handler");
+        add(new Subscription<T>(handler, true, _defaultExecutor));
+    }
+
+    /**
+     * Adds and event handler to this event that is only weakly referenced and called on an {@link Executor}.
+     *
+     * @param handler  The handler to be added.
+     * @param executor The {@link Executor} on which the handler is called.
+     */
+    public void addWeakHandler(EventHandler<T> handler, Executor executor) {
+        Requires.notNull(handler, "handler");
+        Requires.notNull(executor, "executor");
+        add(new Subscription<T>(handler, true, executor));
+    }
+
+    /**
+     * Adds an event handler that is called on an {@link Executor} with all the events fired since its previous call, so an event fired many times in a row costs a single call.
+     *
+     * @param handler  The handler to be added.
+     * @param executor The {@link Executor} on which the handler is called.
+     */
+    public void addBatchHandler(BatchEventHandler<T> handler, Executor executor) {
+        Requires.notNull(handler, "handler");
+        Requires.notNull(executor, "executor");
+        add(new Subscription<T>(handler, false, executor));
     }
 
     /**
@@ -31,7 +110,16 @@ public class Event<T extends EventArgs> {
      * @param handler The handler to be removed.
      */
     public void removeHandler(EventHandler<T> handler) {
-        _eventHandlers.remove(handler);
+        remove(handler);
+    }
+
+    /**
+     * Removes a batch event handler for that event.
+     *
+     * @param handler The handler to be removed.
+     */
+    public void removeBatchHandler(BatchEventHandler<T> handler) {
+        remove(handler);
     }
 
     /**
@@ -41,10 +129,170 @@ public class Event<T extends EventArgs> {
      * @param args   The information about the event.
      */
     public void invoke(Object sender, T args) {
-        for (EventHandler<T> handler : _eventHandlers) {
-            handler.handle(sender, args);
+        boolean hasDeadHandler = false;
+
+        for (Subscription<T> subscription : _subscriptions) {
+            if (!subscription.deliver(sender, args)) {
+                hasDeadHandler = true;
+            }
+        }
+
+        if (hasDeadHandler) {
+            remove(null);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void add(Subscription<T> subscription) {
+        synchronized (_lock) {
+            Subscription<T>[] subscriptions = new Subscription[_subscriptions.length + 1];
+            System.arraycopy(_subscriptions, 0, subscriptions, 0, _subscriptions.length);
+            subscriptions[_subscriptions.length] = subscription;
+            _subscriptions = subscriptions;
+        }
+    }
+
+    /**
+     * Removes the first subscription of a handler, and the subscriptions whose handler has been garbage collected.
+     *
+     * @param handler The handler to remove, or null to only remove the collected handlers.
+     */
+    @SuppressWarnings("unchecked")
+    private void remove(Object handler) {
+        synchronized (_lock) {
+            ArrayList<Subscription<T>> subscriptions = new ArrayList<>(_subscriptions.length);
+            boolean isRemoved = false;
+
+            for (Subscription<T> subscription : _subscriptions) {
+                Object subscriptionHandler = subscription.getHandler();
+                if (subscriptionHandler == null) {
+                    subscription.cancel();
+                } else if (!isRemoved && handler != null && subscriptionHandler.equals(handler)) {
+                    subscription.cancel();
+                    isRemoved = true;
+                } else {
+                    subscriptions.add(subscription);
+                }
+            }
+
+            if (subscriptions.size() != _subscriptions.length) {
+                _subscriptions = subscriptions.toArray(new Subscription[subscriptions.size()]);
+            }
         }
     }
 
     //endregion
-}
\ No newline at end of file
+
+    /**
+     * Represents a handler added to the event, and the events that wait to be delivered to it on its {@link Executor}.
+     */
+    private static final class Subscription<T extends EventArgs> implements Runnable {
+        private final Object _handler;
+        private final WeakReference<Object> _weakHandler;
+        private final Executor _executor;
+        private final ConcurrentLinkedQueue<Object[]> _pendingEvents;
+        private final AtomicBoolean _isDelivering;
+        private volatile boolean _isCanceled;
+
+        Subscription(Object handler, boolean isWeak, Executor executor) {
+            _handler = isWeak ? null : handler;
+            _weakHandler = isWeak ? new WeakReference<>(handler) : null;
+            _executor = executor;
+            _pendingEvents = executor == null ? null : new ConcurrentLinkedQueue<Object[]>();
+            _isDelivering = executor == null ? null : new AtomicBoolean();
+        }
+
+        Object getHandler() {
+            return _weakHandler == null ? _handler : _weakHandler.get();
+        }
+
+        void cancel() {
+            _isCanceled = true;
+        }
+
+        /**
+         * Calls the handler, or queues the event if the handler is called on an {@link Executor}.
+         *
+         * @return False if the handler has been garbage collected.
+         */
+        boolean deliver(Object sender, T args) {
+            if (_executor == null) {
+                Object handler = getHandler();
+                if (handler == null) {
+                    return false;
+                }
+
+                call(handler, sender, args);
+                return true;
+            }
+
+            if (_weakHandler != null && _weakHandler.get() == null) {
+                return false;
+            }
+
+            _pendingEvents.add(new Object[]{sender, args});
+            if (_isDelivering.compareAndSet(false, true)) {
+                _executor.execute(this);
+            }
+
+            return true;
+        }
+
+        /**
+         * Delivers the pending events on the {@link Executor}. Only one thread runs this method at a time, so the events are delivered in order.
+         */
+        @Override
+        public void run() {
+            do {
+                try {
+                    deliverPendingEvents();
+                } finally {
+                    _isDelivering.set(false);
+                }
+
+                // an event may have been queued after the last poll, while the flag was still set.
+            } while (!_pendingEvents.isEmpty() && _isDelivering.compareAndSet(false, true));
+        }
+
+        @SuppressWarnings("unchecked")
+        private void deliverPendingEvents() {
+            Object handler = getHandler();
+
+            if (handler instanceof BatchEventHandler) {
+                ArrayList<T> batch = new ArrayList<>();
+                Object sender = null;
+                Object[] pendingEvent;
+                while ((pendingEvent = _pendingEvents.poll()) != null) {
+                    sender = pendingEvent[0];
+                    batch.add((T) pendingEvent[1]);
+                }
+
+                if (!batch.isEmpty() && !_isCanceled) {
+                    try {
+                        ((BatchEventHandler<T>) handler).handle(sender, batch);
+                    } catch (RuntimeException exception) {
+                        exception.printStackTrace();
+                    }
+                }
+                return;
+            }
+
+            Object[] pendingEvent;
+            while ((pendingEvent = _pendingEvents.poll()) != null) {
+                if (handler != null && !_isCanceled) {
+                    // a failing handler must not prevent the next events from being delivered.
+                    try {
+                        call(handler, pendingEvent[0], (T) pendingEvent[1]);
+                    } catch (RuntimeException exception) {
+                        exception.printStackTrace();
+                    }
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void call(Object handler, Object sender, T args) {
+            ((EventHandler<T>) handler).handle(sender, args);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import com.etiennebaudoux.clipboardzanager.enums.HistoryChangeType;
+
+import java.util.UUID;
+
+/**
+ * Represents a change of the list of data entries. The indexes are valid once the previous changes of the same diff are applied.
+ */
+public final class HistoryChange {
+    //region Fields
+
+    @HistoryChangeType
+    private final int _type;
+    private final UUID _identifier;
+    private final int _index;
+    private final int _toIndex;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link HistoryChange} class.
+     *
+     * @param type       The type of the change.
+     * @param identifier The {@link UUID} that represents the data entry.
+     * @param index      The index of the data entry, or its previous index if it has been moved.
+     * @param toIndex    The new index of the data entry if it has been moved, otherwise the same value as the index.
+     */
+    public HistoryChange(@HistoryChangeType int type, UUID identifier, int index, int toIndex) {
+        _type = type;
+        _identifier = identifier;
+        _index = index;
+        _toIndex = toIndex;
+    }
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets the type of the change.
+     *
+     * @return A {@link HistoryChangeType}.
+     */
+    @HistoryChangeType
+    public int getType() {
+        return _type;
+    }
+
+    /**
+     * Gets the identifier of the data entry.
+     *
+     * @return The {@link UUID} that represents the data entry.
+     */
+    public UUID getIdentifier() {
+        return _identifier;
+    }
+
+    /**
+     * Gets the index of the data entry, or its previous index if it has been moved.
+     *
+     * @return The index.
+     */
+    public int getIndex() {
+        return _index;
+    }
+
+    /**
+     * Gets the new index of the data entry if it has been moved.
+     *
+     * @return The new index, or the same value as {@link HistoryChange#getIndex()} for the other changes.
+     */
+    public int getToIndex() {
+        return _toIndex;
+    }
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public String toString() {
+        return _type + ":" + _identifier + ":" + _index + ":" + _toIndex;
+    }
+
+    //endregion
+}
@@ -0,0 +1,129 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.PersistentList;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.models.DataEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the changes of the history and fires them as one {@link HistoryChangedEventArgs} per frame, so a list that shows the history applies many changes in a single update.
+ * <p>
+ * The writer of the history records the changes of a modification, then commits them with the snapshot of the data entries that contains them. The first commit of a frame schedules the event at the end of the frame, and the following commits of the same frame are merged into it.
+ */
+public final class HistoryChangeFeed {
+    //region Fields
+
+    private static final ScheduledThreadPoolExecutor _timer = createTimer();
+
+    private final Object _lock = new Object();
+    private final Object _sender;
+    private final Event<HistoryChangedEventArgs> _event;
+    private final long _frameMilliseconds;
+    private final ArrayList<HistoryChange> _uncommittedChanges = new ArrayList<>();
+    private ArrayList<HistoryChange> _pendingChanges = new ArrayList<>();
+    private PersistentList<DataEntry> _pendingDataEntries;
+    private boolean _isFrameScheduled;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link HistoryChangeFeed} class.
+     *
+     * @param sender            The sender of the events.
+     * @param event             The event fired with the changes of each frame.
+     * @param frameMilliseconds The duration of a frame. With zero, each commit fires the event immediately.
+     */
+    public HistoryChangeFeed(Object sender, Event<HistoryChangedEventArgs> event, long frameMilliseconds) {
+        Requires.notNull(event, "event");
+        Requires.isTrue(frameMilliseconds >= 0);
+
+        _sender = sender;
+        _event = event;
+        _frameMilliseconds = frameMilliseconds;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Records a change of the modification in progress. Must be called by the writer of the history.
+     *
+     * @param change The change.
+     */
+    public void record(HistoryChange change) {
+        Requires.notNull(change, "change");
+        _uncommittedChanges.add(change);
+    }
+
+    /**
+     * Ends the modification in progress, and schedules its changes for the current frame. Must be called by the writer of the history.
+     *
+     * @param dataEntries The snapshot of the data entries that contains the changes.
+     */
+    public void commit(PersistentList<DataEntry> dataEntries) {
+        Requires.notNull(dataEntries, "dataEntries");
+
+        if (_uncommittedChanges.isEmpty()) {
+            return;
+        }
+
+        boolean isScheduleNeeded;
+        synchronized (_lock) {
+            _pendingChanges.addAll(_uncommittedChanges);
+            _pendingDataEntries = dataEntries;
+            isScheduleNeeded = !_isFrameScheduled;
+            _isFrameScheduled = true;
+        }
+        _uncommittedChanges.clear();
+
+        if (!isScheduleNeeded) {
+            return;
+        }
+
+        if (_frameMilliseconds == 0) {
+            publish();
+        } else {
+            _timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    publish();
+                }
+            }, _frameMilliseconds, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publish() {
+        ArrayList<HistoryChange> changes;
+        PersistentList<DataEntry> dataEntries;
+        synchronized (_lock) {
+            changes = _pendingChanges;
+            dataEntries = _pendingDataEntries;
+            _pendingChanges = new ArrayList<>();
+            _pendingDataEntries = null;
+            _isFrameScheduled = false;
+        }
+
+        _event.invoke(_sender, new HistoryChangedEventArgs(Collections.unmodifiableList(changes), dataEntries));
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        return new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "History change timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    //endregion
+}
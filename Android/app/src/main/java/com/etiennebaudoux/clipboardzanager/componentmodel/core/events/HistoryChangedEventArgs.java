@@ -0,0 +1,52 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.PersistentList;
+import com.etiennebaudoux.clipboardzanager.models.DataEntry;
+
+import java.util.List;
+
+/**
+ * Provides the arguments of an event that describes the changes of the history since the previous event.
+ */
+public class HistoryChangedEventArgs extends EventArgs {
+    //region Properties
+
+    private final List<HistoryChange> _changes;
+
+    /**
+     * Gets the changes of the list of data entries, in the order they must be applied.
+     *
+     * @return The list of {@link HistoryChange}.
+     */
+    public List<HistoryChange> getChanges() {
+        return _changes;
+    }
+
+    private final PersistentList<DataEntry> _dataEntries;
+
+    /**
+     * Gets the snapshot of the data entries once all the changes are applied.
+     *
+     * @return The {@link PersistentList} of the data entries.
+     */
+    public PersistentList<DataEntry> getDataEntries() {
+        return _dataEntries;
+    }
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link HistoryChangedEventArgs} class.
+     *
+     * @param changes     The changes of the list of data entries, in the order they must be applied.
+     * @param dataEntries The snapshot of the data entries once all the changes are applied.
+     */
+    public HistoryChangedEventArgs(List<HistoryChange> changes, PersistentList<DataEntry> dataEntries) {
+        _changes = changes;
+        _dataEntries = dataEntries;
+    }
+
+    //endregion
+}
@@ -0,0 +1,49 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.services.Settings;
+
+/**
+ * Provides the arguments of an event related to the change of a setting.
+ */
+public class SettingChangedEventArgs extends EventArgs {
+    //region Properties
+
+    private final String _settingName;
+
+    /**
+     * Gets the name of the setting that changed.
+     *
+     * @return The name of the setting.
+     */
+    public String getSettingName() {
+        return _settingName;
+    }
+
+    private final Settings _settings;
+
+    /**
+     * Gets the snapshot of the settings that contains the new value.
+     *
+     * @return The {@link Settings}.
+     */
+    public Settings getSettings() {
+        return _settings;
+    }
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link SettingChangedEventArgs} class.
+     *
+     * @param settingName The name of the setting that changed.
+     * @param settings    The snapshot of the settings that contains the new value.
+     */
+    public SettingChangedEventArgs(String settingName, Settings settings) {
+        _settingName = settingName;
+        _settings = settings;
+    }
+
+    //endregion
+}
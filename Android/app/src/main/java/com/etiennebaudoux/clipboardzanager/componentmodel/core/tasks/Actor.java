@@ -0,0 +1,327 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs commands one at a time, in the order they are posted, so the state they modify has a single writer.
+ * <p>
+ * The commands wait in a mailbox, which is emptied by one thread of the executor at a time. An actor whose commands are awaited by the tasks of capped lanes must run on its own thread, otherwise these tasks could use all the threads the actor needs to run the commands they wait for. The commands found in the mailbox are run as a batch, and the flush, like the save of a file, runs once at the end of the batch if at least one of its commands asked for it, so one write covers many changes. A command posted by a running command is run immediately on the same thread, and its flush is done at the end of the current batch.
+ */
+public final class Actor {
+    //region Fields
+
+    private static final long KeepAliveTime = 30 * 1000;
+
+    private final Object _lock = new Object();
+    private final Executor _executor;
+    private final Executor _continuationExecutor;
+    private final Callable<Void> _flush;
+    private final ArrayDeque<Envelope<?>> _mailbox = new ArrayDeque<>();
+    private boolean _isScheduled;
+    private volatile Thread _thread;
+    private boolean _isFlushRequested;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link Actor} class.
+     *
+     * @param lane  The lane of the {@link TaskScheduler} that runs the commands.
+     * @param flush The function run at the end of a batch whose commands asked for it. Can be null.
+     */
+    public Actor(TaskLane lane, Callable<Void> flush) {
+        this(TaskScheduler.getDefault().getExecutor(lane), flush);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Actor} class whose commands run on a thread of its own, started when a command is posted and stopped after a while without commands. The commands never wait for a thread of the {@link TaskScheduler}, even when the tasks that await them use all the threads of their lanes.
+     *
+     * @param threadName The name of the thread that runs the commands.
+     * @param lane       The lane whose priority is given to the thread, and in which the continuations of the commands run.
+     * @param flush      The function run at the end of a batch whose commands asked for it. Can be null.
+     */
+    public Actor(String threadName, TaskLane lane, Callable<Void> flush) {
+        this(createThreadExecutor(threadName, lane), TaskScheduler.getDefault().getExecutor(lane), flush);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Actor} class.
+     *
+     * @param executor The {@link Executor} that runs the commands.
+     * @param flush    The function run at the end of a batch whose commands asked for it. Can be null.
+     */
+    public Actor(Executor executor, Callable<Void> flush) {
+        this(executor, executor, flush);
+    }
+
+    private Actor(Executor executor, Executor continuationExecutor, Callable<Void> flush) {
+        Requires.notNull(executor, "executor");
+        Requires.notNull(continuationExecutor, "continuationExecutor");
+
+        _executor = executor;
+        _continuationExecutor = continuationExecutor;
+        _flush = flush;
+    }
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets a value that defines whether the current thread is running the commands of this actor.
+     *
+     * @return True if the current thread is the writer.
+     */
+    public boolean isCurrentThread() {
+        return _thread == Thread.currentThread();
+    }
+
+    /**
+     * Gets the number of commands that wait in the mailbox.
+     *
+     * @return The number of waiting commands.
+     */
+    public int getPendingCount() {
+        synchronized (_lock) {
+            return _mailbox.size();
+        }
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Posts a command that does not need a flush.
+     *
+     * @param command The command to run.
+     * @param <T>     The type of the result of the command.
+     * @return A {@link Task} that finishes when the command has run.
+     */
+    public <T> Task<T> post(Callable<T> command) {
+        return post(command, false);
+    }
+
+    /**
+     * Posts a command.
+     *
+     * @param command The command to run.
+     * @param flush   Defines whether the flush must run after the command.
+     * @param <T>     The type of the result of the command.
+     * @return A {@link Task} that finishes when the command has run and, if asked, has been flushed. It fails if the command or the flush fails.
+     */
+    public <T> Task<T> post(Callable<T> command, boolean flush) {
+        Requires.notNull(command, "command");
+
+        Envelope<T> envelope = new Envelope<>(command, flush, Task.<T>createPending(_continuationExecutor));
+        if (isCurrentThread()) {
+            runNested(envelope);
+        } else {
+            enqueue(Collections.<Envelope<?>>singletonList(envelope));
+        }
+
+        return envelope.task;
+    }
+
+    /**
+     * Posts several commands that run one after the other, without any other command between them, followed by at most one flush. A command still runs if a previous one failed.
+     *
+     * @param commands The commands to run.
+     * @param flush    Defines whether the flush must run after the commands.
+     * @param <T>      The type of the result of the commands.
+     * @return A {@link Task} that gives the results of the commands, in the same order. It fails if one of the commands or the flush fails.
+     */
+    public <T> Task<List<T>> postBatch(List<? extends Callable<T>> commands, boolean flush) {
+        Requires.notNull(commands, "commands");
+
+        ArrayList<Envelope<?>> envelopes = new ArrayList<>(commands.size());
+        ArrayList<Task<T>> tasks = new ArrayList<>(commands.size());
+        for (Callable<T> command : commands) {
+            Requires.notNull(command, "command");
+            Envelope<T> envelope = new Envelope<>(command, flush, Task.<T>createPending(_continuationExecutor));
+            envelopes.add(envelope);
+            tasks.add(envelope.task);
+        }
+
+        if (isCurrentThread()) {
+            for (Envelope<?> envelope : envelopes) {
+                runNested(envelope);
+            }
+        } else if (!envelopes.isEmpty()) {
+            enqueue(envelopes);
+        }
+
+        return Task.whenAll(tasks);
+    }
+
+    private void enqueue(List<Envelope<?>> envelopes) {
+        boolean isScheduleNeeded;
+        synchronized (_lock) {
+            _mailbox.addAll(envelopes);
+            isScheduleNeeded = !_isScheduled;
+            _isScheduled = true;
+        }
+
+        if (isScheduleNeeded) {
+            schedule();
+        }
+    }
+
+    private void schedule() {
+        _executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        });
+    }
+
+    /**
+     * Runs the batches of the mailbox until it is empty.
+     */
+    private void drain() {
+        _thread = Thread.currentThread();
+        boolean isDrained = false;
+
+        try {
+            while (true) {
+                ArrayList<Envelope<?>> batch;
+                synchronized (_lock) {
+                    if (_mailbox.isEmpty()) {
+                        // the next drain can start on another thread as soon as the lock is released.
+                        _thread = null;
+                        _isScheduled = false;
+                        isDrained = true;
+                        return;
+                    }
+
+                    batch = new ArrayList<>(_mailbox);
+                    _mailbox.clear();
+                }
+
+                runBatch(batch);
+            }
+        } finally {
+            if (!isDrained) {
+                // something unexpected ended the drain, the commands that are still waiting are run by another one.
+                boolean isScheduleNeeded;
+                synchronized (_lock) {
+                    _thread = null;
+                    isScheduleNeeded = !_mailbox.isEmpty();
+                    _isScheduled = isScheduleNeeded;
+                }
+
+                if (isScheduleNeeded) {
+                    schedule();
+                }
+            }
+        }
+    }
+
+    private void runBatch(List<Envelope<?>> batch) {
+        ArrayList<Envelope<?>> flushedEnvelopes = new ArrayList<>();
+        _isFlushRequested = false;
+
+        for (Envelope<?> envelope : batch) {
+            boolean isFlushRequested = _isFlushRequested;
+            _isFlushRequested = false;
+            envelope.run();
+
+            // a command that posted a nested command with a flush finishes after the flush too.
+            if (envelope.flush || _isFlushRequested) {
+                flushedEnvelopes.add(envelope);
+                _isFlushRequested = true;
+            } else {
+                envelope.complete(null);
+                _isFlushRequested = isFlushRequested;
+            }
+        }
+
+        Throwable flushError = null;
+        if (_isFlushRequested && _flush != null) {
+            try {
+                _flush.call();
+            } catch (Throwable throwable) {
+                flushError = throwable;
+            }
+        }
+        _isFlushRequested = false;
+
+        for (Envelope<?> envelope : flushedEnvelopes) {
+            envelope.complete(flushError);
+        }
+    }
+
+    private void runNested(Envelope<?> envelope) {
+        envelope.run();
+        if (envelope.flush) {
+            _isFlushRequested = true;
+        }
+        envelope.complete(null);
+    }
+
+    private static ThreadPoolExecutor createThreadExecutor(final String threadName, final TaskLane lane) {
+        Requires.notNullOrWhiteSpace(threadName, "threadName");
+        Requires.notNull(lane, "lane");
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, KeepAliveTime, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                thread.setPriority(lane.getThreadPriority());
+                return thread;
+            }
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    //endregion
+
+    private static final class Envelope<T> {
+        final Callable<T> command;
+        final boolean flush;
+        final Task<T> task;
+        TaskResult<T> result;
+
+        Envelope(Callable<T> command, boolean flush, Task<T> task) {
+            this.command = command;
+            this.flush = flush;
+            this.task = task;
+        }
+
+        void run() {
+            // an error, like an AssertionError, fails the command only, the next commands still run.
+            try {
+                result = new TaskResult<>(command.call());
+            } catch (Throwable throwable) {
+                result = new TaskResult<>(throwable);
+            }
+        }
+
+        /**
+         * Finishes the task of the command. The error of the command, if any, takes precedence over the error of the flush.
+         */
+        void complete(Throwable flushError) {
+            if (flushError == null || result.isFailed() || result.isCanceled()) {
+                task.setResult(result);
+            } else {
+                task.setResult(new TaskResult<T>(flushError));
+            }
+        }
+    }
+}
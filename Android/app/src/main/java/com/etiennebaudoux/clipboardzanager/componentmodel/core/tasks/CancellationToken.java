@@ -0,0 +1,85 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
+
+/**
+ * Propagates a notification that an operation should be canceled. A token is given by a {@link CancellationTokenSource}, and the long operations check it regularly.
+ */
+public final class CancellationToken {
+    //region Fields
+
+    /**
+     * A token that is never canceled.
+     */
+    public static final CancellationToken None = new CancellationToken(null);
+
+    private final CancellationTokenSource _source;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link CancellationToken} class.
+     *
+     * @param source The {@link CancellationTokenSource} that cancels this token, or null if it cannot be canceled.
+     */
+    CancellationToken(CancellationTokenSource source) {
+        _source = source;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets a value that defines whether the cancellation has been requested.
+     *
+     * @return True if the operation must stop.
+     */
+    public boolean isCancellationRequested() {
+        return _source != null && _source.isCancellationRequested();
+    }
+
+    /**
+     * Gets a value that defines whether this token can be canceled.
+     *
+     * @return False if this token is {@link CancellationToken#None}.
+     */
+    public boolean canBeCanceled() {
+        return _source != null;
+    }
+
+    /**
+     * Throws an {@link OperationCanceledException} if the cancellation has been requested.
+     */
+    public void throwIfCancellationRequested() {
+        if (isCancellationRequested()) {
+            throw new OperationCanceledException();
+        }
+    }
+
+    /**
+     * Registers an action that runs when the cancellation is requested, for example to close a connection that blocks a thread. If the cancellation has already been requested, the action runs immediately.
+     *
+     * @param callback The action to run.
+     */
+    public void register(Runnable callback) {
+        if (_source != null) {
+            _source.register(callback);
+        }
+    }
+
+    /**
+     * Removes an action registered with {@link CancellationToken#register(Runnable)}, once the operation is finished.
+     *
+     * @param callback The action to remove.
+     */
+    public void unregister(Runnable callback) {
+        if (_source != null) {
+            _source.unregister(callback);
+        }
+    }
+
+    //endregion
+}
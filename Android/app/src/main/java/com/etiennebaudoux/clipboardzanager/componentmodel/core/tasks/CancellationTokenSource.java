@@ -0,0 +1,180 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.util.ArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signals to a {@link CancellationToken} that an operation should be canceled, on demand or when a deadline is reached.
+ * <p>
+ * A source with a deadline must be closed when the operation is finished, so its timer does not stay in the queue of the shared timer until the deadline.
+ */
+public final class CancellationTokenSource implements AutoCloseable {
+    //region Fields
+
+    private static final ScheduledThreadPoolExecutor _timer = createTimer();
+
+    private final CancellationToken _token;
+    private final ArrayList<Runnable> _callbacks = new ArrayList<>();
+    private volatile boolean _isCancellationRequested;
+    private ScheduledFuture<?> _deadline;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link CancellationTokenSource} class.
+     */
+    public CancellationTokenSource() {
+        _token = new CancellationToken(this);
+    }
+
+    /**
+     * Initialize a new instance of the {@link CancellationTokenSource} class that cancels its token after a delay.
+     *
+     * @param delay The delay before the cancellation, in milliseconds.
+     */
+    public CancellationTokenSource(long delay) {
+        this();
+        cancelAfter(delay);
+    }
+
+    //endregion
+
+    //region Properties
+
+    //region Token
+
+    /**
+     * Gets the {@link CancellationToken} associated to this source.
+     *
+     * @return The {@link CancellationToken}.
+     */
+    public CancellationToken getToken() {
+        return _token;
+    }
+
+    //endregion
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets a value that defines whether the cancellation has been requested.
+     *
+     * @return True if the cancellation has been requested.
+     */
+    public boolean isCancellationRequested() {
+        return _isCancellationRequested;
+    }
+
+    /**
+     * Requests the cancellation, and runs the actions registered on the token.
+     */
+    public void cancel() {
+        ArrayList<Runnable> callbacks;
+        synchronized (_callbacks) {
+            if (_isCancellationRequested) {
+                return;
+            }
+
+            _isCancellationRequested = true;
+            if (_deadline != null) {
+                _deadline.cancel(false);
+                _deadline = null;
+            }
+
+            callbacks = new ArrayList<>(_callbacks);
+            _callbacks.clear();
+        }
+
+        for (Runnable callback : callbacks) {
+            try {
+                callback.run();
+            } catch (Exception exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Requests the cancellation after a delay. It replaces the previous delay.
+     *
+     * @param delay The delay before the cancellation, in milliseconds.
+     */
+    public void cancelAfter(long delay) {
+        Requires.isTrue(delay >= 0);
+
+        synchronized (_callbacks) {
+            if (_isCancellationRequested) {
+                return;
+            }
+
+            if (_deadline != null) {
+                _deadline.cancel(false);
+            }
+
+            _deadline = _timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancel();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Releases the deadline and the registered actions, without requesting the cancellation. The deadline does not cancel the token anymore.
+     */
+    @Override
+    public void close() {
+        synchronized (_callbacks) {
+            if (_deadline != null) {
+                _deadline.cancel(false);
+                _deadline = null;
+            }
+
+            _callbacks.clear();
+        }
+    }
+
+    void register(Runnable callback) {
+        Requires.notNull(callback, "callback");
+
+        synchronized (_callbacks) {
+            if (!_isCancellationRequested) {
+                _callbacks.add(callback);
+                return;
+            }
+        }
+
+        callback.run();
+    }
+
+    void unregister(Runnable callback) {
+        synchronized (_callbacks) {
+            _callbacks.remove(callback);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createTimer() {
+        ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Cancellation timer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        timer.setRemoveOnCancelPolicy(true);
+        return timer;
+    }
+
+    //endregion
+}
@@ -0,0 +1,18 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+/**
+ * Represents a function that runs with the result of a {@link Task}.
+ *
+ * @param <T> The type of the result of the task.
+ * @param <R> The type of the result of the function.
+ */
+public interface Continuation<T, R> {
+    /**
+     * Runs the function.
+     *
+     * @param result The result of the previous task.
+     * @return The result of the function.
+     * @throws Exception
+     */
+    R call(T result) throws Exception;
+}
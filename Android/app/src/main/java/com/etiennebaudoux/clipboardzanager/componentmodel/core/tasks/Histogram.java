@@ -0,0 +1,147 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Provides a thread-safe histogram that records positive values with a fixed relative precision and a fixed memory footprint, like an HDR histogram.
+ * <p>
+ * The values are counted in buckets: each power of two is divided into {@link Histogram#SubBucketCount} buckets of the same width, so a value is known with a precision of about 6%. Recording a value does not allocate anything and does not take any lock.
+ */
+public final class Histogram {
+    //region Fields
+
+    private static final int SubBucketBits = 4;
+    private static final int SubBucketCount = 1 << SubBucketBits;
+    private static final int MaximumValueBits = 36;
+    private static final long MaximumValue = (1L << MaximumValueBits) - 1;
+    private static final int BucketCount = (MaximumValueBits - SubBucketBits + 1) * SubBucketCount + SubBucketCount * 2;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BucketCount);
+    private final AtomicLong _totalCount = new AtomicLong();
+    private final AtomicLong _sum = new AtomicLong();
+    private final AtomicLong _maximum = new AtomicLong();
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Records a value. The negative values are recorded as 0, and the values greater than 2^36 as 2^36.
+     *
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        value = Math.max(0, Math.min(value, MaximumValue));
+
+        _counts.incrementAndGet(getIndex(value));
+        _totalCount.incrementAndGet();
+        _sum.addAndGet(value);
+
+        long maximum;
+        while (value > (maximum = _maximum.get()) && !_maximum.compareAndSet(maximum, value)) {
+        }
+    }
+
+    /**
+     * Gets the number of recorded values.
+     *
+     * @return The number of recorded values.
+     */
+    public long getTotalCount() {
+        return _totalCount.get();
+    }
+
+    /**
+     * Gets the highest recorded value.
+     *
+     * @return The highest recorded value, or 0 if there is none.
+     */
+    public long getMaximum() {
+        return _maximum.get();
+    }
+
+    /**
+     * Gets the mean of the recorded values.
+     *
+     * @return The mean, or 0 if there is no value.
+     */
+    public double getMean() {
+        long count = _totalCount.get();
+        return count == 0 ? 0 : (double) _sum.get() / count;
+    }
+
+    /**
+     * Gets the value under which a given percentage of the recorded values are.
+     *
+     * @param percentile The percentage, between 0 and 100.
+     * @return The highest value of the bucket that contains the percentile, which is never greater than the maximum. 0 if there is no value.
+     */
+    public long getValueAtPercentile(double percentile) {
+        Requires.isTrue(percentile >= 0 && percentile <= 100);
+
+        long totalCount = _totalCount.get();
+        if (totalCount == 0) {
+            return 0;
+        }
+
+        long targetCount = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long count = 0;
+        for (int i = 0; i < BucketCount; i++) {
+            count += _counts.get(i);
+            if (count >= targetCount) {
+                return Math.min(getHighestValue(i), _maximum.get());
+            }
+        }
+
+        return _maximum.get();
+    }
+
+    /**
+     * Removes all the recorded values.
+     */
+    public void reset() {
+        for (int i = 0; i < BucketCount; i++) {
+            _counts.set(i, 0);
+        }
+
+        _totalCount.set(0);
+        _sum.set(0);
+        _maximum.set(0);
+    }
+
+    /**
+     * Gets the bucket of a value. The values lower than 2 * SubBucketCount have their own bucket, then each power of two is divided into SubBucketCount buckets.
+     *
+     * @param value The value, between 0 and the maximum value.
+     * @return The index of the bucket.
+     */
+    static int getIndex(long value) {
+        if (value < SubBucketCount * 2) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SubBucketBits;
+        return shift * SubBucketCount + (int) (value >>> shift);
+    }
+
+    /**
+     * Gets the highest value that is counted in a bucket.
+     *
+     * @param index The index of the bucket.
+     * @return The highest value of the bucket.
+     */
+    static long getHighestValue(int index) {
+        if (index < SubBucketCount * 2) {
+            return index;
+        }
+
+        int shift = index / SubBucketCount - 1;
+        long subBucket = index - shift * SubBucketCount;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    //endregion
+}
@@ -0,0 +1,98 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+/**
+ * Represents the timing of a step of a {@link StartupPipeline}.
+ */
+public final class StartupPhase {
+    //region Fields
+
+    private final String _name;
+    private final String _threadName;
+    private final long _startTime;
+    private final long _readyTime;
+    private final long _duration;
+    private final boolean _isFailed;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link StartupPhase} class.
+     *
+     * @param name       The name of the step.
+     * @param threadName The name of the thread that ran the step.
+     * @param startTime  The time at which the step started waiting for its dependencies, in microseconds since the start of the pipeline.
+     * @param readyTime  The time at which the dependencies of the step were finished and the step started running, in microseconds since the start of the pipeline.
+     * @param duration   The duration of the step after it was ready, in microseconds.
+     * @param isFailed   Defines whether the step threw an exception.
+     */
+    StartupPhase(String name, String threadName, long startTime, long readyTime, long duration, boolean isFailed) {
+        _name = name;
+        _threadName = threadName;
+        _startTime = startTime;
+        _readyTime = readyTime;
+        _duration = duration;
+        _isFailed = isFailed;
+    }
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets the name of the step.
+     *
+     * @return The name of the step.
+     */
+    public String getName() {
+        return _name;
+    }
+
+    /**
+     * Gets the name of the thread that ran the step.
+     *
+     * @return The name of the thread.
+     */
+    public String getThreadName() {
+        return _threadName;
+    }
+
+    /**
+     * Gets the time at which the step started waiting for its dependencies.
+     *
+     * @return The time in microseconds since the start of the pipeline.
+     */
+    public long getStartTime() {
+        return _startTime;
+    }
+
+    /**
+     * Gets the time at which the dependencies of the step were finished and the step started running.
+     *
+     * @return The time in microseconds since the start of the pipeline.
+     */
+    public long getReadyTime() {
+        return _readyTime;
+    }
+
+    /**
+     * Gets the duration of the step after it was ready.
+     *
+     * @return The duration in microseconds.
+     */
+    public long getDuration() {
+        return _duration;
+    }
+
+    /**
+     * Gets a value that defines whether the step threw an exception.
+     *
+     * @return True if the step failed.
+     */
+    public boolean isFailed() {
+        return _isFailed;
+    }
+
+    //endregion
+}
@@ -0,0 +1,170 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Provides a set of initialization steps that run in parallel on background threads, each step starting as soon as the steps it depends on are finished.
+ * <p>
+ * The pipeline records when each step starts waiting for its dependencies, becomes ready and finishes, so the slow phases of the startup can be found. A step that fails makes the steps that depend on it, and the pipeline, fail.
+ */
+public final class StartupPipeline {
+    //region Fields
+
+    private final TaskLane _lane;
+    private final LinkedHashMap<String, Task<Void>> _steps = new LinkedHashMap<>();
+    private final CopyOnWriteArrayList<StartupPhase> _phases = new CopyOnWriteArrayList<>();
+    private volatile long _startTime;
+    private volatile long _duration = -1;
+    private Task<Void> _task;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link StartupPipeline} class.
+     *
+     * @param lane The {@link TaskLane} on which the steps run.
+     */
+    public StartupPipeline(TaskLane lane) {
+        Requires.notNull(lane, "lane");
+        _lane = lane;
+    }
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets the timing of the steps that have run, in the order they started.
+     *
+     * @return A list of {@link StartupPhase}.
+     */
+    public List<StartupPhase> getPhases() {
+        ArrayList<StartupPhase> result = new ArrayList<>(_phases);
+        Collections.sort(result, new Comparator<StartupPhase>() {
+            @Override
+            public int compare(StartupPhase left, StartupPhase right) {
+                return Long.compare(left.getStartTime(), right.getStartTime());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Gets the time between the start of the pipeline and the end of its last step.
+     *
+     * @return The duration in microseconds, or -1 if the pipeline is not finished.
+     */
+    public long getDuration() {
+        return _duration;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Adds a step to the pipeline. The steps it depends on must have been added before.
+     *
+     * @param name         The name of the step.
+     * @param step         The function that runs the step.
+     * @param dependencies The names of the steps that must be finished before this step starts.
+     */
+    public synchronized void addStep(final String name, final Callable<Void> step, String... dependencies) {
+        Requires.notNullOrEmpty(name, "name");
+        Requires.notNull(step, "step");
+        Requires.isTrue(_task == null);
+        Requires.isTrue(!_steps.containsKey(name));
+
+        final ArrayList<Task<Void>> dependencyTasks = new ArrayList<>();
+        for (String dependency : dependencies) {
+            Task<Void> dependencyTask = _steps.get(dependency);
+            Requires.notNull(dependencyTask, dependency);
+            dependencyTasks.add(dependencyTask);
+        }
+
+        _steps.put(name, new Task<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                long startTime = System.nanoTime();
+
+                // a dependency that has not started yet runs on this thread, so the lane cannot be exhausted by waiting steps.
+                for (Task<Void> dependencyTask : dependencyTasks) {
+                    dependencyTask.await();
+                }
+
+                long readyTime = System.nanoTime();
+                boolean isFailed = true;
+                try {
+                    step.call();
+                    isFailed = false;
+                } finally {
+                    long endTime = System.nanoTime();
+                    _phases.add(new StartupPhase(name, Thread.currentThread().getName(), (startTime - _startTime) / 1000, (readyTime - _startTime) / 1000, (endTime - readyTime) / 1000, isFailed));
+                }
+
+                return null;
+            }
+        }, _lane));
+    }
+
+    /**
+     * Starts all the steps.
+     *
+     * @return A {@link Task} that finishes when all the steps are finished, and fails if one of them fails.
+     */
+    public synchronized Task<Void> start() {
+        Requires.isTrue(_task == null);
+
+        _startTime = System.nanoTime();
+        _task = Task.whenAll(new ArrayList<>(_steps.values())).thenApply(new Continuation<List<Void>, Void>() {
+            @Override
+            public Void call(List<Void> result) throws Exception {
+                _duration = (System.nanoTime() - _startTime) / 1000;
+                return null;
+            }
+        });
+
+        return _task;
+    }
+
+    /**
+     * Writes a readable report of the timing of the steps, in milliseconds since the start of the pipeline.
+     *
+     * @param writer The {@link Writer} to write in.
+     */
+    public void dump(Writer writer) {
+        Requires.notNull(writer, "writer");
+
+        PrintWriter printer = new PrintWriter(writer);
+        long duration = getDuration();
+
+        printer.println(duration == -1 ? "Startup in progress" : String.format(Locale.US, "Startup finished in %.1f ms", duration / 1000.0));
+        printer.println(String.format(Locale.US, "%-32s %10s %10s %10s %-6s  %s", "Step", "Start", "Ready", "Duration", "Failed", "Thread"));
+        for (StartupPhase phase : getPhases()) {
+            printer.println(String.format(Locale.US, "%-32s %10.1f %10.1f %10.1f %-6s  %s",
+                    phase.getName(),
+                    phase.getStartTime() / 1000.0,
+                    phase.getReadyTime() / 1000.0,
+                    phase.getDuration() / 1000.0,
+                    phase.isFailed() ? "yes" : "",
+                    phase.getThreadName()));
+        }
+
+        printer.flush();
+    }
+
+    //endregion
+}
@@ -1,17 +1,42 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
 
-import android.os.AsyncTask;
-import android.os.Build;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Provides an asynchronous task that can return a result if we wait for its end.
+ * <p>
+ * The tasks run on an {@link Executor} that does not depend on Android, so they also run on a plain JVM. By default, it is the {@link TaskLane#UI} lane of the {@link TaskScheduler}. When a task waits for another task that has not started running yet, the awaited task runs on the waiting thread instead of waiting for a free thread of the executor, so nested waits cannot exhaust the executor. A task that can be canceled always runs on its executor, so its cancellation releases the waiting threads even if its function does not stop.
  */
 public class Task<T> {
     //region Fields
 
-    private TaskBase<T> _task;
+    private static final int CreatedState = 0;
+    private static final int ScheduledState = 1;
+    private static final int RunningState = 2;
+    private static final int FinishedState = 3;
+
+    private static volatile Executor _defaultExecutor = TaskScheduler.getDefault().getExecutor(TaskLane.UI);
+
+    private final Callable<T> _func;
+    private final Executor _executor;
+    private final CancellationToken _cancellationToken;
+    private final Runnable _cancellationCallback;
+    private final AtomicInteger _state;
+    private final CountDownLatch _completion = new CountDownLatch(1);
+    private final ArrayList<Runnable> _completionHandlers = new ArrayList<>();
+    private volatile TaskResult<T> _result;
+    private volatile List<? extends Task<?>> _children;
+    private final TaskSiteStatistics _statistics;
+    private volatile long _scheduledTime;
 
     //endregion
 
@@ -23,45 +48,179 @@ public class Task<T> {
      * @param func the function to run asynchronously.
      */
     public Task(Callable<T> func) {
-        _task = new TaskBase<T>(func);
+        this(func, _defaultExecutor, CancellationToken.None);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class.
+     *
+     * @param func     the function to run asynchronously.
+     * @param executor the {@link Executor} used to run the function.
+     */
+    public Task(Callable<T> func, Executor executor) {
+        this(func, executor, CancellationToken.None);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class.
+     *
+     * @param func the function to run asynchronously.
+     * @param lane the {@link TaskLane} in which the default {@link TaskScheduler} runs the function.
+     */
+    public Task(Callable<T> func, TaskLane lane) {
+        this(func, TaskScheduler.getDefault().getExecutor(lane), CancellationToken.None);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class.
+     *
+     * @param func              the function to run asynchronously. It should check the cancellation token regularly.
+     * @param cancellationToken the {@link CancellationToken} that cancels the task.
+     */
+    public Task(Callable<T> func, CancellationToken cancellationToken) {
+        this(func, _defaultExecutor, cancellationToken);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class.
+     *
+     * @param func              the function to run asynchronously. It should check the cancellation token regularly.
+     * @param lane              the {@link TaskLane} in which the default {@link TaskScheduler} runs the function.
+     * @param cancellationToken the {@link CancellationToken} that cancels the task.
+     */
+    public Task(Callable<T> func, TaskLane lane, CancellationToken cancellationToken) {
+        this(func, TaskScheduler.getDefault().getExecutor(lane), cancellationToken);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class.
+     * <p>
+     * When the cancellation is requested, the task finishes immediately with an {@link OperationCanceledException}: a task that did not start will never run, and the threads that wait for a running task are released without waiting for the function to notice the cancellation.
+     *
+     * @param func              the function to run asynchronously. It should check the cancellation token regularly.
+     * @param executor          the {@link Executor} used to run the function.
+     * @param cancellationToken the {@link CancellationToken} that cancels the task.
+     */
+    public Task(Callable<T> func, Executor executor, CancellationToken cancellationToken) {
+        this(func, executor, cancellationToken, func);
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class.
+     *
+     * @param func              the function to run asynchronously.
+     * @param executor          the {@link Executor} used to run the function.
+     * @param cancellationToken the {@link CancellationToken} that cancels the task.
+     * @param site              the object declared where the task is created, which identifies the task in the {@link TaskStatistics}.
+     */
+    private Task(Callable<T> func, Executor executor, CancellationToken cancellationToken, Object site) {
+        Requires.notNull(func, "func");
+        Requires.notNull(executor, "executor");
+        Requires.notNull(cancellationToken, "cancellationToken");
+
+        _func = func;
+        _executor = executor;
+        _cancellationToken = cancellationToken;
+        _state = new AtomicInteger(CreatedState);
+        _statistics = TaskStatistics.onCreated(site);
+
+        if (cancellationToken.canBeCanceled()) {
+            _cancellationCallback = new Runnable() {
+                @Override
+                public void run() {
+                    cancel();
+                }
+            };
+            cancellationToken.register(_cancellationCallback);
+        } else {
+            _cancellationCallback = null;
+        }
+    }
+
+    /**
+     * Initialize a new instance of the {@link Task} class that is completed by other tasks rather than by a function.
+     *
+     * @param executor the {@link Executor} used by the continuations of the task.
+     * @param children the tasks that complete this task, which can be run by the threads that wait for this task. Can be null.
+     */
+    private Task(Executor executor, List<? extends Task<?>> children) {
+        _func = null;
+        _executor = executor;
+        _cancellationToken = CancellationToken.None;
+        _cancellationCallback = null;
+        _statistics = null;
+        _state = new AtomicInteger(RunningState);
+        _children = children;
+    }
+
+    //endregion
+
+    //region Properties
+
+    //region DefaultExecutor
+
+    /**
+     * Gets the {@link Executor} used by the tasks that are created without executor or lane.
+     *
+     * @return The default {@link Executor}.
+     */
+    public static Executor getDefaultExecutor() {
+        return _defaultExecutor;
+    }
+
+    /**
+     * Sets the {@link Executor} used by the tasks that are created without executor or lane. The tasks already created keep their executor.
+     *
+     * @param value The default {@link Executor}.
+     */
+    public static void setDefaultExecutor(Executor value) {
+        Requires.notNull(value, "value");
+        _defaultExecutor = value;
     }
 
     //endregion
 
+    //endregion
+
     //region Methods
 
     /**
      * Executes the task.
      */
     public void start() {
-        if (_task.getStatus() == AsyncTask.Status.PENDING) {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
-                _task.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
-            } else {
-                _task.execute();
-            }
-        } else {
+        if (!tryStart()) {
             throw new RuntimeException("The task has already been started.");
         }
     }
 
     /**
-     * Waits if necessary for the computation to complete, and then retrieves its result.
+     * Waits if necessary for the computation to complete, and then retrieves its result. If the task did not start running yet, it runs on the current thread, unless it can be canceled.
      *
      * @return Returns the result of the task.
      */
     public T await() {
-        if (_task.getStatus() == AsyncTask.Status.PENDING) {
-            start();
-        }
+        if (!tryRunInline()) {
+            // a task that can be canceled and has not been started is sent to its executor instead.
+            if (_func != null) {
+                tryStart();
+            }
 
-        try {
-            return _task.get().getResult();
-        } catch (RuntimeException exception) {
-            throw exception;
-        } catch (Exception exception) {
-            throw new RuntimeException(exception);
+            List<? extends Task<?>> children = _children;
+            if (children != null) {
+                // the children that are still waiting for a thread run here rather than blocking a second thread.
+                for (Task<?> child : children) {
+                    child.tryRunInline();
+                }
+            }
+
+            try {
+                _completion.await();
+            } catch (InterruptedException exception) {
+                throw new RuntimeException(exception);
+            }
         }
+
+        return _result.getResult();
     }
 
     /**
@@ -69,8 +228,324 @@ public class Task<T> {
      *
      * @return The current status of this task.
      */
-    public AsyncTask.Status getStatus() {
-        return _task.getStatus();
+    public TaskStatus getStatus() {
+        switch (_state.get()) {
+            case CreatedState:
+                return TaskStatus.PENDING;
+            case FinishedState:
+                return TaskStatus.FINISHED;
+            default:
+                return TaskStatus.RUNNING;
+        }
+    }
+
+    /**
+     * Gets a value that defines whether the task finished because of a cancellation.
+     *
+     * @return True if the task has been canceled.
+     */
+    public boolean isCanceled() {
+        TaskResult<T> result = _result;
+        return result != null && result.isCanceled();
+    }
+
+    /**
+     * Creates a task that runs a function with the result of this task once it is finished. If this task fails, the new task fails too.
+     *
+     * @param continuation The function to run.
+     * @param <R>          The type of the result of the function.
+     * @return A {@link Task} that represents the function.
+     */
+    public <R> Task<R> thenApply(final Continuation<T, R> continuation) {
+        Requires.notNull(continuation, "continuation");
+
+        final Task<R> task = new Task<>(new Callable<R>() {
+            @Override
+            public R call() throws Exception {
+                return continuation.call(Task.this.await());
+            }
+        }, _executor, CancellationToken.None, continuation);
+
+        onCompleted(new Runnable() {
+            @Override
+            public void run() {
+                task.tryStart();
+            }
+        });
+
+        return task;
+    }
+
+    /**
+     * Creates a task that runs a function with the result of this task once it is finished, and then waits for the task returned by the function.
+     *
+     * @param continuation The function that returns a new {@link Task}.
+     * @param <R>          The type of the result of the returned task.
+     * @return A {@link Task} that represents the function and the task it returns.
+     */
+    public <R> Task<R> thenCompose(final Continuation<T, Task<R>> continuation) {
+        Requires.notNull(continuation, "continuation");
+
+        return thenApply(continuation).thenApply(new Continuation<Task<R>, R>() {
+            @Override
+            public R call(Task<R> result) throws Exception {
+                return result.await();
+            }
+        });
+    }
+
+    /**
+     * Starts the given tasks if needed, and creates a task that finishes when all of them are finished.
+     *
+     * @param tasks The tasks to wait for.
+     * @param <T>   The type of the result of the tasks.
+     * @return A {@link Task} that gives the results of the tasks, in the same order. It fails if one of the tasks fails.
+     */
+    @SafeVarargs
+    public static <T> Task<List<T>> whenAll(Task<T>... tasks) {
+        return whenAll(Arrays.asList(tasks));
+    }
+
+    /**
+     * Starts the given tasks if needed, and creates a task that finishes when all of them are finished.
+     *
+     * @param tasks The tasks to wait for.
+     * @param <T>   The type of the result of the tasks.
+     * @return A {@link Task} that gives the results of the tasks, in the same order. It fails if one of the tasks fails.
+     */
+    public static <T> Task<List<T>> whenAll(final List<Task<T>> tasks) {
+        Requires.notNull(tasks, "tasks");
+
+        final Task<List<T>> result = new Task<>(_defaultExecutor, new ArrayList<>(tasks));
+        if (tasks.isEmpty()) {
+            result.complete(new TaskResult<List<T>>(new ArrayList<T>()));
+            return result;
+        }
+
+        final AtomicInteger remainingCount = new AtomicInteger(tasks.size());
+        for (Task<T> task : tasks) {
+            task.onCompleted(new Runnable() {
+                @Override
+                public void run() {
+                    if (remainingCount.decrementAndGet() > 0) {
+                        return;
+                    }
+
+                    ArrayList<T> results = new ArrayList<>(tasks.size());
+                    try {
+                        for (Task<T> task : tasks) {
+                            results.add(task.await());
+                        }
+                        result.complete(new TaskResult<List<T>>(results));
+                    } catch (RuntimeException exception) {
+                        result.complete(new TaskResult<List<T>>(exception));
+                    }
+                }
+            });
+        }
+
+        for (Task<T> task : tasks) {
+            task.tryStart();
+        }
+
+        return result;
+    }
+
+    /**
+     * Starts the given tasks if needed, and creates a task that finishes when one of them is finished.
+     *
+     * @param tasks The tasks to wait for.
+     * @param <T>   The type of the result of the tasks.
+     * @return A {@link Task} that gives the result of the first finished task, or fails if this task failed.
+     */
+    @SafeVarargs
+    public static <T> Task<T> whenAny(Task<T>... tasks) {
+        return whenAny(Arrays.asList(tasks));
+    }
+
+    /**
+     * Starts the given tasks if needed, and creates a task that finishes when one of them is finished.
+     *
+     * @param tasks The tasks to wait for.
+     * @param <T>   The type of the result of the tasks.
+     * @return A {@link Task} that gives the result of the first finished task, or fails if this task failed.
+     */
+    public static <T> Task<T> whenAny(List<Task<T>> tasks) {
+        Requires.notNull(tasks, "tasks");
+        Requires.isTrue(!tasks.isEmpty());
+
+        // the children are not run by the waiting thread, because it could choose the slowest one.
+        final Task<T> result = new Task<>(_defaultExecutor, null);
+        for (final Task<T> task : tasks) {
+            task.onCompleted(new Runnable() {
+                @Override
+                public void run() {
+                    result.complete(task._result);
+                }
+            });
+        }
+
+        for (Task<T> task : tasks) {
+            task.tryStart();
+        }
+
+        return result;
+    }
+
+    /**
+     * Creates a task that is completed by {@link Task#setResult(TaskResult)} rather than by a function, for the work that is queued elsewhere.
+     *
+     * @param executor the {@link Executor} used by the continuations of the task.
+     * @param <T>      The type of the result of the task.
+     * @return A running {@link Task}.
+     */
+    static <T> Task<T> createPending(Executor executor) {
+        return new Task<>(executor, null);
+    }
+
+    /**
+     * Finishes a task created by {@link Task#createPending(Executor)}. Only the first result is kept.
+     *
+     * @param result The result of the task.
+     */
+    void setResult(TaskResult<T> result) {
+        complete(result);
+    }
+
+    /**
+     * Sends the task to its executor if it has not been started.
+     *
+     * @return False if the task was already started.
+     */
+    private boolean tryStart() {
+        if (!_state.compareAndSet(CreatedState, ScheduledState)) {
+            return false;
+        }
+
+        if (_statistics != null) {
+            _scheduledTime = System.nanoTime();
+        }
+
+        _executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // the task may have been run by a thread that awaited it in the meantime.
+                if (_state.compareAndSet(ScheduledState, RunningState)) {
+                    execute();
+                }
+            }
+        });
+
+        return true;
+    }
+
+    /**
+     * Runs the task on the current thread if no thread is running it yet. A task that can be canceled is never run this way, because a cancellation could not release a thread that is running the function.
+     *
+     * @return True if the task has been run by this call.
+     */
+    private boolean tryRunInline() {
+        if (_func == null || _cancellationToken.canBeCanceled()) {
+            return false;
+        }
+
+        if (_state.compareAndSet(CreatedState, RunningState) || _state.compareAndSet(ScheduledState, RunningState)) {
+            execute();
+            return true;
+        }
+
+        return false;
+    }
+
+    private void execute() {
+        if (_cancellationToken.isCancellationRequested()) {
+            complete(new TaskResult<T>(new OperationCanceledException()));
+            return;
+        }
+
+        long startTime = 0;
+        if (_statistics != null) {
+            startTime = System.nanoTime();
+            long scheduledTime = _scheduledTime;
+            _statistics.onStarted(scheduledTime == 0 ? -1 : startTime - scheduledTime);
+            TaskStatistics.onStarted();
+        }
+
+        // an error, like an OutOfMemoryError, fails the task too, otherwise the threads that wait for it would never be released.
+        TaskResult<T> result = null;
+        try {
+            result = new TaskResult<>(_func.call());
+        } catch (Throwable throwable) {
+            result = new TaskResult<>(throwable);
+        } finally {
+            try {
+                if (_statistics != null) {
+                    TaskStatistics.onFinished();
+                    _statistics.onFinished(System.nanoTime() - startTime, result == null || result.isFailed());
+                }
+            } finally {
+                complete(result != null ? result : new TaskResult<T>(new IllegalStateException("The task did not return a result.")));
+            }
+        }
+    }
+
+    /**
+     * Sets the result of the task, wakes up the waiting threads, then runs the completion handlers. Only the first result is kept.
+     *
+     * @param result The result of the task.
+     */
+    private void complete(TaskResult<T> result) {
+        ArrayList<Runnable> handlers;
+        synchronized (_completionHandlers) {
+            if (_state.get() == FinishedState) {
+                return;
+            }
+
+            _result = result;
+            _state.set(FinishedState);
+            handlers = new ArrayList<>(_completionHandlers);
+            _completionHandlers.clear();
+        }
+
+        _children = null;
+        if (_cancellationCallback != null) {
+            _cancellationToken.unregister(_cancellationCallback);
+        }
+
+        _completion.countDown();
+
+        for (Runnable handler : handlers) {
+            handler.run();
+        }
+    }
+
+    /**
+     * Runs an action when the task is finished, or immediately if it is already finished.
+     *
+     * @param handler The action to run.
+     */
+    private void onCompleted(Runnable handler) {
+        synchronized (_completionHandlers) {
+            if (_state.get() != FinishedState) {
+                _completionHandlers.add(handler);
+                return;
+            }
+        }
+
+        handler.run();
+    }
+
+    /**
+     * Finishes the task with an {@link OperationCanceledException}. If the task is running, its function is abandoned and its result will be ignored.
+     */
+    private void cancel() {
+        if (_state.compareAndSet(CreatedState, RunningState) || _state.compareAndSet(ScheduledState, RunningState) || _state.get() == RunningState) {
+            if (_statistics != null) {
+                _statistics.onCanceled();
+            }
+
+            complete(new TaskResult<T>(new OperationCanceledException()));
+        }
     }
 
     //endregion
@@ -0,0 +1,46 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+/**
+ * Indicates the kind of work done by a {@link Task}, which defines how urgently the {@link TaskScheduler} runs it. The lanes are sorted from the most urgent to the least urgent.
+ */
+public enum TaskLane {
+    /**
+     * The capture of the clipboard, which must not wait behind any other work.
+     */
+    CAPTURE(Thread.NORM_PRIORITY + 2),
+
+    /**
+     * The work that the user is waiting for, like reading the history or authenticating.
+     */
+    UI(Thread.NORM_PRIORITY),
+
+    /**
+     * The retrieval of the title of the copied links, which is short but waits for the network.
+     */
+    PREVIEW(Thread.MIN_PRIORITY + 2),
+
+    /**
+     * The network work done in the background, like the synchronization with the cloud.
+     */
+    SYNC(Thread.MIN_PRIORITY + 1),
+
+    /**
+     * The maintenance of the data, like the purge of the cache or the training of the compression dictionary.
+     */
+    MAINTENANCE(Thread.MIN_PRIORITY);
+
+    private final int _threadPriority;
+
+    TaskLane(int threadPriority) {
+        _threadPriority = threadPriority;
+    }
+
+    /**
+     * Gets the priority of the thread while it runs a work of this lane.
+     *
+     * @return A {@link Thread} priority.
+     */
+    public int getThreadPriority() {
+        return _threadPriority;
+    }
+}
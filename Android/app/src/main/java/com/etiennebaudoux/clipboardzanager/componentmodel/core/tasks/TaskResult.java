@@ -1,5 +1,7 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
 
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
+
 /**
  * Represents the result of an asynchronous task.
  *
@@ -9,7 +11,7 @@ public class TaskResult<T> {
     //region Fields
 
     private T result;
-    private Exception error;
+    private Throwable error;
 
     //endregion
 
@@ -28,9 +30,9 @@ public class TaskResult<T> {
     /**
      * Initialize a new instance of the {@link TaskResult} class.
      *
-     * @param error An exception that thrown during the task.
+     * @param error An exception or an error thrown during the task.
      */
-    public TaskResult(Exception error) {
+    public TaskResult(Throwable error) {
         super();
         this.error = error;
     }
@@ -42,9 +44,13 @@ public class TaskResult<T> {
     /**
      * Gets the result of the task.
      *
-     * @return The result of the task. If an error has been thrown, a {@link RuntimeException} will be thrown.
+     * @return The result of the task. If an error has been thrown, a {@link RuntimeException} will be thrown. A cancellation is thrown as is, so it can be caught as an {@link OperationCanceledException}.
      */
     public T getResult() {
+        if (error instanceof OperationCanceledException) {
+            throw (OperationCanceledException) error;
+        }
+
         if (error != null) {
             throw new RuntimeException(error);
         }
@@ -52,5 +58,23 @@ public class TaskResult<T> {
         return result;
     }
 
+    /**
+     * Gets a value that defines whether the task has been canceled.
+     *
+     * @return True if the error is an {@link OperationCanceledException}.
+     */
+    public boolean isCanceled() {
+        return error instanceof OperationCanceledException;
+    }
+
+    /**
+     * Gets a value that defines whether the task failed for another reason than a cancellation.
+     *
+     * @return True if an error other than an {@link OperationCanceledException} has been thrown.
+     */
+    public boolean isFailed() {
+        return error != null && !isCanceled();
+    }
+
     //endregion
 }
@@ -0,0 +1,315 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the work of the tasks on a pool of threads shared by several {@link TaskLane}, so a background synchronization does not delay the capture of the clipboard.
+ * <p>
+ * A free thread always takes the work of the most urgent lane first. Each lane can be limited to a number of threads, and some threads can be reserved to the most urgent lane, so the other lanes never use all the threads of the pool. To prevent starvation, a work that waits gains one lane of urgency per aging interval, but it never becomes as urgent as the work of the most urgent lane.
+ */
+public final class TaskScheduler {
+    //region Fields
+
+    private static final int DefaultThreadCount = Math.max(4, Runtime.getRuntime().availableProcessors() + 1);
+    private static final long DefaultAgingInterval = 1000;
+    private static final long KeepAliveTime = 30 * 1000;
+    private static final TaskScheduler _default = createDefault();
+
+    private final Object _lock = new Object();
+    private final int _threadCount;
+    private final long _agingInterval;
+    private final ArrayDeque<WorkItem>[] _queues;
+    private final int[] _runningCounts;
+    private final int[] _maximumConcurrencies;
+    private int _reservedThreadCount;
+    private final Executor[] _executors;
+    private int _workerCount;
+    private int _workerNumber;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link TaskScheduler} class. By default, a lane can use all the threads.
+     *
+     * @param threadCount   The maximum number of threads of the pool.
+     * @param agingInterval The time after which a waiting work is considered as urgent as the work of the previous lane, in milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public TaskScheduler(int threadCount, long agingInterval) {
+        Requires.isTrue(threadCount > 0);
+        Requires.isTrue(agingInterval > 0);
+
+        int laneCount = TaskLane.values().length;
+        _threadCount = threadCount;
+        _agingInterval = agingInterval;
+        _queues = new ArrayDeque[laneCount];
+        _runningCounts = new int[laneCount];
+        _maximumConcurrencies = new int[laneCount];
+        _executors = new Executor[laneCount];
+
+        for (final TaskLane lane : TaskLane.values()) {
+            _queues[lane.ordinal()] = new ArrayDeque<>();
+            _maximumConcurrencies[lane.ordinal()] = threadCount;
+            _executors[lane.ordinal()] = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    enqueue(lane, command);
+                }
+            };
+        }
+    }
+
+    //endregion
+
+    //region Properties
+
+    //region Default
+
+    /**
+     * Gets the scheduler used by the tasks.
+     *
+     * @return The default {@link TaskScheduler}.
+     */
+    public static TaskScheduler getDefault() {
+        return _default;
+    }
+
+    //endregion
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets an {@link Executor} that runs the work in a given lane.
+     *
+     * @param lane The lane of the work.
+     * @return The {@link Executor}.
+     */
+    public Executor getExecutor(TaskLane lane) {
+        Requires.notNull(lane, "lane");
+        return _executors[lane.ordinal()];
+    }
+
+    /**
+     * Sets the maximum number of threads that can run the work of a lane at the same time.
+     *
+     * @param lane  The lane.
+     * @param value The maximum number of threads, between 1 and the number of threads of the pool.
+     */
+    public void setMaximumConcurrency(TaskLane lane, int value) {
+        Requires.notNull(lane, "lane");
+        Requires.isTrue(value > 0 && value <= _threadCount);
+
+        synchronized (_lock) {
+            _maximumConcurrencies[lane.ordinal()] = value;
+            _lock.notifyAll();
+        }
+    }
+
+    /**
+     * Sets the number of threads that only the most urgent lane can use. The other lanes together never use more than the remaining threads.
+     *
+     * @param value The number of reserved threads, lower than the number of threads of the pool.
+     */
+    public void setReservedThreadCount(int value) {
+        Requires.isTrue(value >= 0 && value < _threadCount);
+
+        synchronized (_lock) {
+            _reservedThreadCount = value;
+            _lock.notifyAll();
+        }
+    }
+
+    /**
+     * Gets the number of works of a lane that wait for a thread.
+     *
+     * @param lane The lane.
+     * @return The number of waiting works.
+     */
+    public int getQueuedCount(TaskLane lane) {
+        Requires.notNull(lane, "lane");
+
+        synchronized (_lock) {
+            return _queues[lane.ordinal()].size();
+        }
+    }
+
+    /**
+     * Gets the number of works of a lane that are running.
+     *
+     * @param lane The lane.
+     * @return The number of running works.
+     */
+    public int getRunningCount(TaskLane lane) {
+        Requires.notNull(lane, "lane");
+
+        synchronized (_lock) {
+            return _runningCounts[lane.ordinal()];
+        }
+    }
+
+    private void enqueue(TaskLane lane, Runnable command) {
+        Requires.notNull(command, "command");
+
+        synchronized (_lock) {
+            _queues[lane.ordinal()].addLast(new WorkItem(lane, command, System.nanoTime()));
+
+            if (_workerCount < _threadCount) {
+                startWorker();
+            } else {
+                _lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Starts a new thread that runs the work of the queues. Must be called with the lock held.
+     */
+    private void startWorker() {
+        _workerCount++;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                work();
+            }
+        }, "Task #" + (++_workerNumber));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Runs the work of the queues until there is nothing to do during the keep alive time.
+     */
+    private void work() {
+        Thread thread = Thread.currentThread();
+
+        // the worker is counted until it leaves, even if something unexpected ends it, otherwise its thread would never be replaced.
+        boolean isIdle = false;
+        try {
+            while (true) {
+                WorkItem item;
+                synchronized (_lock) {
+                    long idleStart = System.nanoTime();
+                    while ((item = dequeue()) == null) {
+                        long remainingTime = KeepAliveTime - (System.nanoTime() - idleStart) / 1000000;
+                        if (remainingTime <= 0) {
+                            isIdle = true;
+                            return;
+                        }
+
+                        try {
+                            _lock.wait(remainingTime);
+                        } catch (InterruptedException exception) {
+                            isIdle = true;
+                            return;
+                        }
+                    }
+
+                    _runningCounts[item.lane.ordinal()]++;
+                }
+
+                try {
+                    thread.setPriority(item.lane.getThreadPriority());
+                    item.command.run();
+                } catch (Throwable throwable) {
+                    // an error, like an AssertionError, must not end the worker nor leak the place of the work in its lane.
+                    throwable.printStackTrace();
+                } finally {
+                    synchronized (_lock) {
+                        _runningCounts[item.lane.ordinal()]--;
+                        // a thread that waits for this lane can take the next work.
+                        _lock.notifyAll();
+                    }
+                }
+            }
+        } finally {
+            synchronized (_lock) {
+                _workerCount--;
+
+                // the work left by a worker that ended unexpectedly would otherwise wait for the next work to start a thread.
+                if (!isIdle && hasQueuedWork()) {
+                    startWorker();
+                }
+            }
+        }
+    }
+
+    private boolean hasQueuedWork() {
+        for (ArrayDeque<WorkItem> queue : _queues) {
+            if (!queue.isEmpty()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes the most urgent work from the queues whose lane did not reach its maximum concurrency. The urgency of a work is the rank of its lane minus the number of aging intervals it waited, and the work of the other lanes never reaches the rank of the most urgent lane.
+     *
+     * @return The work to run, or null if there is none.
+     */
+    private WorkItem dequeue() {
+        long now = System.nanoTime();
+        ArrayDeque<WorkItem> selectedQueue = null;
+        long selectedRank = Long.MAX_VALUE;
+
+        int otherRunningCount = 0;
+        for (int i = 1; i < _runningCounts.length; i++) {
+            otherRunningCount += _runningCounts[i];
+        }
+
+        for (int i = 0; i < _queues.length; i++) {
+            ArrayDeque<WorkItem> queue = _queues[i];
+            if (queue.isEmpty() || _runningCounts[i] >= _maximumConcurrencies[i]) {
+                continue;
+            }
+
+            if (i > 0 && otherRunningCount >= _threadCount - _reservedThreadCount) {
+                continue;
+            }
+
+            long rank = i - (now - queue.peekFirst().enqueueTime) / 1000000 / _agingInterval;
+            if (i > 0) {
+                rank = Math.max(rank, 1);
+            }
+
+            if (rank < selectedRank) {
+                selectedRank = rank;
+                selectedQueue = queue;
+            }
+        }
+
+        return selectedQueue == null ? null : selectedQueue.pollFirst();
+    }
+
+    private static TaskScheduler createDefault() {
+        // one thread is kept for the capture, so it always finds a free thread, even when the other lanes are busy.
+        TaskScheduler scheduler = new TaskScheduler(DefaultThreadCount, DefaultAgingInterval);
+        scheduler.setReservedThreadCount(1);
+        scheduler.setMaximumConcurrency(TaskLane.PREVIEW, 2);
+        scheduler.setMaximumConcurrency(TaskLane.SYNC, 2);
+        scheduler.setMaximumConcurrency(TaskLane.MAINTENANCE, 1);
+        return scheduler;
+    }
+
+    //endregion
+
+    private static final class WorkItem {
+        final TaskLane lane;
+        final Runnable command;
+        final long enqueueTime;
+
+        WorkItem(TaskLane lane, Runnable command, long enqueueTime) {
+            this.lane = lane;
+            this.command = command;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
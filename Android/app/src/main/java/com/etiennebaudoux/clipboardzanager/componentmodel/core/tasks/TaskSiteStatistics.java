@@ -0,0 +1,179 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Represents the statistics of the tasks created at the same place of the code. The durations are in microseconds.
+ */
+public final class TaskSiteStatistics {
+    //region Fields
+
+    private final String _name;
+    private final AtomicLong _createdCount = new AtomicLong();
+    private final AtomicLong _failureCount = new AtomicLong();
+    private final AtomicLong _canceledCount = new AtomicLong();
+    private final AtomicInteger _inFlightCount = new AtomicInteger();
+    private final AtomicInteger _maximumInFlightCount = new AtomicInteger();
+    private final Histogram _waitTime = new Histogram();
+    private final Histogram _runTime = new Histogram();
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link TaskSiteStatistics} class.
+     *
+     * @param name The name of the place of the code that creates the tasks.
+     */
+    TaskSiteStatistics(String name) {
+        _name = name;
+    }
+
+    //endregion
+
+    //region Properties
+
+    //region Name
+
+    /**
+     * Gets the name of the place of the code that creates the tasks, like the method that declares the function of the tasks.
+     *
+     * @return The name of the call site.
+     */
+    public String getName() {
+        return _name;
+    }
+
+    //endregion
+
+    //region CreatedCount
+
+    /**
+     * Gets the number of tasks created.
+     *
+     * @return The number of tasks.
+     */
+    public long getCreatedCount() {
+        return _createdCount.get();
+    }
+
+    //endregion
+
+    //region FailureCount
+
+    /**
+     * Gets the number of tasks whose function threw an exception.
+     *
+     * @return The number of failed tasks.
+     */
+    public long getFailureCount() {
+        return _failureCount.get();
+    }
+
+    //endregion
+
+    //region CanceledCount
+
+    /**
+     * Gets the number of tasks that have been canceled.
+     *
+     * @return The number of canceled tasks.
+     */
+    public long getCanceledCount() {
+        return _canceledCount.get();
+    }
+
+    //endregion
+
+    //region InFlightCount
+
+    /**
+     * Gets the number of tasks that are running.
+     *
+     * @return The number of running tasks.
+     */
+    public int getInFlightCount() {
+        return _inFlightCount.get();
+    }
+
+    /**
+     * Gets the highest number of tasks that were running at the same time.
+     *
+     * @return The highest number of running tasks.
+     */
+    public int getMaximumInFlightCount() {
+        return _maximumInFlightCount.get();
+    }
+
+    //endregion
+
+    //region WaitTime
+
+    /**
+     * Gets the time spent by the tasks between their start and the moment a thread runs them. The tasks that run on the thread that awaits them are not counted.
+     *
+     * @return The {@link Histogram} of the wait times, in microseconds.
+     */
+    public Histogram getWaitTime() {
+        return _waitTime;
+    }
+
+    //endregion
+
+    //region RunTime
+
+    /**
+     * Gets the time spent to run the function of the tasks.
+     *
+     * @return The {@link Histogram} of the run times, in microseconds.
+     */
+    public Histogram getRunTime() {
+        return _runTime;
+    }
+
+    //endregion
+
+    //endregion
+
+    //region Methods
+
+    void onCreated() {
+        _createdCount.incrementAndGet();
+    }
+
+    void onStarted(long waitTime) {
+        if (waitTime >= 0) {
+            _waitTime.record(waitTime / 1000);
+        }
+
+        int inFlightCount = _inFlightCount.incrementAndGet();
+        int maximum;
+        while (inFlightCount > (maximum = _maximumInFlightCount.get()) && !_maximumInFlightCount.compareAndSet(maximum, inFlightCount)) {
+        }
+    }
+
+    void onFinished(long runTime, boolean isFailure) {
+        _inFlightCount.decrementAndGet();
+        _runTime.record(runTime / 1000);
+        if (isFailure) {
+            _failureCount.incrementAndGet();
+        }
+    }
+
+    void onCanceled() {
+        _canceledCount.incrementAndGet();
+    }
+
+    void reset() {
+        _createdCount.set(0);
+        _failureCount.set(0);
+        _canceledCount.set(0);
+        _maximumInFlightCount.set(_inFlightCount.get());
+        _waitTime.reset();
+        _runTime.reset();
+    }
+
+    //endregion
+}
@@ -0,0 +1,229 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records how long the tasks wait for a thread and how long they run, per call site, so the saturation of the {@link TaskScheduler} can be detected.
+ * <p>
+ * The call site of a task is identified by the class of its function, which is an anonymous class declared where the task is created. Recording a task only costs a lookup in a map and a few atomic operations.
+ */
+public final class TaskStatistics {
+    //region Fields
+
+    private static final ConcurrentHashMap<Class<?>, TaskSiteStatistics> _sites = new ConcurrentHashMap<>();
+    private static final AtomicInteger _inFlightCount = new AtomicInteger();
+    private static final AtomicInteger _maximumInFlightCount = new AtomicInteger();
+    private static volatile boolean _isEnabled = true;
+
+    //endregion
+
+    //region Properties
+
+    //region IsEnabled
+
+    /**
+     * Gets a value that defines whether the tasks are recorded.
+     *
+     * @return True if the tasks are recorded.
+     */
+    public static boolean isEnabled() {
+        return _isEnabled;
+    }
+
+    /**
+     * Sets a value that defines whether the tasks are recorded. The tasks already created keep being recorded.
+     *
+     * @param value True to record the tasks.
+     */
+    public static void setEnabled(boolean value) {
+        _isEnabled = value;
+    }
+
+    //endregion
+
+    //region InFlightCount
+
+    /**
+     * Gets the number of tasks that are running.
+     *
+     * @return The number of running tasks.
+     */
+    public static int getInFlightCount() {
+        return _inFlightCount.get();
+    }
+
+    /**
+     * Gets the highest number of tasks that were running at the same time.
+     *
+     * @return The highest number of running tasks.
+     */
+    public static int getMaximumInFlightCount() {
+        return _maximumInFlightCount.get();
+    }
+
+    //endregion
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Gets the statistics of all the call sites, sorted by name.
+     *
+     * @return A list of {@link TaskSiteStatistics}.
+     */
+    public static List<TaskSiteStatistics> getSites() {
+        ArrayList<TaskSiteStatistics> result = new ArrayList<>(_sites.values());
+        Collections.sort(result, new Comparator<TaskSiteStatistics>() {
+            @Override
+            public int compare(TaskSiteStatistics site1, TaskSiteStatistics site2) {
+                return site1.getName().compareTo(site2.getName());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Removes the recorded values. The running tasks are still counted.
+     */
+    public static void reset() {
+        _maximumInFlightCount.set(_inFlightCount.get());
+        for (TaskSiteStatistics site : _sites.values()) {
+            site.reset();
+        }
+    }
+
+    /**
+     * Writes a readable report of the statistics.
+     *
+     * @param writer The {@link Writer} in which the report is written.
+     */
+    public static void dump(Writer writer) {
+        Requires.notNull(writer, "writer");
+
+        PrintWriter printer = new PrintWriter(writer);
+        TaskScheduler scheduler = TaskScheduler.getDefault();
+
+        printer.println("Tasks statistics, " + new Date());
+        printer.println(String.format(Locale.US, "In flight: %d (maximum %d)", getInFlightCount(), getMaximumInFlightCount()));
+        printer.println();
+
+        printer.println(String.format(Locale.US, "%-12s %8s %8s", "Lane", "Queued", "Running"));
+        for (TaskLane lane : TaskLane.values()) {
+            printer.println(String.format(Locale.US, "%-12s %8d %8d", lane, scheduler.getQueuedCount(lane), scheduler.getRunningCount(lane)));
+        }
+        printer.println();
+
+        printer.println("Durations in milliseconds: p50 / p90 / p99 / max");
+        printer.println(String.format(Locale.US, "%-48s %8s %8s %8s %10s  %-31s  %-31s", "Call site", "Count", "Failed", "Canceled", "In flight", "Wait", "Run"));
+        for (TaskSiteStatistics site : getSites()) {
+            printer.println(String.format(Locale.US, "%-48s %8d %8d %8d %4d (%3d)  %-31s  %-31s",
+                    site.getName(),
+                    site.getCreatedCount(),
+                    site.getFailureCount(),
+                    site.getCanceledCount(),
+                    site.getInFlightCount(),
+                    site.getMaximumInFlightCount(),
+                    formatPercentiles(site.getWaitTime()),
+                    formatPercentiles(site.getRunTime())));
+        }
+
+        printer.flush();
+    }
+
+    /**
+     * Writes a readable report of the statistics in a file.
+     *
+     * @param file The file to create or replace.
+     * @throws IOException
+     */
+    public static void dump(File file) throws IOException {
+        Requires.notNull(file, "file");
+
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8"))) {
+            dump(writer);
+        }
+    }
+
+    /**
+     * Gets the statistics of the call site that declares a function, and counts a new task.
+     *
+     * @param function The function of the task.
+     * @return The {@link TaskSiteStatistics}, or null if the tasks are not recorded.
+     */
+    static TaskSiteStatistics onCreated(Object function) {
+        if (!_isEnabled) {
+            return null;
+        }
+
+        Class<?> functionClass = function.getClass();
+        TaskSiteStatistics site = _sites.get(functionClass);
+        if (site == null) {
+            TaskSiteStatistics newSite = new TaskSiteStatistics(getSiteName(functionClass));
+            site = _sites.putIfAbsent(functionClass, newSite);
+            if (site == null) {
+                site = newSite;
+            }
+        }
+
+        site.onCreated();
+        return site;
+    }
+
+    static void onStarted() {
+        int inFlightCount = _inFlightCount.incrementAndGet();
+        int maximum;
+        while (inFlightCount > (maximum = _maximumInFlightCount.get()) && !_maximumInFlightCount.compareAndSet(maximum, inFlightCount)) {
+        }
+    }
+
+    static void onFinished() {
+        _inFlightCount.decrementAndGet();
+    }
+
+    private static String formatPercentiles(Histogram histogram) {
+        return String.format(Locale.US, "%.1f / %.1f / %.1f / %.1f", histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0, histogram.getValueAtPercentile(99) / 1000.0, histogram.getMaximum() / 1000.0);
+    }
+
+    /**
+     * Gets a readable name for the place of the code that declares a class, like DataService.purgeCacheAsync.
+     *
+     * @param functionClass The class of the function.
+     * @return The name of the call site.
+     */
+    private static String getSiteName(Class<?> functionClass) {
+        Class<?> declaringClass = functionClass;
+        Method method = null;
+        try {
+            // the lambdas and the named classes do not have an enclosing method, their own name is used.
+            method = functionClass.getEnclosingMethod();
+            if (method != null) {
+                declaringClass = method.getDeclaringClass();
+            }
+        } catch (RuntimeException exception) {
+        }
+
+        String name = declaringClass.getName();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        return method == null ? name : name + "." + method.getName();
+    }
+
+    //endregion
+}
@@ -0,0 +1,21 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+/**
+ * Indicates the current status of a {@link Task}.
+ */
+public enum TaskStatus {
+    /**
+     * The task has not been executed yet.
+     */
+    PENDING,
+
+    /**
+     * The task has been started, it is waiting for a thread or is running.
+     */
+    RUNNING,
+
+    /**
+     * The task is finished, successfully or not.
+     */
+    FINISHED
+}
@@ -0,0 +1,7 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.exceptions;
+
+public class OperationCanceledException extends RuntimeException {
+    public OperationCanceledException() {
+        super("The operation has been canceled.");
+    }
+}
@@ -1,6 +1,7 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.io;
 
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -13,6 +14,7 @@ public class AesInputStream extends InputStream {
 
     private InputStream _baseStream;
     private AesCrypt _aes;
+    private CancellationToken _cancellationToken;
 
     //endregion
 
@@ -31,9 +33,24 @@ public class AesInputStream extends InputStream {
      * @param salt       Must be unique for each stream otherwise there is NO security.
      */
     public AesInputStream(InputStream baseStream, String password, byte[] salt) {
+        this(baseStream, password, salt, CancellationToken.None);
+    }
+
+    /**
+     * Initialize a new instance of the {@link AesInputStream} class.
+     *
+     * @param baseStream        The {@link InputStream} to read or write with encryption.
+     * @param password          The password used to encrypt or decrypt the data.
+     * @param salt              Must be unique for each stream otherwise there is NO security.
+     * @param cancellationToken The {@link CancellationToken} checked before each read.
+     */
+    public AesInputStream(InputStream baseStream, String password, byte[] salt, CancellationToken cancellationToken) {
         Requires.notNull(baseStream, "baseStream");
         Requires.notNull(password, "password");
         Requires.notNull(salt, "salt");
+        Requires.notNull(cancellationToken, "cancellationToken");
+
+        _cancellationToken = cancellationToken;
 
         try {
             _baseStream = baseStream;
@@ -125,6 +142,8 @@ public class AesInputStream extends InputStream {
 
     @Override
     public int read(byte[] buffer, int offset, int count) {
+        _cancellationToken.throwIfCancellationRequested();
+
         int ret = -1;
         try {
             long streamPos = getPosition();
@@ -1,6 +1,7 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.io;
 
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -13,6 +14,7 @@ public class AesOutputStream extends OutputStream {
 
     private OutputStream _baseStream;
     private AesCrypt _aes;
+    private CancellationToken _cancellationToken;
 
     //endregion
 
@@ -31,9 +33,24 @@ public class AesOutputStream extends OutputStream {
      * @param salt       Must be unique for each stream otherwise there is NO security.
      */
     public AesOutputStream(OutputStream baseStream, String password, byte[] salt) {
+        this(baseStream, password, salt, CancellationToken.None);
+    }
+
+    /**
+     * Initialize a new instance of the {@link AesOutputStream} class.
+     *
+     * @param baseStream        The {@link OutputStream} to read or write with encryption.
+     * @param password          The password used to encrypt or decrypt the data.
+     * @param salt              Must be unique for each stream otherwise there is NO security.
+     * @param cancellationToken The {@link CancellationToken} checked before each write.
+     */
+    public AesOutputStream(OutputStream baseStream, String password, byte[] salt, CancellationToken cancellationToken) {
         Requires.notNull(baseStream, "baseStream");
         Requires.notNull(password, "password");
         Requires.notNull(salt, "salt");
+        Requires.notNull(cancellationToken, "cancellationToken");
+
+        _cancellationToken = cancellationToken;
 
         try {
             _baseStream = baseStream;
@@ -88,6 +105,8 @@ public class AesOutputStream extends OutputStream {
 
     @Override
     public void write(byte[] buffer, int offset, int count) {
+        _cancellationToken.throwIfCancellationRequested();
+
         try {
             long streamPos = getLength();
             _aes.cipher(buffer, offset, count, streamPos);
@@ -0,0 +1,226 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.io;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Provides a set of functions designed to describe a {@link Byte} array as a list of differences with another one.
+ * <p>
+ * A delta is a sequence of instructions that either copy a range of the base array or insert new bytes. The base array is indexed by blocks, then the target array is scanned with a rolling hash, so the common parts are found even when they moved.
+ */
+public final class BinaryDelta {
+    //region Fields
+
+    private static final int BlockSize = 16;
+    private static final int HashMultiplier = 31;
+    private static final byte CopyInstruction = 1;
+    private static final byte InsertInstruction = 2;
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Computes the delta that transforms the base array into the target array.
+     *
+     * @param base   The base {@link Byte} array.
+     * @param target The {@link Byte} array to describe.
+     * @return The delta, which can be applied with {@link BinaryDelta#apply(byte[], byte[])}.
+     */
+    public static byte[] create(byte[] base, byte[] target) {
+        Requires.notNull(base, "base");
+        Requires.notNull(target, "target");
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writeVarInt(delta, target.length);
+
+        int[] index = createBlockIndex(base);
+        int highestPower = power(BlockSize - 1);
+        int insertStart = 0;
+        int position = 0;
+        int hash = target.length >= BlockSize ? hash(target, 0) : 0;
+
+        while (position + BlockSize <= target.length) {
+            int candidate = index.length == 0 ? -1 : index[hash & (index.length - 1)] - 1;
+
+            if (candidate > -1 && regionEquals(base, candidate, target, position, BlockSize)) {
+                int copyStart = candidate;
+                int copyEnd = candidate + BlockSize;
+                int targetStart = position;
+                int targetEnd = position + BlockSize;
+
+                while (copyEnd < base.length && targetEnd < target.length && base[copyEnd] == target[targetEnd]) {
+                    copyEnd++;
+                    targetEnd++;
+                }
+
+                while (copyStart > 0 && targetStart > insertStart && base[copyStart - 1] == target[targetStart - 1]) {
+                    copyStart--;
+                    targetStart--;
+                }
+
+                writeInsert(delta, target, insertStart, targetStart - insertStart);
+                delta.write(CopyInstruction);
+                writeVarInt(delta, copyStart);
+                writeVarInt(delta, copyEnd - copyStart);
+
+                position = targetEnd;
+                insertStart = targetEnd;
+                if (position + BlockSize <= target.length) {
+                    hash = hash(target, position);
+                }
+            } else {
+                if (position + BlockSize < target.length) {
+                    hash = (hash - (target[position] & 0xff) * highestPower) * HashMultiplier + (target[position + BlockSize] & 0xff);
+                }
+                position++;
+            }
+        }
+
+        writeInsert(delta, target, insertStart, target.length - insertStart);
+        return delta.toByteArray();
+    }
+
+    /**
+     * Rebuilds the target array from the base array and a delta created by {@link BinaryDelta#create(byte[], byte[])}.
+     *
+     * @param base  The base {@link Byte} array.
+     * @param delta The delta.
+     * @return The target {@link Byte} array.
+     * @throws IOException The delta is corrupted or does not match the base array.
+     */
+    public static byte[] apply(byte[] base, byte[] delta) throws IOException {
+        Requires.notNull(base, "base");
+        Requires.notNull(delta, "delta");
+
+        int[] position = new int[]{0};
+        int targetLength = readVarInt(delta, position);
+        byte[] target = new byte[targetLength];
+        int targetPosition = 0;
+
+        while (position[0] < delta.length) {
+            byte instruction = delta[position[0]++];
+
+            if (instruction == CopyInstruction) {
+                int offset = readVarInt(delta, position);
+                int length = readVarInt(delta, position);
+                if (offset < 0 || length < 0 || offset + length > base.length || targetPosition + length > targetLength) {
+                    throw new IOException("The delta does not match the base data.");
+                }
+
+                System.arraycopy(base, offset, target, targetPosition, length);
+                targetPosition += length;
+            } else if (instruction == InsertInstruction) {
+                int length = readVarInt(delta, position);
+                if (length < 0 || position[0] + length > delta.length || targetPosition + length > targetLength) {
+                    throw new IOException("The delta is corrupted.");
+                }
+
+                System.arraycopy(delta, position[0], target, targetPosition, length);
+                position[0] += length;
+                targetPosition += length;
+            } else {
+                throw new IOException("The delta is corrupted.");
+            }
+        }
+
+        if (targetPosition != targetLength) {
+            throw new IOException("The delta is corrupted.");
+        }
+
+        return target;
+    }
+
+    /**
+     * Creates an open addressing table that gives, for the hash of a block, the position of the block in the base array plus one.
+     *
+     * @param base The base {@link Byte} array.
+     * @return The table, with a length that is a power of two.
+     */
+    private static int[] createBlockIndex(byte[] base) {
+        int blockCount = base.length / BlockSize;
+        if (blockCount == 0) {
+            return new int[0];
+        }
+
+        int[] index = new int[Integer.highestOneBit(blockCount) << 2];
+        for (int offset = 0; offset + BlockSize <= base.length; offset += BlockSize) {
+            int slot = hash(base, offset) & (index.length - 1);
+
+            // keep the first block, the matches are verified anyway.
+            if (index[slot] == 0) {
+                index[slot] = offset + 1;
+            }
+        }
+
+        return index;
+    }
+
+    private static int hash(byte[] data, int offset) {
+        int hash = 0;
+        for (int i = offset; i < offset + BlockSize; i++) {
+            hash = hash * HashMultiplier + (data[i] & 0xff);
+        }
+        return hash;
+    }
+
+    private static int power(int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= HashMultiplier;
+        }
+        return result;
+    }
+
+    private static boolean regionEquals(byte[] data1, int offset1, byte[] data2, int offset2, int length) {
+        if (offset1 + length > data1.length || offset2 + length > data2.length) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (data1[offset1 + i] != data2[offset2 + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeInsert(ByteArrayOutputStream delta, byte[] target, int offset, int length) {
+        if (length == 0) {
+            return;
+        }
+
+        delta.write(InsertInstruction);
+        writeVarInt(delta, length);
+        delta.write(target, offset, length);
+    }
+
+    private static void writeVarInt(ByteArrayOutputStream stream, int value) {
+        while ((value & ~0x7f) != 0) {
+            stream.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        stream.write(value);
+    }
+
+    private static int readVarInt(byte[] data, int[] position) throws IOException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (position[0] >= data.length) {
+                throw new IOException("The delta is corrupted.");
+            }
+
+            byte value = data[position[0]++];
+            result |= (value & 0x7f) << shift;
+            if ((value & 0x80) == 0) {
+                return result;
+            }
+        }
+
+        throw new IOException("The delta is corrupted.");
+    }
+
+    //endregion
+}
@@ -0,0 +1,59 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.io;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Provides a InputStream that stops reading its base stream when the cancellation is requested, so a third-party code that reads the stream, like an upload, stops too.
+ */
+public class CancellableInputStream extends FilterInputStream {
+    //region Fields
+
+    private final CancellationToken _cancellationToken;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link CancellableInputStream} class.
+     *
+     * @param baseStream        The {@link InputStream} to read.
+     * @param cancellationToken The {@link CancellationToken} checked before each read.
+     */
+    public CancellableInputStream(InputStream baseStream, CancellationToken cancellationToken) {
+        super(baseStream);
+        Requires.notNull(baseStream, "baseStream");
+        Requires.notNull(cancellationToken, "cancellationToken");
+
+        _cancellationToken = cancellationToken;
+    }
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public int read() throws IOException {
+        _cancellationToken.throwIfCancellationRequested();
+        return super.read();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        _cancellationToken.throwIfCancellationRequested();
+        return super.read(buffer, offset, count);
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        _cancellationToken.throwIfCancellationRequested();
+        return super.skip(count);
+    }
+
+    //endregion
+}
@@ -0,0 +1,208 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.io;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Provides a InputStream that reads the data written by {@link CompressedOutputStream}. A data without the compression header is read as is, so the files written before the compression existed are still supported.
+ */
+public class CompressedInputStream extends InputStream {
+    //region Fields
+
+    private static final int BufferSize = 1024 * 2;
+
+    private InputStream _baseStream;
+    private byte[] _dictionary;
+    private byte[] _alternateDictionary;
+    private Inflater _inflater;
+    private byte[] _buffer;
+    private byte[] _pendingData;
+    private int _pendingPosition;
+    private boolean _headerRead;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link CompressedInputStream} class.
+     *
+     * @param baseStream The {@link InputStream} that contains the compressed data.
+     */
+    public CompressedInputStream(InputStream baseStream) {
+        this(baseStream, null);
+    }
+
+    /**
+     * Initialize a new instance of the {@link CompressedInputStream} class.
+     *
+     * @param baseStream The {@link InputStream} that contains the compressed data.
+     * @param dictionary The preset dictionary used to compress the data, if any. Can be null.
+     */
+    public CompressedInputStream(InputStream baseStream, byte[] dictionary) {
+        this(baseStream, dictionary, null);
+    }
+
+    /**
+     * Initialize a new instance of the {@link CompressedInputStream} class, which reads the data compressed with any of two dictionaries, for example while the data are compressed again with a new dictionary.
+     *
+     * @param baseStream          The {@link InputStream} that contains the compressed data.
+     * @param dictionary          The preset dictionary used to compress the data, if any. Can be null.
+     * @param alternateDictionary The other preset dictionary that may have been used to compress the data. Can be null.
+     */
+    public CompressedInputStream(InputStream baseStream, byte[] dictionary, byte[] alternateDictionary) {
+        Requires.notNull(baseStream, "baseStream");
+
+        _baseStream = baseStream;
+        _dictionary = dictionary;
+        _alternateDictionary = alternateDictionary;
+        _buffer = new byte[BufferSize];
+    }
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        Requires.notNull(buffer, "buffer");
+
+        if (count == 0) {
+            return 0;
+        }
+
+        if (!_headerRead) {
+            readHeader();
+        }
+
+        if (_pendingData != null && _pendingPosition < _pendingData.length) {
+            int length = Math.min(count, _pendingData.length - _pendingPosition);
+            System.arraycopy(_pendingData, _pendingPosition, buffer, offset, length);
+            _pendingPosition += length;
+            return length;
+        }
+
+        if (_inflater == null) {
+            // the base stream only supports reading from the beginning of a buffer, like AesInputStream.
+            int length = _baseStream.read(_buffer, 0, Math.min(count, _buffer.length));
+            if (length <= 0) {
+                return -1;
+            }
+
+            System.arraycopy(_buffer, 0, buffer, offset, length);
+            return length;
+        }
+
+        try {
+            int length;
+            while ((length = _inflater.inflate(buffer, offset, count)) == 0) {
+                if (_inflater.finished()) {
+                    return -1;
+                }
+
+                if (_inflater.needsDictionary()) {
+                    setDictionary();
+                } else if (_inflater.needsInput()) {
+                    int readLength = _baseStream.read(_buffer, 0, _buffer.length);
+                    if (readLength <= 0) {
+                        throw new EOFException("Unexpected end of the compressed data.");
+                    }
+                    _inflater.setInput(_buffer, 0, readLength);
+                }
+            }
+
+            return length;
+        } catch (DataFormatException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] buffer = new byte[1];
+        int length;
+        while ((length = read(buffer, 0, 1)) == 0) {
+        }
+        return length == -1 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_inflater != null) {
+            _inflater.end();
+        }
+
+        _baseStream.close();
+    }
+
+    /**
+     * Reads the header written by {@link CompressedOutputStream}. If there is no header, the bytes already read are kept to be returned first.
+     *
+     * @throws IOException
+     */
+    private void readHeader() throws IOException {
+        _headerRead = true;
+
+        byte[] header = new byte[CompressedOutputStream.Magic.length + 1];
+        int headerLength = 0;
+        while (headerLength < header.length) {
+            int readLength = _baseStream.read(_buffer, 0, header.length - headerLength);
+            if (readLength <= 0) {
+                break;
+            }
+
+            System.arraycopy(_buffer, 0, header, headerLength, readLength);
+            headerLength += readLength;
+        }
+
+        boolean hasMagic = headerLength == header.length;
+        for (int i = 0; hasMagic && i < CompressedOutputStream.Magic.length; i++) {
+            hasMagic = header[i] == CompressedOutputStream.Magic[i];
+        }
+
+        if (!hasMagic) {
+            _pendingData = new byte[headerLength];
+            System.arraycopy(header, 0, _pendingData, 0, headerLength);
+            return;
+        }
+
+        byte mode = header[CompressedOutputStream.Magic.length];
+        if (mode == CompressedOutputStream.DeflatedMode) {
+            _inflater = new Inflater();
+        } else if (mode != CompressedOutputStream.StoredMode) {
+            throw new IOException("Unknown compression mode.");
+        }
+    }
+
+    private void setDictionary() throws IOException {
+        if (_dictionary == null && _alternateDictionary == null) {
+            throw new IOException("The data has been compressed with a dictionary.");
+        }
+
+        if (isDictionaryUsed(_dictionary)) {
+            _inflater.setDictionary(_dictionary);
+        } else if (isDictionaryUsed(_alternateDictionary)) {
+            _inflater.setDictionary(_alternateDictionary);
+        } else {
+            throw new IOException("The data has been compressed with another dictionary.");
+        }
+    }
+
+    private boolean isDictionaryUsed(byte[] dictionary) {
+        if (dictionary == null) {
+            return false;
+        }
+
+        Adler32 adler = new Adler32();
+        adler.update(dictionary, 0, dictionary.length);
+        return (int) adler.getValue() == _inflater.getAdler();
+    }
+
+    //endregion
+}
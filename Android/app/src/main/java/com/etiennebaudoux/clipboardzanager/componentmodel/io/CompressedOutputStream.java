@@ -0,0 +1,194 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.io;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Provides a OutputStream that compresses the data with the Deflate algorithm before writing it into the base stream.
+ * <p>
+ * The beginning of the data is compressed first. If it does not become smaller, the data is considered as incompressible and is written as is. A header at the beginning of the base stream indicates which mode is used, so {@link CompressedInputStream} reads both.
+ */
+public class CompressedOutputStream extends OutputStream {
+    //region Fields
+
+    static final byte[] Magic = new byte[]{0x00, 0x43, 0x5A};
+    static final byte StoredMode = 0;
+    static final byte DeflatedMode = 1;
+
+    private static final int SampleSize = 16 * 1024;
+    private static final int BufferSize = 1024 * 2;
+    private static final double MaximumCompressionRatio = 0.9;
+
+    private OutputStream _baseStream;
+    private Deflater _deflater;
+    private byte[] _buffer;
+    private byte[] _sample;
+    private int _sampleLength;
+    private boolean _headerWritten;
+    private boolean _isDeflated;
+    private boolean _isClosed;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link CompressedOutputStream} class.
+     *
+     * @param baseStream The {@link OutputStream} in which the compressed data is written.
+     */
+    public CompressedOutputStream(OutputStream baseStream) {
+        this(baseStream, null);
+    }
+
+    /**
+     * Initialize a new instance of the {@link CompressedOutputStream} class.
+     *
+     * @param baseStream The {@link OutputStream} in which the compressed data is written.
+     * @param dictionary A preset dictionary that contains data which looks like the data to compress, which helps with the small data. Can be null.
+     */
+    public CompressedOutputStream(OutputStream baseStream, byte[] dictionary) {
+        Requires.notNull(baseStream, "baseStream");
+
+        _baseStream = baseStream;
+        _deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        if (dictionary != null && dictionary.length > 0) {
+            _deflater.setDictionary(dictionary);
+        }
+
+        _buffer = new byte[BufferSize];
+        _sample = new byte[SampleSize];
+    }
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public void write(byte[] buffer, int offset, int count) throws IOException {
+        Requires.notNull(buffer, "buffer");
+
+        if (!_headerWritten) {
+            int length = Math.min(count, SampleSize - _sampleLength);
+            System.arraycopy(buffer, offset, _sample, _sampleLength, length);
+            _sampleLength += length;
+            offset += length;
+            count -= length;
+
+            if (_sampleLength < SampleSize) {
+                return;
+            }
+
+            chooseMode(false);
+        }
+
+        if (count == 0) {
+            return;
+        }
+
+        if (_isDeflated) {
+            _deflater.setInput(buffer, offset, count);
+            while (!_deflater.needsInput()) {
+                writeDeflatedData(Deflater.NO_FLUSH);
+            }
+        } else {
+            writeStoredData(buffer, offset, count);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        _baseStream.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_isClosed) {
+            return;
+        }
+
+        _isClosed = true;
+
+        try {
+            if (!_headerWritten) {
+                chooseMode(true);
+            } else if (_isDeflated) {
+                _deflater.finish();
+                while (!_deflater.finished()) {
+                    writeDeflatedData(Deflater.NO_FLUSH);
+                }
+            }
+        } finally {
+            _deflater.end();
+            _baseStream.close();
+        }
+    }
+
+    /**
+     * Compresses the sample of the data and writes the header and the sample, compressed or not depending on the compression ratio.
+     *
+     * @param isLastData Defines whether the sample contains all the data.
+     * @throws IOException
+     */
+    private void chooseMode(boolean isLastData) throws IOException {
+        _deflater.setInput(_sample, 0, _sampleLength);
+        if (isLastData) {
+            _deflater.finish();
+        }
+
+        int flush = isLastData ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+
+        ByteArrayOutputStream compressedSample = new ByteArrayOutputStream();
+        int length;
+        do {
+            length = _deflater.deflate(_buffer, 0, _buffer.length, flush);
+            compressedSample.write(_buffer, 0, length);
+        } while (isLastData ? !_deflater.finished() : length == _buffer.length);
+
+        _isDeflated = _sampleLength > 0 && compressedSample.size() < _sampleLength * MaximumCompressionRatio;
+
+        byte[] header = new byte[Magic.length + 1];
+        System.arraycopy(Magic, 0, header, 0, Magic.length);
+        header[Magic.length] = _isDeflated ? DeflatedMode : StoredMode;
+        _baseStream.write(header, 0, header.length);
+        _headerWritten = true;
+
+        if (_isDeflated) {
+            byte[] data = compressedSample.toByteArray();
+            _baseStream.write(data, 0, data.length);
+        } else {
+            writeStoredData(_sample, 0, _sampleLength);
+        }
+
+        _sample = null;
+    }
+
+    private void writeDeflatedData(int flush) throws IOException {
+        int length = _deflater.deflate(_buffer, 0, _buffer.length, flush);
+        if (length > 0) {
+            _baseStream.write(_buffer, 0, length);
+        }
+    }
+
+    private void writeStoredData(byte[] buffer, int offset, int count) throws IOException {
+        // the data is copied, because the base stream can modify the buffer in place and only supports writing from its beginning, like AesOutputStream.
+        while (count > 0) {
+            int length = Math.min(count, _buffer.length);
+            System.arraycopy(buffer, offset, _buffer, 0, length);
+            _baseStream.write(_buffer, 0, length);
+            offset += length;
+            count -= length;
+        }
+    }
+
+    //endregion
+}
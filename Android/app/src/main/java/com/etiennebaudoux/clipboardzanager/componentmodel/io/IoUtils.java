@@ -1,5 +1,7 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.io;
 
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
+
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
@@ -20,12 +22,25 @@ public final class IoUtils {
      * @throws IOException
      */
     public static void copy(InputStream input, OutputStream output) throws IOException {
+        copy(input, output, CancellationToken.None);
+    }
+
+    /**
+     * Reads the bytes from the current stream and writes them to another stream. The cancellation is checked between each block.
+     *
+     * @param input             The stream from which the contents of the current stream will be copied.
+     * @param output            The stream to which the contents of the current stream will be copied.
+     * @param cancellationToken The {@link CancellationToken} that stops the copy.
+     * @throws IOException
+     */
+    public static void copy(InputStream input, OutputStream output, CancellationToken cancellationToken) throws IOException {
         byte[] buffer = new byte[BUFFER_SIZE];
         BufferedInputStream in = new BufferedInputStream(input, BUFFER_SIZE);
         BufferedOutputStream out = new BufferedOutputStream(output, BUFFER_SIZE);
         int n = 0;
         try {
             while ((n = in.read(buffer, 0, BUFFER_SIZE)) != -1) {
+                cancellationToken.throwIfCancellationRequested();
                 out.write(buffer, 0, n);
             }
             out.flush();
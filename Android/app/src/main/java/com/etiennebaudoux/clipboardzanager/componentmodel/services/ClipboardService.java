@@ -2,28 +2,42 @@ package com.etiennebaudoux.clipboardzanager.componentmodel.services;
 
 import android.content.ClipData;
 import android.content.ClipboardManager;
+import android.content.ContentResolver;
 import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
 import android.widget.Toast;
 
+import com.android.internal.util.Predicate;
 import com.etiennebaudoux.clipboardzanager.App;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.BitmapHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Consts;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.CoreHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Pausable;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SipHash;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.StringUtils;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
 import com.etiennebaudoux.clipboardzanager.componentmodel.io.AesOutputStream;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.CompressedOutputStream;
 import com.etiennebaudoux.clipboardzanager.models.ClipboardData;
 import com.etiennebaudoux.clipboardzanager.models.DataIdentifier;
 
+import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
 
 /**
  * Provides a service that can listen to the clipboard, read an write it.
@@ -34,6 +48,9 @@ public class ClipboardService implements Service, Pausable {
     private ClipboardManager _clipboardManager;
     private boolean _isPaused = true;
     private ServiceSettingProvider _settingProvider;
+    private final ArrayList<QueryableArrayList<ClipData.Item>> _pendingClips = new ArrayList<>();
+    private boolean _isHistoryLoaded;
+    private boolean _isCapturing;
 
     //endregion
 
@@ -44,29 +61,133 @@ public class ClipboardService implements Service, Pausable {
         public void onPrimaryClipChanged() {
             Toast.makeText(App.getContext(), "ClipboardZanager received a data.", Toast.LENGTH_LONG).show();
 
-            try {
-                ClipData clipboardData = _clipboardManager.getPrimaryClip();
-                Requires.notNull(clipboardData, "clipboardData");
-                Requires.isTrue(clipboardData.getItemCount() == 1);
-                ClipData.Item clipboardDataItem = clipboardData.getItemAt(0);
+            ClipData clipboardData = _clipboardManager.getPrimaryClip();
+            Requires.notNull(clipboardData, "clipboardData");
+            Requires.isTrue(clipboardData.getItemCount() > 0);
+
+            QueryableArrayList<ClipData.Item> items = new QueryableArrayList<>();
+            for (int i = 0; i < clipboardData.getItemCount(); i++) {
+                items.add(clipboardData.getItemAt(i));
+            }
 
-                onClipboardChanged(clipboardDataItem);
-            } catch (InvalidKeySpecException | NoSuchAlgorithmException | IOException | ClassNotFoundException e) {
-                e.printStackTrace();
+            // the clips are saved in the background, in the order they have been copied, so the main thread never waits for the files nor for the history. The clips copied while the history is loading wait until it is loaded.
+            synchronized (_pendingClips) {
+                _pendingClips.add(items);
+                if (!_isHistoryLoaded || _isCapturing) {
+                    return;
+                }
+                _isCapturing = true;
             }
+
+            new Task<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    capturePendingClips();
+                    return null;
+                }
+            }, TaskLane.CAPTURE).start();
         }
     };
 
+    /**
+     * Saves the clips waiting to be saved, in the order they have been copied, until there is none left. Only one thread runs it at a time.
+     */
+    private void capturePendingClips() {
+        while (true) {
+            QueryableArrayList<ClipData.Item> items;
+            synchronized (_pendingClips) {
+                if (_pendingClips.isEmpty()) {
+                    _isHistoryLoaded = true;
+                    _isCapturing = false;
+                    return;
+                }
+                items = _pendingClips.remove(0);
+            }
+
+            // a clip that cannot be saved must not hold back the next ones.
+            try {
+                captureClip(items);
+            } catch (Throwable throwable) {
+                throwable.printStackTrace();
+            }
+        }
+    }
+
+    private void captureClip(QueryableArrayList<ClipData.Item> items) {
+        try {
+            onClipboardChanged(items);
+        } catch (InvalidKeySpecException | NoSuchAlgorithmException | IOException | ClassNotFoundException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Handles a new data from the clipboard that can contain several items.
+     *
+     * @param clipboardData The data from the clipboard.
+     */
+    public void onClipboardChanged(ClipData clipboardData) throws IOException, ClassNotFoundException, InvalidKeySpecException, NoSuchAlgorithmException {
+        Requires.notNull(clipboardData, "clipboardData");
+
+        QueryableArrayList<ClipData.Item> items = new QueryableArrayList<>();
+        for (int i = 0; i < clipboardData.getItemCount(); i++) {
+            items.add(clipboardData.getItemAt(i));
+        }
+
+        onClipboardChanged(items);
+    }
+
+    /**
+     * Handles a new data from the clipboard.
+     *
+     * @param clipboardDataItem The data from the clipboard.
+     */
     public void onClipboardChanged(ClipData.Item clipboardDataItem) throws IOException, ClassNotFoundException, InvalidKeySpecException, NoSuchAlgorithmException {
         Requires.notNull(clipboardDataItem, "clipboardDataItem");
 
+        QueryableArrayList<ClipData.Item> items = new QueryableArrayList<>();
+        items.add(clipboardDataItem);
+
+        onClipboardChanged(items);
+    }
+
+    private void onClipboardChanged(QueryableArrayList<ClipData.Item> items) throws IOException, ClassNotFoundException, InvalidKeySpecException, NoSuchAlgorithmException {
+        Requires.isTrue(items.any());
+
+        boolean hasUri = items.any(new Predicate<ClipData.Item>() {
+            @Override
+            public boolean apply(ClipData.Item item) {
+                return item.getUri() != null;
+            }
+        });
+
+        if (hasUri) {
+            onBinaryClipboardChanged(items);
+        } else {
+            onTextClipboardChanged(items);
+        }
+    }
+
+    private void onTextClipboardChanged(QueryableArrayList<ClipData.Item> items) throws IOException, ClassNotFoundException, InvalidKeySpecException, NoSuchAlgorithmException {
         boolean dataIgnored = false;
         boolean isCreditCard = false;
         boolean isPassword = false;
 
         DataService dataService = ServiceLocator.getService(DataService.class);
 
-        String text = clipboardDataItem.coerceToText(App.getContext()).toString();
+        StringBuilder textBuilder = new StringBuilder();
+        for (ClipData.Item item : items) {
+            if (textBuilder.length() > 0) {
+                textBuilder.append(System.lineSeparator());
+            }
+
+            CharSequence itemText = item.coerceToText(App.getContext());
+            if (itemText != null) {
+                textBuilder.append(itemText);
+            }
+        }
+
+        String text = textBuilder.toString();
         if (StringUtils.isNullOrEmpty(text)) {
             dataIgnored = true;
         } else {
@@ -84,12 +205,59 @@ public class ClipboardService implements Service, Pausable {
         if (!dataIgnored) {
             dataService.reset();
 
+            Date date = new Date(System.currentTimeMillis());
+            long contentHash = dataService.computeContentHash(text);
+            if (dataService.promoteDataEntry(contentHash, date)) {
+                // The same text is already in the history. No need to save it again.
+                return;
+            }
+
             QueryableArrayList<DataIdentifier> identifiers = dataService.getDataIdentifiers();
             Requires.isTrue(identifiers.size() == 1);
 
-            writeClipboardDataToFile(text.getBytes("UTF-8"), identifiers.get(0));
-            dataService.addDataEntry(new ClipboardData(text, new Date(System.currentTimeMillis())), identifiers, isCreditCard, isPassword);
+            byte[] data = text.getBytes("UTF-8");
+            if (!dataService.writeDataAsDelta(text, data, identifiers.get(0))) {
+                writeClipboardDataToFile(data, identifiers.get(0), null);
+            }
+            dataService.addDataEntry(new ClipboardData(text, new QueryableArrayList<Uri>(), contentHash, date), identifiers, isCreditCard, isPassword);
+        }
+    }
+
+    private void onBinaryClipboardChanged(QueryableArrayList<ClipData.Item> items) throws IOException, ClassNotFoundException, InvalidKeySpecException, NoSuchAlgorithmException {
+        DataService dataService = ServiceLocator.getService(DataService.class);
+        ContentResolver resolver = App.getContext().getContentResolver();
+
+        QueryableArrayList<String> formats = new QueryableArrayList<>();
+        QueryableArrayList<Uri> uris = new QueryableArrayList<>();
+        StringBuilder textBuilder = new StringBuilder();
+
+        for (ClipData.Item item : items) {
+            Uri uri = item.getUri();
+            String description;
+
+            if (uri == null) {
+                formats.add(Consts.TextFormatName);
+                CharSequence itemText = item.coerceToText(App.getContext());
+                description = itemText == null ? "" : itemText.toString();
+            } else {
+                formats.add(BitmapHelper.isImage(resolver, uri) ? Consts.BitmapFormatName : Consts.FileDropFormatName);
+                uris.add(uri);
+                description = getDisplayName(resolver, uri);
+            }
+
+            if (textBuilder.length() > 0) {
+                textBuilder.append(System.lineSeparator());
+            }
+            textBuilder.append(description);
         }
+
+        dataService.reset();
+
+        QueryableArrayList<DataIdentifier> identifiers = dataService.getDataIdentifiers(formats);
+        Requires.isTrue(identifiers.size() == items.size());
+
+        long contentHash = writeClipboardDataToFiles(items, identifiers);
+        dataService.addDataEntry(new ClipboardData(textBuilder.toString(), uris, contentHash, new Date(System.currentTimeMillis())), identifiers, false, false);
     }
 
     //endregion
@@ -102,6 +270,22 @@ public class ClipboardService implements Service, Pausable {
         if (!CoreHelper.isUnitTesting()) {
             _clipboardManager = (ClipboardManager) App.getContext().getSystemService(Context.CLIPBOARD_SERVICE);
         }
+
+        final Task<Void> startupTask = ServiceLocator.getService(DataService.class).getStartupTask();
+        new Task<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    startupTask.await();
+                } catch (RuntimeException exception) {
+                    exception.printStackTrace();
+                }
+
+                capturePendingClips();
+                return null;
+            }
+        }, TaskLane.CAPTURE).start();
+
         resume();
     }
 
@@ -131,16 +315,144 @@ public class ClipboardService implements Service, Pausable {
         _isPaused = false;
     }
 
+    /**
+     * Encrypt each item of the clipboard into its own file. The files are written in parallel.
+     *
+     * @param items       The items from the clipboard.
+     * @param identifiers The data identifiers, one per item.
+     * @return The content hash of all the items, computed while writing them.
+     */
+    private long writeClipboardDataToFiles(QueryableArrayList<ClipData.Item> items, QueryableArrayList<DataIdentifier> identifiers) {
+        Requires.isTrue(items.size() == identifiers.size());
+
+        DataService dataService = ServiceLocator.getService(DataService.class);
+        QueryableArrayList<Task<Long>> tasks = new QueryableArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            final ClipData.Item item = items.get(i);
+            final DataIdentifier identifier = identifiers.get(i);
+
+            Task<Long> task = new Task<>(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    SipHash hasher = dataService.createContentHasher(identifier.getFormatName());
+                    try (InputStream stream = openClipboardDataStream(item)) {
+                        writeClipboardDataToFile(stream, identifier, hasher, null);
+                    }
+                    return hasher.finish();
+                }
+            }, TaskLane.CAPTURE);
+
+            task.start();
+            tasks.add(task);
+        }
+
+        long[] itemHashes = new long[tasks.size()];
+
+        try {
+            // the files are deleted only once every write is finished, and the first failure is thrown again.
+            List<Long> results = Task.whenAll(tasks).await();
+            for (int i = 0; i < results.size(); i++) {
+                itemHashes[i] = results.get(i);
+            }
+        } catch (RuntimeException exception) {
+            for (DataIdentifier identifier : identifiers) {
+                App.getContext().deleteFile(identifier.getIdentifier().toString() + ".dat");
+            }
+            throw exception;
+        }
+
+        return dataService.combineContentHashes(itemHashes);
+    }
+
+    /**
+     * Opens a stream on the content of a clipboard item. The binary content is read from the {@link ContentResolver}.
+     *
+     * @param item The item from the clipboard.
+     * @return A {@link InputStream} on the content of the item.
+     * @throws IOException
+     */
+    private InputStream openClipboardDataStream(ClipData.Item item) throws IOException {
+        Uri uri = item.getUri();
+
+        if (uri == null) {
+            CharSequence text = item.coerceToText(App.getContext());
+            return new ByteArrayInputStream((text == null ? "" : text.toString()).getBytes("UTF-8"));
+        }
+
+        InputStream stream = App.getContext().getContentResolver().openInputStream(uri);
+        if (stream == null) {
+            throw new FileNotFoundException(uri.toString());
+        }
+
+        return stream;
+    }
+
+    /**
+     * Retrieves the name of the file behind a {@link Uri}.
+     *
+     * @param resolver The {@link ContentResolver} used to query the content.
+     * @param uri      The {@link Uri} of the file.
+     * @return The display name of the file, or the last segment of the {@link Uri} if it is unknown.
+     */
+    private String getDisplayName(ContentResolver resolver, Uri uri) {
+        try (Cursor cursor = resolver.query(uri, new String[]{OpenableColumns.DISPLAY_NAME}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst()) {
+                int index = cursor.getColumnIndex(OpenableColumns.DISPLAY_NAME);
+                if (index > -1 && !cursor.isNull(index)) {
+                    return cursor.getString(index);
+                }
+            }
+        } catch (Exception exception) {
+            exception.printStackTrace();
+        }
+
+        String lastPathSegment = uri.getLastPathSegment();
+        return lastPathSegment == null ? uri.toString() : lastPathSegment;
+    }
+
     /**
      * Encrypt a data from the clipboard and save it into a file.
      *
      * @param data       The data from the clipboard.
      * @param identifier The data identifier.
+     * @param hasher     The {@link SipHash} that receives the data while it is written. Can be null.
      * @throws IOException
      * @throws InvalidKeySpecException
      * @throws NoSuchAlgorithmException
      */
-    private void writeClipboardDataToFile(byte[] data, DataIdentifier identifier) throws IOException, InvalidKeySpecException, NoSuchAlgorithmException {
+    private void writeClipboardDataToFile(byte[] data, DataIdentifier identifier, SipHash hasher) throws IOException, InvalidKeySpecException, NoSuchAlgorithmException {
+        Requires.notNull(data, "data");
+
+        if (data.length > Consts.CompressionDictionaryMaximumDataLength) {
+            try (InputStream stream = new ByteArrayInputStream(data)) {
+                writeClipboardDataToFile(stream, identifier, hasher, null);
+            }
+            return;
+        }
+
+        // the dictionary is not replaced while the file is written, so the file is compressed again if it is.
+        DataService dataService = ServiceLocator.getService(DataService.class);
+        byte[] dictionary = dataService.acquireCompressionDictionary();
+        try (InputStream stream = new ByteArrayInputStream(data)) {
+            writeClipboardDataToFile(stream, identifier, hasher, dictionary);
+        } finally {
+            dataService.releaseCompressionDictionary();
+        }
+    }
+
+    /**
+     * Compress and encrypt a data from the clipboard and save it into a file. The data is streamed by blocks so it is never fully loaded in memory.
+     *
+     * @param data       The stream that contains the data from the clipboard.
+     * @param identifier The data identifier.
+     * @param hasher     The {@link SipHash} that receives the data while it is written. Can be null.
+     * @param dictionary The preset dictionary used to compress the data. Can be null.
+     * @throws IOException
+     * @throws InvalidKeySpecException
+     * @throws NoSuchAlgorithmException
+     */
+    private void writeClipboardDataToFile(InputStream data, DataIdentifier identifier, SipHash hasher, byte[] dictionary) throws IOException, InvalidKeySpecException, NoSuchAlgorithmException {
         Requires.notNull(data, "data");
         Requires.notNull(identifier, "identifier");
 
@@ -154,22 +466,16 @@ public class ClipboardService implements Service, Pausable {
         Requires.notNullOrWhiteSpace(dataPassword, "dataPassword");
 
         try (FileOutputStream fileStream = App.getContext().openFileOutput(fileName, Context.MODE_PRIVATE);
-             AesOutputStream aesStream = new AesOutputStream(fileStream, dataPassword, SecurityHelper.getSaltKeys(dataPassword).getEncoded())) {
+             CompressedOutputStream compressedStream = new CompressedOutputStream(new AesOutputStream(fileStream, dataPassword, SecurityHelper.getSaltKeys(dataPassword).getEncoded()), dictionary)) {
 
-            int bufferSize = Consts.ClipboardDataBufferSize;
-            int dataSize = data.length;
-            int readLength = 0;
+            byte[] buffer = new byte[Consts.ClipboardDataBufferSize];
+            int readLength;
 
-            while (readLength < dataSize) {
-                // resize the buffer if we are at the end of the data and that it remains less than the default buffer size to read.
-                if (dataSize - readLength < bufferSize) {
-                    bufferSize = dataSize - readLength;
+            while ((readLength = data.read(buffer, 0, buffer.length)) != -1) {
+                if (hasher != null) {
+                    hasher.update(buffer, 0, readLength);
                 }
-
-                byte[] buffer = Arrays.copyOfRange(data, readLength, readLength + bufferSize);
-                aesStream.write(buffer, 0, buffer.length);
-
-                readLength += bufferSize;
+                compressedStream.write(buffer, 0, readLength);
             }
         }
     }
@@ -1,23 +1,51 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.services;
 
+import android.content.ClipData;
+import android.content.ContentResolver;
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.util.LruCache;
 
 import com.android.internal.util.Predicate;
 import com.etiennebaudoux.clipboardzanager.App;
 import com.etiennebaudoux.clipboardzanager.R;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.BitmapHelper;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Consts;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.DataHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.KeyIndex;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.PersistentList;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Query;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Selector;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SimHash;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SimHashIndex;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SipHash;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.StringUtils;
-import com.etiennebaudoux.clipboardzanager.componentmodel.core.SystemInfoHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.VersionedQueryableArrayList;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.DataEntryEventArgs;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.Event;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventHandler;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.HistoryChange;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.HistoryChangeFeed;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.HistoryChangedEventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.SettingChangedEventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Actor;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.StartupPipeline;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskScheduler;
 import com.etiennebaudoux.clipboardzanager.componentmodel.io.AesInputStream;
 import com.etiennebaudoux.clipboardzanager.componentmodel.io.AesOutputStream;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.BinaryDelta;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.CompressedInputStream;
+import com.etiennebaudoux.clipboardzanager.componentmodel.io.CompressedOutputStream;
 import com.etiennebaudoux.clipboardzanager.enums.DataEntryStatus;
+import com.etiennebaudoux.clipboardzanager.enums.HistoryChangeType;
 import com.etiennebaudoux.clipboardzanager.enums.ThumbnailDataType;
 import com.etiennebaudoux.clipboardzanager.models.ClipboardData;
 import com.etiennebaudoux.clipboardzanager.models.DataEntry;
@@ -26,21 +54,45 @@ import com.etiennebaudoux.clipboardzanager.models.DataIdentifier;
 import com.etiennebaudoux.clipboardzanager.models.Link;
 import com.etiennebaudoux.clipboardzanager.models.Thumbnail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.regex.Pattern;
 
 /**
  * Provides a service that to manage the clipboard entry on the hard drive.
+ * <p>
+ * The history has a single writer: every modification of the data entries and of the synchronization cache is a command of an {@link Actor}, so the commands never run at the same time, and the tasks returned by the methods that modify the history are already started.
  */
 public class DataService implements Service {
     //region Fields
@@ -55,7 +107,32 @@ public class DataService implements Service {
     private boolean _lastCopiedDataWasPassword;
     private String _detectedPasswordOrCreditCard;
     private String _dataEntryFilePassword;
-    private ServiceSettingProvider _settingProvider;
+    private byte[] _dataEntryFileKey;
+    private SettingsService _settingsService;
+    private LruCache<UUID, Bitmap> _thumbnailCache;
+    private LruCache<UUID, byte[]> _dataCache;
+    private ConcurrentHashMap<Long, UUID> _contentHashIndex;
+    private byte[] _contentHashKey;
+    private SimHashIndex<DataEntry> _sketchIndex;
+    private ConcurrentHashMap<UUID, UUID> _deltaBases;
+    private Set<UUID> _orphanedDeltaBases;
+    private volatile byte[] _compressionDictionary;
+    private volatile byte[] _previousCompressionDictionary;
+    private volatile HashSet<UUID> _compressionDictionarySamples;
+    private volatile boolean _isCompressionDictionaryStale;
+    private final ReentrantReadWriteLock _compressionDictionaryLock = new ReentrantReadWriteLock();
+    private volatile boolean _isDataEntryFileCorrupted;
+    private volatile boolean _isCacheFileCorrupted;
+    private Actor _historyWriter;
+    private HistoryChangeFeed _historyChangeFeed;
+    private int _historyUpdateDepth;
+    private volatile long _lastSequenceNumber;
+    private ConcurrentSkipListMap<Long, DataEntryCache> _changeLog;
+    private final AtomicBoolean _isTrainingCompressionDictionary = new AtomicBoolean();
+    private final AtomicBoolean _isDataPrefetchScheduled = new AtomicBoolean();
+    private final AtomicBoolean _isDeltaRebaseScheduled = new AtomicBoolean();
+    private StartupPipeline _startupPipeline;
+    private Task<Void> _startupTask;
 
     //endregion
 
@@ -63,20 +140,54 @@ public class DataService implements Service {
 
     //region DataEntries
 
-    private QueryableArrayList<DataEntry> _dataEntries;
+    private VersionedQueryableArrayList<DataEntry> _dataEntries;
+    private KeyIndex<DataEntry, UUID> _dataEntryIdentifierIndex;
 
-    public QueryableArrayList<DataEntry> getDataEntries() {
-        return _dataEntries;
+    /**
+     * Gets an immutable snapshot of the data entries, that can be read from any thread while the history is modified. Nothing is copied, and the data entries of the snapshot must not be modified: the history is only modified by the methods of this service.
+     *
+     * @return A {@link PersistentList} of the data entries at the end of the last modification of the history.
+     */
+    public PersistentList<DataEntry> getDataEntries() {
+        return _dataEntries.getSnapshot();
     }
 
     //endregion
 
     //region Cache
 
-    private QueryableArrayList<DataEntryCache> _cache;
+    private VersionedQueryableArrayList<DataEntryCache> _cache;
+    private KeyIndex<DataEntryCache, UUID> _cacheIdentifierIndex;
+
+    /**
+     * Gets an immutable snapshot of the synchronization cache, that can be read from any thread while the history is modified. Nothing is copied, and the cache items of the snapshot must not be modified.
+     *
+     * @return A {@link PersistentList} of the cache items at the end of the last modification of the history.
+     */
+    public PersistentList<DataEntryCache> getCache() {
+        return _cache.getSnapshot();
+    }
+
+    //endregion
+
+    //region Startup
+
+    /**
+     * Gets the task that derives the keys and loads the history files in the background after the initialization.
+     *
+     * @return A {@link Task} that finishes when the history is loaded.
+     */
+    public Task<Void> getStartupTask() {
+        return _startupTask;
+    }
 
-    public QueryableArrayList<DataEntryCache> getCache() {
-        return _cache;
+    /**
+     * Gets the steps of the startup and their timing.
+     *
+     * @return The {@link StartupPipeline}.
+     */
+    public StartupPipeline getStartupPipeline() {
+        return _startupPipeline;
     }
 
     //endregion
@@ -85,25 +196,37 @@ public class DataService implements Service {
 
     //region Events
 
+    // the events are raised while the clipboard is captured, so the handlers are called on another thread to not delay the capture.
+
+    /**
+     * Raised when a data entry has been modified after being added, for example when the title of a link has been retrieved. It can be raised from a background thread.
+     */
+    public Event<DataEntryEventArgs> DataEntryChanged = new Event<>(TaskScheduler.getDefault().getExecutor(TaskLane.UI));
+
+    /**
+     * Raised at most once per frame with the changes of the data entries since the previous time, so a list can apply them without reloading the history.
+     */
+    public Event<HistoryChangedEventArgs> HistoryChanged = new Event<>(TaskScheduler.getDefault().getExecutor(TaskLane.UI));
+
     /**
      * Raised when a credit card number is detected.
      */
-    public Event<EventArgs> CreditCardNumberDetected = new Event<>();
+    public Event<EventArgs> CreditCardNumberDetected = new Event<>(TaskScheduler.getDefault().getExecutor(TaskLane.UI));
 
     /**
      * Raised when a credit card number is kept.
      */
-    public Event<EventArgs> CreditCardNumberSaved = new Event<>();
+    public Event<EventArgs> CreditCardNumberSaved = new Event<>(TaskScheduler.getDefault().getExecutor(TaskLane.UI));
 
     /**
      * Raised when a password is detected.
      */
-    public Event<EventArgs> PasswordDetected = new Event<>();
+    public Event<EventArgs> PasswordDetected = new Event<>(TaskScheduler.getDefault().getExecutor(TaskLane.UI));
 
     /**
      * Raised when a password is kept.
      */
-    public Event<EventArgs> PasswordSaved = new Event<>();
+    public Event<EventArgs> PasswordSaved = new Event<>(TaskScheduler.getDefault().getExecutor(TaskLane.UI));
 
     //endregion
 
@@ -111,12 +234,139 @@ public class DataService implements Service {
 
     @Override
     public void initialize(ServiceSettingProvider settingProvider) {
-        _settingProvider = settingProvider;
+        _settingsService = ServiceLocator.getService(SettingsService.class);
+
+        _dataEntries = new VersionedQueryableArrayList<>();
+        _dataEntryIdentifierIndex = _dataEntries.addIndex(new Selector<DataEntry, UUID>() {
+            @Override
+            public UUID apply(DataEntry dataEntry) {
+                return dataEntry.getIdentifier();
+            }
+        });
+        _cache = new VersionedQueryableArrayList<>();
+        _cacheIdentifierIndex = _cache.addIndex(new Selector<DataEntryCache, UUID>() {
+            @Override
+            public UUID apply(DataEntryCache dataEntryCache) {
+                return dataEntryCache.getIdentifier();
+            }
+        });
+
+        _changeLog = new ConcurrentSkipListMap<>();
+        _historyChangeFeed = new HistoryChangeFeed(this, HistoryChanged, Consts.HistoryChangeFrameMilliseconds);
+
+        // all the modifications of the history and the saves of its files are done by this actor, one at a time. It has its own thread, because the link previews and the maintenance wait for it from their capped lanes.
+        _historyWriter = new Actor("History writer", TaskLane.UI, new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                saveDataEntryFile();
+                return null;
+            }
+        });
+
+        int thumbnailCacheSize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / Consts.ThumbnailCacheDivider);
+        _thumbnailCache = new LruCache<UUID, Bitmap>(thumbnailCacheSize) {
+            @Override
+            protected int sizeOf(UUID key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+
+        // the decrypted data are counted by their size, so a few large data cannot fill the memory.
+        int dataCacheSize = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / Consts.DataCacheDivider);
+        _dataCache = new LruCache<UUID, byte[]>(dataCacheSize) {
+            @Override
+            protected int sizeOf(UUID key, byte[] value) {
+                return value.length;
+            }
+        };
+
+        // the maps are only modified by the history writer, and the delta bases are also read by the readers of the data.
+        _contentHashIndex = new ConcurrentHashMap<>();
+        _sketchIndex = new SimHashIndex<>();
+        _deltaBases = new ConcurrentHashMap<>();
+        _orphanedDeltaBases = Collections.newSetFromMap(new ConcurrentHashMap<UUID, Boolean>());
+        _compressionDictionary = null;
+        _previousCompressionDictionary = null;
+        _compressionDictionarySamples = null;
+        _isCompressionDictionaryStale = false;
+        _isDataEntryFileCorrupted = false;
+        _isCacheFileCorrupted = false;
+
+        // the keys and the files are read in the background, so the initialization does not block the main thread. The public methods wait for the end of the startup.
+        _startupPipeline = new StartupPipeline(TaskLane.UI);
+        _startupPipeline.addStep("DeriveKeys", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                deriveKeys();
+                return null;
+            }
+        });
+        _startupPipeline.addStep("ClearVolatileData", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (!_settingsService.getSettings().isKeepDataAfterRebootEnabled()) {
+                    clearCache();
+                }
+                return null;
+            }
+        });
+        _startupPipeline.addStep("ScanDeltaFiles", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                scanDeltaFiles();
+                return null;
+            }
+        }, "ClearVolatileData");
+        _startupPipeline.addStep("LoadCompressionDictionary", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                loadCompressionDictionary();
+                return null;
+            }
+        }, "DeriveKeys", "ClearVolatileData");
+        _startupPipeline.addStep("LoadDataEntryFile", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                loadDataEntryFile();
+                return null;
+            }
+        }, "LoadCompressionDictionary", "ScanDeltaFiles");
+        _startupPipeline.addStep("LoadCacheFile", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                loadCacheFile();
+                return null;
+            }
+        }, "LoadCompressionDictionary", "ScanDeltaFiles");
+        _startupPipeline.addStep("CheckLoadedFiles", new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                checkLoadedFiles();
+                return null;
+            }
+        }, "LoadDataEntryFile", "LoadCacheFile");
+        _startupTask = _startupPipeline.start();
 
-        _dataEntries = new QueryableArrayList<>();
-        _cache = new QueryableArrayList<>();
+        // a lower limit applies to the history immediately rather than at the next copy.
+        EventHandler<SettingChangedEventArgs> limitChangedHandler = new EventHandler<SettingChangedEventArgs>() {
+            @Override
+            public void handle(Object sender, SettingChangedEventArgs args) {
+                Settings settings = args.getSettings();
+                long now = System.currentTimeMillis();
+                PersistentList<DataEntry> dataEntries = getDataEntries();
+                boolean isPurgeNeeded = dataEntries.size() > settings.getMaxDataToKeep();
+                for (int i = 0; !isPurgeNeeded && i < dataEntries.size(); i++) {
+                    DataEntry dataEntry = dataEntries.get(i);
+                    isPurgeNeeded = (now - dataEntry.getDate().getTime()) > TimeUnit.DAYS.toMillis(settings.getDateExpireLimit()) && !dataEntry.isFavorite();
+                }
 
-        _dataEntryFilePassword = SecurityHelper.encryptString(App.getContext().getString(R.string.DropBoxAppKey) + App.getContext().getString(R.string.OneDriveClientId));
+                if (isPurgeNeeded) {
+                    purgeCacheAsync();
+                }
+            }
+        };
+        _settingsService.addSettingChangedHandler(Settings.MaxDataToKeep, limitChangedHandler);
+        _settingsService.addSettingChangedHandler(Settings.DateExpireLimit, limitChangedHandler);
     }
 
     @Override
@@ -177,7 +427,7 @@ public class DataService implements Service {
         if (_lastCopiedDataWasCreditCard && _detectedPasswordOrCreditCard.equals(text)) {
             CreditCardNumberSaved.invoke(this, EventArgs.Empty);
         } else {
-            if (Boolean.parseBoolean(_settingProvider.getSetting("AvoidCreditCard"))) {
+            if (_settingsService.getSettings().isAvoidCreditCardEnabled()) {
                 ignored = true;
                 _lastCopiedDataWasCreditCard = true;
                 _detectedPasswordOrCreditCard = text;
@@ -203,7 +453,7 @@ public class DataService implements Service {
         if (_lastCopiedDataWasPassword && _detectedPasswordOrCreditCard.equals(text)) {
             PasswordSaved.invoke(this, EventArgs.Empty);
         } else {
-            if (Boolean.parseBoolean(_settingProvider.getSetting("AvoidPasswords"))) {
+            if (_settingsService.getSettings().isAvoidPasswordsEnabled()) {
                 ignored = true;
                 _lastCopiedDataWasPassword = true;
                 _detectedPasswordOrCreditCard = text;
@@ -221,339 +471,1969 @@ public class DataService implements Service {
      * @return A list of {@link DataIdentifier}.
      */
     public QueryableArrayList<DataIdentifier> getDataIdentifiers() {
-        QueryableArrayList<DataIdentifier> identifiers = new QueryableArrayList<>();
-
-        DataIdentifier identifier = new DataIdentifier();
-        identifier.setFormatName("Text");
-        identifier.setIdentifier(generateNewUUID());
-        identifiers.add(identifier);
-
-        return identifiers;
+        QueryableArrayList<String> formats = new QueryableArrayList<>();
+        formats.add(Consts.TextFormatName);
+        return getDataIdentifiers(formats);
     }
 
     /**
-     * Sort the data. The favorites will be placed on top of the list.
+     * Generates a list of {@link DataIdentifier} for the given formats.
      *
-     * @param saveDataEntryFile Defines whether the data entry file must be saved
-     * @return A {@link Task} representing the asynchronous operation.
+     * @param formats The name of the format of each part of the clipboard data.
+     * @return A list of {@link DataIdentifier}.
      */
-    public Task<Void> reorganizeAsync(boolean saveDataEntryFile) {
-        return new Task<>(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                int indexOfFirstNonFavorite = getDataEntries().indexOf(getDataEntries().firstOrDefault(
-                        new Predicate<DataEntry>() {
-                            @Override
-                            public boolean apply(DataEntry dataEntry) {
-                                return !dataEntry.isFavorite();
-                            }
-                        })
-                );
+    public QueryableArrayList<DataIdentifier> getDataIdentifiers(QueryableArrayList<String> formats) {
+        Requires.notNull(formats, "formats");
 
-                if (indexOfFirstNonFavorite > -1) {
-                    for (int i = indexOfFirstNonFavorite; i < getDataEntries().size(); i++) {
-                        DataEntry item = getDataEntries().get(i);
-                        if (!item.isFavorite()) {
-                            continue;
-                        }
+        QueryableArrayList<DataIdentifier> identifiers = new QueryableArrayList<>();
 
-                        getDataEntries().remove(i);
-                        getDataEntries().add(0, item);
-
-                        DataEntryCache cacheItem = getCache().singleOrDefault(
-                                new Predicate<DataEntryCache>() {
-                                    @Override
-                                    public boolean apply(DataEntryCache dataEntryCache) {
-                                        return dataEntryCache.getIdentifier().equals(item.getIdentifier());
-                                    }
-                                }
-                        );
-                        if (cacheItem != null) {
-                            getCache().remove(cacheItem);
-                            getCache().add(0, cacheItem);
-                        }
-                    }
-                }
+        for (String format : formats) {
+            DataIdentifier identifier = new DataIdentifier();
+            identifier.setFormatName(format);
+            identifier.setIdentifier(generateNewUUID(identifiers));
+            identifiers.add(identifier);
+        }
 
-                if (saveDataEntryFile) {
-                    saveDataEntryFileAsync().await();
-                }
-                return null;
-            }
-        });
+        return identifiers;
     }
 
     /**
-     * Add the specific clipboard data to the data entries.
+     * Gets the decoded bitmap of a data entry with a {@link ThumbnailDataType#BITMAP} thumbnail. The decoded bitmaps are kept in a memory cache.
      *
-     * @param data         The clipboard data.
-     * @param identifiers  The list of identifiers for each data format.
-     * @param isCreditCard Determines whether the data is a credit card number.
-     * @param isPassword   Determines whether the data is a password.
+     * @param entry The data entry.
+     * @return A {@link Bitmap}, or null if the thumbnail of the data entry is not a bitmap.
      */
-    public void addDataEntry(ClipboardData data, QueryableArrayList<DataIdentifier> identifiers, boolean isCreditCard, boolean isPassword) throws IOException, ClassNotFoundException {
-        Requires.notNull(data, "data");
-        Requires.notNull(identifiers, "identifiers");
-
-        DataEntry entry = new DataEntry();
-        entry.setIdentifier(generateNewUUID());
-        entry.setThumbnail(generateThumbnail(data.getData(), isCreditCard, isPassword));
-        entry.setDate(data.getDate());
-        entry.setIsFavorite(false);
-        entry.setCanSynchronize(true);
-        entry.setIconIsFromWindowStore(false);
-        entry.setDataIdentifiers(identifiers);
-
-        DataEntryCache cache = new DataEntryCache();
-        cache.setIdentifier(entry.getIdentifier());
-        cache.setStatus(DataEntryStatus.ADDED);
+    public Bitmap getThumbnailBitmap(DataEntry entry) {
+        Requires.notNull(entry, "entry");
 
-        getDataEntries().add(0, entry);
-        getCache().add(0, cache);
+        if (entry.getThumbnail() == null || entry.getThumbnail().getType() != ThumbnailDataType.BITMAP) {
+            return null;
+        }
 
-        entry = getDataEntries().get(0);
-        if (entry.getThumbnail().getType() == ThumbnailDataType.LINK) {
-            // We doing it here to avoid blocking the part that runs on the UI thread.
-            Link value = DataHelper.fromBase64(entry.getThumbnail().getValue(), Link.class);
-            value.setTitle(SystemInfoHelper.getWebPageTitle(value.getUri()).await());
-            entry.getThumbnail().setValue(DataHelper.toBase64(value));
+        Bitmap bitmap = _thumbnailCache.get(entry.getIdentifier());
+        if (bitmap == null) {
+            bitmap = BitmapHelper.fromBase64Thumbnail(entry.getThumbnail().getValue());
+            if (bitmap != null) {
+                _thumbnailCache.put(entry.getIdentifier(), bitmap);
+            }
         }
 
-        purgeCacheAsync().await();
+        return bitmap;
     }
 
     /**
-     * Remove a data from the data service. By default, the data entry file will be saved.
+     * Creates a {@link SipHash} keyed for this history, used to compute the hash of one part of a clipboard data.
      *
-     * @param identifier  The {@link UUID} that represents the data entry.
-     * @param identifiers The list of {@link DataIdentifier} that represents the data.
-     * @return A {@link Task} representing the asynchronous operation.
+     * @param formatName The name of the format of the part of the clipboard data.
+     * @return A {@link SipHash}.
      */
-    public Task<Void> removeDataAsync(UUID identifier, List<DataIdentifier> identifiers) {
-        return removeDataAsync(identifier, identifiers, true);
+    public SipHash createContentHasher(String formatName) throws UnsupportedEncodingException {
+        Requires.notNull(formatName, "formatName");
+        awaitStartup();
+
+        byte[] format = formatName.getBytes("UTF-8");
+        SipHash hasher = new SipHash(_contentHashKey);
+        hasher.update(format.length);
+        hasher.update(format, 0, format.length);
+        return hasher;
     }
 
     /**
-     * Remove a data from the data service.
+     * Combines the hashes of each part of a clipboard data into the content hash of the data.
      *
-     * @param identifier        The {@link UUID} that represents the data entry.
-     * @param identifiers       The list of {@link DataIdentifier} that represents the data.
-     * @param saveDataEntryFile Defines whether the data entry file must be saved.
-     * @return A {@link Task} representing the asynchronous operation.
+     * @param itemHashes The hash of each part of the clipboard data, computed with {@link DataService#createContentHasher(String)}.
+     * @return The content hash of the data. Never zero.
      */
-    public Task<Void> removeDataAsync(UUID identifier, List<DataIdentifier> identifiers, boolean saveDataEntryFile) {
-        return new Task<>(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                Requires.notNull(identifier, "identifier");
-                Requires.notNull(identifiers, "identifiers");
+    public long combineContentHashes(long[] itemHashes) {
+        Requires.notNull(itemHashes, "itemHashes");
+        awaitStartup();
+
+        SipHash hasher = new SipHash(_contentHashKey);
+        hasher.update(itemHashes.length);
+        for (long itemHash : itemHashes) {
+            hasher.update(itemHash);
+        }
 
-                getDataEntries().remove(getDataEntries().single(
-                        new Predicate<DataEntry>() {
-                            @Override
-                            public boolean apply(DataEntry dataEntry) {
-                                return dataEntry.getIdentifier().equals(identifier);
-                            }
-                        }
-                ));
-
-                if (ServiceLocator.getService(CloudStorageService.class).isLinkedToAService()) {
-                    getCache().single(
-                            new Predicate<DataEntryCache>() {
-                                @Override
-                                public boolean apply(DataEntryCache dataEntryCache) {
-                                    return dataEntryCache.getIdentifier().equals(identifier);
-                                }
-                            }
-                    ).setStatus(DataEntryStatus.DELETED);
-                } else {
-                    getCache().remove(getCache().single(
-                            new Predicate<DataEntryCache>() {
-                                @Override
-                                public boolean apply(DataEntryCache dataEntryCache) {
-                                    return dataEntryCache.getIdentifier().equals(identifier);
-                                }
-                            }
-                    ));
-                }
+        long result = hasher.finish();
+        return result == 0 ? 1 : result; // zero means that the hash is unknown.
+    }
 
-                for (DataIdentifier dataIdentifier : identifiers) {
-                    String dataFilePath = dataIdentifier.getIdentifier().toString() + ".dat";
+    /**
+     * Computes the content hash of a text copied in the clipboard.
+     *
+     * @param text The text.
+     * @return The content hash of the text. Never zero.
+     */
+    public long computeContentHash(String text) throws UnsupportedEncodingException {
+        Requires.notNull(text, "text");
 
-                    if (App.getContext().getFileStreamPath(dataFilePath).exists()) {
-                        App.getContext().deleteFile(dataFilePath);
-                    }
-                }
+        byte[] data = text.getBytes("UTF-8");
+        SipHash hasher = createContentHasher(Consts.TextFormatName);
+        hasher.update(data, 0, data.length);
+        return combineContentHashes(new long[]{hasher.finish()});
+    }
 
-                if (saveDataEntryFile) {
-                    saveDataEntryFileAsync().await();
-                }
-                return null;
+    /**
+     * If a data entry with the same content already exists, move it on top of the history and update its date instead of adding a new entry.
+     *
+     * @param contentHash The content hash of the copied data.
+     * @param date        The date when the data has been copied.
+     * @return True if an existing data entry has been promoted.
+     */
+    public boolean promoteDataEntry(final long contentHash, final Date date) {
+        Requires.notNull(date, "date");
+        awaitStartup();
+
+        return _historyWriter.post(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return promote(contentHash, date);
             }
-        });
+        }, true).await();
     }
 
     /**
-     * Remove all the data from the data service
+     * Gets the preset dictionary used to compress the small data, trained from the texts of the history.
      *
-     * @return A {@link Task} representing the asynchronous operation.
+     * @return The dictionary, or null if the history does not contain enough texts yet.
      */
-    public Task<Void> removeAllDataAsync() {
-        return new Task<>(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                getDataEntries().clear();
+    public byte[] getCompressionDictionary() {
+        awaitStartup();
+        return _compressionDictionary;
+    }
 
-                for (DataEntryCache dataEntryCache : getCache()) {
-                    dataEntryCache.setStatus(DataEntryStatus.DELETED);
-                }
+    /**
+     * Gets the preset dictionary used to compress the small data, and prevents it from being replaced until {@link #releaseCompressionDictionary()} is called. A file compressed with the dictionary must be written in between, so it is compressed again if the dictionary is replaced.
+     *
+     * @return The dictionary, or null if the history does not contain enough texts yet.
+     */
+    public byte[] acquireCompressionDictionary() {
+        awaitStartup();
+        _compressionDictionaryLock.readLock().lock();
+        return _compressionDictionary;
+    }
 
-                clearCache();
-                return null;
-            }
-        });
+    /**
+     * Allows the preset dictionary returned by {@link #acquireCompressionDictionary()} to be replaced again.
+     */
+    public void releaseCompressionDictionary() {
+        _compressionDictionaryLock.readLock().unlock();
     }
 
     /**
-     * Save the data entry to the internal storage.
+     * Opens a stream on the decrypted data of a clipboard data format. The data saved as a delta is rebuilt from its base, and the data used recently are read from memory.
      *
-     * @return A {@link Task} representing the asynchronous operation.
+     * @param identifier The data identifier.
+     * @return A {@link InputStream} on the data.
+     * @throws IOException
      */
-    private Task<Void> loadDataEntryFileAsync() {
-        return new Task<>(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                if (!Boolean.parseBoolean(_settingProvider.getSetting("KeepDataAfterReboot"))) {
-                    clearCache();
-                }
+    public InputStream openDataStream(DataIdentifier identifier) throws IOException {
+        return openDataStream(identifier, CancellationToken.None);
+    }
 
-                if (App.getContext().getFileStreamPath(Consts.DataEntryFileName).exists()) {
-                    try {
-                        QueryableArrayList<DataEntry> entries;
+    /**
+     * Opens a stream on the decrypted data of a clipboard data format. The data saved as a delta is rebuilt from its base, and the data used recently are read from memory. The stream stops reading when the cancellation is requested.
+     * <p>
+     * A data read from its file is kept in memory once the stream reached its end, unless it is too large.
+     *
+     * @param identifier        The data identifier.
+     * @param cancellationToken The {@link CancellationToken} that stops the reading.
+     * @return A {@link InputStream} on the data.
+     * @throws IOException
+     */
+    public InputStream openDataStream(DataIdentifier identifier, CancellationToken cancellationToken) throws IOException {
+        Requires.notNull(identifier, "identifier");
+        Requires.notNull(cancellationToken, "cancellationToken");
+        cancellationToken.throwIfCancellationRequested();
+        awaitStartup();
+
+        UUID uuid = identifier.getIdentifier();
+        byte[] data = _dataCache.get(uuid);
+        if (data != null) {
+            return new ByteArrayInputStream(data);
+        }
 
-                        try (FileInputStream fileStream = App.getContext().openFileInput(Consts.DataEntryFileName);
-                             AesInputStream aesStream = new AesInputStream(fileStream, _dataEntryFilePassword, SecurityHelper.getSaltKeys(_dataEntryFilePassword).getEncoded())) {
-                            byte[] data = new byte[aesStream.getLength()];
-                            aesStream.read(data, 0, data.length);
-                            entries = DataHelper.fromByteArray(data, new QueryableArrayList<DataEntry>().getClass());
-                        }
+        if (_deltaBases.containsKey(uuid)) {
+            return new ByteArrayInputStream(readCachedData(uuid));
+        }
 
-                        getDataEntries().addAll(entries);
-                    } catch (Exception ex) {
-                        clearCache();
-                    }
-                }
+        try {
+            String dataPassword = SecurityHelper.encryptString(uuid.toString());
+            return new DataCachingInputStream(uuid, new CompressedInputStream(new AesInputStream(App.getContext().openFileInput(uuid.toString() + ".dat"), dataPassword, SecurityHelper.getSaltKeys(dataPassword).getEncoded(), cancellationToken), _compressionDictionary, _previousCompressionDictionary));
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
 
-                if (App.getContext().getFileStreamPath(Consts.CacheFileName).exists()) {
-                    try {
-                        QueryableArrayList<DataEntryCache> entries;
+    /**
+     * Opens a reader on the text of a clipboard data format.
+     *
+     * @param identifier The data identifier.
+     * @return A {@link Reader} that decodes the data from UTF-8.
+     * @throws IOException
+     */
+    public Reader openDataReader(DataIdentifier identifier) throws IOException {
+        return openDataReader(identifier, CancellationToken.None);
+    }
 
-                        try (FileInputStream fileStream = App.getContext().openFileInput(Consts.CacheFileName);
-                             AesInputStream aesStream = new AesInputStream(fileStream, _dataEntryFilePassword, SecurityHelper.getSaltKeys(_dataEntryFilePassword).getEncoded())) {
-                            byte[] data = new byte[aesStream.getLength()];
-                            aesStream.read(data, 0, data.length);
-                            entries = DataHelper.fromByteArray(data, new QueryableArrayList<DataEntryCache>().getClass());
-                        }
+    /**
+     * Opens a reader on the text of a clipboard data format. The reader stops reading when the cancellation is requested.
+     *
+     * @param identifier        The data identifier.
+     * @param cancellationToken The {@link CancellationToken} that stops the reading.
+     * @return A {@link Reader} that decodes the data from UTF-8.
+     * @throws IOException
+     */
+    public Reader openDataReader(DataIdentifier identifier, CancellationToken cancellationToken) throws IOException {
+        return new InputStreamReader(openDataStream(identifier, cancellationToken), "UTF-8");
+    }
 
-                        getCache().addAll(entries);
-                    } catch (Exception ex) {
-                        clearCache();
-                    }
-                }
-                return null;
+    /**
+     * Builds a {@link ClipData} from the texts of a data entry, so it can be copied to the clipboard again. The texts of the recent and favorite data entries are usually already in memory.
+     * <p>
+     * The binary data cannot be shared without their original {@link Uri}, so they are not part of the {@link ClipData}. They can be read with {@link DataService#openDataStream(DataIdentifier)}.
+     *
+     * @param entry The data entry.
+     * @return A {@link ClipData} with one item per text, or null if the data entry does not contain any text.
+     * @throws IOException
+     */
+    public ClipData getClipData(DataEntry entry) throws IOException {
+        Requires.notNull(entry, "entry");
+        awaitStartup();
+
+        ClipData result = null;
+        for (DataIdentifier identifier : entry.getDataIdentifiers()) {
+            if (!identifier.getFormatName().equals(Consts.TextFormatName)) {
+                continue;
             }
-        });
+
+            String text = new String(readCachedData(identifier.getIdentifier()), "UTF-8");
+            if (result == null) {
+                result = ClipData.newPlainText(App.getContext().getString(R.string.app_name), text);
+            } else {
+                result.addItem(new ClipData.Item(text));
+            }
+        }
+
+        return result;
     }
 
     /**
-     * Save the data entry to the internal storage.
+     * Tries to save the data of a text as a delta against the most recent similar text of the history, which makes the file much smaller when the user copies successive edits of the same text.
+     * <p>
+     * Nothing is saved if the delta encoding is disabled in the settings, if the text is small, if no similar text is found or if the delta is not at least twice smaller than the data.
      *
-     * @return A {@link Task} representing the asynchronous operation.
+     * @param text       The text from the clipboard.
+     * @param data       The data to save.
+     * @param identifier The data identifier.
+     * @return True if the data has been saved as a delta. Otherwise, the data must be saved as usual.
+     * @throws IOException
      */
-    private Task<Void> saveDataEntryFileAsync() {
-        return new Task<>(new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-                saveDataFile(Consts.DataEntryFileName, getDataEntries());
+    public boolean writeDataAsDelta(final String text, final byte[] data, final DataIdentifier identifier) throws IOException {
+        Requires.notNull(text, "text");
+        Requires.notNull(data, "data");
+        Requires.notNull(identifier, "identifier");
+        awaitStartup();
 
-                saveDataFile(Consts.CacheFileName, getCache());
-                return null;
+        if (!_settingsService.getSettings().isDeltaEncodeClipboardDataEnabled() || data.length < Consts.DeltaMinimumDataLength) {
+            return false;
+        }
+
+        // the base must not be removed while the delta is written.
+        return _historyWriter.post(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                return writeDelta(SimHash.compute(text), data, identifier.getIdentifier());
             }
-        });
+        }).await();
     }
 
     /**
-     * Encrypt and save the specified data on the internal storage.
+     * Saves a data as a delta against the most recent similar text of the history. Must be called by the history writer.
      *
-     * @param filePath   The full path to the file to save.
-     * @param dataToSave The data to save.
+     * @param sketch     The {@link SimHash} sketch of the text.
+     * @param data       The data to save.
+     * @param identifier The identifier of the data.
+     * @return True if the data has been saved as a delta.
+     * @throws IOException
      */
-    private void saveDataFile(String filePath, Serializable dataToSave) throws IOException, InvalidKeySpecException, NoSuchAlgorithmException {
-        if (App.getContext().getFileStreamPath(filePath).exists()) {
-            App.getContext().deleteFile(filePath);
+    private boolean writeDelta(long sketch, byte[] data, UUID identifier) throws IOException {
+        UUID base = findDeltaBase(sketch);
+        if (base == null) {
+            return false;
         }
 
-        try (FileOutputStream fileStream = App.getContext().openFileOutput(filePath, Context.MODE_PRIVATE);
-             AesOutputStream aesStream = new AesOutputStream(fileStream, _dataEntryFilePassword, SecurityHelper.getSaltKeys(_dataEntryFilePassword).getEncoded())) {
-            byte[] data = DataHelper.toByteArray(dataToSave);
-            aesStream.write(data, 0, data.length);
+        byte[] baseData;
+        try {
+            baseData = readData(base);
+        } catch (IOException exception) {
+            exception.printStackTrace();
+            return false;
         }
+
+        byte[] delta = BinaryDelta.create(baseData, data);
+        if (delta.length > data.length / 2) {
+            return false;
+        }
+
+        writeDataFile(getDeltaFileName(identifier, base), identifier, delta);
+        _deltaBases.put(identifier, base);
+        return true;
     }
 
     /**
-     * Clean the data by applying the limit count of data and the expire date.
+     * Sets the title of the link of a data entry with a {@link ThumbnailDataType#LINK} thumbnail, saves the data entries and raises {@link DataService#DataEntryChanged}.
      *
-     * @return A {@link Task} representing the asynchronous operation.
+     * @param identifier The {@link UUID} that represents the data entry.
+     * @param title      The title of the link.
+     * @throws IOException
+     * @throws ClassNotFoundException
      */
-    private Task<Void> purgeCacheAsync() {
-        return new Task<>(new Callable<Void>() {
+    public void setLinkTitle(final UUID identifier, final String title) throws IOException, ClassNotFoundException {
+        Requires.notNull(identifier, "identifier");
+        awaitStartup();
+
+        DataEntry entry = _historyWriter.post(new Callable<DataEntry>() {
             @Override
-            public Void call() throws Exception {
-                QueryableArrayList<DataEntry> dataToRemove = new QueryableArrayList<>();
-                int maxDataToKeep = Integer.parseInt(_settingProvider.getSetting("MaxDataToKeep"));
-                long expireLimit = TimeUnit.DAYS.toMillis(Integer.parseInt(_settingProvider.getSetting("DateExpireLimit")));
-
-                reorganizeAsync(false).await();
-
-                Date now = new Date(System.currentTimeMillis());
-                if (getDataEntries().size() > maxDataToKeep) {
-                    dataToRemove = getDataEntries().skip(maxDataToKeep).where(
-                            new Predicate<DataEntry>() {
-                                @Override
-                                public boolean apply(DataEntry dataEntry) {
-                                    return !dataEntry.isFavorite();
-                                }
-                            }
-                    );
+            public DataEntry call() throws Exception {
+                DataEntry entry = _dataEntryIdentifierIndex.firstOrDefault(identifier);
+
+                // the data entry may have been removed while the title was retrieved.
+                if (entry == null || entry.getThumbnail() == null || entry.getThumbnail().getType() != ThumbnailDataType.LINK) {
+                    return null;
                 }
 
-                dataToRemove = dataToRemove.union(getDataEntries().where(
-                        new Predicate<DataEntry>() {
+                DataEntry newEntry = entry.copy();
+                Link value = DataHelper.fromBase64(newEntry.getThumbnail().getValue(), Link.class);
+                value.setTitle(title);
+                newEntry.getThumbnail().setValue(DataHelper.toBase64(value));
+
+                beginHistoryUpdate();
+                try {
+                    int index = replaceDataEntry(entry, newEntry);
+                    recordHistoryChange(HistoryChangeType.THUMBNAIL_UPDATED, identifier, index, index);
+                    recordCacheChange(_cacheIdentifierIndex.firstOrDefault(identifier));
+                } finally {
+                    endHistoryUpdate();
+                }
+                return newEntry;
+            }
+        }, true).await();
+
+        if (entry != null) {
+            DataEntryChanged.invoke(this, new DataEntryEventArgs(entry));
+        }
+    }
+
+    /**
+     * Gets the data entries which contain almost the same text than the specified one, like the same URL with other query parameters or the same log line with another timestamp.
+     *
+     * @param entry The data entry.
+     * @return The list of near-duplicates of the data entry, in no particular order.
+     */
+    public QueryableArrayList<DataEntry> getNearDuplicates(final DataEntry entry) {
+        Requires.notNull(entry, "entry");
+        awaitStartup();
+
+        // the index is only used by the history writer, which modifies it.
+        return _historyWriter.post(new Callable<QueryableArrayList<DataEntry>>() {
+            @Override
+            public QueryableArrayList<DataEntry> call() throws Exception {
+                return _sketchIndex.findNearDuplicates(entry);
+            }
+        }).await();
+    }
+
+    /**
+     * Gets the sequence number of the last change of the history. It is saved with the history, so it keeps increasing after a restart.
+     *
+     * @return The sequence number, or 0 if the history never changed.
+     */
+    public long getLastSequenceNumber() {
+        awaitStartup();
+        return _lastSequenceNumber;
+    }
+
+    /**
+     * Gets a page of the data entries that changed after a cursor, in the order of their last change. A data entry that changed several times is only returned for its last change. To read the next page, call this method again with the sequence number of the last item of the page.
+     * <p>
+     * A removed data entry is returned with the {@link DataEntryStatus#DELETED} status. When the app is not linked to a cloud service, the removed data entries are not kept in the cache, so their removal is only returned until the app restarts.
+     *
+     * @param cursor The sequence number of the last change already read, or 0 to read from the beginning.
+     * @param limit  The maximum number of items of the page.
+     * @return A list of copies of the cache items, sorted by {@link DataEntryCache#getSequenceNumber()}. It is empty if there is no change after the cursor.
+     */
+    public QueryableArrayList<DataEntryCache> changesSince(long cursor, int limit) {
+        Requires.isTrue(cursor >= 0);
+        Requires.isTrue(limit > 0);
+        awaitStartup();
+
+        QueryableArrayList<DataEntryCache> result = new QueryableArrayList<>();
+        for (DataEntryCache cacheItem : _changeLog.tailMap(cursor, false).values()) {
+            result.add(copyCacheItem(cacheItem));
+            if (result.size() == limit) {
+                break;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Sort the data. The favorites will be placed on top of the list.
+     *
+     * @param saveDataEntryFile Defines whether the data entry file must be saved
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    public Task<Void> reorganizeAsync(boolean saveDataEntryFile) {
+        awaitStartup();
+
+        return _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                reorganize();
+                return null;
+            }
+        }, saveDataEntryFile);
+    }
+
+    /**
+     * Add the specific clipboard data to the data entries.
+     *
+     * @param data         The clipboard data.
+     * @param identifiers  The list of identifiers for each data format.
+     * @param isCreditCard Determines whether the data is a credit card number.
+     * @param isPassword   Determines whether the data is a password.
+     */
+    public void addDataEntry(ClipboardData data, QueryableArrayList<DataIdentifier> identifiers, boolean isCreditCard, boolean isPassword) throws IOException, ClassNotFoundException {
+        Requires.notNull(data, "data");
+        Requires.notNull(identifiers, "identifiers");
+        awaitStartup();
+
+        long contentHash = data.getContentHash();
+        if (contentHash == 0) {
+            contentHash = computeContentHash(data.getData());
+        }
+
+        // the promotion is tried first to not build the thumbnail of a data already in the history.
+        if (promoteOrDeleteDataFiles(contentHash, data.getDate(), identifiers)) {
+            return;
+        }
+
+        final DataEntry entry = new DataEntry();
+        entry.setIdentifier(generateNewUUID());
+        if (data.getUris().any()) {
+            entry.setThumbnail(generateThumbnail(data.getData(), data.getUris()));
+        } else {
+            entry.setThumbnail(generateThumbnail(data.getData(), isCreditCard, isPassword));
+        }
+        entry.setDate(data.getDate());
+        entry.setIsFavorite(false);
+        entry.setCanSynchronize(true);
+        entry.setIconIsFromWindowStore(false);
+        entry.setDataIdentifiers(identifiers);
+        entry.setContentHash(contentHash);
+        if (!data.getUris().any() && !isCreditCard && !isPassword) {
+            entry.setSketch(SimHash.compute(data.getData()));
+        }
+
+        final DataEntryCache cache = new DataEntryCache();
+        cache.setIdentifier(entry.getIdentifier());
+        cache.setStatus(DataEntryStatus.ADDED);
+
+        // the new entry and the purge are saved together. The same data may have been added by another capture since the promotion was tried, so it is tried again by the same command as the insertion.
+        final long entryContentHash = contentHash;
+        final Date date = data.getDate();
+        final QueryableArrayList<DataIdentifier> dataIdentifiers = identifiers;
+        ArrayList<Callable<Boolean>> commands = new ArrayList<>();
+        commands.add(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                if (promote(entryContentHash, date)) {
+                    deleteDataFiles(dataIdentifiers);
+                    return false;
+                }
+
+                beginHistoryUpdate();
+                try {
+                    _dataEntries.add(0, entry);
+                    _cache.add(0, cache);
+                    recordHistoryChange(HistoryChangeType.INSERTED, entry.getIdentifier(), 0, 0);
+                    recordCacheChange(cache);
+                } finally {
+                    endHistoryUpdate();
+                }
+                _contentHashIndex.put(entryContentHash, entry.getIdentifier());
+                _sketchIndex.add(entry, entry.getSketch());
+                return true;
+            }
+        });
+        commands.add(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                purgeCache();
+                return true;
+            }
+        });
+        if (!_historyWriter.postBatch(commands, true).await().get(0)) {
+            return;
+        }
+
+        if (entry.getThumbnail().getType() == ThumbnailDataType.LINK) {
+            // the title is read from the cache or downloaded in the background, the capture waits for neither the storage nor the network.
+            Link value = DataHelper.fromBase64(entry.getThumbnail().getValue(), Link.class);
+            ServiceLocator.getService(LinkPreviewService.class).requestTitle(entry.getIdentifier(), value.getUri());
+        }
+
+        if (_compressionDictionary == null || _isCompressionDictionaryStale) {
+            requestCompressionDictionaryTraining();
+        }
+
+        requestDataPrefetch();
+    }
+
+    /**
+     * Remove a data from the data service. By default, the data entry file will be saved.
+     *
+     * @param identifier  The {@link UUID} that represents the data entry.
+     * @param identifiers The list of {@link DataIdentifier} that represents the data.
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    public Task<Void> removeDataAsync(UUID identifier, List<DataIdentifier> identifiers) {
+        return removeDataAsync(identifier, identifiers, true);
+    }
+
+    /**
+     * Remove a data from the data service.
+     *
+     * @param identifier        The {@link UUID} that represents the data entry.
+     * @param identifiers       The list of {@link DataIdentifier} that represents the data.
+     * @param saveDataEntryFile Defines whether the data entry file must be saved.
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    public Task<Void> removeDataAsync(final UUID identifier, final List<DataIdentifier> identifiers, boolean saveDataEntryFile) {
+        Requires.notNull(identifier, "identifier");
+        Requires.notNull(identifiers, "identifiers");
+        awaitStartup();
+
+        return _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                removeData(identifier, identifiers);
+                return null;
+            }
+        }, saveDataEntryFile);
+    }
+
+    /**
+     * Remove several data from the data service, and saves the data entry file once.
+     *
+     * @param entries The data entries to remove.
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    public Task<List<Void>> removeDataAsync(List<DataEntry> entries) {
+        Requires.notNull(entries, "entries");
+        awaitStartup();
+
+        ArrayList<Callable<Void>> commands = new ArrayList<>(entries.size());
+        for (final DataEntry entry : entries) {
+            Requires.notNull(entry, "entry");
+            commands.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    removeData(entry.getIdentifier(), entry.getDataIdentifiers());
+                    return null;
+                }
+            });
+        }
+
+        return _historyWriter.postBatch(commands, true);
+    }
+
+    /**
+     * Remove all the data from the data service. The synchronization cache and the last sequence number are saved, so the removals keep their sequence numbers after a restart.
+     *
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    public Task<Void> removeAllDataAsync() {
+        awaitStartup();
+
+        return _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                removeAllData();
+                return null;
+            }
+        }, true);
+    }
+
+    /**
+     * Removes all the data entries, records the removals in the {@link DataService#HistoryChanged} feed and the synchronization cache, and deletes the data files. Must be called by the history writer, or by the startup before the history is published.
+     */
+    private void removeAllData() {
+        beginHistoryUpdate();
+        try {
+            // the last data entries are removed first, so the index of each removal is valid.
+            for (int i = _dataEntries.size() - 1; i >= 0; i--) {
+                recordHistoryChange(HistoryChangeType.REMOVED, _dataEntries.get(i).getIdentifier(), i, i);
+            }
+            _dataEntries.clear();
+            for (int i = 0; i < _cache.size(); i++) {
+                if (_cache.get(i).getStatus() != DataEntryStatus.DELETED) {
+                    recordCacheChange(_cache.get(i), DataEntryStatus.DELETED);
+                }
+            }
+        } finally {
+            endHistoryUpdate();
+        }
+        _thumbnailCache.evictAll();
+        _contentHashIndex.clear();
+        _sketchIndex.clear();
+
+        clearCache();
+    }
+
+    /**
+     * Removes the data entries and the synchronization cache from memory, without modifying the files. Used by the tests to start from an empty history.
+     *
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    Task<Void> clearHistoryAsync() {
+        return _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                beginHistoryUpdate();
+                try {
+                    _dataEntries.clear();
+                    _cache.clear();
+                } finally {
+                    endHistoryUpdate();
+                }
+                _contentHashIndex.clear();
+                _sketchIndex.clear();
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Adds a data entry to the favorites or removes it from them. A new favorite is moved on top of the list.
+     *
+     * @param identifier The {@link UUID} that represents the data entry.
+     * @param isFavorite Defines whether the data entry is a favorite.
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    public Task<Void> setFavoriteAsync(final UUID identifier, final boolean isFavorite) {
+        Requires.notNull(identifier, "identifier");
+        awaitStartup();
+
+        return _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                DataEntry entry = _dataEntryIdentifierIndex.single(identifier);
+                if (entry.isFavorite() == isFavorite) {
+                    return null;
+                }
+
+                DataEntry newEntry = entry.copy();
+                newEntry.setIsFavorite(isFavorite);
+
+                beginHistoryUpdate();
+                try {
+                    int index = replaceDataEntry(entry, newEntry);
+                    recordHistoryChange(HistoryChangeType.FAVORITE_TOGGLED, identifier, index, index);
+                    recordCacheChange(_cacheIdentifierIndex.firstOrDefault(identifier));
+                    reorganize();
+                } finally {
+                    endHistoryUpdate();
+                }
+
+                if (isFavorite) {
+                    requestDataPrefetch();
+                }
+                return null;
+            }
+        }, true);
+    }
+
+    /**
+     * If a data entry with the same content already exists, move it on top of the history and update its date. Must be called by the history writer.
+     *
+     * @param contentHash The content hash of the copied data.
+     * @param date        The date when the data has been copied.
+     * @return True if an existing data entry has been promoted.
+     */
+    private boolean promote(long contentHash, Date date) {
+        UUID identifier = _contentHashIndex.get(contentHash);
+        if (identifier == null) {
+            return false;
+        }
+
+        DataEntry entry = _dataEntryIdentifierIndex.firstOrDefault(identifier);
+
+        if (entry == null) {
+            _contentHashIndex.remove(contentHash);
+            return false;
+        }
+
+        DataEntry newEntry = entry.copy();
+        newEntry.setDate(date);
+
+        beginHistoryUpdate();
+        try {
+            int previousIndex = _dataEntries.indexOf(entry);
+            _dataEntries.remove(previousIndex);
+            int index = 0;
+            if (!newEntry.isFavorite()) {
+                index = _dataEntries.indexOf(_dataEntries.firstOrDefault(
+                        new Predicate<DataEntry>() {
                             @Override
                             public boolean apply(DataEntry dataEntry) {
-                                return (now.getTime() - dataEntry.getDate().getTime()) > expireLimit && !dataEntry.isFavorite();
+                                return !dataEntry.isFavorite();
+                            }
+                        })
+                );
+                if (index == -1) {
+                    index = _dataEntries.size();
+                }
+            }
+            _dataEntries.add(index, newEntry);
+            _sketchIndex.add(newEntry, newEntry.getSketch());
+            _sketchIndex.remove(entry);
+            if (index != previousIndex) {
+                recordHistoryChange(HistoryChangeType.MOVED, identifier, previousIndex, index);
+            }
+
+            DataEntryCache cacheItem = _cacheIdentifierIndex.firstOrDefault(identifier);
+            if (cacheItem != null) {
+                _cache.remove(cacheItem);
+                _cache.add(0, cacheItem);
+                recordCacheChange(cacheItem);
+            }
+        } finally {
+            endHistoryUpdate();
+        }
+        return true;
+    }
+
+    /**
+     * If a data entry with the same content already exists, promotes it and deletes the files of the new data, which are useless.
+     *
+     * @param contentHash The content hash of the copied data.
+     * @param date        The date when the data has been copied.
+     * @param identifiers The list of identifiers of the new data.
+     * @return True if an existing data entry has been promoted.
+     */
+    private boolean promoteOrDeleteDataFiles(final long contentHash, final Date date, final List<DataIdentifier> identifiers) {
+        return _historyWriter.post(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                if (!promote(contentHash, date)) {
+                    return false;
+                }
+
+                deleteDataFiles(identifiers);
+                return true;
+            }
+        }, true).await();
+    }
+
+    /**
+     * Sort the data. The favorites will be placed on top of the list. Must be called by the history writer.
+     */
+    private void reorganize() {
+        beginHistoryUpdate();
+        try {
+            int indexOfFirstNonFavorite = _dataEntries.indexOf(_dataEntries.firstOrDefault(
+                    new Predicate<DataEntry>() {
+                        @Override
+                        public boolean apply(DataEntry dataEntry) {
+                            return !dataEntry.isFavorite();
+                        }
+                    })
+            );
+
+            if (indexOfFirstNonFavorite > -1) {
+                for (int i = indexOfFirstNonFavorite; i < _dataEntries.size(); i++) {
+                    DataEntry item = _dataEntries.get(i);
+                    if (!item.isFavorite()) {
+                        continue;
+                    }
+
+                    _dataEntries.remove(i);
+                    _dataEntries.add(0, item);
+                    recordHistoryChange(HistoryChangeType.MOVED, item.getIdentifier(), i, 0);
+
+                    DataEntryCache cacheItem = _cacheIdentifierIndex.singleOrDefault(item.getIdentifier());
+                    if (cacheItem != null) {
+                        _cache.remove(cacheItem);
+                        _cache.add(0, cacheItem);
+                    }
+                }
+            }
+        } finally {
+            endHistoryUpdate();
+        }
+    }
+
+    /**
+     * Remove a data from the data service, without saving the data entry file. Must be called by the history writer.
+     *
+     * @param identifier  The {@link UUID} that represents the data entry.
+     * @param identifiers The list of {@link DataIdentifier} that represents the data.
+     */
+    private void removeData(UUID identifier, List<DataIdentifier> identifiers) throws IOException {
+        DataEntry entry = _dataEntryIdentifierIndex.single(identifier);
+
+        beginHistoryUpdate();
+        try {
+            int index = _dataEntries.indexOf(entry);
+            _dataEntries.remove(index);
+            recordHistoryChange(HistoryChangeType.REMOVED, identifier, index, index);
+
+            DataEntryCache cacheItem = recordCacheChange(_cacheIdentifierIndex.single(identifier), DataEntryStatus.DELETED);
+            if (!ServiceLocator.getService(CloudStorageService.class).isLinkedToAService()) {
+                _cache.remove(cacheItem);
+            }
+        } finally {
+            endHistoryUpdate();
+        }
+
+        _thumbnailCache.remove(identifier);
+        if (identifier.equals(_contentHashIndex.get(entry.getContentHash()))) {
+            _contentHashIndex.remove(entry.getContentHash());
+        }
+        _sketchIndex.remove(entry);
+
+        deleteDataFiles(identifiers);
+
+        // the dictionary must not keep an excerpt of a removed data, so it is trained again without it.
+        HashSet<UUID> samples = _compressionDictionarySamples;
+        if (samples != null) {
+            for (DataIdentifier dataIdentifier : identifiers) {
+                if (samples.contains(dataIdentifier.getIdentifier())) {
+                    _isCompressionDictionaryStale = true;
+                    requestCompressionDictionaryTraining();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Waits for the end of the startup, which derives the keys and loads the history. The startup is started by {@link #initialize(ServiceSettingProvider)}, so this blocks the current thread until the last step of the pipeline is finished. Must be called before posting a command to the history writer, never by the history writer itself, so the writer's thread is never blocked by the startup.
+     */
+    private void awaitStartup() {
+        _startupTask.await();
+    }
+
+    /**
+     * Derives the keys used to encrypt the history files and to hash the clipboard data.
+     */
+    private void deriveKeys() {
+        String password = SecurityHelper.encryptString(App.getContext().getString(R.string.DropBoxAppKey) + App.getContext().getString(R.string.OneDriveClientId));
+
+        try {
+            _dataEntryFileKey = SecurityHelper.getSaltKeys(password).getEncoded();
+            // a salt of its own, so a content hash reveals nothing about the key of the history files.
+            _contentHashKey = SecurityHelper.getSaltKeys(password, Consts.ContentHashKeySalt.getBytes(StandardCharsets.UTF_8)).getEncoded();
+        } catch (InvalidKeySpecException | NoSuchAlgorithmException exception) {
+            throw new RuntimeException(exception);
+        }
+
+        _dataEntryFilePassword = password;
+    }
+
+    /**
+     * Finds the data saved as a delta. The base of a delta is part of the file name, so the chains are known without decrypting anything. The temporary files left by an interrupted compression are deleted.
+     */
+    private void scanDeltaFiles() {
+        for (String file : App.getContext().fileList()) {
+            if (file.endsWith(Consts.DeltaFileExtension)) {
+                String[] parts = file.substring(0, file.length() - Consts.DeltaFileExtension.length()).split("\\.");
+                if (parts.length == 2) {
+                    _deltaBases.put(UUID.fromString(parts[0]), UUID.fromString(parts[1]));
+                }
+            } else if (file.endsWith(Consts.TemporaryFileExtension)) {
+                App.getContext().deleteFile(file);
+            }
+        }
+    }
+
+    /**
+     * Loads the preset dictionary used to compress the small data, the previous one if the data were not all compressed again with the new one, and the identifiers of the data it has been trained from.
+     */
+    private void loadCompressionDictionary() {
+        try {
+            if (App.getContext().getFileStreamPath(Consts.CompressionDictionaryFileName).exists()) {
+                _compressionDictionary = readEncryptedFile(Consts.CompressionDictionaryFileName, _dataEntryFilePassword);
+            }
+            if (App.getContext().getFileStreamPath(Consts.PreviousCompressionDictionaryFileName).exists()) {
+                _previousCompressionDictionary = readEncryptedFile(Consts.PreviousCompressionDictionaryFileName, _dataEntryFilePassword);
+            }
+            if (App.getContext().getFileStreamPath(Consts.CompressionDictionarySamplesFileName).exists()) {
+                byte[] data = readEncryptedFile(Consts.CompressionDictionarySamplesFileName, _dataEntryFilePassword);
+                _compressionDictionarySamples = DataHelper.fromByteArray(data, new HashSet<UUID>().getClass());
+            }
+        } catch (IOException | ClassNotFoundException exception) {
+            exception.printStackTrace();
+        }
+
+        // without the identifiers of its samples, a removed data could stay in the dictionary.
+        _isCompressionDictionaryStale = _compressionDictionary != null && _compressionDictionarySamples == null;
+    }
+
+    /**
+     * Loads the data entries from the internal storage.
+     */
+    private void loadDataEntryFile() {
+        if (App.getContext().getFileStreamPath(Consts.DataEntryFileName).exists()) {
+            try {
+                QueryableArrayList<DataEntry> entries;
+
+                byte[] data = readEncryptedFile(Consts.DataEntryFileName, _dataEntryFilePassword);
+                entries = DataHelper.fromByteArray(data, new QueryableArrayList<DataEntry>().getClass());
+
+                _dataEntries.addAll(entries);
+
+                for (DataEntry entry : entries) {
+                    if (entry.getContentHash() != 0) {
+                        _contentHashIndex.put(entry.getContentHash(), entry.getIdentifier());
+                    }
+                    _sketchIndex.add(entry, entry.getSketch());
+                }
+            } catch (Exception ex) {
+                _isDataEntryFileCorrupted = true;
+            }
+        }
+    }
+
+    /**
+     * Removes the data when the data entry file or the cache file could not be read. Runs once both files are loaded, so the data files are never deleted while the other file is still being read.
+     */
+    private void checkLoadedFiles() throws IOException {
+        if (_isDataEntryFileCorrupted || _isCacheFileCorrupted) {
+            // the removals get their sequence numbers and their change records like any other removal, so the cloud and the views see them.
+            removeAllData();
+            saveDataEntryFile();
+        } else {
+            findOrphanedDeltaBases();
+            requestDataPrefetch();
+
+            if (_isCompressionDictionaryStale || App.getContext().getFileStreamPath(Consts.PreviousCompressionDictionaryFileName).exists()) {
+                requestCompressionDictionaryTraining();
+            }
+        }
+    }
+
+    /**
+     * Loads the synchronization cache from the internal storage.
+     */
+    private void loadCacheFile() {
+        if (App.getContext().getFileStreamPath(Consts.CacheFileName).exists()) {
+            try {
+                QueryableArrayList<DataEntryCache> entries;
+
+                byte[] data = readEncryptedFile(Consts.CacheFileName, _dataEntryFilePassword);
+                entries = DataHelper.fromByteArray(data, new QueryableArrayList<DataEntryCache>().getClass());
+
+                _cache.addAll(entries);
+            } catch (Exception ex) {
+                _isCacheFileCorrupted = true;
+            }
+        }
+
+        loadChangeLog();
+    }
+
+    /**
+     * Loads the last sequence number and rebuilds the change log from the synchronization cache. The cache items saved before the sequence numbers existed are numbered from the oldest to the most recent.
+     */
+    private void loadChangeLog() {
+        long lastSequenceNumber = 0;
+        if (App.getContext().getFileStreamPath(Consts.SequenceFileName).exists()) {
+            try {
+                byte[] data = readEncryptedFile(Consts.SequenceFileName, _dataEntryFilePassword);
+                lastSequenceNumber = DataHelper.fromByteArray(data, Long.class);
+            } catch (Exception ex) {
+                ex.printStackTrace();
+            }
+        }
+
+        for (DataEntryCache cacheItem : _cache) {
+            lastSequenceNumber = Math.max(lastSequenceNumber, cacheItem.getSequenceNumber());
+        }
+
+        for (int i = _cache.size() - 1; i >= 0; i--) {
+            DataEntryCache cacheItem = _cache.get(i);
+            if (cacheItem.getSequenceNumber() == 0) {
+                cacheItem.setSequenceNumber(++lastSequenceNumber);
+            }
+            _changeLog.put(cacheItem.getSequenceNumber(), copyCacheItem(cacheItem));
+        }
+
+        _lastSequenceNumber = lastSequenceNumber;
+    }
+
+    /**
+     * Save the data entry to the internal storage. Must be called by the history writer, so the saved cache matches the saved data entries.
+     */
+    private void saveDataEntryFile() throws IOException {
+        saveDataFile(Consts.DataEntryFileName, toQueryableArrayList(getDataEntries()));
+
+        saveDataFile(Consts.SequenceFileName, _lastSequenceNumber);
+
+        saveDataFile(Consts.CacheFileName, toQueryableArrayList(getCache()));
+    }
+
+    /**
+     * Copies a snapshot of the history into a {@link QueryableArrayList}, which is the type saved in the files.
+     *
+     * @param snapshot The snapshot to copy.
+     * @param <T>      The type of the elements.
+     * @return A {@link QueryableArrayList} that contains the elements of the snapshot.
+     */
+    private static <T> QueryableArrayList<T> toQueryableArrayList(PersistentList<T> snapshot) {
+        QueryableArrayList<T> result = new QueryableArrayList<>();
+        result.addAll(snapshot);
+        return result;
+    }
+
+    /**
+     * Starts an update of the data entries and the synchronization cache, so the readers of the snapshots see all the modifications at once. Must be called by the history writer.
+     */
+    private void beginHistoryUpdate() {
+        _historyUpdateDepth++;
+        _dataEntries.beginUpdate();
+        _cache.beginUpdate();
+    }
+
+    /**
+     * Ends an update started with {@link DataService#beginHistoryUpdate()}, publishes the new snapshots and, at the end of the outermost update, commits the recorded changes to the {@link DataService#HistoryChanged} feed.
+     */
+    private void endHistoryUpdate() {
+        _cache.endUpdate();
+        _dataEntries.endUpdate();
+
+        _historyUpdateDepth--;
+        if (_historyUpdateDepth == 0) {
+            _historyChangeFeed.commit(getDataEntries());
+        }
+    }
+
+    /**
+     * Records a change of the data entries for the {@link DataService#HistoryChanged} feed. Must be called during an update of the history.
+     *
+     * @param type       The type of the change.
+     * @param identifier The {@link UUID} that represents the data entry.
+     * @param index      The index of the data entry, or its previous index if it has been moved.
+     * @param toIndex    The new index of the data entry if it has been moved.
+     */
+    private void recordHistoryChange(@HistoryChangeType int type, UUID identifier, int index, int toIndex) {
+        _historyChangeFeed.record(new HistoryChange(type, identifier, index, toIndex));
+    }
+
+    /**
+     * Replaces a data entry by a modified copy, so the published snapshots that contain the data entry never change. Must be called during an update of the history.
+     *
+     * @param entry    The data entry to replace.
+     * @param newEntry The modified copy of the data entry.
+     * @return The index of the data entry.
+     */
+    private int replaceDataEntry(DataEntry entry, DataEntry newEntry) {
+        int index = _dataEntries.indexOf(entry);
+        _dataEntries.set(index, newEntry);
+        _sketchIndex.add(newEntry, newEntry.getSketch());
+        _sketchIndex.remove(entry);
+        return index;
+    }
+
+    /**
+     * Replaces a cache item that changed by a copy with the next sequence number, and adds it to the change log. Must be called during an update of the history.
+     *
+     * @param cacheItem The cache item of the data entry that changed. Nothing is done if it is null.
+     * @return The new cache item, or null.
+     */
+    private DataEntryCache recordCacheChange(DataEntryCache cacheItem) {
+        return cacheItem == null ? null : recordCacheChange(cacheItem, cacheItem.getStatus());
+    }
+
+    /**
+     * Replaces a cache item that changed by a copy with a new status and the next sequence number, and adds it to the change log. The published cache items are never modified. Must be called during an update of the history.
+     *
+     * @param cacheItem The cache item of the data entry that changed. Nothing is done if it is null.
+     * @param status    The new status of the cache item.
+     * @return The new cache item, or null.
+     */
+    private DataEntryCache recordCacheChange(DataEntryCache cacheItem, @DataEntryStatus int status) {
+        if (cacheItem == null) {
+            return null;
+        }
+
+        if (cacheItem.getSequenceNumber() != 0) {
+            _changeLog.remove(cacheItem.getSequenceNumber());
+        }
+
+        long sequenceNumber = _lastSequenceNumber + 1;
+        DataEntryCache result = copyCacheItem(cacheItem);
+        result.setStatus(status);
+        result.setSequenceNumber(sequenceNumber);
+        _cache.set(_cache.indexOf(cacheItem), result);
+
+        // the cache items are not modified once they are in the cache, so the change log can share them.
+        _changeLog.put(sequenceNumber, result);
+        _lastSequenceNumber = sequenceNumber;
+        return result;
+    }
+
+    private static DataEntryCache copyCacheItem(DataEntryCache cacheItem) {
+        DataEntryCache result = new DataEntryCache();
+        result.setIdentifier(cacheItem.getIdentifier());
+        result.setStatus(cacheItem.getStatus());
+        result.setSequenceNumber(cacheItem.getSequenceNumber());
+        return result;
+    }
+
+    /**
+     * Compress, encrypt and save the specified data on the internal storage.
+     *
+     * @param filePath   The full path to the file to save.
+     * @param dataToSave The data to save.
+     */
+    private void saveDataFile(String filePath, Serializable dataToSave) throws IOException {
+        if (App.getContext().getFileStreamPath(filePath).exists()) {
+            App.getContext().deleteFile(filePath);
+        }
+
+        writeEncryptedFile(filePath, _dataEntryFilePassword, DataHelper.toByteArray(dataToSave), null);
+    }
+
+    /**
+     * Clean the data by applying the limit count of data and the expire date.
+     *
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    private Task<Void> purgeCacheAsync() {
+        awaitStartup();
+
+        return _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                purgeCache();
+                return null;
+            }
+        }, true);
+    }
+
+    /**
+     * Clean the data by applying the limit count of data and the expire date, without saving the data entry file. Must be called by the history writer.
+     */
+    private void purgeCache() throws IOException {
+        QueryableArrayList<DataEntry> dataToRemove = new QueryableArrayList<>();
+        Settings settings = _settingsService.getSettings();
+        int maxDataToKeep = settings.getMaxDataToKeep();
+        long expireLimit = TimeUnit.DAYS.toMillis(settings.getDateExpireLimit());
+
+        reorganize();
+
+        Date now = new Date(System.currentTimeMillis());
+        Query<DataEntry> query = dataToRemove.asQuery();
+        if (_dataEntries.size() > maxDataToKeep) {
+            if (settings.isCollapseNearDuplicatesEnabled()) {
+                // Older near-duplicates go first, so the distinct data stay longer in the history.
+                dataToRemove = getNearDuplicatesToCollapse(_dataEntries.size() - maxDataToKeep);
+            }
+
+            final HashSet<DataEntry> collapsedData = new HashSet<>(dataToRemove);
+            query = dataToRemove.asQuery().union(_dataEntries.asQuery().where(
+                    new Predicate<DataEntry>() {
+                        @Override
+                        public boolean apply(DataEntry dataEntry) {
+                            return !collapsedData.contains(dataEntry);
+                        }
+                    }
+            ).skip(maxDataToKeep).where(
+                    new Predicate<DataEntry>() {
+                        @Override
+                        public boolean apply(DataEntry dataEntry) {
+                            return !dataEntry.isFavorite();
+                        }
+                    }
+            ));
+        }
+
+        // the query is evaluated once, before the data entries are removed.
+        dataToRemove = query.union(_dataEntries.asQuery().where(
+                new Predicate<DataEntry>() {
+                    @Override
+                    public boolean apply(DataEntry dataEntry) {
+                        return (now.getTime() - dataEntry.getDate().getTime()) > expireLimit && !dataEntry.isFavorite();
+                    }
+                }
+        )).toList();
+
+        for (DataEntry data : dataToRemove) {
+            removeData(data.getIdentifier(), data.getDataIdentifiers());
+        }
+    }
+
+    /**
+     * Starts to train the preset dictionary used to compress the small data, unless it is already being trained.
+     */
+    private void requestCompressionDictionaryTraining() {
+        if (_isTrainingCompressionDictionary.compareAndSet(false, true)) {
+            trainCompressionDictionaryAsync().start();
+        }
+    }
+
+    /**
+     * Builds the preset dictionary used to compress the small data from the texts of the history, once there are enough of them, and builds it again when one of these texts is removed. The passwords and credit card numbers are never part of it.
+     *
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    private Task<Void> trainCompressionDictionaryAsync() {
+        return new Task<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                try {
+                    trainCompressionDictionary();
+                } finally {
+                    _isTrainingCompressionDictionary.set(false);
+                }
+
+                // a text has been removed during the training, and it may have been sampled.
+                if (_isCompressionDictionaryStale) {
+                    requestCompressionDictionaryTraining();
+                }
+                return null;
+            }
+        }, TaskLane.MAINTENANCE);
+    }
+
+    /**
+     * Builds the preset dictionary used to compress the small data, and replaces the current one if it is missing or if one of its samples has been removed.
+     *
+     * @throws IOException
+     */
+    private void trainCompressionDictionary() throws IOException {
+        if (App.getContext().getFileStreamPath(Consts.PreviousCompressionDictionaryFileName).exists()) {
+            // the previous replacement has been interrupted before all the data were compressed again.
+            compressDataFilesAgain();
+        }
+
+        if (_compressionDictionary != null && !_isCompressionDictionaryStale) {
+            return;
+        }
+        _isCompressionDictionaryStale = false;
+
+        QueryableArrayList<DataIdentifier> textIdentifiers = new QueryableArrayList<>();
+        for (DataEntry entry : getDataEntries()) {
+            // only the texts have a sketch, and the sensitive data never have one.
+            if (entry.getSketch() != 0 && entry.getDataIdentifiers().size() == 1 && entry.getDataIdentifiers().get(0).getFormatName().equals(Consts.TextFormatName)) {
+                textIdentifiers.add(entry.getDataIdentifiers().get(0));
+            }
+        }
+
+        byte[] result = null;
+        HashSet<UUID> sampledIdentifiers = new HashSet<>();
+        if (textIdentifiers.size() >= Consts.CompressionDictionaryMinimumSampleCount) {
+            QueryableArrayList<byte[]> samples = new QueryableArrayList<>();
+            int length = 0;
+            for (DataIdentifier identifier : textIdentifiers) {
+                if (length >= Consts.CompressionDictionaryMaximumLength) {
+                    break;
+                }
+
+                byte[] data;
+                try {
+                    data = readData(identifier.getIdentifier());
+                } catch (FileNotFoundException exception) {
+                    // the data has been removed meanwhile.
+                    continue;
+                }
+
+                int sampleLength = Math.min(data.length, Math.min(Consts.CompressionDictionaryMaximumSampleLength, Consts.CompressionDictionaryMaximumLength - length));
+                samples.add(Arrays.copyOf(data, sampleLength));
+                sampledIdentifiers.add(identifier.getIdentifier());
+                length += sampleLength;
+            }
+
+            // the matches close to the data are the cheapest to encode, so the most recent texts go last.
+            ByteArrayOutputStream dictionary = new ByteArrayOutputStream(length);
+            for (int i = samples.size() - 1; i >= 0; i--) {
+                dictionary.write(samples.get(i), 0, samples.get(i).length);
+            }
+            result = dictionary.toByteArray();
+        }
+
+        if (result == null && _compressionDictionary == null) {
+            return;
+        }
+
+        replaceCompressionDictionary(result, sampledIdentifiers);
+    }
+
+    /**
+     * Replaces the preset dictionary used to compress the small data, then compresses again the data compressed with the previous one.
+     *
+     * @param dictionary The new dictionary, or null if the history does not contain enough texts anymore.
+     * @param samples    The identifiers of the data the dictionary has been trained from.
+     * @throws IOException
+     */
+    private void replaceCompressionDictionary(byte[] dictionary, HashSet<UUID> samples) throws IOException {
+        byte[] previousDictionary = _compressionDictionary;
+
+        // no data is compressed with the previous dictionary from now on, so the files written until now are all found below.
+        _compressionDictionaryLock.writeLock().lock();
+        try {
+            if (previousDictionary != null) {
+                writeEncryptedFile(Consts.PreviousCompressionDictionaryFileName, _dataEntryFilePassword, previousDictionary, null);
+                _previousCompressionDictionary = previousDictionary;
+            }
+
+            // the samples are saved last, so an interruption makes the dictionary be trained again at the next startup.
+            App.getContext().deleteFile(Consts.CompressionDictionarySamplesFileName);
+            if (dictionary == null) {
+                App.getContext().deleteFile(Consts.CompressionDictionaryFileName);
+            } else {
+                writeEncryptedFile(Consts.CompressionDictionaryFileName, _dataEntryFilePassword, dictionary, null);
+                writeEncryptedFile(Consts.CompressionDictionarySamplesFileName, _dataEntryFilePassword, DataHelper.toByteArray(samples), null);
+            }
+
+            _compressionDictionary = dictionary;
+            _compressionDictionarySamples = dictionary == null ? null : samples;
+        } finally {
+            _compressionDictionaryLock.writeLock().unlock();
+        }
+
+        if (previousDictionary != null) {
+            compressDataFilesAgain();
+        }
+    }
+
+    /**
+     * Compresses the small data files again with the current preset dictionary, then deletes the previous dictionary. A file is replaced by the history writer, and only if its data has not been removed meanwhile.
+     *
+     * @throws IOException
+     */
+    private void compressDataFilesAgain() throws IOException {
+        for (final String file : App.getContext().fileList()) {
+            if (!file.endsWith(".dat") && !file.endsWith(Consts.DeltaFileExtension)) {
+                continue;
+            }
+
+            // the compression never makes a data much larger, so a larger file has been compressed without the dictionary.
+            if (App.getContext().getFileStreamPath(file).length() > 2 * Consts.CompressionDictionaryMaximumDataLength) {
+                continue;
+            }
+
+            UUID identifier = UUID.fromString(file.substring(0, file.indexOf('.')));
+            byte[] data;
+            try {
+                data = readDataFile(file, identifier);
+            } catch (FileNotFoundException exception) {
+                continue;
+            } catch (IOException exception) {
+                // a damaged file cannot be read with any dictionary.
+                exception.printStackTrace();
+                continue;
+            }
+
+            if (data.length > Consts.CompressionDictionaryMaximumDataLength) {
+                continue;
+            }
+
+            final String temporaryFile = file + Consts.TemporaryFileExtension;
+            writeDataFile(temporaryFile, identifier, data);
+
+            _historyWriter.post(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    File target = App.getContext().getFileStreamPath(file);
+                    if (!target.exists() || !App.getContext().getFileStreamPath(temporaryFile).renameTo(target)) {
+                        App.getContext().deleteFile(temporaryFile);
+                    }
+                    return null;
+                }
+            }).await();
+        }
+
+        // the previous dictionary stays in memory, for the readers which opened a file before it was replaced.
+        App.getContext().deleteFile(Consts.PreviousCompressionDictionaryFileName);
+    }
+
+    /**
+     * Finds the older non-favorite data entries that are near-duplicates of a more recent one.
+     *
+     * @param maxCount The maximum number of data entries to return.
+     * @return The list of data entries that can be removed first when the history is full.
+     */
+    private QueryableArrayList<DataEntry> getNearDuplicatesToCollapse(int maxCount) {
+        QueryableArrayList<DataEntry> result = new QueryableArrayList<>();
+        HashSet<DataEntry> collapsed = new HashSet<>();
+        HashSet<DataEntry> visited = new HashSet<>();
+
+        // only the data entries that share a band with another one are searched, most of the time there are none.
+        HashSet<DataEntry> candidates = _sketchIndex.findNearDuplicateCandidates();
+        if (candidates.isEmpty()) {
+            return result;
+        }
+
+        // The data entries are sorted from the most recent one, so a near-duplicate that has not been visited yet is an older one.
+        for (DataEntry entry : _dataEntries) {
+            if (result.size() >= maxCount) {
+                break;
+            }
+
+            visited.add(entry);
+            if (collapsed.contains(entry) || !candidates.contains(entry)) {
+                continue;
+            }
+
+            for (DataEntry nearDuplicate : _sketchIndex.findNearDuplicates(entry)) {
+                if (result.size() < maxCount && !nearDuplicate.isFavorite() && !visited.contains(nearDuplicate) && collapsed.add(nearDuplicate)) {
+                    result.add(nearDuplicate);
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Delete the files that contain the data of the specified identifiers. A data used as the base of deltas is kept until the deltas are saved again in the background. Must be called by the history writer.
+     *
+     * @param identifiers The list of {@link DataIdentifier} that represents the data.
+     */
+    private void deleteDataFiles(List<DataIdentifier> identifiers) {
+        for (DataIdentifier dataIdentifier : identifiers) {
+            UUID uuid = dataIdentifier.getIdentifier();
+
+            if (hasDeltaDependents(uuid)) {
+                // the data saved as a delta of this one must not lose their base.
+                _orphanedDeltaBases.add(uuid);
+                _dataCache.remove(uuid);
+                requestDeltaRebase();
+            } else {
+                deleteDataFile(uuid);
+            }
+        }
+    }
+
+    /**
+     * Deletes the file of a data, then the base of this data if it is not used anymore. Must be called by the history writer.
+     *
+     * @param identifier The identifier of the data.
+     */
+    private void deleteDataFile(UUID identifier) {
+        String dataFilePath = identifier.toString() + ".dat";
+        UUID base = _deltaBases.remove(identifier);
+        if (base != null) {
+            dataFilePath = getDeltaFileName(identifier, base);
+        }
+
+        if (App.getContext().getFileStreamPath(dataFilePath).exists()) {
+            App.getContext().deleteFile(dataFilePath);
+        }
+
+        // removed after the file, so a reader that puts the data back in memory meanwhile sees that it does not exist anymore.
+        _dataCache.remove(identifier);
+        _orphanedDeltaBases.remove(identifier);
+
+        if (base != null && _orphanedDeltaBases.contains(base) && !hasDeltaDependents(base)) {
+            deleteDataFile(base);
+        }
+    }
+
+    /**
+     * Determines whether the file of a data exists, saved in full or as a delta.
+     *
+     * @param identifier The identifier of the data.
+     * @return True if the data is saved.
+     */
+    private boolean isDataSaved(UUID identifier) {
+        return _deltaBases.containsKey(identifier) || App.getContext().getFileStreamPath(identifier.toString() + ".dat").exists();
+    }
+
+    /**
+     * Determines whether some data are saved as a delta of a data.
+     *
+     * @param base The identifier of the data.
+     * @return True if at least one data uses this one as its base.
+     */
+    private boolean hasDeltaDependents(UUID base) {
+        return _deltaBases.containsValue(base);
+    }
+
+    /**
+     * Requests the data saved as a delta of a deleted data to be saved again in the background.
+     */
+    private void requestDeltaRebase() {
+        if (_isDeltaRebaseScheduled.compareAndSet(false, true)) {
+            rebaseDeltaDependentsAsync().start();
+        }
+    }
+
+    /**
+     * Saves again the data which are a delta of a deleted data, against the nearest base which is not deleted when it is possible, or as a full data otherwise. Once a deleted data has no delta anymore, its file is deleted.
+     * <p>
+     * The data are read and saved off the history writer, which only switches each data to its new file. A data deleted or saved again meanwhile is left as is, and the new file is deleted.
+     *
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    private Task<Void> rebaseDeltaDependentsAsync() {
+        return new Task<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                // a request received from now on starts another rebase, which sees the data deleted meanwhile.
+                _isDeltaRebaseScheduled.set(false);
+
+                for (UUID base : new ArrayList<>(_orphanedDeltaBases)) {
+                    for (Map.Entry<UUID, UUID> deltaBase : _deltaBases.entrySet()) {
+                        if (deltaBase.getValue().equals(base)) {
+                            try {
+                                rebaseDeltaDependent(deltaBase.getKey(), base);
+                            } catch (IOException exception) {
+                                // the data may have been deleted meanwhile.
+                                exception.printStackTrace();
                             }
                         }
-                ));
+                    }
+                }
+                return null;
+            }
+        }, TaskLane.MAINTENANCE);
+    }
+
+    /**
+     * Saves again a data which is a delta of a deleted data.
+     *
+     * @param dependent The identifier of the data.
+     * @param base      The identifier of the deleted data.
+     * @throws IOException
+     */
+    private void rebaseDeltaDependent(final UUID dependent, final UUID base) throws IOException {
+        UUID nearestBase = _deltaBases.get(base);
+        while (nearestBase != null && _orphanedDeltaBases.contains(nearestBase)) {
+            nearestBase = _deltaBases.get(nearestBase);
+        }
+
+        byte[] data = readData(dependent);
+        byte[] delta = null;
+        if (nearestBase != null) {
+            try {
+                delta = BinaryDelta.create(readData(nearestBase), data);
+            } catch (FileNotFoundException exception) {
+                // the nearest base has been deleted meanwhile, so the data is saved in full.
+            }
+        }
+
+        final UUID newBase = delta != null && delta.length <= data.length / 2 ? nearestBase : null;
+        final String newFilePath = newBase == null ? dependent.toString() + ".dat" : getDeltaFileName(dependent, newBase);
+        writeDataFile(newFilePath, dependent, newBase == null ? data : delta);
+
+        _historyWriter.post(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                if (!base.equals(_deltaBases.get(dependent))) {
+                    App.getContext().deleteFile(newFilePath);
+                    return null;
+                }
+
+                if (newBase != null && !isDataSaved(newBase)) {
+                    // the new base has been deleted meanwhile, the data is saved again by the next rebase.
+                    App.getContext().deleteFile(newFilePath);
+                    requestDeltaRebase();
+                    return null;
+                }
 
-                for (DataEntry data : dataToRemove) {
-                    removeDataAsync(data.getIdentifier(), data.getDataIdentifiers(), false).await();
+                if (newBase == null) {
+                    _deltaBases.remove(dependent);
+                } else {
+                    _deltaBases.put(dependent, newBase);
                 }
+                App.getContext().deleteFile(getDeltaFileName(dependent, base));
 
-                saveDataEntryFileAsync().await();
+                if (_orphanedDeltaBases.contains(base) && !hasDeltaDependents(base)) {
+                    deleteDataFile(base);
+                }
                 return null;
             }
-        });
+        }).await();
+    }
+
+    /**
+     * Finds the deleted data which are still kept as the base of deltas, for example after the application stopped before saving the deltas again, and saves the deltas again in the background.
+     */
+    private void findOrphanedDeltaBases() {
+        HashSet<UUID> identifiers = new HashSet<>();
+        for (DataEntry entry : _dataEntries) {
+            for (DataIdentifier identifier : entry.getDataIdentifiers()) {
+                identifiers.add(identifier.getIdentifier());
+            }
+        }
+
+        for (UUID base : _deltaBases.values()) {
+            if (!identifiers.contains(base)) {
+                _orphanedDeltaBases.add(base);
+            }
+        }
+
+        if (!_orphanedDeltaBases.isEmpty()) {
+            requestDeltaRebase();
+        }
+    }
+
+    /**
+     * Finds the most recent data that can be used as a base for a delta with a text.
+     *
+     * @param sketch The {@link SimHash} sketch of the text.
+     * @return The identifier of the text data of the most recent similar data entry, or null if there is none.
+     */
+    private UUID findDeltaBase(long sketch) {
+        DataEntry mostRecentEntry = null;
+        UUID result = null;
+
+        for (DataEntry entry : _sketchIndex.find(sketch)) {
+            if (mostRecentEntry != null && !entry.getDate().after(mostRecentEntry.getDate())) {
+                continue;
+            }
+
+            DataIdentifier textIdentifier = entry.getDataIdentifiers().firstOrDefault(
+                    new Predicate<DataIdentifier>() {
+                        @Override
+                        public boolean apply(DataIdentifier identifier) {
+                            return identifier.getFormatName().equals(Consts.TextFormatName);
+                        }
+                    }
+            );
+
+            if (textIdentifier != null && getDeltaChainLength(textIdentifier.getIdentifier()) < Consts.DeltaMaximumChainLength) {
+                mostRecentEntry = entry;
+                result = textIdentifier.getIdentifier();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Gets the number of deltas to apply to rebuild a data.
+     *
+     * @param identifier The identifier of the data.
+     * @return Zero if the data is saved in full, otherwise the length of its chain of deltas.
+     */
+    private int getDeltaChainLength(UUID identifier) {
+        int length = 0;
+        UUID base = _deltaBases.get(identifier);
+
+        while (base != null) {
+            length++;
+            base = _deltaBases.get(base);
+        }
+
+        return length;
+    }
+
+    /**
+     * Reads and decrypts the data of a clipboard data format, by applying its chain of deltas if needed.
+     *
+     * @param identifier The identifier of the data.
+     * @return The data.
+     * @throws IOException
+     */
+    private byte[] readData(UUID identifier) throws IOException {
+        while (true) {
+            UUID base = _deltaBases.get(identifier);
+
+            try {
+                if (base == null) {
+                    return readDataFile(identifier.toString() + ".dat", identifier);
+                }
+
+                return BinaryDelta.apply(readData(base), readDataFile(getDeltaFileName(identifier, base), identifier));
+            } catch (FileNotFoundException exception) {
+                // the history writer may have saved the data against another base meanwhile, then its file has another name.
+                UUID newBase = _deltaBases.get(identifier);
+                if (newBase == null ? base == null : newBase.equals(base)) {
+                    throw exception;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the data of a clipboard data format from memory, or from its files and keeps it in memory if it is not too large.
+     *
+     * @param identifier The identifier of the data.
+     * @return The data. Must not be modified.
+     * @throws IOException
+     */
+    private byte[] readCachedData(UUID identifier) throws IOException {
+        byte[] data = _dataCache.get(identifier);
+        if (data == null) {
+            data = readData(identifier);
+            cacheData(identifier, data);
+        }
+
+        return data;
+    }
+
+    /**
+     * Keeps the decrypted data of a clipboard data format in memory, unless it is too large.
+     *
+     * @param identifier The identifier of the data.
+     * @param data       The data.
+     */
+    private void cacheData(UUID identifier, byte[] data) {
+        if (data.length <= getDataCacheMaximumDataLength()) {
+            _dataCache.put(identifier, data);
+
+            // the data may have been deleted while it was read. The history writer deletes the files before removing the data from memory, so one of both removes it.
+            if (_orphanedDeltaBases.contains(identifier) || !isDataSaved(identifier)) {
+                _dataCache.remove(identifier);
+            }
+        }
+    }
+
+    /**
+     * Gets the cache of the decrypted data, so the tests can check and change its bound.
+     *
+     * @return The {@link LruCache} of the data, by identifier.
+     */
+    LruCache<UUID, byte[]> getDataCache() {
+        return _dataCache;
+    }
+
+    /**
+     * Gets the size of the largest data kept in memory. A larger data would evict most of the others.
+     *
+     * @return The size in bytes.
+     */
+    int getDataCacheMaximumDataLength() {
+        return Math.min(Consts.DataCacheMaximumDataLength, _dataCache.maxSize() / 4);
+    }
+
+    /**
+     * Requests the texts of the most recent and favorite data entries to be read in the background, so copying them again does not wait for the storage.
+     */
+    private void requestDataPrefetch() {
+        if (_isDataPrefetchScheduled.compareAndSet(false, true)) {
+            prefetchDataAsync().start();
+        }
+    }
+
+    /**
+     * Reads the texts of the {@link Consts#DataPrefetchCount} most recent data entries and of as many favorites, and keeps them in memory. The passwords, the credit card numbers and the large texts are never read in advance.
+     *
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    private Task<Void> prefetchDataAsync() {
+        return new Task<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                // a request received from now on starts another prefetch, which sees the data entries added meanwhile.
+                _isDataPrefetchScheduled.set(false);
+
+                int recentCount = 0;
+                int favoriteCount = 0;
+                for (DataEntry entry : getDataEntries()) {
+                    if (recentCount >= Consts.DataPrefetchCount && favoriteCount >= Consts.DataPrefetchCount) {
+                        break;
+                    }
+
+                    // the files, the pictures, the sensitive data and the large texts do not count in the prefetched data entries.
+                    if (!canPrefetchData(entry)) {
+                        continue;
+                    }
+
+                    if (entry.isFavorite()) {
+                        if (favoriteCount >= Consts.DataPrefetchCount) {
+                            continue;
+                        }
+                        favoriteCount++;
+                    } else {
+                        if (recentCount >= Consts.DataPrefetchCount) {
+                            continue;
+                        }
+                        recentCount++;
+                    }
+
+                    for (DataIdentifier identifier : entry.getDataIdentifiers()) {
+                        if (identifier.getFormatName().equals(Consts.TextFormatName)) {
+                            try {
+                                readCachedData(identifier.getIdentifier());
+                            } catch (IOException exception) {
+                                // the data entry may have been removed meanwhile.
+                                exception.printStackTrace();
+                            }
+                        }
+                    }
+                }
+                return null;
+            }
+        }, TaskLane.MAINTENANCE);
+    }
+
+    /**
+     * Determines whether the text of a data entry can be read in advance: a text, a link or a color that is not a password or a credit card number, and whose file is small enough to be kept in memory.
+     *
+     * @param entry The data entry.
+     * @return True if the text of the data entry can be read in advance.
+     * @throws IOException
+     * @throws ClassNotFoundException
+     */
+    private boolean canPrefetchData(DataEntry entry) throws IOException, ClassNotFoundException {
+        int type = entry.getThumbnail().getType();
+        if (type != ThumbnailDataType.STRING && type != ThumbnailDataType.LINK && type != ThumbnailDataType.COLOR) {
+            return false;
+        }
+
+        // a text with a sketch is never sensitive, so only the short texts and the sensitive data decode their thumbnail, which masks the sensitive data.
+        if (entry.getSketch() == 0 && type == ThumbnailDataType.STRING && DataHelper.fromBase64(entry.getThumbnail().getValue(), String.class).contains(Consts.PasswordMask)) {
+            return false;
+        }
+
+        for (DataIdentifier identifier : entry.getDataIdentifiers()) {
+            // the compressed file is never much larger than its data, so a larger file holds a data that would not be kept in memory.
+            if (identifier.getFormatName().equals(Consts.TextFormatName) && App.getContext().getFileStreamPath(identifier.getIdentifier().toString() + ".dat").length() > getDataCacheMaximumDataLength()) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads and decrypts a file that contains a data from the clipboard.
+     *
+     * @param filePath   The name of the file.
+     * @param identifier The identifier of the data, used to decrypt the file.
+     * @return The content of the file.
+     * @throws IOException
+     */
+    private byte[] readDataFile(String filePath, UUID identifier) throws IOException {
+        return readEncryptedFile(filePath, SecurityHelper.encryptString(identifier.toString()));
+    }
+
+    /**
+     * Compresses, encrypts and saves a data from the clipboard into a file. The small data are compressed with the dictionary trained from the history.
+     *
+     * @param filePath   The name of the file.
+     * @param identifier The identifier of the data, used to encrypt the file.
+     * @param data       The data to save.
+     * @throws IOException
+     */
+    private void writeDataFile(String filePath, UUID identifier, byte[] data) throws IOException {
+        String password = SecurityHelper.encryptString(identifier.toString());
+        if (data.length > Consts.CompressionDictionaryMaximumDataLength) {
+            writeEncryptedFile(filePath, password, data, null);
+            return;
+        }
+
+        _compressionDictionaryLock.readLock().lock();
+        try {
+            writeEncryptedFile(filePath, password, data, _compressionDictionary);
+        } finally {
+            _compressionDictionaryLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads, decrypts and decompresses a file from the internal storage. The files saved before the compression existed are read as is. The file is opened before the dictionaries are read, so a file compressed again meanwhile is always readable with one of them.
+     *
+     * @param filePath The name of the file.
+     * @param password The password used to decrypt the file.
+     * @return The content of the file.
+     * @throws IOException
+     */
+    private byte[] readEncryptedFile(String filePath, String password) throws IOException {
+        try (FileInputStream fileStream = App.getContext().openFileInput(filePath);
+             CompressedInputStream compressedStream = new CompressedInputStream(new AesInputStream(fileStream, password, getFileKey(password)), _compressionDictionary, _previousCompressionDictionary)) {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            byte[] buffer = new byte[Consts.ClipboardDataBufferSize];
+            int readLength;
+
+            while ((readLength = compressedStream.read(buffer, 0, buffer.length)) != -1) {
+                result.write(buffer, 0, readLength);
+            }
+
+            return result.toByteArray();
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Compresses, encrypts and saves a file on the internal storage.
+     *
+     * @param filePath   The name of the file.
+     * @param password   The password used to encrypt the file.
+     * @param data       The data to save.
+     * @param dictionary The preset dictionary used to compress the data. Can be null.
+     * @throws IOException
+     */
+    private void writeEncryptedFile(String filePath, String password, byte[] data, byte[] dictionary) throws IOException {
+        try (FileOutputStream fileStream = App.getContext().openFileOutput(filePath, Context.MODE_PRIVATE);
+             CompressedOutputStream compressedStream = new CompressedOutputStream(new AesOutputStream(fileStream, password, getFileKey(password)), dictionary)) {
+            compressedStream.write(data, 0, data.length);
+        } catch (GeneralSecurityException exception) {
+            throw new IOException(exception);
+        }
+    }
+
+    /**
+     * Gets the key used to encrypt a file. The key of the history files is derived once at startup, the key of a data file is derived again for each file.
+     *
+     * @param password The password used to encrypt the file.
+     * @return The key.
+     * @throws GeneralSecurityException
+     */
+    private byte[] getFileKey(String password) throws GeneralSecurityException {
+        if (password.equals(_dataEntryFilePassword)) {
+            return _dataEntryFileKey;
+        }
+
+        return SecurityHelper.getSaltKeys(password).getEncoded();
+    }
+
+    /**
+     * Gets the name of the file that contains a data saved as a delta.
+     *
+     * @param identifier The identifier of the data.
+     * @param base       The identifier of the base data.
+     * @return The name of the file.
+     */
+    private String getDeltaFileName(UUID identifier, UUID base) {
+        return identifier.toString() + "." + base.toString() + Consts.DeltaFileExtension;
     }
 
     /**
      * Remove all data from the software cache.
      */
-    private void clearCache() {
-        for (String file : App.getContext().fileList()) {
-            if (!file.equals(Consts.CacheFileName)) {
-                App.getContext().deleteFile(file);
+    private synchronized void clearCache() {
+        _deltaBases.clear();
+        _orphanedDeltaBases.clear();
+        _dataCache.evictAll();
+        _isDataEntryFileCorrupted = false;
+        _isCacheFileCorrupted = false;
+
+        // the files being compressed with the dictionary are finished before it is removed, and the next ones are compressed without it.
+        _compressionDictionaryLock.writeLock().lock();
+        try {
+            _compressionDictionary = null;
+            _previousCompressionDictionary = null;
+            _compressionDictionarySamples = null;
+            _isCompressionDictionaryStale = false;
+
+            for (String file : App.getContext().fileList()) {
+                // the sequence numbers must never be reused while the cache exists.
+                if (!file.equals(Consts.CacheFileName) && !file.equals(Consts.SequenceFileName)) {
+                    App.getContext().deleteFile(file);
+                }
             }
+        } finally {
+            _compressionDictionaryLock.writeLock().unlock();
         }
     }
 
@@ -611,22 +2491,69 @@ public class DataService implements Service {
         return thumbnail;
     }
 
+    /**
+     * Generate a {@link Thumbnail} from binary clipboard's data, like images or files.
+     *
+     * @param text The textual representation of the data, usually the name of the files.
+     * @param uris The list of {@link Uri} of the binary content.
+     * @return A {@link Thumbnail} that represent a small part of the clipboard's data
+     */
+    private Thumbnail generateThumbnail(String text, QueryableArrayList<Uri> uris) throws IOException {
+        ContentResolver resolver = App.getContext().getContentResolver();
+        Thumbnail thumbnail = new Thumbnail();
+
+        if (uris.size() == 1 && BitmapHelper.isImage(resolver, uris.first())) {
+            try {
+                String value = BitmapHelper.toBase64Thumbnail(resolver, uris.first(), Consts.ThumbnailMaxSize);
+                if (value != null) {
+                    thumbnail.setType(ThumbnailDataType.BITMAP);
+                    thumbnail.setValue(value);
+                    return thumbnail;
+                }
+            } catch (IOException | OutOfMemoryError exception) {
+                exception.printStackTrace();
+            }
+        }
+
+        if (text.length() > 253) {
+            text = text.substring(0, Math.min(text.length(), 250));
+            text += "...";
+        }
+
+        thumbnail.setType(ThumbnailDataType.FILE);
+        thumbnail.setValue(DataHelper.toBase64(text));
+        return thumbnail;
+    }
+
     /**
      * Generate a new unique {@link UUID} not used by the service
      *
      * @return The new {@link UUID}
      */
     private UUID generateNewUUID() {
+        return generateNewUUID(new QueryableArrayList<DataIdentifier>());
+    }
+
+    /**
+     * Generate a new unique {@link UUID} not used by the service, neither by the specified identifiers which are not in the service yet.
+     *
+     * @param pendingIdentifiers The identifiers that have been generated but not added to the service yet.
+     * @return The new {@link UUID}
+     */
+    private UUID generateNewUUID(QueryableArrayList<DataIdentifier> pendingIdentifiers) {
         UUID uuid;
         String uuidString;
         boolean match = false;
 
+        // the identifiers are generated outside of the history writer, so they are compared with the published data entries, read in place.
+        Query<DataEntry> dataEntries = getDataEntries().asQuery();
+
         do {
             uuid = UUID.randomUUID();
             uuidString = uuid.toString();
 
             final String uuidStringFinal = uuidString;
-            match = getDataEntries().any(
+            match = dataEntries.any(
                     new Predicate<DataEntry>() {
                         @Override
                         public boolean apply(DataEntry dataEntry) {
@@ -639,7 +2566,12 @@ public class DataService implements Service {
                                     });
                         }
                     }
-            );
+            ) || pendingIdentifiers.any(new Predicate<DataIdentifier>() {
+                @Override
+                public boolean apply(DataIdentifier identifier) {
+                    return identifier.getIdentifier().toString().equals(uuidStringFinal);
+                }
+            });
         }
         while (match);
 
@@ -647,4 +2579,76 @@ public class DataService implements Service {
     }
 
     //endregion
+
+    /**
+     * Reads the data of a clipboard data format from its file, and keeps it in memory once the end of the stream is reached. The data is only streamed once it is larger than the limit of the cache, or if a part of it is skipped.
+     */
+    private final class DataCachingInputStream extends FilterInputStream {
+        private final UUID _identifier;
+        private ByteArrayOutputStream _data = new ByteArrayOutputStream();
+
+        DataCachingInputStream(UUID identifier, InputStream baseStream) {
+            super(baseStream);
+            _identifier = identifier;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int value = super.read();
+            if (value == -1) {
+                onEndOfStream();
+            } else if (_data != null) {
+                _data.write(value);
+                ensureDataIsCacheable();
+            }
+
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int readLength = super.read(buffer, offset, length);
+            if (readLength == -1) {
+                onEndOfStream();
+            } else if (_data != null) {
+                _data.write(buffer, offset, readLength);
+                ensureDataIsCacheable();
+            }
+
+            return readLength;
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            _data = null;
+            return super.skip(count);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            throw new IOException("Mark and reset are not supported.");
+        }
+
+        private void ensureDataIsCacheable() {
+            if (_data.size() > getDataCacheMaximumDataLength()) {
+                _data = null;
+            }
+        }
+
+        private void onEndOfStream() {
+            if (_data != null) {
+                cacheData(_identifier, _data.toByteArray());
+                _data = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.services;
+
+import com.etiennebaudoux.clipboardzanager.App;
+import com.etiennebaudoux.clipboardzanager.R;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Consts;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.LinkMetadataCache;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.StringUtils;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SystemInfoHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationTokenSource;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskScheduler;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Provides a set of functions designed to retrieve the title of the copied links in the background, so the capture of a link is as fast as the capture of a text.
+ */
+public class LinkPreviewService implements Service {
+    //region Fields
+
+    private final HashMap<String, QueryableArrayList<UUID>> _pendingRequests = new HashMap<>();
+    private Executor _executor;
+    private LinkMetadataCache _metadataCache;
+
+    //endregion
+
+    //region Properties
+
+    //region MetadataCache
+
+    /**
+     * Gets the cache of the metadata of the links already retrieved.
+     *
+     * @return The {@link LinkMetadataCache}, in memory and on the disk.
+     */
+    public LinkMetadataCache getMetadataCache() {
+        return _metadataCache;
+    }
+
+    //endregion
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public void initialize(ServiceSettingProvider settingProvider) {
+        // the previews have their own lane, so they never delay the capture of the clipboard and never wait behind a long synchronization.
+        _executor = TaskScheduler.getDefault().getExecutor(TaskLane.PREVIEW);
+
+        String password = SecurityHelper.encryptString(App.getContext().getString(R.string.DropBoxAppKey) + App.getContext().getString(R.string.OneDriveClientId));
+        _metadataCache = new LinkMetadataCache(new File(App.getContext().getCacheDir(), Consts.LinkMetadataFolderName), password, Consts.LinkMetadataMemoryCapacity, Consts.LinkMetadataDiskCapacity);
+    }
+
+    @Override
+    public void reset() {
+        synchronized (_pendingRequests) {
+            _pendingRequests.clear();
+        }
+    }
+
+    /**
+     * Retrieves the title of a link in the background, then updates the thumbnail of the data entry through the {@link DataService}. When the same link is already being retrieved, the data entry simply waits for the same result. The page is downloaded only if the title is not in cache or expired.
+     *
+     * @param dataEntryIdentifier The {@link UUID} that represents the data entry.
+     * @param uri                 The uri of the link.
+     */
+    public void requestTitle(UUID dataEntryIdentifier, final String uri) {
+        Requires.notNull(dataEntryIdentifier, "dataEntryIdentifier");
+        Requires.notNullOrWhiteSpace(uri, "uri");
+
+        final String key = LinkMetadataCache.normalizeUri(uri);
+        synchronized (_pendingRequests) {
+            QueryableArrayList<UUID> dataEntryIdentifiers = _pendingRequests.get(key);
+            if (dataEntryIdentifiers != null) {
+                dataEntryIdentifiers.add(dataEntryIdentifier);
+                return;
+            }
+
+            dataEntryIdentifiers = new QueryableArrayList<>();
+            dataEntryIdentifiers.add(dataEntryIdentifier);
+            _pendingRequests.put(key, dataEntryIdentifiers);
+        }
+
+        _executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                // the read timeout does not limit a server that sends the page very slowly, so the whole request has a deadline. It is released as soon as the request is finished.
+                String title;
+                try (CancellationTokenSource deadline = new CancellationTokenSource(Consts.LinkPreviewDeadlineMilliseconds)) {
+                    title = SystemInfoHelper.retrieveWebPageTitle(uri, _metadataCache, Consts.LinkPreviewTimeoutMilliseconds, deadline.getToken());
+                }
+                onTitleRetrieved(key, title);
+            }
+        });
+    }
+
+    /**
+     * Determines whether the title of a link is being retrieved.
+     *
+     * @param uri The uri of the link.
+     * @return True if a request for this link is pending.
+     */
+    public boolean isPending(String uri) {
+        synchronized (_pendingRequests) {
+            return _pendingRequests.containsKey(LinkMetadataCache.normalizeUri(uri));
+        }
+    }
+
+    private void onTitleRetrieved(String key, String title) {
+        QueryableArrayList<UUID> dataEntryIdentifiers;
+        synchronized (_pendingRequests) {
+            dataEntryIdentifiers = _pendingRequests.remove(key);
+        }
+
+        if (dataEntryIdentifiers == null || StringUtils.isEmptyOrWhiteSpace(title)) {
+            return;
+        }
+
+        DataService dataService = ServiceLocator.getService(DataService.class);
+        for (UUID dataEntryIdentifier : dataEntryIdentifiers) {
+            try {
+                dataService.setLinkTitle(dataEntryIdentifier, title);
+            } catch (Exception exception) {
+                exception.printStackTrace();
+            }
+        }
+    }
+
+    //endregion
+}
@@ -1,15 +1,21 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.services;
 
-import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Provides a set of functions designed to manage the services.
+ * <p>
+ * Getting a service that is already initialized does not take any lock. A service is instantiated and initialized once, even when several threads ask for it at the same time.
  */
 public final class ServiceLocator {
     //region Fields
 
-    private final static QueryableArrayList<Service> _services = new QueryableArrayList<>();
+    private final static ConcurrentHashMap<Class<?>, ServiceEntry> _services = new ConcurrentHashMap<>();
 
     //endregion
 
@@ -49,34 +55,100 @@ public final class ServiceLocator {
     public static <T extends Service> T getService(Class<T> type) {
         Requires.notNull(getSettingProvider(), "settingProvider");
 
-        T service = null;
-        QueryableArrayList<T> serviceFound = _services.ofType(type);
-
-        if (serviceFound.any()) {
-            service = serviceFound.single();
-        } else {
-            try {
-                service = type.newInstance();
-                Requires.notNull(service, "service");
-
-                _services.add(service);
-                service.initialize(getSettingProvider());
-            } catch (InstantiationException | IllegalAccessException e) {
-                e.printStackTrace();
+        ServiceEntry entry = _services.get(type);
+        if (entry == null) {
+            ServiceEntry newEntry = new ServiceEntry();
+            entry = _services.putIfAbsent(type, newEntry);
+            if (entry == null) {
+                entry = newEntry;
             }
         }
 
-        return service;
+        Service service = entry.service;
+        if (service == null || !entry.isInitialized) {
+            service = createService(type, entry);
+        }
+
+        return type.cast(service);
+    }
+
+    /**
+     * Instantiates and initializes the services in the background, so they are ready when they are used for the first time.
+     *
+     * @param types The service types to initialize.
+     * @return A {@link Task} representing the asynchronous operation.
+     */
+    @SafeVarargs
+    public static Task<Void> warmUp(final Class<? extends Service>... types) {
+        Requires.notNull(types, "types");
+
+        Task<Void> task = new Task<>(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                for (Class<? extends Service> type : types) {
+                    getService(type);
+                }
+                return null;
+            }
+        }, TaskLane.UI);
+        task.start();
+        return task;
     }
 
     /**
      * Reset the state of all services. This method must be used in the unit test.
      */
     public static void resetAll() {
-        for (Service service : _services) {
-            service.reset();
+        for (ServiceEntry entry : _services.values()) {
+            Service service = entry.service;
+            if (service != null) {
+                service.reset();
+            }
+        }
+    }
+
+    /**
+     * Instantiates and initializes a service, or waits for the thread that is initializing it.
+     *
+     * @param type  The service type to create.
+     * @param entry The registry entry of the service.
+     * @return The instance of the service.
+     */
+    private static Service createService(Class<? extends Service> type, ServiceEntry entry) {
+        synchronized (entry) {
+            // the thread that initializes the service gets the instance while its initialization calls other services which use it, like before.
+            if (entry.service != null) {
+                return entry.service;
+            }
+
+            try {
+                Service service = type.newInstance();
+                Requires.notNull(service, "service");
+
+                entry.service = service;
+                try {
+                    service.initialize(getSettingProvider());
+                } catch (RuntimeException e) {
+                    // the next call tries again instead of getting a service that is not initialized.
+                    entry.service = null;
+                    throw e;
+                }
+                entry.isInitialized = true;
+            } catch (InstantiationException | IllegalAccessException e) {
+                e.printStackTrace();
+            }
+
+            return entry.service;
         }
     }
 
     //endregion
+
+    /**
+     * Represents a service in the registry.
+     */
+    private static final class ServiceEntry {
+        volatile Service service;
+        volatile boolean isInitialized;
+    }
 }
@@ -0,0 +1,208 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.services;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents an immutable snapshot of the settings used by the services, parsed once from their text values.
+ */
+public final class Settings {
+    //region Fields
+
+    public static final String KeepDataAfterReboot = "KeepDataAfterReboot";
+    public static final String AvoidPasswords = "AvoidPasswords";
+    public static final String AvoidCreditCard = "AvoidCreditCard";
+    public static final String MaxDataToKeep = "MaxDataToKeep";
+    public static final String DateExpireLimit = "DateExpireLimit";
+    public static final String CollapseNearDuplicates = "CollapseNearDuplicates";
+    public static final String DeltaEncodeClipboardData = "DeltaEncodeClipboardData";
+
+    private static final String[] _names = new String[]{KeepDataAfterReboot, AvoidPasswords, AvoidCreditCard, MaxDataToKeep, DateExpireLimit, CollapseNearDuplicates, DeltaEncodeClipboardData};
+    private static final int DefaultMaxDataToKeep = 25;
+    private static final int DefaultDateExpireLimit = 30;
+
+    private final boolean _keepDataAfterReboot;
+    private final boolean _avoidPasswords;
+    private final boolean _avoidCreditCard;
+    private final int _maxDataToKeep;
+    private final int _dateExpireLimit;
+    private final boolean _collapseNearDuplicates;
+    private final boolean _deltaEncodeClipboardData;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link Settings} class.
+     *
+     * @param settingProvider The provider of the text values of the settings.
+     */
+    private Settings(ServiceSettingProvider settingProvider) {
+        _keepDataAfterReboot = Boolean.parseBoolean(settingProvider.getSetting(KeepDataAfterReboot));
+        _avoidPasswords = Boolean.parseBoolean(settingProvider.getSetting(AvoidPasswords));
+        _avoidCreditCard = Boolean.parseBoolean(settingProvider.getSetting(AvoidCreditCard));
+        _maxDataToKeep = parseInt(settingProvider.getSetting(MaxDataToKeep), DefaultMaxDataToKeep);
+        _dateExpireLimit = parseInt(settingProvider.getSetting(DateExpireLimit), DefaultDateExpireLimit);
+        _collapseNearDuplicates = Boolean.parseBoolean(settingProvider.getSetting(CollapseNearDuplicates));
+        _deltaEncodeClipboardData = Boolean.parseBoolean(settingProvider.getSetting(DeltaEncodeClipboardData));
+    }
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets a value that defines whether the history is kept after a reboot of the device.
+     *
+     * @return True if the history is kept.
+     */
+    public boolean isKeepDataAfterRebootEnabled() {
+        return _keepDataAfterReboot;
+    }
+
+    /**
+     * Gets a value that defines whether the passwords are ignored unless they are copied twice.
+     *
+     * @return True if the passwords are avoided.
+     */
+    public boolean isAvoidPasswordsEnabled() {
+        return _avoidPasswords;
+    }
+
+    /**
+     * Gets a value that defines whether the credit card numbers are ignored unless they are copied twice.
+     *
+     * @return True if the credit card numbers are avoided.
+     */
+    public boolean isAvoidCreditCardEnabled() {
+        return _avoidCreditCard;
+    }
+
+    /**
+     * Gets the maximum number of data entries kept in the history, favorites excluded.
+     *
+     * @return The maximum number of data entries.
+     */
+    public int getMaxDataToKeep() {
+        return _maxDataToKeep;
+    }
+
+    /**
+     * Gets the number of days after which a data entry is removed from the history.
+     *
+     * @return The number of days.
+     */
+    public int getDateExpireLimit() {
+        return _dateExpireLimit;
+    }
+
+    /**
+     * Gets a value that defines whether the near-duplicates are removed first when the history is full.
+     *
+     * @return True if the near-duplicates are collapsed.
+     */
+    public boolean isCollapseNearDuplicatesEnabled() {
+        return _collapseNearDuplicates;
+    }
+
+    /**
+     * Gets a value that defines whether a text can be saved as a delta against a similar text of the history.
+     *
+     * @return True if the delta encoding is enabled.
+     */
+    public boolean isDeltaEncodeClipboardDataEnabled() {
+        return _deltaEncodeClipboardData;
+    }
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Reads and parses the settings.
+     *
+     * @param settingProvider The provider of the text values of the settings.
+     * @return A new {@link Settings}.
+     */
+    public static Settings read(ServiceSettingProvider settingProvider) {
+        Requires.notNull(settingProvider, "settingProvider");
+        return new Settings(settingProvider);
+    }
+
+    /**
+     * Determines whether a setting is part of the snapshot.
+     *
+     * @param settingName The name of the setting.
+     * @return True if a change of this setting changes the snapshot.
+     */
+    public static boolean contains(String settingName) {
+        for (String name : _names) {
+            if (name.equals(settingName)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Gets the names of the settings that are part of the snapshot.
+     *
+     * @return An array of setting names.
+     */
+    public static String[] getNames() {
+        return _names.clone();
+    }
+
+    /**
+     * Compares this snapshot to a previous one.
+     *
+     * @param previous The previous snapshot.
+     * @return The names of the settings whose value is different.
+     */
+    public List<String> getChangedSettings(Settings previous) {
+        Requires.notNull(previous, "previous");
+
+        ArrayList<String> result = new ArrayList<>();
+        if (_keepDataAfterReboot != previous._keepDataAfterReboot) {
+            result.add(KeepDataAfterReboot);
+        }
+        if (_avoidPasswords != previous._avoidPasswords) {
+            result.add(AvoidPasswords);
+        }
+        if (_avoidCreditCard != previous._avoidCreditCard) {
+            result.add(AvoidCreditCard);
+        }
+        if (_maxDataToKeep != previous._maxDataToKeep) {
+            result.add(MaxDataToKeep);
+        }
+        if (_dateExpireLimit != previous._dateExpireLimit) {
+            result.add(DateExpireLimit);
+        }
+        if (_collapseNearDuplicates != previous._collapseNearDuplicates) {
+            result.add(CollapseNearDuplicates);
+        }
+        if (_deltaEncodeClipboardData != previous._deltaEncodeClipboardData) {
+            result.add(DeltaEncodeClipboardData);
+        }
+
+        return result;
+    }
+
+    private static int parseInt(String value, int defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException exception) {
+            return defaultValue;
+        }
+    }
+
+    //endregion
+}
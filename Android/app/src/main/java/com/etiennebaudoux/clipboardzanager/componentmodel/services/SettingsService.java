@@ -0,0 +1,123 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.services;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.Event;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventHandler;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.SettingChangedEventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskLane;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.TaskScheduler;
+
+import java.util.HashMap;
+
+/**
+ * Provides a service that keeps a typed snapshot of the settings, so the other services read plain fields instead of parsing the settings on each use.
+ * <p>
+ * The snapshot is rebuilt when a setting changes, and the handlers subscribed to this setting are called on the {@link TaskLane#UI} lane.
+ */
+public class SettingsService implements Service {
+    //region Fields
+
+    private final Object _refreshLock = new Object();
+    private final HashMap<String, Event<SettingChangedEventArgs>> _settingChanged = new HashMap<>();
+    private ServiceSettingProvider _settingProvider;
+    private volatile Settings _settings;
+
+    //endregion
+
+    //region Constructors
+
+    /**
+     * Initialize a new instance of the {@link SettingsService} class.
+     */
+    public SettingsService() {
+        // the events are created once, so they can be read from any thread without lock.
+        for (String settingName : Settings.getNames()) {
+            _settingChanged.put(settingName, new Event<SettingChangedEventArgs>(TaskScheduler.getDefault().getExecutor(TaskLane.UI)));
+        }
+    }
+
+    //endregion
+
+    //region Properties
+
+    /**
+     * Gets the current snapshot of the settings.
+     *
+     * @return The {@link Settings}.
+     */
+    public Settings getSettings() {
+        return _settings;
+    }
+
+    //endregion
+
+    //region Methods
+
+    @Override
+    public void initialize(ServiceSettingProvider settingProvider) {
+        _settingProvider = settingProvider;
+        _settings = Settings.read(settingProvider);
+    }
+
+    @Override
+    public void reset() {
+        refresh();
+    }
+
+    /**
+     * Adds a handler that is called when a setting changes.
+     *
+     * @param settingName The name of the setting, one of the constants of {@link Settings}.
+     * @param handler     The handler to be added.
+     */
+    public void addSettingChangedHandler(String settingName, EventHandler<SettingChangedEventArgs> handler) {
+        getSettingChangedEvent(settingName).addHandler(handler);
+    }
+
+    /**
+     * Removes a handler added with {@link SettingsService#addSettingChangedHandler(String, EventHandler)}.
+     *
+     * @param settingName The name of the setting.
+     * @param handler     The handler to be removed.
+     */
+    public void removeSettingChangedHandler(String settingName, EventHandler<SettingChangedEventArgs> handler) {
+        getSettingChangedEvent(settingName).removeHandler(handler);
+    }
+
+    /**
+     * Rebuilds the snapshot after a setting changed. The settings that are not part of the snapshot are ignored.
+     *
+     * @param settingName The name of the setting that changed, or null if it is unknown.
+     */
+    public void onSettingChanged(String settingName) {
+        if (settingName == null || Settings.contains(settingName)) {
+            refresh();
+        }
+    }
+
+    /**
+     * Rebuilds the snapshot from the setting provider, and notifies the handlers of the settings whose value changed.
+     */
+    public void refresh() {
+        Settings settings;
+        Iterable<String> changedSettings;
+
+        synchronized (_refreshLock) {
+            settings = Settings.read(_settingProvider);
+            changedSettings = settings.getChangedSettings(_settings);
+            _settings = settings;
+        }
+
+        for (String settingName : changedSettings) {
+            _settingChanged.get(settingName).invoke(this, new SettingChangedEventArgs(settingName, settings));
+        }
+    }
+
+    private Event<SettingChangedEventArgs> getSettingChangedEvent(String settingName) {
+        Event<SettingChangedEventArgs> event = _settingChanged.get(settingName);
+        Requires.notNull(event, "settingName");
+        return event;
+    }
+
+    //endregion
+}
@@ -0,0 +1,36 @@
+package com.etiennebaudoux.clipboardzanager.enums;
+
+import android.support.annotation.IntDef;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+@IntDef({HistoryChangeType.INSERTED, HistoryChangeType.REMOVED, HistoryChangeType.MOVED, HistoryChangeType.THUMBNAIL_UPDATED, HistoryChangeType.FAVORITE_TOGGLED})
+@Retention(RetentionPolicy.SOURCE)
+public @interface HistoryChangeType
+{
+    /**
+     * A data entry has been inserted at an index.
+     */
+    int INSERTED = 0;
+
+    /**
+     * The data entry at an index has been removed.
+     */
+    int REMOVED = 1;
+
+    /**
+     * A data entry has been moved from an index to another one.
+     */
+    int MOVED = 2;
+
+    /**
+     * The thumbnail of the data entry at an index has changed.
+     */
+    int THUMBNAIL_UPDATED = 3;
+
+    /**
+     * The data entry at an index has been added to or removed from the favorites.
+     */
+    int FAVORITE_TOGGLED = 4;
+}
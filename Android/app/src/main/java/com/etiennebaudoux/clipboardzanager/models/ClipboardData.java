@@ -1,5 +1,8 @@
 package com.etiennebaudoux.clipboardzanager.models;
 
+import android.net.Uri;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.QueryableArrayList;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.Requires;
 
 import java.util.Date;
@@ -34,6 +37,54 @@ public class ClipboardData {
 
     //endregion
 
+    //region Uris
+
+    private QueryableArrayList<Uri> _uris;
+
+    /**
+     * Gets the list of {@link Uri} that points to the binary content (files, images) from the clipboard. Empty when the data is a text.
+     *
+     * @return The list of {@link Uri} from the clipboard.
+     */
+    public QueryableArrayList<Uri> getUris() {
+        return _uris;
+    }
+
+    /**
+     * Sets the list of {@link Uri} that points to the binary content (files, images) from the clipboard.
+     *
+     * @param value The list of {@link Uri} from the clipboard.
+     */
+    private void setUris(QueryableArrayList<Uri> value) {
+        _uris = value;
+    }
+
+    //endregion
+
+    //region ContentHash
+
+    private long _contentHash;
+
+    /**
+     * Gets the keyed hash of the content from the clipboard. Zero if it has not been computed yet, in which case it is computed from {@link ClipboardData#getData()}.
+     *
+     * @return The keyed hash of the content.
+     */
+    public long getContentHash() {
+        return _contentHash;
+    }
+
+    /**
+     * Sets the keyed hash of the content from the clipboard.
+     *
+     * @param value The keyed hash of the content.
+     */
+    private void setContentHash(long value) {
+        _contentHash = value;
+    }
+
+    //endregion
+
     //region Date
 
     private Date _date;
@@ -69,10 +120,25 @@ public class ClipboardData {
      * @param date The date that corresponds to when the data have been intercepted.
      */
     public ClipboardData(String data, Date date) {
+        this(data, new QueryableArrayList<Uri>(), 0, date);
+    }
+
+    /**
+     * Initialize a new instance of the {@link ClipboardData} class.
+     *
+     * @param data        The textual representation of the data from the clipboard.
+     * @param uris        The list of {@link Uri} that points to the binary content from the clipboard.
+     * @param contentHash The keyed hash of the content, or zero if it has not been computed yet.
+     * @param date        The date that corresponds to when the data have been intercepted.
+     */
+    public ClipboardData(String data, QueryableArrayList<Uri> uris, long contentHash, Date date) {
         Requires.notNull(data, "data");
+        Requires.notNull(uris, "uris");
         Requires.notNull(date, "date");
 
         setData(data);
+        setUris(uris);
+        setContentHash(contentHash);
         setDate(date);
     }
 
@@ -8,6 +8,8 @@ import com.google.gson.annotations.SerializedName;
 public class DataEntry extends DataEntryBase {
     //region Fields
 
+    private static final long serialVersionUID = -3829139905280739693L;
+
     @SerializedName("Icon")
     private String _icon;
 
@@ -40,6 +42,56 @@ public class DataEntry extends DataEntryBase {
 
     //endregion
 
+    //region ContentHash
+
+    @SerializedName("ContentHash")
+    private long _contentHash;
+
+    /**
+     * Gets the keyed hash of the content of the data. Zero if it is unknown.
+     *
+     * @return
+     */
+    public long getContentHash() {
+        return _contentHash;
+    }
+
+    /**
+     * Sets the keyed hash of the content of the data.
+     *
+     * @param value
+     */
+    public void setContentHash(long value) {
+        _contentHash = value;
+    }
+
+    //endregion
+
+    //region Sketch
+
+    @SerializedName("Sketch")
+    private long _sketch;
+
+    /**
+     * Gets the SimHash sketch of the text of the data, used to find near-duplicates. Zero if the data cannot be compared.
+     *
+     * @return
+     */
+    public long getSketch() {
+        return _sketch;
+    }
+
+    /**
+     * Sets the SimHash sketch of the text of the data.
+     *
+     * @param value
+     */
+    public void setSketch(long value) {
+        _sketch = value;
+    }
+
+    //endregion
+
     //region IsCut
 
     @SerializedName("IsCut")
@@ -98,4 +150,35 @@ public class DataEntry extends DataEntryBase {
     //endregion
 
     //endregion
+
+    //region Methods
+
+    /**
+     * Creates a copy of the data entry and of its thumbnail, which can be modified without modifying this data entry.
+     *
+     * @return A new {@link DataEntry}.
+     */
+    public DataEntry copy() {
+        DataEntry result = new DataEntry();
+        result.setIdentifier(getIdentifier());
+        result.setDataIdentifiers(getDataIdentifiers());
+        result.setDate(getDate());
+        result.setIsFavorite(isFavorite());
+        result._icon = _icon;
+        result._contentHash = _contentHash;
+        result._sketch = _sketch;
+        result._isCut = _isCut;
+        result._canSynchronize = _canSynchronize;
+        result._iconIsFromWindowStore = _iconIsFromWindowStore;
+
+        if (_thumbnail != null) {
+            result._thumbnail = new Thumbnail();
+            result._thumbnail.setType(_thumbnail.getType());
+            result._thumbnail.setValue(_thumbnail.getValue());
+        }
+
+        return result;
+    }
+
+    //endregion
 }
\ No newline at end of file
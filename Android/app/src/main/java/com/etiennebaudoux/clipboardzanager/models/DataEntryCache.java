@@ -10,6 +10,12 @@ import java.util.UUID;
  * Represents the status of a data entry.
  */
 public class DataEntryCache implements Serializable {
+    //region Fields
+
+    private static final long serialVersionUID = -404629486045536913L;
+
+    //endregion
+
     //region Properties
 
     //region Identifier
@@ -62,5 +68,30 @@ public class DataEntryCache implements Serializable {
 
     //endregion
 
+    //region SequenceNumber
+
+    @SerializedName("SequenceNumber")
+    private long _sequenceNumber;
+
+    /**
+     * Gets the number of the last change of the data entry. The numbers increase with each change of the history and are never reused, so they define the order of the changes.
+     *
+     * @return The sequence number, or 0 if the data entry did not change since this number exists.
+     */
+    public long getSequenceNumber() {
+        return _sequenceNumber;
+    }
+
+    /**
+     * Sets the number of the last change of the data entry.
+     *
+     * @param value
+     */
+    public void setSequenceNumber(long value) {
+        _sequenceNumber = value;
+    }
+
+    //endregion
+
     //endregion
 }
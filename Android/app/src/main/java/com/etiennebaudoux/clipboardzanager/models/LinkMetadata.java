@@ -0,0 +1,178 @@
+package com.etiennebaudoux.clipboardzanager.models;
+
+import com.google.gson.annotations.SerializedName;
+
+import java.io.Serializable;
+import java.util.Date;
+
+/**
+ * Represents the information retrieved from a web page, kept in cache to avoid downloading the page each time the link is copied.
+ */
+public class LinkMetadata implements Serializable {
+    //region Fields
+
+    private static final long serialVersionUID = 4127309566148532611L;
+
+    //endregion
+
+    //region Properties
+
+    //region Uri
+
+    @SerializedName("Uri")
+    private String _uri;
+
+    /**
+     * Gets the uri of the page.
+     *
+     * @return The uri of the page.
+     */
+    public String getUri() {
+        return _uri;
+    }
+
+    /**
+     * Sets the uri of the page.
+     *
+     * @param value
+     */
+    public void setUri(String value) {
+        _uri = value;
+    }
+
+    //endregion
+
+    //region Title
+
+    @SerializedName("Title")
+    private String _title;
+
+    /**
+     * Gets the title of the page. Empty if the title could not be retrieved.
+     *
+     * @return The title of the page.
+     */
+    public String getTitle() {
+        return _title;
+    }
+
+    /**
+     * Sets the title of the page.
+     *
+     * @param value
+     */
+    public void setTitle(String value) {
+        _title = value;
+    }
+
+    //endregion
+
+    //region EntityTag
+
+    @SerializedName("EntityTag")
+    private String _entityTag;
+
+    /**
+     * Gets the ETag header returned by the server, used to revalidate the metadata. Null if the server did not give any.
+     *
+     * @return The ETag header, or null.
+     */
+    public String getEntityTag() {
+        return _entityTag;
+    }
+
+    /**
+     * Sets the ETag header returned by the server.
+     *
+     * @param value
+     */
+    public void setEntityTag(String value) {
+        _entityTag = value;
+    }
+
+    //endregion
+
+    //region LastModified
+
+    @SerializedName("LastModified")
+    private String _lastModified;
+
+    /**
+     * Gets the Last-Modified header returned by the server, used to revalidate the metadata. Null if the server did not give any.
+     *
+     * @return The Last-Modified header, or null.
+     */
+    public String getLastModified() {
+        return _lastModified;
+    }
+
+    /**
+     * Sets the Last-Modified header returned by the server.
+     *
+     * @param value
+     */
+    public void setLastModified(String value) {
+        _lastModified = value;
+    }
+
+    //endregion
+
+    //region ExpirationDate
+
+    @SerializedName("ExpirationDate")
+    private Date _expirationDate;
+
+    /**
+     * Gets the date after which the metadata must be revalidated with the server.
+     *
+     * @return The expiration {@link Date}.
+     */
+    public Date getExpirationDate() {
+        return _expirationDate;
+    }
+
+    /**
+     * Sets the date after which the metadata must be revalidated with the server.
+     *
+     * @param value
+     */
+    public void setExpirationDate(Date value) {
+        _expirationDate = value;
+    }
+
+    //endregion
+
+    //endregion
+
+    //region Methods
+
+    /**
+     * Determines whether the title could not be retrieved. A failure is kept in cache too, so an unreachable page is not requested again and again.
+     *
+     * @return True if there is no title.
+     */
+    public boolean isFailure() {
+        return _title == null || _title.isEmpty();
+    }
+
+    /**
+     * Determines whether the metadata must be revalidated with the server.
+     *
+     * @param now The current date.
+     * @return True if the expiration date is passed.
+     */
+    public boolean isExpired(Date now) {
+        return _expirationDate == null || !now.before(_expirationDate);
+    }
+
+    /**
+     * Determines whether the server gave a way to check that the page did not change without downloading it again.
+     *
+     * @return True if there is an ETag or a Last-Modified header.
+     */
+    public boolean canRevalidate() {
+        return _entityTag != null || _lastModified != null;
+    }
+
+    //endregion
+}
@@ -1,6 +1,7 @@
 package com.etiennebaudoux.clipboardzanager;
 
 import com.etiennebaudoux.clipboardzanager.componentmodel.services.ServiceLocator;
+import com.etiennebaudoux.clipboardzanager.componentmodel.services.SettingsService;
 import com.etiennebaudoux.clipboardzanager.mocks.ServiceSettingProviderMock;
 
 public final class TestUtilities {
@@ -28,4 +29,9 @@ public final class TestUtilities {
 
         return (ServiceSettingProviderMock)ServiceLocator.getSettingProvider();
     }
+
+    public static void refreshSettings()
+    {
+        ServiceLocator.getService(SettingsService.class).refresh();
+    }
 }
@@ -0,0 +1,18 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitmapHelperTest {
+    @Test
+    public void calculateInSampleSize() throws Exception {
+        assertEquals(1, BitmapHelper.calculateInSampleSize(200, 100, 256));
+        assertEquals(1, BitmapHelper.calculateInSampleSize(511, 511, 256));
+        assertEquals(2, BitmapHelper.calculateInSampleSize(512, 512, 256));
+        assertEquals(8, BitmapHelper.calculateInSampleSize(4000, 3000, 256));
+        assertEquals(8, BitmapHelper.calculateInSampleSize(4000, 1200, 256));
+        assertEquals(32, BitmapHelper.calculateInSampleSize(10000, 300, 256));
+        assertEquals(32, BitmapHelper.calculateInSampleSize(300, 10000, 256));
+    }
+}
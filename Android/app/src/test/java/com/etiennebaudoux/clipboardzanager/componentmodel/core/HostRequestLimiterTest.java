@@ -0,0 +1,126 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HostRequestLimiterTest {
+    @Test
+    public void requestWaitsForTheResponseBodyToBeClosed() throws Exception {
+        final HostRequestLimiter limiter = new HostRequestLimiter(64, 1);
+        Response response = limiter.intercept(new RespondingChain("https://www.example.com/first"));
+
+        assertEquals(1, limiter.getRunningRequestCount("www.example.com"));
+
+        final CountDownLatch secondRequestFinished = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            try {
+                limiter.intercept(new RespondingChain("https://www.example.com/second")).close();
+                secondRequestFinished.countDown();
+            } catch (IOException exception) {
+                exception.printStackTrace();
+            }
+        });
+        thread.start();
+
+        // the second request waits, even though the first one has been executed, because its body is still open.
+        assertFalse(secondRequestFinished.await(200, TimeUnit.MILLISECONDS));
+
+        response.close();
+
+        assertTrue(secondRequestFinished.await(5, TimeUnit.SECONDS));
+        thread.join();
+        assertEquals(0, limiter.getRunningRequestCount("www.example.com"));
+    }
+
+    @Test
+    public void otherHostsAreNotLimited() throws Exception {
+        HostRequestLimiter limiter = new HostRequestLimiter(64, 1);
+        Response response = limiter.intercept(new RespondingChain("https://www.example.com/"));
+        Response otherResponse = limiter.intercept(new RespondingChain("https://www.example.org/"));
+
+        assertEquals(1, limiter.getRunningRequestCount("www.example.com"));
+        assertEquals(1, limiter.getRunningRequestCount("www.example.org"));
+
+        response.close();
+        otherResponse.close();
+
+        assertEquals(0, limiter.getRunningRequestCount("www.example.com"));
+        assertEquals(0, limiter.getRunningRequestCount("www.example.org"));
+    }
+
+    @Test
+    public void failedRequestIsReleased() throws Exception {
+        HostRequestLimiter limiter = new HostRequestLimiter(64, 1);
+        final Request request = new Request.Builder().url("https://www.example.com/").build();
+
+        try {
+            limiter.intercept(new Interceptor.Chain() {
+                @Override
+                public Request request() {
+                    return request;
+                }
+
+                @Override
+                public Response proceed(Request request) throws IOException {
+                    throw new IOException();
+                }
+
+                @Override
+                public Connection connection() {
+                    return null;
+                }
+            });
+        } catch (IOException exception) {
+            assertEquals(0, limiter.getRunningRequestCount("www.example.com"));
+            return;
+        }
+
+        throw new AssertionError();
+    }
+
+    /**
+     * A chain that answers immediately with an empty body.
+     */
+    private static final class RespondingChain implements Interceptor.Chain {
+        private final Request _request;
+
+        RespondingChain(String url) {
+            _request = new Request.Builder().url(url).build();
+        }
+
+        @Override
+        public Request request() {
+            return _request;
+        }
+
+        @Override
+        public Response proceed(Request request) throws IOException {
+            return new Response.Builder()
+                    .request(request)
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(200)
+                    .message("OK")
+                    .body(ResponseBody.create(null, ""))
+                    .build();
+        }
+
+        @Override
+        public Connection connection() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.NotNullRequiredException;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+
+public class HtmlTitleParserTest {
+    @Test
+    public void extractTitle() throws Exception {
+        assertEquals("Google", HtmlTitleParser.extractTitle("<html><head><title>Google</title></head></html>"));
+        assertEquals("Clipboard Zanager", HtmlTitleParser.extractTitle("<HTML><HEAD><TITLE lang=\"en\">\n  Clipboard\n\tZanager  </TITLE></HEAD>"));
+        assertEquals("", HtmlTitleParser.extractTitle("<html><head></head><body>Hello</body></html>"));
+    }
+
+    @Test
+    public void extractOpenGraphTitle() throws Exception {
+        assertEquals("The real title", HtmlTitleParser.extractTitle("<head><title>Site | The real title</title><meta property=\"og:title\" content=\"The real title\" /></head>"));
+        assertEquals("The real title", HtmlTitleParser.extractTitle("<head><meta content='The real title' name='og:title'><title>Site</title></head>"));
+        assertEquals("Site", HtmlTitleParser.extractTitle("<head><meta property=\"og:title\" content=\"  \"><title>Site</title></head>"));
+        assertEquals("Site", HtmlTitleParser.extractTitle("<head><meta property=\"og:title:alt\" content=\"Other\"><title>Site</title></head>"));
+    }
+
+    @Test
+    public void decodeEntities() throws Exception {
+        assertEquals("Tom & Jerry", HtmlTitleParser.decodeEntities("Tom &amp; Jerry"));
+        assertEquals("été — « 1 < 2 »", HtmlTitleParser.decodeEntities("&eacute;t&#233; &mdash; &laquo; 1 &lt; 2 &#xBB;"));
+        assertEquals("&unknown; & &#0;", HtmlTitleParser.decodeEntities("&unknown; & &#0;"));
+        assertEquals("Tom \"Jerry\"", HtmlTitleParser.extractTitle("<title>Tom&nbsp;&quot;Jerry&quot;</title>"));
+    }
+
+    @Test
+    public void parseCharset() throws Exception {
+        String html = "<html><head><title>Café à Montréal</title></head></html>";
+
+        assertEquals("Café à Montréal", parse(html.getBytes(Charset.forName("UTF-8")), null));
+        assertEquals("Café à Montréal", parse(html.getBytes(Charset.forName("ISO-8859-1")), "ISO-8859-1"));
+        assertEquals("Café à Montréal", parse(html.getBytes(Charset.forName("UTF-8")), "not-a-charset"));
+
+        String metaHtml = "<html><head><meta charset=\"windows-1252\"><title>Café €</title></head></html>";
+        assertEquals("Café €", parse(metaHtml.getBytes(Charset.forName("windows-1252")), null));
+
+        metaHtml = "<html><head><meta http-equiv=\"Content-Type\" content=\"text/html; charset=ISO-8859-1\"><title>Café</title></head></html>";
+        assertEquals("Café", parse(metaHtml.getBytes(Charset.forName("ISO-8859-1")), null));
+
+        byte[] utf16 = html.getBytes(Charset.forName("UTF-16LE"));
+        byte[] data = new byte[utf16.length + 2];
+        data[0] = (byte) 0xff;
+        data[1] = (byte) 0xfe;
+        System.arraycopy(utf16, 0, data, 2, utf16.length);
+        assertEquals("Café à Montréal", parse(data, null));
+    }
+
+    @Test
+    public void parseStopsAtEndOfHead() throws Exception {
+        StringBuilder html = new StringBuilder("<html><head><title>Head only</title></HEAD><body>");
+        for (int i = 0; i < 100000; i++) {
+            html.append("<p>Body</p>");
+        }
+
+        LimitedInputStream stream = new LimitedInputStream(html.toString().getBytes(Charset.forName("UTF-8")), 7);
+        assertEquals("Head only", HtmlTitleParser.parse(stream, null, 64 * 1024));
+        assertEquals(true, stream.getPosition() < 64);
+
+        stream = new LimitedInputStream("<html><head><title>No head end</title><BODY><p>Body</p>".getBytes(Charset.forName("UTF-8")), 1);
+        assertEquals("No head end", HtmlTitleParser.parse(stream, null, 64 * 1024));
+        assertEquals(true, stream.getPosition() < 50);
+    }
+
+    @Test
+    public void parseMaximumLength() throws Exception {
+        StringBuilder html = new StringBuilder("<html><head>");
+        for (int i = 0; i < 10000; i++) {
+            html.append("<script>var a = 1;</script>");
+        }
+        html.append("<title>Too far</title></head>");
+
+        LimitedInputStream stream = new LimitedInputStream(html.toString().getBytes(Charset.forName("UTF-8")), 1000);
+        assertEquals("", HtmlTitleParser.parse(stream, null, 4096));
+        assertEquals(4096, stream.getPosition());
+
+        stream = new LimitedInputStream(html.toString().getBytes(Charset.forName("UTF-8")), 1000);
+        assertEquals("Too far", HtmlTitleParser.parse(stream, null, 1024 * 1024));
+    }
+
+    @Test(expected = NotNullRequiredException.class)
+    public void parseNullStream() throws Exception {
+        HtmlTitleParser.parse(null, null, 1024);
+    }
+
+    private static String parse(byte[] data, String charsetName) throws IOException {
+        return HtmlTitleParser.parse(new ByteArrayInputStream(data), charsetName, 64 * 1024);
+    }
+
+    /**
+     * A stream that returns a few bytes at a time, like a network stream, and counts how many bytes have been read.
+     */
+    private static class LimitedInputStream extends InputStream {
+        private final byte[] _data;
+        private final int _chunkSize;
+        private int _position;
+
+        LimitedInputStream(byte[] data, int chunkSize) {
+            _data = data;
+            _chunkSize = chunkSize;
+        }
+
+        int getPosition() {
+            return _position;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) {
+            if (_position == _data.length) {
+                return -1;
+            }
+
+            int length = Math.min(Math.min(count, _chunkSize), _data.length - _position);
+            System.arraycopy(_data, _position, buffer, offset, length);
+            _position += length;
+            return length;
+        }
+
+        @Override
+        public int read() {
+            return _position == _data.length ? -1 : _data[_position++] & 0xff;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class HttpClientProviderTest {
+    @Test
+    public void getClient() throws Exception {
+        assertSame(HttpClientProvider.getClient(), HttpClientProvider.getClient());
+        assertEquals(Consts.HttpMaximumRequestsPerHost, HttpClientProvider.getClient().dispatcher().getMaxRequestsPerHost());
+    }
+
+    @Test
+    public void getClientWithTimeouts() throws Exception {
+        OkHttpClient sharedClient = HttpClientProvider.getClient();
+        OkHttpClient client = HttpClientProvider.getClient(1000, 2000);
+
+        assertNotSame(sharedClient, client);
+        assertEquals(1000, client.connectTimeoutMillis());
+        assertEquals(2000, client.readTimeoutMillis());
+        assertNull(client.cache());
+
+        // the connections must be shared.
+        assertSame(sharedClient.connectionPool(), client.connectionPool());
+        assertSame(sharedClient.dispatcher(), client.dispatcher());
+    }
+}
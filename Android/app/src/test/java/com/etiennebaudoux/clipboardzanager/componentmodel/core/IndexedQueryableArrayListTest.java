@@ -0,0 +1,107 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexedQueryableArrayListTest {
+    @Test
+    public void addRemove() throws Exception {
+        IndexedQueryableArrayList<String> list = new IndexedQueryableArrayList<>();
+        list.add("apple");
+        KeyIndex<String, Character> index = list.addIndex(item -> item.charAt(0));
+
+        list.add("banana");
+        list.add(0, "cherry");
+        list.addAll(Arrays.asList("date", "elderberry"));
+        list.addAll(1, Arrays.asList("fig"));
+
+        assertEquals("apple", index.single('a'));
+        assertEquals("fig", index.singleOrDefault('f'));
+        assertTrue(index.contains('e'));
+        assertNull(index.singleOrDefault('z'));
+
+        assertTrue(list.remove("apple"));
+        assertFalse(list.remove("apple"));
+        assertFalse(index.contains('a'));
+
+        assertEquals("cherry", list.remove(0));
+        assertNull(index.firstOrDefault('c'));
+
+        assertEquals("banana", list.set(list.indexOf("banana"), "grape"));
+        assertFalse(index.contains('b'));
+        assertEquals("grape", index.single('g'));
+
+        list.clear();
+        assertFalse(index.contains('d'));
+
+        try {
+            index.single('d');
+            fail();
+        } catch (Exception ex) {
+        }
+    }
+
+    @Test
+    public void duplicateKeys() throws Exception {
+        IndexedQueryableArrayList<String> list = new IndexedQueryableArrayList<>();
+        KeyIndex<String, Integer> index = list.addIndex(String::length);
+        list.add("one");
+        list.add("three");
+        list.add("two");
+
+        assertEquals("one", index.firstOrDefault(3));
+
+        try {
+            index.singleOrDefault(3);
+            fail();
+        } catch (Exception ex) {
+        }
+
+        list.remove(0);
+        list.add(0, "six");
+        assertEquals("six", index.firstOrDefault(3));
+
+        list.remove("six");
+        assertEquals("two", index.single(3));
+    }
+
+    @Test
+    public void untrackedModification() throws Exception {
+        IndexedQueryableArrayList<String> list = new IndexedQueryableArrayList<>();
+        KeyIndex<String, String> index = list.addIndex(item -> item);
+        list.addAll(Arrays.asList("a", "b", "c", "d"));
+
+        Iterator<String> iterator = list.iterator();
+        iterator.next();
+        iterator.remove();
+        list.subList(0, 1).clear();
+
+        assertFalse(index.contains("a"));
+        assertFalse(index.contains("b"));
+        assertEquals("c", index.single("c"));
+
+        list.subList(0, 0).add("e");
+        assertEquals("e", index.single("e"));
+    }
+
+    @Test
+    public void serialization() throws Exception {
+        IndexedQueryableArrayList<String> list = new IndexedQueryableArrayList<>();
+        list.addIndex(item -> item);
+        list.addAll(Arrays.asList("a", "b"));
+
+        QueryableArrayList result = DataHelper.fromByteArray(DataHelper.toByteArray(list), QueryableArrayList.class);
+
+        assertSame(QueryableArrayList.class, result.getClass());
+        assertEquals(list, result);
+    }
+}
@@ -0,0 +1,143 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.etiennebaudoux.clipboardzanager.models.LinkMetadata;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LinkMetadataCacheTest {
+    private static final String Password = "password";
+
+    private File _directory;
+
+    @Before
+    public void setUp() throws Exception {
+        _directory = Files.createTempDirectory("links").toFile();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        File[] files = _directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        _directory.delete();
+    }
+
+    @Test
+    public void normalizeUri() throws Exception {
+        assertEquals("https://www.example.com/", LinkMetadataCache.normalizeUri("HTTPS://WWW.Example.com"));
+        assertEquals("http://www.example.com/Page?q=Value", LinkMetadataCache.normalizeUri(" http://www.example.com:80/Page?q=Value#top "));
+        assertEquals("https://www.example.com:8443/", LinkMetadataCache.normalizeUri("https://www.example.com:8443"));
+        assertEquals("not a uri", LinkMetadataCache.normalizeUri("not a uri"));
+    }
+
+    @Test
+    public void getAndPut() throws Exception {
+        LinkMetadataCache cache = new LinkMetadataCache(_directory, Password, 16, 16);
+        assertNull(cache.get("https://www.example.com"));
+
+        cache.put(createMetadata("https://www.example.com/", "Example", 60000));
+
+        LinkMetadata metadata = cache.get("https://WWW.EXAMPLE.COM#fragment");
+        assertNotNull(metadata);
+        assertEquals("Example", metadata.getTitle());
+        assertEquals("\"v1\"", metadata.getEntityTag());
+        assertFalse(metadata.isExpired(new Date()));
+    }
+
+    @Test
+    public void persistence() throws Exception {
+        LinkMetadataCache cache = new LinkMetadataCache(_directory, Password, 16, 16);
+        cache.put(createMetadata("https://www.example.com/", "Example", 60000));
+        cache.put(createMetadata("https://www.example.com/missing", "", -1000));
+
+        File[] files = _directory.listFiles();
+        assertEquals(2, files.length);
+        for (File file : files) {
+            // the uri must not be readable from the storage.
+            assertFalse(file.getName().contains("example"));
+            assertFalse(new String(Files.readAllBytes(file.toPath()), "ISO-8859-1").contains("example"));
+        }
+
+        cache = new LinkMetadataCache(_directory, Password, 16, 16);
+        assertEquals("Example", cache.get("https://www.example.com/").getTitle());
+
+        LinkMetadata failure = cache.get("https://www.example.com/missing");
+        assertTrue(failure.isFailure());
+        assertTrue(failure.isExpired(new Date()));
+
+        cache = new LinkMetadataCache(_directory, "other password", 16, 16);
+        assertNull(cache.get("https://www.example.com/"));
+    }
+
+    @Test
+    public void memoryCapacity() throws Exception {
+        LinkMetadataCache cache = new LinkMetadataCache(_directory, Password, 2, 16);
+        cache.put(createMetadata("https://www.example.com/1", "1", 60000));
+        cache.put(createMetadata("https://www.example.com/2", "2", 60000));
+        cache.put(createMetadata("https://www.example.com/3", "3", 60000));
+
+        // the first one is not in memory anymore, but it is still on the storage.
+        assertEquals("1", cache.get("https://www.example.com/1").getTitle());
+        assertEquals(3, _directory.listFiles().length);
+    }
+
+    @Test
+    public void diskCapacity() throws Exception {
+        LinkMetadataCache cache = new LinkMetadataCache(_directory, Password, 16, 2);
+        for (int i = 0; i < 5; i++) {
+            cache.put(createMetadata("https://www.example.com/" + i, String.valueOf(i), 60000));
+        }
+
+        assertEquals(2, _directory.listFiles().length);
+    }
+
+    @Test
+    public void corruptedFile() throws Exception {
+        LinkMetadataCache cache = new LinkMetadataCache(_directory, Password, 16, 16);
+        cache.put(createMetadata("https://www.example.com/", "Example", 60000));
+
+        File file = _directory.listFiles()[0];
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            stream.write(new byte[]{1, 2, 3});
+        }
+
+        cache = new LinkMetadataCache(_directory, Password, 16, 16);
+        assertNull(cache.get("https://www.example.com/"));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void clear() throws Exception {
+        LinkMetadataCache cache = new LinkMetadataCache(_directory, Password, 16, 16);
+        cache.put(createMetadata("https://www.example.com/", "Example", 60000));
+        cache.clear();
+
+        assertNull(cache.get("https://www.example.com/"));
+        assertEquals(0, _directory.listFiles().length);
+    }
+
+    private static LinkMetadata createMetadata(String uri, String title, long timeToLive) {
+        LinkMetadata metadata = new LinkMetadata();
+        metadata.setUri(uri);
+        metadata.setTitle(title);
+        metadata.setEntityTag("\"v1\"");
+        metadata.setExpirationDate(new Date(System.currentTimeMillis() + timeToLive));
+        return metadata;
+    }
+}
@@ -0,0 +1,55 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelQueryTest {
+    @Test
+    public void where() {
+        QueryableArrayList<Integer> list = getMockList(10000);
+
+        assertEquals(list.where(item -> item % 3 == 0), list.asParallel(16).where(item -> item % 3 == 0));
+        assertEquals(list.where(item -> item % 3 == 0), list.asParallel().where(item -> item % 3 == 0));
+    }
+
+    @Test
+    public void select() {
+        QueryableArrayList<Integer> list = getMockList(10000);
+        QueryableArrayList<String> result = list.asParallel(16).select(String::valueOf);
+
+        assertEquals(10000, result.size());
+        for (int i = 0; i < result.size(); i++) {
+            assertEquals(String.valueOf(i), result.get(i));
+        }
+    }
+
+    @Test
+    public void anyAll() {
+        QueryableArrayList<Integer> list = getMockList(10000);
+
+        assertTrue(list.asParallel(16).any(item -> item == 9999));
+        assertFalse(list.asParallel(16).any(item -> item < 0));
+        assertTrue(list.asParallel(16).all(item -> item >= 0));
+        assertFalse(list.asParallel(16).all(item -> item < 9999));
+        assertTrue(new QueryableArrayList<Integer>().asParallel(16).all(item -> false));
+    }
+
+    @Test
+    public void count() {
+        QueryableArrayList<Integer> list = getMockList(10000);
+
+        assertEquals(5000, list.asParallel(16).count(item -> item % 2 == 0));
+        assertEquals(0, new QueryableArrayList<Integer>().asParallel(16).count(item -> true));
+    }
+
+    private static QueryableArrayList<Integer> getMockList(int count) {
+        QueryableArrayList<Integer> list = new QueryableArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+}
@@ -0,0 +1,100 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentListTest {
+    @Test
+    public void versionsAreIndependent() throws Exception {
+        PersistentList<String> empty = PersistentList.empty();
+        PersistentList<String> list1 = empty.plus("a").plus("c");
+        PersistentList<String> list2 = list1.plus(1, "b");
+        PersistentList<String> list3 = list2.minus(0);
+        PersistentList<String> list4 = list3.with(1, "d");
+
+        assertTrue(empty.isEmpty());
+        assertEquals(Arrays.asList("a", "c"), list1);
+        assertEquals(Arrays.asList("a", "b", "c"), list2);
+        assertEquals(Arrays.asList("b", "c"), list3);
+        assertEquals(Arrays.asList("b", "d"), list4);
+    }
+
+    @Test
+    public void from() throws Exception {
+        ArrayList<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expected.add(i);
+        }
+
+        PersistentList<Integer> list = PersistentList.from(expected);
+
+        assertEquals(expected, list);
+        assertEquals(999, (int) list.get(999));
+        assertTrue(PersistentList.from(new ArrayList<Integer>()).isEmpty());
+    }
+
+    @Test
+    public void randomModifications() throws Exception {
+        Random random = new Random(42);
+        ArrayList<Integer> expected = new ArrayList<>();
+        PersistentList<Integer> list = PersistentList.empty();
+
+        for (int i = 0; i < 5000; i++) {
+            int operation = expected.isEmpty() ? 0 : random.nextInt(3);
+            if (operation == 0) {
+                int index = random.nextInt(expected.size() + 1);
+                expected.add(index, i);
+                list = list.plus(index, i);
+            } else if (operation == 1) {
+                int index = random.nextInt(expected.size());
+                expected.remove(index);
+                list = list.minus(index);
+            } else {
+                int index = random.nextInt(expected.size());
+                expected.set(index, -i);
+                list = list.with(index, -i);
+            }
+        }
+
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        assertEquals(expected, list);
+    }
+
+    @Test
+    public void isImmutable() throws Exception {
+        PersistentList<String> list = PersistentList.<String>empty().plus("a");
+
+        try {
+            list.add("b");
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+
+        Iterator<String> iterator = list.iterator();
+        iterator.next();
+        try {
+            iterator.remove();
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+
+        try {
+            list.get(1);
+            fail();
+        } catch (IndexOutOfBoundsException ignored) {
+        }
+
+        assertEquals(1, list.size());
+    }
+}
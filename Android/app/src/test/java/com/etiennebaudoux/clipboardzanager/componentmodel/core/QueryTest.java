@@ -0,0 +1,129 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QueryTest {
+    @Test
+    public void where() {
+        QueryableArrayList<Integer> list = getMockList(10);
+
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8), list.asQuery().where(item -> item % 2 == 0).toList());
+        assertEquals(Arrays.asList(0, 6), list.asQuery().where(item -> item % 2 == 0).where(item -> item % 3 == 0).toList());
+        assertEquals(list.where(item -> item > 4), list.asQuery().where(item -> item > 4).toList());
+    }
+
+    @Test
+    public void lazyEvaluation() {
+        QueryableArrayList<Integer> list = getMockList(1000);
+        AtomicInteger evaluationCount = new AtomicInteger();
+
+        Query<Integer> query = list.asQuery().where(item -> {
+            evaluationCount.incrementAndGet();
+            return item > 10;
+        });
+        assertEquals(0, evaluationCount.get());
+
+        assertTrue(query.any());
+        assertEquals(12, evaluationCount.get());
+
+        evaluationCount.set(0);
+        assertEquals(Arrays.asList(11, 12, 13), query.take(3).toList());
+        assertEquals(14, evaluationCount.get());
+    }
+
+    @Test
+    public void skipTake() {
+        QueryableArrayList<Integer> list = getMockList(10);
+        List<Integer> linkedList = new LinkedList<>(list);
+
+        assertEquals(list.skip(3), list.asQuery().skip(3).toList());
+        assertEquals(Arrays.asList(3, 4), list.asQuery().skip(3).take(2).toList());
+        assertEquals(Arrays.asList(3, 4), Query.from(linkedList).skip(3).take(2).toList());
+        assertEquals(Arrays.asList(2, 3, 4), list.asQuery().take(5).skip(2).toList());
+        assertEquals(Arrays.asList(4), list.asQuery().skip(1).take(5).skip(3).take(1).toList());
+        assertTrue(list.asQuery().skip(20).toList().isEmpty());
+        assertEquals(7, list.asQuery().skip(3).count());
+        assertEquals(2, Query.from(linkedList).take(5).skip(3).count());
+    }
+
+    @Test
+    public void selectOfType() {
+        QueryableArrayList<Object> list = new QueryableArrayList<>();
+        list.add("Hello");
+        list.add(1);
+        list.add("World");
+        list.add(null);
+
+        assertEquals(Arrays.asList("Hello", "World"), list.asQuery().ofType(String.class).toList());
+        assertEquals(Arrays.asList(5, 5), list.asQuery().ofType(String.class).select(String::length).toList());
+    }
+
+    @Test
+    public void setOperations() {
+        QueryableArrayList<Integer> list1 = new QueryableArrayList<>();
+        list1.addAll(Arrays.asList(1, 2, 2, 3));
+        QueryableArrayList<Integer> list2 = new QueryableArrayList<>();
+        list2.addAll(Arrays.asList(3, 4, 4, 5));
+
+        assertEquals(Arrays.asList(1, 2, 3), list1.asQuery().distinct().toList());
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), list1.asQuery().union(list2).toList());
+        assertEquals(Arrays.asList(1, 2), list1.asQuery().except(list2).toList());
+        assertEquals(list1.union(list2).size(), list1.asQuery().union(list2).count());
+    }
+
+    @Test
+    public void orderBy() {
+        QueryableArrayList<String> list = new QueryableArrayList<>();
+        list.addAll(Arrays.asList("ccc", "a", "bb", "d"));
+
+        assertEquals(Arrays.asList("a", "d", "bb", "ccc"), list.asQuery().orderBy(Comparator.comparingInt(String::length)).toList());
+    }
+
+    @Test
+    public void terminalOperations() throws Exception {
+        QueryableArrayList<Integer> list = getMockList(5);
+
+        assertEquals(0, (int) list.asQuery().first());
+        assertEquals(3, (int) list.asQuery().firstOrDefault(item -> item > 2));
+        assertNull(list.asQuery().firstOrDefault(item -> item > 10));
+        assertTrue(list.asQuery().all(item -> item < 5));
+        assertFalse(list.asQuery().any(item -> item > 10));
+        assertEquals(5, list.asQuery().count());
+
+        try {
+            list.asQuery().skip(10).first();
+            fail();
+        } catch (Exception ex) {
+        }
+    }
+
+    @Test
+    public void reEnumeration() {
+        QueryableArrayList<Integer> list = getMockList(3);
+        Query<Integer> query = list.asQuery().where(item -> item > 0);
+
+        assertEquals(2, query.count());
+        list.add(3);
+        assertEquals(3, query.count());
+    }
+
+    private static QueryableArrayList<Integer> getMockList(int count) {
+        QueryableArrayList<Integer> list = new QueryableArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(i);
+        }
+        return list;
+    }
+}
@@ -10,6 +10,7 @@ import java.security.spec.InvalidKeySpecException;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
 
 @RunWith(RobolectricTestRunner.class)
 public class SecurityHelperTest {
@@ -63,4 +64,10 @@ public class SecurityHelperTest {
         byte[] key = SecurityHelper.getSaltKeys("MyPassword").getEncoded();
         assertArrayEquals(new byte[]{6, 82, (byte) 254, 48, 47, (byte) 165, 77, 86, 53, 94, 25, 125, (byte) 168, (byte) 237, (byte) 149, 23}, key);
     }
+
+    @Test
+    public void saltKeysAreDerivedOnce() throws InvalidKeySpecException, NoSuchAlgorithmException {
+        assertSame(SecurityHelper.getCachedSaltKeys("MyOtherPassword"), SecurityHelper.getCachedSaltKeys("MyOtherPassword"));
+        assertArrayEquals(SecurityHelper.getSaltKeys("MyOtherPassword").getEncoded(), SecurityHelper.getCachedSaltKeys("MyOtherPassword").getEncoded());
+    }
 }
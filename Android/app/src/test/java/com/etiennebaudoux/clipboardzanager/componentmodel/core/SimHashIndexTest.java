@@ -0,0 +1,89 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SimHashIndexTest {
+    @Test
+    public void find() throws Exception {
+        SimHashIndex<String> index = new SimHashIndex<>();
+
+        index.add("a", 0x0123456789abcdefL);
+        index.add("b", 0x0123456789abcdefL ^ 0x8000000000010001L); // 3 different bits, in 3 different bands.
+        index.add("c", 0x0123456789abcdefL ^ 0x00000000000000ffL); // 8 different bits.
+        index.add("d", 0xfedcba9876543210L);
+        index.add("e", 0);
+
+        QueryableArrayList<String> result = index.find(0x0123456789abcdefL);
+
+        assertEquals(2, result.size());
+        assertTrue(result.contains("a"));
+        assertTrue(result.contains("b"));
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void findNearDuplicates() throws Exception {
+        SimHashIndex<String> index = new SimHashIndex<>();
+
+        index.add("a", 0x0123456789abcdefL);
+        index.add("b", 0x0123456789abcdeeL);
+
+        QueryableArrayList<String> result = index.findNearDuplicates("a");
+
+        assertEquals(1, result.size());
+        assertEquals("b", result.first());
+        assertEquals(0, index.findNearDuplicates("z").size());
+    }
+
+    @Test
+    public void findNearDuplicateCandidates() throws Exception {
+        SimHashIndex<String> index = new SimHashIndex<>();
+
+        index.add("a", 0x0123456789abcdefL);
+        index.add("b", 0xfedcba9876543210L);
+
+        assertTrue(index.findNearDuplicateCandidates().isEmpty());
+
+        index.add("c", 0x0123456789abcdeeL);
+        index.add("d", 0x0123456789abcdecL);
+
+        HashSet<String> candidates = index.findNearDuplicateCandidates();
+        assertEquals(3, candidates.size());
+        assertFalse(candidates.contains("b"));
+
+        // an item added again with another sketch leaves its previous buckets.
+        index.add("d", 0xfedcba9876543211L);
+
+        assertEquals(4, index.findNearDuplicateCandidates().size());
+        assertEquals("d", index.findNearDuplicates("b").first());
+
+        index.remove("c");
+        index.remove("d");
+
+        assertTrue(index.findNearDuplicateCandidates().isEmpty());
+        assertEquals(0, index.findNearDuplicates("a").size());
+    }
+
+    @Test
+    public void remove() throws Exception {
+        SimHashIndex<String> index = new SimHashIndex<>();
+
+        index.add("a", 0x0123456789abcdefL);
+        index.add("b", 0x0123456789abcdeeL);
+        index.remove("b");
+
+        assertEquals(0, index.findNearDuplicates("a").size());
+        assertEquals(1, index.size());
+
+        index.clear();
+
+        assertEquals(0, index.find(0x0123456789abcdefL).size());
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,53 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SimHashTest {
+    @Test
+    public void normalize() throws Exception {
+        assertEquals("error 0 at line 0: connection refused", SimHash.normalize("  Error 404 at line   12:\tconnection refused "));
+        assertEquals("https://www.example.com/search?q=&page=", SimHash.normalize("https://www.example.com/search?q=clipboard&page=2#results"));
+        assertEquals("see https://www.example.com/search?q=clipboard", SimHash.normalize("See https://www.example.com/search?q=clipboard"));
+    }
+
+    @Test
+    public void computeShortText() throws Exception {
+        assertEquals(0, SimHash.compute(""));
+        assertEquals(0, SimHash.compute("hello"));
+        assertNotEquals(0, SimHash.compute("hello world"));
+    }
+
+    @Test
+    public void computeNearDuplicates() throws Exception {
+        long sketch1 = SimHash.compute("https://www.example.com/search?q=clipboard&page=2");
+        long sketch2 = SimHash.compute("https://www.example.com/search?q=manager&page=3#top");
+        assertEquals(sketch1, sketch2);
+
+        sketch1 = SimHash.compute("2017-03-12 10:42:17 [ERROR] Unable to reach the synchronization server, the request will be retried.");
+        sketch2 = SimHash.compute("2017-03-14 18:03:55 [ERROR] Unable to reach the synchronization server, the request will be retried.");
+        assertEquals(sketch1, sketch2);
+
+        sketch1 = SimHash.compute("The quick brown fox jumps over the lazy dog and runs into the forest to find some food.");
+        sketch2 = SimHash.compute("The quick brown fox jumps over the lazy cat and runs into the forest to find some food.");
+        assertTrue(SimHash.distance(sketch1, sketch2) <= SimHashIndex.MaxDistance);
+    }
+
+    @Test
+    public void computeDifferentTexts() throws Exception {
+        long sketch1 = SimHash.compute("The quick brown fox jumps over the lazy dog and runs into the forest to find some food.");
+        long sketch2 = SimHash.compute("Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt.");
+
+        assertTrue(SimHash.distance(sketch1, sketch2) > SimHashIndex.MaxDistance);
+    }
+
+    @Test
+    public void distance() throws Exception {
+        assertEquals(0, SimHash.distance(0x5555L, 0x5555L));
+        assertEquals(1, SimHash.distance(0x0L, 0x8000000000000000L));
+        assertEquals(64, SimHash.distance(0x0L, 0xffffffffffffffffL));
+    }
+}
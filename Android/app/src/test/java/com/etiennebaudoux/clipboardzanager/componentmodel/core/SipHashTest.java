@@ -0,0 +1,47 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class SipHashTest {
+    @Test
+    public void referenceVectors() throws Exception {
+        byte[] key = sequence(16);
+
+        assertEquals(0x726fdb47dd0e0e31L, SipHash.hash(key, new byte[0]));
+        assertEquals(0x93f5f5799a932462L, SipHash.hash(key, sequence(8)));
+        assertEquals(0xa129ca6149be45e5L, SipHash.hash(key, sequence(15)));
+    }
+
+    @Test
+    public void incrementalUpdate() throws Exception {
+        byte[] key = sequence(16);
+        byte[] data = sequence(63);
+
+        SipHash sipHash = new SipHash(key);
+        sipHash.update(data, 0, 3);
+        sipHash.update(data, 3, 20);
+        sipHash.update(data, 23, 40);
+
+        assertEquals(SipHash.hash(key, data), sipHash.finish());
+    }
+
+    @Test
+    public void keyed() throws Exception {
+        byte[] key1 = sequence(16);
+        byte[] key2 = sequence(16);
+        key2[0] = 42;
+
+        assertNotEquals(SipHash.hash(key1, sequence(10)), SipHash.hash(key2, sequence(10)));
+    }
+
+    private byte[] sequence(int length) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) i;
+        }
+        return result;
+    }
+}
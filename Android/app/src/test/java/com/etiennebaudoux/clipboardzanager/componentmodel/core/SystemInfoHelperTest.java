@@ -0,0 +1,186 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import com.etiennebaudoux.clipboardzanager.models.LinkMetadata;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SystemInfoHelperTest {
+    private static final long BodyLength = 50L * 1024 * 1024;
+
+    private HttpServer _server;
+    private String _baseUri;
+    private final AtomicLong _bodyBytesSent = new AtomicLong();
+    private final AtomicInteger _pageRequestCount = new AtomicInteger();
+    private final AtomicInteger _notModifiedCount = new AtomicInteger();
+    private File _cacheDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        _server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        _server.createContext("/page", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=ISO-8859-1");
+                exchange.sendResponseHeaders(200, 0);
+
+                OutputStream stream = exchange.getResponseBody();
+                try {
+                    stream.write("<html><head><meta property=\"og:title\" content=\"Caf&eacute; à Montréal\"><title>Other</title></head><body>".getBytes(Charset.forName("ISO-8859-1")));
+                    stream.flush();
+
+                    byte[] paragraph = new byte[8 * 1024];
+                    for (int i = 0; i < paragraph.length; i++) {
+                        paragraph[i] = 'a';
+                    }
+
+                    // a huge body, to check that the client stops reading after the head.
+                    while (_bodyBytesSent.get() < BodyLength) {
+                        stream.write(paragraph);
+                        _bodyBytesSent.addAndGet(paragraph.length);
+                    }
+                } catch (IOException e) {
+                    // the client closed the connection.
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        _server.createContext("/image", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] data = "<title>Not a page</title>".getBytes(Charset.forName("UTF-8"));
+                exchange.getResponseHeaders().add("Content-Type", "image/png");
+                exchange.sendResponseHeaders(200, data.length);
+                exchange.getResponseBody().write(data);
+                exchange.close();
+            }
+        });
+        _server.createContext("/missing", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                byte[] data = "<title>Not found</title>".getBytes(Charset.forName("UTF-8"));
+                exchange.getResponseHeaders().add("Content-Type", "text/html");
+                exchange.sendResponseHeaders(404, data.length);
+                exchange.getResponseBody().write(data);
+                exchange.close();
+            }
+        });
+        _server.createContext("/cached", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                _pageRequestCount.incrementAndGet();
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+
+                if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    _notModifiedCount.incrementAndGet();
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+
+                byte[] data = "<html><head><title>Cached</title></head></html>".getBytes(Charset.forName("UTF-8"));
+                exchange.getResponseHeaders().add("Content-Type", "text/html");
+                exchange.sendResponseHeaders(200, data.length);
+                exchange.getResponseBody().write(data);
+                exchange.close();
+            }
+        });
+        _server.start();
+
+        _baseUri = "http://127.0.0.1:" + _server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        _server.stop(0);
+
+        if (_cacheDirectory != null) {
+            File[] files = _cacheDirectory.listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            _cacheDirectory.delete();
+        }
+    }
+
+    @Test
+    public void downloadWebPageTitle() throws Exception {
+        assertEquals("Café à Montréal", SystemInfoHelper.downloadWebPageTitle(_baseUri + "/page", 5000));
+        assertTrue(_bodyBytesSent.get() < BodyLength);
+    }
+
+    @Test
+    public void downloadWebPageTitleNotHtml() throws Exception {
+        assertEquals("", SystemInfoHelper.downloadWebPageTitle(_baseUri + "/image", 5000));
+    }
+
+    @Test
+    public void downloadWebPageTitleNotFound() throws Exception {
+        assertEquals("", SystemInfoHelper.downloadWebPageTitle(_baseUri + "/missing", 5000));
+    }
+
+    @Test
+    public void downloadWebPageTitleUnreachable() throws Exception {
+        int port = _server.getAddress().getPort();
+        _server.stop(0);
+
+        assertEquals("", SystemInfoHelper.downloadWebPageTitle("http://127.0.0.1:" + port + "/page", 1000));
+    }
+
+    @Test
+    public void retrieveWebPageTitle() throws Exception {
+        _cacheDirectory = Files.createTempDirectory("links").toFile();
+        LinkMetadataCache cache = new LinkMetadataCache(_cacheDirectory, "password", 16, 16);
+        String uri = _baseUri + "/cached";
+
+        assertEquals("Cached", SystemInfoHelper.retrieveWebPageTitle(uri, cache, 5000));
+        assertEquals(1, _pageRequestCount.get());
+
+        // the metadata is fresh, so there is no network access at all.
+        assertEquals("Cached", SystemInfoHelper.retrieveWebPageTitle(uri + "#fragment", cache, 5000));
+        assertEquals(1, _pageRequestCount.get());
+
+        // once expired, the metadata is revalidated with its ETag and the page is not downloaded again.
+        LinkMetadata metadata = cache.get(uri);
+        metadata.setExpirationDate(new Date(System.currentTimeMillis() - 1000));
+        cache.put(metadata);
+
+        assertEquals("Cached", SystemInfoHelper.retrieveWebPageTitle(uri, cache, 5000));
+        assertEquals(2, _pageRequestCount.get());
+        assertEquals(1, _notModifiedCount.get());
+        assertFalse(cache.get(uri).isExpired(new Date()));
+    }
+
+    @Test
+    public void retrieveWebPageTitleFailure() throws Exception {
+        _cacheDirectory = Files.createTempDirectory("links").toFile();
+        LinkMetadataCache cache = new LinkMetadataCache(_cacheDirectory, "password", 16, 16);
+
+        assertEquals("", SystemInfoHelper.retrieveWebPageTitle(_baseUri + "/missing", cache, 5000));
+
+        LinkMetadata metadata = cache.get(_baseUri + "/missing");
+        assertTrue(metadata.isFailure());
+        assertTrue(metadata.getExpirationDate().getTime() <= System.currentTimeMillis() + Consts.LinkMetadataFailureTimeToLiveMilliseconds);
+    }
+}
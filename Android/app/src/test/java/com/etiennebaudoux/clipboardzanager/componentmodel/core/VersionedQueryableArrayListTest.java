@@ -0,0 +1,66 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class VersionedQueryableArrayListTest {
+    @Test
+    public void snapshotsDoNotChange() throws Exception {
+        VersionedQueryableArrayList<String> list = new VersionedQueryableArrayList<>();
+        assertTrue(list.getSnapshot().isEmpty());
+
+        list.add("a");
+        list.addAll(Arrays.asList("b", "c"));
+        PersistentList<String> snapshot = list.getSnapshot();
+
+        list.add(0, "d");
+        list.remove("b");
+        list.set(0, "e");
+        list.addAll(1, Arrays.asList("f", "g"));
+
+        assertEquals(Arrays.asList("a", "b", "c"), snapshot);
+        assertEquals(list, list.getSnapshot());
+
+        list.clear();
+        assertTrue(list.getSnapshot().isEmpty());
+    }
+
+    @Test
+    public void updateIsPublishedOnce() throws Exception {
+        VersionedQueryableArrayList<String> list = new VersionedQueryableArrayList<>();
+        list.add("a");
+        PersistentList<String> snapshot = list.getSnapshot();
+
+        list.beginUpdate();
+        list.remove(0);
+        list.add("b");
+        assertSame(snapshot, list.getSnapshot());
+        list.endUpdate();
+
+        assertEquals(Arrays.asList("b"), list.getSnapshot());
+    }
+
+    @Test
+    public void untrackedModificationIsPublished() throws Exception {
+        VersionedQueryableArrayList<String> list = new VersionedQueryableArrayList<>();
+        list.addAll(Arrays.asList("a", "b", "c"));
+
+        Iterator<String> iterator = list.iterator();
+        iterator.next();
+        iterator.remove();
+        list.add("d");
+
+        assertEquals(Arrays.asList("b", "c", "d"), list.getSnapshot());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void endUpdateWithoutBeginUpdate() throws Exception {
+        new VersionedQueryableArrayList<String>().endUpdate();
+    }
+}
@@ -0,0 +1,160 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EventTest {
+    @Test
+    public void invoke() {
+        Event<EventArgs> event = new Event<>();
+        AtomicInteger count = new AtomicInteger();
+        EventHandler<EventArgs> handler = (sender, args) -> count.incrementAndGet();
+
+        event.addHandler(handler);
+        event.invoke(this, EventArgs.Empty);
+        assertEquals(1, count.get());
+
+        event.removeHandler(handler);
+        event.invoke(this, EventArgs.Empty);
+        assertEquals(1, count.get());
+    }
+
+    @Test
+    public void removeWhileInvoking() {
+        Event<EventArgs> event = new Event<>();
+        AtomicInteger count = new AtomicInteger();
+        EventHandler<EventArgs> handler2 = (sender, args) -> count.incrementAndGet();
+        EventHandler<EventArgs> handler1 = (sender, args) -> {
+            count.incrementAndGet();
+            event.removeHandler(handler2);
+        };
+
+        event.addHandler(handler1);
+        event.addHandler(handler2);
+
+        // the handlers are taken when the event is fired, so the removed handler is still called once.
+        event.invoke(this, EventArgs.Empty);
+        assertEquals(2, count.get());
+
+        event.invoke(this, EventArgs.Empty);
+        assertEquals(3, count.get());
+    }
+
+    @Test
+    public void asyncDelivery() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Event<EventArgs> event = new Event<>(executor);
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch delivered = new CountDownLatch(100);
+            List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger sequence = new AtomicInteger();
+            Thread firingThread = Thread.currentThread();
+
+            event.addHandler((sender, args) -> {
+                assertNotEquals(firingThread, Thread.currentThread());
+                awaitLatch(release);
+                order.add((Integer) sender);
+                delivered.countDown();
+            });
+
+            // a slow handler does not delay the thread that fires the event.
+            long start = System.nanoTime();
+            for (int i = 0; i < 100; i++) {
+                event.invoke(sequence.getAndIncrement(), EventArgs.Empty);
+            }
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+
+            release.countDown();
+            assertTrue(delivered.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void batchDelivery() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Event<EventArgs> event = new Event<>();
+            CountDownLatch release = new CountDownLatch(1);
+            List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+            AtomicInteger total = new AtomicInteger();
+
+            executor.execute(() -> awaitLatch(release));
+            event.addBatchHandler((sender, args) -> {
+                batchSizes.add(args.size());
+                total.addAndGet(args.size());
+            }, executor);
+
+            for (int i = 0; i < 50; i++) {
+                event.invoke(this, EventArgs.Empty);
+            }
+
+            release.countDown();
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            assertEquals(50, total.get());
+            assertEquals(1, batchSizes.size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void weakHandler() throws InterruptedException {
+        Event<EventArgs> event = new Event<>();
+        AtomicInteger count = new AtomicInteger();
+        EventHandler<EventArgs> handler = new CountingHandler(count);
+
+        event.addWeakHandler(handler);
+        event.invoke(this, EventArgs.Empty);
+        assertEquals(1, count.get());
+
+        handler = null;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        event.invoke(this, EventArgs.Empty);
+        assertEquals(1, count.get());
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private static class CountingHandler implements EventHandler<EventArgs> {
+        private final AtomicInteger _count;
+
+        CountingHandler(AtomicInteger count) {
+            _count = count;
+        }
+
+        @Override
+        public void handle(Object sender, EventArgs args) {
+            _count.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.events;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.PersistentList;
+import com.etiennebaudoux.clipboardzanager.enums.HistoryChangeType;
+import com.etiennebaudoux.clipboardzanager.models.DataEntry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class HistoryChangeFeedTest {
+    @Test
+    public void changesOfAFrameAreMerged() throws InterruptedException {
+        Event<HistoryChangedEventArgs> event = new Event<>();
+        List<HistoryChangedEventArgs> received = new ArrayList<>();
+        CountDownLatch published = new CountDownLatch(1);
+        event.addHandler((sender, args) -> {
+            received.add(args);
+            published.countDown();
+        });
+
+        HistoryChangeFeed feed = new HistoryChangeFeed(this, event, 50);
+        PersistentList<DataEntry> first = PersistentList.empty();
+        PersistentList<DataEntry> second = PersistentList.empty();
+        UUID identifier = UUID.randomUUID();
+
+        feed.record(new HistoryChange(HistoryChangeType.INSERTED, identifier, 0, 0));
+        feed.commit(first);
+        feed.record(new HistoryChange(HistoryChangeType.MOVED, identifier, 0, 3));
+        feed.record(new HistoryChange(HistoryChangeType.FAVORITE_TOGGLED, identifier, 3, 3));
+        feed.commit(second);
+
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+
+        assertEquals(1, received.size());
+        List<HistoryChange> changes = received.get(0).getChanges();
+        assertEquals(3, changes.size());
+        assertEquals(HistoryChangeType.INSERTED, changes.get(0).getType());
+        assertEquals(HistoryChangeType.MOVED, changes.get(1).getType());
+        assertEquals(3, changes.get(1).getToIndex());
+        assertEquals(HistoryChangeType.FAVORITE_TOGGLED, changes.get(2).getType());
+        assertSame(second, received.get(0).getDataEntries());
+    }
+
+    @Test
+    public void commitWithoutChange() {
+        Event<HistoryChangedEventArgs> event = new Event<>();
+        List<HistoryChangedEventArgs> received = new ArrayList<>();
+        event.addHandler((sender, args) -> received.add(args));
+
+        HistoryChangeFeed feed = new HistoryChangeFeed(this, event, 0);
+        feed.commit(PersistentList.<DataEntry>empty());
+        assertEquals(0, received.size());
+
+        feed.record(new HistoryChange(HistoryChangeType.REMOVED, UUID.randomUUID(), 1, 1));
+        feed.commit(PersistentList.<DataEntry>empty());
+        assertEquals(1, received.size());
+        assertEquals(1, received.get(0).getChanges().size());
+    }
+}
@@ -0,0 +1,199 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ActorTest {
+    @Test
+    public void commandsRunOneAtATimeInOrder() {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Actor actor = new Actor(executor, null);
+            AtomicInteger runningCount = new AtomicInteger();
+            AtomicBoolean isConcurrent = new AtomicBoolean(false);
+            List<Integer> order = new ArrayList<>();
+            List<Task<Integer>> tasks = new ArrayList<>();
+
+            for (int i = 0; i < 100; i++) {
+                final int value = i;
+                tasks.add(actor.post(() -> {
+                    if (runningCount.incrementAndGet() > 1) {
+                        isConcurrent.set(true);
+                    }
+                    order.add(value);
+                    runningCount.decrementAndGet();
+                    return value;
+                }));
+            }
+
+            for (int i = 0; i < tasks.size(); i++) {
+                assertEquals(i, (int) tasks.get(i).await());
+            }
+            assertFalse(isConcurrent.get());
+            for (int i = 0; i < order.size(); i++) {
+                assertEquals(i, (int) order.get(i));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void ownThreadRunsCommandsAwaitedByAllTheLanes() throws InterruptedException {
+        Actor actor = new Actor("Actor test", TaskLane.UI, null);
+        CountDownLatch finished = new CountDownLatch(19);
+
+        // the waiting tasks use every thread the scheduler gives to these lanes.
+        List<TaskLane> lanes = new ArrayList<>(Arrays.asList(TaskLane.PREVIEW, TaskLane.PREVIEW, TaskLane.MAINTENANCE));
+        for (int i = 0; i < 16; i++) {
+            lanes.add(TaskLane.UI);
+        }
+        for (TaskLane lane : lanes) {
+            new Task<>(() -> {
+                actor.post(() -> {
+                    Thread.sleep(10);
+                    return null;
+                }).await();
+                finished.countDown();
+                return null;
+            }, lane).start();
+        }
+
+        assertTrue(finished.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void errorFailsOnlyItsCommand() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Actor actor = new Actor(executor, null);
+            Task<Integer> failedTask = actor.post(() -> {
+                throw new AssertionError("The command failed");
+            });
+            Task<Integer> task = actor.post(() -> 1);
+
+            try {
+                failedTask.await();
+                fail();
+            } catch (RuntimeException exception) {
+                assertTrue(exception.getCause() instanceof AssertionError);
+            }
+            assertEquals(1, (int) task.await());
+
+            // the actor still drains the commands posted later.
+            assertEquals(2, (int) actor.post(() -> 2).await());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void batchIsFlushedOnce() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AtomicInteger flushCount = new AtomicInteger();
+            Actor actor = new Actor(executor, () -> {
+                flushCount.incrementAndGet();
+                return null;
+            });
+
+            // the executor is blocked, so all the commands wait in the same batch.
+            CountDownLatch blocker = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    blocker.await();
+                } catch (InterruptedException ignored) {
+                }
+            });
+
+            List<Callable<Integer>> commands = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                final int value = i;
+                commands.add(() -> value);
+            }
+            Task<List<Integer>> batch = actor.postBatch(commands, true);
+            Task<Integer> other = actor.post(() -> -1, true);
+            assertEquals(41, actor.getPendingCount());
+
+            blocker.countDown();
+
+            assertEquals(40, batch.await().size());
+            assertEquals(-1, (int) other.await());
+            assertEquals(1, flushCount.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void nestedCommandRunsInline() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            AtomicInteger flushCount = new AtomicInteger();
+            Actor actor = new Actor(executor, () -> {
+                flushCount.incrementAndGet();
+                return null;
+            });
+
+            Task<Integer> task = actor.post(() -> {
+                assertTrue(actor.isCurrentThread());
+                return actor.post(() -> 21, true).await() * 2;
+            });
+
+            assertEquals(42, (int) task.await());
+            assertEquals(1, flushCount.get());
+            assertFalse(actor.isCurrentThread());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void failures() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Actor actor = new Actor(executor, () -> {
+                throw new IllegalStateException("flush");
+            });
+
+            Task<Void> failedCommand = actor.post(() -> {
+                throw new IllegalArgumentException("command");
+            });
+            Task<Integer> failedFlush = actor.post(() -> 1, true);
+            Task<List<Integer>> batch = actor.postBatch(Arrays.<Callable<Integer>>asList(() -> 1, () -> 2), false);
+
+            try {
+                failedCommand.await();
+                fail();
+            } catch (RuntimeException exception) {
+                assertTrue(exception.getCause() instanceof IllegalArgumentException);
+            }
+
+            try {
+                failedFlush.await();
+                fail();
+            } catch (RuntimeException exception) {
+                assertTrue(exception.getCause() instanceof IllegalStateException);
+            }
+
+            assertEquals(Arrays.asList(1, 2), batch.await());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
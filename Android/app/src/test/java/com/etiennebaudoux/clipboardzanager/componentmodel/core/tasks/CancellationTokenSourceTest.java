@@ -0,0 +1,87 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CancellationTokenSourceTest {
+    @Test
+    public void cancel() throws Exception {
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        CancellationToken token = cancellationTokenSource.getToken();
+        AtomicInteger callCount = new AtomicInteger();
+        token.register(callCount::incrementAndGet);
+
+        assertTrue(token.canBeCanceled());
+        assertFalse(token.isCancellationRequested());
+
+        cancellationTokenSource.cancel();
+        cancellationTokenSource.cancel();
+
+        assertTrue(token.isCancellationRequested());
+        assertEquals(1, callCount.get());
+
+        // registering after the cancellation runs the callback immediately.
+        token.register(callCount::incrementAndGet);
+        assertEquals(2, callCount.get());
+    }
+
+    @Test
+    public void unregister() throws Exception {
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        AtomicInteger callCount = new AtomicInteger();
+        Runnable callback = callCount::incrementAndGet;
+
+        cancellationTokenSource.getToken().register(callback);
+        cancellationTokenSource.getToken().unregister(callback);
+        cancellationTokenSource.cancel();
+
+        assertEquals(0, callCount.get());
+    }
+
+    @Test
+    public void cancelAfter() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource(50);
+        cancellationTokenSource.getToken().register(latch::countDown);
+
+        assertFalse(cancellationTokenSource.isCancellationRequested());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(cancellationTokenSource.isCancellationRequested());
+    }
+
+    @Test
+    public void closeReleasesTheDeadline() throws Exception {
+        AtomicInteger callCount = new AtomicInteger();
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource(50);
+        cancellationTokenSource.getToken().register(callCount::incrementAndGet);
+
+        cancellationTokenSource.close();
+        Thread.sleep(200);
+
+        assertFalse(cancellationTokenSource.isCancellationRequested());
+        assertEquals(0, callCount.get());
+    }
+
+    @Test
+    public void none() throws Exception {
+        assertFalse(CancellationToken.None.canBeCanceled());
+        assertFalse(CancellationToken.None.isCancellationRequested());
+        CancellationToken.None.throwIfCancellationRequested();
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void throwIfCancellationRequested() throws Exception {
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        cancellationTokenSource.cancel();
+        cancellationTokenSource.getToken().throwIfCancellationRequested();
+    }
+}
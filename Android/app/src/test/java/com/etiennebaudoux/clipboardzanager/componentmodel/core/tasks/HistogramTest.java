@@ -0,0 +1,41 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+    @Test
+    public void buckets() {
+        for (long value = 0; value < 1000000; value += 7) {
+            long highestValue = Histogram.getHighestValue(Histogram.getIndex(value));
+            assertTrue(highestValue >= value);
+            assertTrue(highestValue - value <= Math.max(1, value / 16));
+        }
+
+        assertEquals(Histogram.getIndex(31) + 1, Histogram.getIndex(32));
+        assertTrue(Histogram.getIndex((1L << 36) - 1) < 560);
+    }
+
+    @Test
+    public void percentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+
+        assertEquals(1000, histogram.getTotalCount());
+        assertEquals(1000, histogram.getMaximum());
+        assertEquals(500.5, histogram.getMean(), 0.001);
+        assertEquals(500, histogram.getValueAtPercentile(50), 500 / 16);
+        assertEquals(990, histogram.getValueAtPercentile(99), 990 / 16);
+        assertEquals(1000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMaximum());
+    }
+}
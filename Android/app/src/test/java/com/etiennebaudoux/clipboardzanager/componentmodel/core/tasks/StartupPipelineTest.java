@@ -0,0 +1,96 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StartupPipelineTest {
+    @Test
+    public void dependencies() {
+        StringBuffer order = new StringBuffer();
+        StartupPipeline pipeline = new StartupPipeline(TaskLane.UI);
+
+        pipeline.addStep("A", () -> {
+            Thread.sleep(20);
+            order.append("A");
+            return null;
+        });
+        pipeline.addStep("B", () -> {
+            order.append("B");
+            return null;
+        }, "A");
+        pipeline.addStep("C", () -> {
+            order.append("C");
+            return null;
+        }, "A", "B");
+
+        pipeline.start().await();
+
+        assertEquals("ABC", order.toString());
+        assertTrue(pipeline.getDuration() >= 0);
+
+        List<StartupPhase> phases = pipeline.getPhases();
+        assertEquals(3, phases.size());
+        for (StartupPhase phase : phases) {
+            assertFalse(phase.isFailed());
+            assertTrue(phase.getReadyTime() >= phase.getStartTime());
+        }
+
+        StringWriter writer = new StringWriter();
+        pipeline.dump(writer);
+        assertTrue(writer.toString().contains("Startup finished"));
+    }
+
+    @Test
+    public void independentStepsRunInParallel() throws InterruptedException {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        AtomicBoolean isParallel = new AtomicBoolean(true);
+        StartupPipeline pipeline = new StartupPipeline(TaskLane.UI);
+
+        for (String name : new String[]{"A", "B"}) {
+            pipeline.addStep(name, () -> {
+                bothRunning.countDown();
+                if (!bothRunning.await(5, TimeUnit.SECONDS)) {
+                    isParallel.set(false);
+                }
+                return null;
+            });
+        }
+
+        pipeline.start().await();
+        assertTrue(isParallel.get());
+    }
+
+    @Test
+    public void failure() {
+        AtomicBoolean isDependentRun = new AtomicBoolean();
+        StartupPipeline pipeline = new StartupPipeline(TaskLane.UI);
+
+        pipeline.addStep("A", () -> {
+            throw new IllegalStateException();
+        });
+        pipeline.addStep("B", () -> {
+            isDependentRun.set(true);
+            return null;
+        }, "A");
+
+        try {
+            pipeline.start().await();
+            fail();
+        } catch (RuntimeException exception) {
+        }
+
+        assertFalse(isDependentRun.get());
+        assertEquals(-1, pipeline.getDuration());
+        assertTrue(pipeline.getPhases().get(0).isFailed());
+    }
+}
@@ -0,0 +1,194 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskSchedulerTest {
+    @Test
+    public void maximumConcurrency() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(4, 1000);
+        scheduler.setMaximumConcurrency(TaskLane.MAINTENANCE, 1);
+
+        AtomicInteger runningCount = new AtomicInteger();
+        AtomicInteger maximumRunningCount = new AtomicInteger();
+        CountDownLatch finished = new CountDownLatch(3);
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.getExecutor(TaskLane.MAINTENANCE).execute(() -> {
+                int count = runningCount.incrementAndGet();
+                maximumRunningCount.set(Math.max(maximumRunningCount.get(), count));
+                sleep(50);
+                runningCount.decrementAndGet();
+                finished.countDown();
+            });
+        }
+
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(1, maximumRunningCount.get());
+    }
+
+    @Test
+    public void errorDoesNotLeakThreads() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(2, 1000);
+        scheduler.setMaximumConcurrency(TaskLane.MAINTENANCE, 1);
+
+        for (int i = 0; i < 2; i++) {
+            scheduler.getExecutor(TaskLane.MAINTENANCE).execute(() -> {
+                throw new AssertionError("The work failed");
+            });
+        }
+
+        CountDownLatch finished = new CountDownLatch(2);
+        scheduler.getExecutor(TaskLane.MAINTENANCE).execute(finished::countDown);
+        scheduler.getExecutor(TaskLane.UI).execute(finished::countDown);
+
+        // the lane limited to one thread runs again, so the failed works released their place.
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void captureNotDelayedByBackgroundWork() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(3, 1000);
+        scheduler.setMaximumConcurrency(TaskLane.SYNC, 2);
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            scheduler.getExecutor(TaskLane.SYNC).execute(() -> await(release));
+        }
+
+        CountDownLatch captured = new CountDownLatch(1);
+        scheduler.getExecutor(TaskLane.CAPTURE).execute(captured::countDown);
+
+        assertTrue(captured.await(1, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.getRunningCount(TaskLane.SYNC));
+        assertEquals(3, scheduler.getQueuedCount(TaskLane.SYNC));
+        release.countDown();
+    }
+
+    @Test
+    public void mostUrgentLaneFirst() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 60000);
+        List<TaskLane> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(3);
+
+        scheduler.getExecutor(TaskLane.UI).execute(() -> await(release));
+        for (TaskLane lane : new TaskLane[]{TaskLane.MAINTENANCE, TaskLane.SYNC, TaskLane.CAPTURE}) {
+            scheduler.getExecutor(lane).execute(() -> {
+                order.add(lane);
+                finished.countDown();
+            });
+        }
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(TaskLane.CAPTURE, order.get(0));
+        assertEquals(TaskLane.SYNC, order.get(1));
+        assertEquals(TaskLane.MAINTENANCE, order.get(2));
+    }
+
+    @Test
+    public void captureNotDelayedByUserWork() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(3, 1000);
+        scheduler.setReservedThreadCount(1);
+
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            scheduler.getExecutor(TaskLane.UI).execute(() -> await(release));
+        }
+
+        CountDownLatch captured = new CountDownLatch(1);
+        scheduler.getExecutor(TaskLane.CAPTURE).execute(captured::countDown);
+
+        assertTrue(captured.await(1, TimeUnit.SECONDS));
+        assertEquals(2, scheduler.getRunningCount(TaskLane.UI));
+        assertEquals(3, scheduler.getQueuedCount(TaskLane.UI));
+        release.countDown();
+    }
+
+    @Test
+    public void aging() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 50);
+        List<TaskLane> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+
+        scheduler.getExecutor(TaskLane.UI).execute(() -> await(release));
+        scheduler.getExecutor(TaskLane.MAINTENANCE).execute(() -> {
+            order.add(TaskLane.MAINTENANCE);
+            finished.countDown();
+        });
+
+        sleep(300);
+        scheduler.getExecutor(TaskLane.SYNC).execute(() -> {
+            order.add(TaskLane.SYNC);
+            finished.countDown();
+        });
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(TaskLane.MAINTENANCE, order.get(0));
+    }
+
+    @Test
+    public void agingNeverOutranksCapture() throws InterruptedException {
+        TaskScheduler scheduler = new TaskScheduler(1, 50);
+        List<TaskLane> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+
+        scheduler.getExecutor(TaskLane.UI).execute(() -> await(release));
+        scheduler.getExecutor(TaskLane.MAINTENANCE).execute(() -> {
+            order.add(TaskLane.MAINTENANCE);
+            finished.countDown();
+        });
+
+        sleep(300);
+        scheduler.getExecutor(TaskLane.CAPTURE).execute(() -> {
+            order.add(TaskLane.CAPTURE);
+            finished.countDown();
+        });
+
+        release.countDown();
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertEquals(TaskLane.CAPTURE, order.get(0));
+    }
+
+    @Test
+    public void taskLane() {
+        Task<Integer> task = new Task<>(() -> Thread.currentThread().getPriority(), TaskLane.MAINTENANCE);
+        task.start();
+
+        // the task is not awaited before it finishes, otherwise it could run on this thread.
+        for (int i = 0; i < 500 && task.getStatus() != TaskStatus.FINISHED; i++) {
+            sleep(10);
+        }
+
+        assertEquals(TaskLane.MAINTENANCE.getThreadPriority(), (int) task.await());
+    }
+
+    private static void sleep(long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+}
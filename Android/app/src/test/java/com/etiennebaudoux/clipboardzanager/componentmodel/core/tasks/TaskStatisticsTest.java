@@ -0,0 +1,91 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaskStatisticsTest {
+    @Test
+    public void record() {
+        for (int i = 0; i < 3; i++) {
+            createTask(i == 2).start();
+        }
+
+        for (int i = 0; i < 50 && getSite().getRunTime().getTotalCount() < 3; i++) {
+            sleep(20);
+        }
+
+        TaskSiteStatistics site = getSite();
+        assertEquals(3, site.getCreatedCount());
+        assertEquals(1, site.getFailureCount());
+        assertEquals(0, site.getInFlightCount());
+        assertEquals(3, site.getRunTime().getTotalCount());
+        assertTrue(site.getRunTime().getMaximum() >= 10000);
+        assertEquals(3, site.getWaitTime().getTotalCount());
+
+        StringWriter writer = new StringWriter();
+        TaskStatistics.dump(writer);
+        assertTrue(writer.toString().contains("TaskStatisticsTest.createTask"));
+        assertTrue(writer.toString().contains("MAINTENANCE"));
+    }
+
+    @Test
+    public void inlineTaskHasNoWaitTime() {
+        Task<Integer> task = new Task<>(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                return 1;
+            }
+        });
+        task.await();
+
+        TaskSiteStatistics site = findSite("TaskStatisticsTest.inlineTaskHasNoWaitTime");
+        assertNotNull(site);
+        assertEquals(1, site.getRunTime().getTotalCount());
+        assertEquals(0, site.getWaitTime().getTotalCount());
+    }
+
+    private static Task<Boolean> createTask(final boolean fail) {
+        return new Task<>(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                Thread.sleep(10);
+                if (fail) {
+                    throw new Exception("Failure");
+                }
+                return true;
+            }
+        });
+    }
+
+    private static TaskSiteStatistics getSite() {
+        TaskSiteStatistics site = findSite("TaskStatisticsTest.createTask");
+        if (site == null) {
+            fail();
+        }
+        return site;
+    }
+
+    private static TaskSiteStatistics findSite(String name) {
+        for (TaskSiteStatistics site : TaskStatistics.getSites()) {
+            if (site.getName().equals(name)) {
+                return site;
+            }
+        }
+        return null;
+    }
+
+    private static void sleep(long milliseconds) {
+        try {
+            Thread.sleep(milliseconds);
+        } catch (InterruptedException exception) {
+            throw new RuntimeException(exception);
+        }
+    }
+}
@@ -1,16 +1,25 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks;
 
-import android.os.AsyncTask;
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
 
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
-@RunWith(RobolectricTestRunner.class)
 public class TaskTest {
     @Test
     public void taskRunner() {
@@ -59,9 +68,9 @@ public class TaskTest {
         try {
             task.start();
             Thread.sleep(100);
-            assertEquals(task.getStatus(), AsyncTask.Status.RUNNING);
+            assertEquals(task.getStatus(), TaskStatus.RUNNING);
             Thread.sleep(200);
-            assertEquals(task.getStatus(), AsyncTask.Status.FINISHED);
+            assertEquals(task.getStatus(), TaskStatus.FINISHED);
             assertEquals(task.await(), true);
         } catch (Exception e) {
             fail(e.getMessage());
@@ -87,6 +96,35 @@ public class TaskTest {
         }
     }
 
+    @Test
+    public void taskRunnerError() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Task<Boolean> task = new Task<Boolean>(() -> {
+                throw new AssertionError("The task failed");
+            }, executor);
+            task.start();
+
+            try {
+                task.await();
+                fail();
+            } catch (RuntimeException exception) {
+                assertTrue(exception.getCause() instanceof AssertionError);
+                assertEquals(TaskStatus.FINISHED, task.getStatus());
+            }
+
+            // the tasks that wait for the failed task are released too.
+            try {
+                Task.whenAll(task).await();
+                fail();
+            } catch (RuntimeException exception) {
+                assertEquals(TaskStatus.FINISHED, task.getStatus());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void taskRunnerExceptionAsync() {
         Task<Boolean> task = new Task<Boolean>(() -> {
@@ -101,11 +139,229 @@ public class TaskTest {
         try {
             task.start();
             Thread.sleep(100);
-            assertEquals(task.getStatus(), AsyncTask.Status.RUNNING);
+            assertEquals(task.getStatus(), TaskStatus.RUNNING);
             Thread.sleep(200);
-            assertEquals(task.getStatus(), AsyncTask.Status.FINISHED);
+            assertEquals(task.getStatus(), TaskStatus.FINISHED);
         } catch (Exception e) {
             fail(e.getMessage());
         }
     }
+
+    @Test
+    public void taskRunnerNestedAwaitOnSingleThread() throws Exception {
+        // every task awaits a child task, which would need a second thread without the inline execution.
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Task<Integer> task = new Task<>(() -> {
+                Task<Integer> child = new Task<>(() -> {
+                    Task<Integer> grandChild = new Task<>(() -> 1, executor);
+                    grandChild.start();
+                    return grandChild.await() + 1;
+                }, executor);
+                child.start();
+                return child.await() + 1;
+            }, executor);
+
+            task.start();
+            assertEquals(3, (int) task.await());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void taskRunnerAwaitInline() throws Exception {
+        Thread currentThread = Thread.currentThread();
+        Task<Thread> task = new Task<>(() -> Thread.currentThread());
+
+        assertEquals(TaskStatus.PENDING, task.getStatus());
+        assertEquals(currentThread, task.await());
+        assertEquals(TaskStatus.FINISHED, task.getStatus());
+    }
+
+    @Test
+    public void taskRunnerStartTwice() throws Exception {
+        Task<Boolean> task = new Task<>(() -> true);
+        task.start();
+
+        try {
+            task.start();
+            fail();
+        } catch (RuntimeException exception) {
+            assertEquals("The task has already been started.", exception.getMessage());
+        }
+    }
+
+    @Test
+    public void thenApply() throws Exception {
+        Task<Integer> task = new Task<>(() -> {
+            Thread.sleep(50);
+            return 20;
+        });
+
+        Task<String> continuation = task.thenApply(result -> "Result: " + (result + 1));
+        assertEquals(TaskStatus.PENDING, continuation.getStatus());
+
+        task.start();
+        assertEquals("Result: 21", continuation.await());
+    }
+
+    @Test
+    public void thenApplyStartsOnCompletion() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Task<Integer> task = new Task<>(() -> 1);
+        task.thenApply(result -> {
+            latch.countDown();
+            return result;
+        });
+
+        task.start();
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void thenApplyException() throws Exception {
+        Task<Integer> task = new Task<>(() -> {
+            throw new IllegalStateException("The task failed");
+        });
+        Task<Integer> continuation = task.thenApply(result -> result + 1);
+
+        try {
+            continuation.await();
+            fail();
+        } catch (RuntimeException exception) {
+            assertTrue(exception.getMessage().contains("The task failed"));
+        }
+    }
+
+    @Test
+    public void thenCompose() throws Exception {
+        Task<Integer> task = new Task<>(() -> 2);
+        Task<Integer> continuation = task.thenCompose(result -> new Task<>(() -> result * 21));
+
+        assertEquals(42, (int) continuation.await());
+    }
+
+    @Test
+    public void whenAll() throws Exception {
+        List<Task<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final int value = i;
+            tasks.add(new Task<>(() -> {
+                Thread.sleep(10 * (10 - value));
+                return value;
+            }));
+        }
+
+        Task<List<Integer>> task = Task.whenAll(tasks);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), task.await());
+
+        for (Task<Integer> child : tasks) {
+            assertEquals(TaskStatus.FINISHED, child.getStatus());
+        }
+
+        assertTrue(Task.whenAll(new ArrayList<Task<Integer>>()).await().isEmpty());
+    }
+
+    @Test
+    public void whenAllException() throws Exception {
+        Task<List<Integer>> task = Task.whenAll(new Task<>(() -> 1), new Task<Integer>(() -> {
+            throw new IllegalStateException("The task failed");
+        }));
+
+        try {
+            task.await();
+            fail();
+        } catch (RuntimeException exception) {
+            assertTrue(exception.getMessage().contains("The task failed"));
+        }
+    }
+
+    @Test
+    public void whenAny() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+        Task<Integer> slowTask = new Task<>(() -> {
+            latch.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        Task<Integer> fastTask = new Task<>(() -> 2);
+
+        assertEquals(2, (int) Task.whenAny(slowTask, fastTask).await());
+        assertNotEquals(TaskStatus.PENDING, slowTask.getStatus());
+        assertFalse(slowTask.getStatus() == TaskStatus.FINISHED);
+        latch.countDown();
+        assertEquals(1, (int) slowTask.await());
+    }
+
+    @Test
+    public void taskCanceledBeforeStart() throws Exception {
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        AtomicBoolean hasRun = new AtomicBoolean();
+        Task<Boolean> task = new Task<>(() -> {
+            hasRun.set(true);
+            return true;
+        }, cancellationTokenSource.getToken());
+
+        cancellationTokenSource.cancel();
+
+        try {
+            task.await();
+            fail();
+        } catch (OperationCanceledException exception) {
+            assertTrue(task.isCanceled());
+            assertFalse(hasRun.get());
+        }
+    }
+
+    @Test
+    public void taskCanceledWhileRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch blocked = new CountDownLatch(1);
+        AtomicReference<Thread> runningThread = new AtomicReference<>();
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        Task<Boolean> task = new Task<>(() -> {
+            // a function that never checks the token: the waiting thread is released anyway.
+            runningThread.set(Thread.currentThread());
+            started.countDown();
+            blocked.await(5, TimeUnit.SECONDS);
+            return true;
+        }, cancellationTokenSource.getToken());
+
+        Thread cancelingThread = new Thread(() -> {
+            try {
+                started.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException exception) {
+                return;
+            }
+            cancellationTokenSource.cancel();
+        });
+        cancelingThread.start();
+
+        try {
+            // the task has not been started, but it is not run by the waiting thread, because it can be canceled.
+            task.await();
+            fail();
+        } catch (OperationCanceledException exception) {
+            assertNotEquals(Thread.currentThread(), runningThread.get());
+            assertEquals(TaskStatus.FINISHED, task.getStatus());
+        } finally {
+            blocked.countDown();
+            cancelingThread.join();
+        }
+    }
+
+    @Test
+    public void taskCancellationPropagates() throws Exception {
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        cancellationTokenSource.cancel();
+
+        Task<Boolean> task = new Task<>(() -> new Task<>(() -> true, cancellationTokenSource.getToken()).await());
+
+        try {
+            task.await();
+            fail();
+        } catch (OperationCanceledException exception) {
+            assertTrue(task.isCanceled());
+        }
+    }
 }
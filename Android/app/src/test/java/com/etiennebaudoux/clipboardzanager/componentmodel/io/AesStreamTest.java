@@ -1,6 +1,8 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.io;
 
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationTokenSource;
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
 
 import org.junit.Test;
 
@@ -43,4 +45,24 @@ public class AesStreamTest {
         byte[] cryptedData = baseStream.toByteArray();
         assertArrayEquals(new byte[] { (byte)238, 75, 117, (byte)248, 55 }, cryptedData);
     }
+
+    @Test(expected = OperationCanceledException.class)
+    public void aesStreamReadCanceled() throws InvalidKeySpecException, NoSuchAlgorithmException, IOException {
+        String password = "MyPassword";
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        cancellationTokenSource.cancel();
+
+        AesInputStream aesStream = new AesInputStream(new ByteArrayInputStream(new byte[5]), password, SecurityHelper.getSaltKeys(password).getEncoded(), cancellationTokenSource.getToken());
+        aesStream.read(new byte[5], 0, 5);
+    }
+
+    @Test(expected = OperationCanceledException.class)
+    public void aesStreamWriteCanceled() throws InvalidKeySpecException, NoSuchAlgorithmException, IOException {
+        String password = "MyPassword";
+        CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        cancellationTokenSource.cancel();
+
+        AesOutputStream aesStream = new AesOutputStream(new ByteArrayOutputStream(), password, SecurityHelper.getSaltKeys(password).getEncoded(), cancellationTokenSource.getToken());
+        aesStream.write(new byte[5], 0, 5);
+    }
 }
@@ -0,0 +1,66 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.io;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryDeltaTest {
+    @Test
+    public void createAndApply() throws Exception {
+        byte[] base = randomData(64 * 1024, 1);
+        byte[] target = new byte[base.length + 100];
+
+        // the target is the base with a few bytes inserted in the middle and a modified end.
+        System.arraycopy(base, 0, target, 0, 30000);
+        System.arraycopy(randomData(100, 2), 0, target, 30000, 100);
+        System.arraycopy(base, 30000, target, 30100, base.length - 30000);
+        target[target.length - 5] ^= 0x42;
+
+        byte[] delta = BinaryDelta.create(base, target);
+
+        assertTrue(delta.length < 512);
+        assertArrayEquals(target, BinaryDelta.apply(base, delta));
+    }
+
+    @Test
+    public void createAndApplyWithMovedBlocks() throws Exception {
+        byte[] base = randomData(10000, 3);
+        byte[] target = new byte[base.length];
+
+        System.arraycopy(base, 5000, target, 0, 5000);
+        System.arraycopy(base, 0, target, 5000, 5000);
+
+        byte[] delta = BinaryDelta.create(base, target);
+
+        assertTrue(delta.length < 64);
+        assertArrayEquals(target, BinaryDelta.apply(base, delta));
+    }
+
+    @Test
+    public void createAndApplySmallData() throws Exception {
+        assertArrayEquals(new byte[0], BinaryDelta.apply(new byte[0], BinaryDelta.create(new byte[0], new byte[0])));
+        assertArrayEquals("hello".getBytes("UTF-8"), BinaryDelta.apply(new byte[0], BinaryDelta.create(new byte[0], "hello".getBytes("UTF-8"))));
+        assertArrayEquals(new byte[0], BinaryDelta.apply(randomData(100, 4), BinaryDelta.create(randomData(100, 4), new byte[0])));
+
+        byte[] unrelated = randomData(1000, 5);
+        assertArrayEquals(unrelated, BinaryDelta.apply(randomData(1000, 6), BinaryDelta.create(randomData(1000, 6), unrelated)));
+    }
+
+    @Test(expected = IOException.class)
+    public void applyWithWrongBase() throws Exception {
+        byte[] base = randomData(1000, 7);
+        byte[] delta = BinaryDelta.create(base, base);
+
+        BinaryDelta.apply(new byte[10], delta);
+    }
+
+    private byte[] randomData(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
@@ -0,0 +1,143 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.io;
+
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.SecurityHelper;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedStreamTest {
+    @Test
+    public void compressedStreamText() throws Exception {
+        StringBuilder textBuilder = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            textBuilder.append("Line ").append(i).append(" of a text that compresses well.\n");
+        }
+        byte[] data = textBuilder.toString().getBytes("UTF-8");
+
+        byte[] compressedData = compress(data, null);
+
+        assertEquals(CompressedOutputStream.DeflatedMode, compressedData[3]);
+        assertTrue(compressedData.length < data.length / 4);
+        assertArrayEquals(data, decompress(compressedData, null));
+    }
+
+    @Test
+    public void compressedStreamIncompressibleData() throws Exception {
+        byte[] data = new byte[100 * 1024];
+        new Random(1).nextBytes(data);
+
+        byte[] compressedData = compress(data, null);
+
+        assertEquals(CompressedOutputStream.StoredMode, compressedData[3]);
+        assertEquals(data.length + 4, compressedData.length);
+        assertArrayEquals(data, decompress(compressedData, null));
+    }
+
+    @Test
+    public void compressedStreamEmptyData() throws Exception {
+        byte[] compressedData = compress(new byte[0], null);
+
+        assertEquals(4, compressedData.length);
+        assertArrayEquals(new byte[0], decompress(compressedData, null));
+    }
+
+    @Test
+    public void compressedStreamDictionary() throws Exception {
+        byte[] dictionary = "https://www.example.com/search?q=clipboard https://www.example.com/images/".getBytes("UTF-8");
+        byte[] data = "https://www.example.com/search?q=manager".getBytes("UTF-8");
+
+        byte[] compressedData = compress(data, dictionary);
+
+        assertEquals(CompressedOutputStream.DeflatedMode, compressedData[3]);
+        assertTrue(compressedData.length < compress(data, null).length);
+        assertArrayEquals(data, decompress(compressedData, dictionary));
+    }
+
+    @Test(expected = IOException.class)
+    public void compressedStreamMissingDictionary() throws Exception {
+        byte[] dictionary = "https://www.example.com/search?q=clipboard https://www.example.com/images/".getBytes("UTF-8");
+        byte[] data = "https://www.example.com/search?q=manager".getBytes("UTF-8");
+
+        decompress(compress(data, dictionary), null);
+    }
+
+    @Test
+    public void compressedStreamAlternateDictionary() throws Exception {
+        byte[] dictionary = "https://www.example.com/search?q=clipboard https://www.example.com/images/".getBytes("UTF-8");
+        byte[] otherDictionary = "https://www.example.org/articles/clipboard https://www.example.org/news/".getBytes("UTF-8");
+        byte[] data = "https://www.example.com/search?q=manager".getBytes("UTF-8");
+        byte[] compressedData = compress(data, dictionary);
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IoUtils.copy(new CompressedInputStream(new ByteArrayInputStream(compressedData), otherDictionary, dictionary), output);
+        assertArrayEquals(data, output.toByteArray());
+
+        output = new ByteArrayOutputStream();
+        IoUtils.copy(new CompressedInputStream(new ByteArrayInputStream(compressedData), null, dictionary), output);
+        assertArrayEquals(data, output.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void compressedStreamOtherDictionaries() throws Exception {
+        byte[] dictionary = "https://www.example.com/search?q=clipboard https://www.example.com/images/".getBytes("UTF-8");
+        byte[] otherDictionary = "https://www.example.org/articles/clipboard https://www.example.org/news/".getBytes("UTF-8");
+        byte[] data = "https://www.example.com/search?q=manager".getBytes("UTF-8");
+
+        IoUtils.copy(new CompressedInputStream(new ByteArrayInputStream(compress(data, dictionary)), otherDictionary, otherDictionary), new ByteArrayOutputStream());
+    }
+
+    @Test
+    public void compressedStreamReadUncompressedData() throws Exception {
+        byte[] data = "Hello World".getBytes("UTF-8");
+
+        assertArrayEquals(data, decompress(data, null));
+        assertArrayEquals(new byte[]{1, 2}, decompress(new byte[]{1, 2}, null));
+    }
+
+    @Test
+    public void compressedStreamWithAes() throws Exception {
+        String password = "MyPassword";
+        byte[] salt = SecurityHelper.getSaltKeys(password).getEncoded();
+        StringBuilder textBuilder = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            textBuilder.append("Item ").append(i).append(", ");
+        }
+        byte[] data = textBuilder.toString().getBytes("UTF-8");
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CompressedOutputStream stream = new CompressedOutputStream(new AesOutputStream(output, password, salt))) {
+            stream.write(data, 0, data.length);
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        IoUtils.copy(new CompressedInputStream(new AesInputStream(new ByteArrayInputStream(output.toByteArray()), password, salt)), result);
+
+        assertTrue(output.size() < data.length / 2);
+        assertArrayEquals(data, result.toByteArray());
+    }
+
+    private byte[] compress(byte[] data, byte[] dictionary) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (CompressedOutputStream stream = new CompressedOutputStream(output, dictionary)) {
+            // write by small blocks to cover the sampling.
+            for (int i = 0; i < data.length; i += 3000) {
+                stream.write(data, i, Math.min(3000, data.length - i));
+            }
+        }
+        return output.toByteArray();
+    }
+
+    private byte[] decompress(byte[] data, byte[] dictionary) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        IoUtils.copy(new CompressedInputStream(new ByteArrayInputStream(data), dictionary), output);
+        return output.toByteArray();
+    }
+}
@@ -1,11 +1,17 @@
 package com.etiennebaudoux.clipboardzanager.componentmodel.io;
 
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationTokenSource;
+import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.OperationCanceledException;
+
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class IoUtilsTest {
     @Test
@@ -18,4 +24,33 @@ public class IoUtilsTest {
 
         assertArrayEquals(new byte[] { 72, 101, 108, 108, 111 }, output.toByteArray());
     }
+
+    @Test
+    public void copyCanceled() throws Exception {
+        final CancellationTokenSource cancellationTokenSource = new CancellationTokenSource();
+        final int[] readCount = new int[1];
+
+        // an endless stream, that requests the cancellation after a few reads.
+        InputStream input = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int count) {
+                if (++readCount[0] == 3) {
+                    cancellationTokenSource.cancel();
+                }
+                return count;
+            }
+        };
+
+        try {
+            IoUtils.copy(input, new ByteArrayOutputStream(), cancellationTokenSource.getToken());
+            fail();
+        } catch (OperationCanceledException exception) {
+            assertTrue(readCount[0] <= 4);
+        }
+    }
 }
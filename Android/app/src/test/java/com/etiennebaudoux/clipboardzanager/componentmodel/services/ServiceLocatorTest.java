@@ -0,0 +1,99 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.services;
+
+import com.etiennebaudoux.clipboardzanager.mocks.ServiceSettingProviderMock;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceLocatorTest {
+    @Test
+    public void onceOnlyInitialization() throws Exception {
+        ServiceLocator.setSettingProvider(new ServiceSettingProviderMock());
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final SlowService[] services = new SlowService[8];
+        Thread[] threads = new Thread[services.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                services[index] = ServiceLocator.getService(SlowService.class);
+            });
+            threads[i].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, SlowService.InstanceCount.get());
+        for (SlowService service : services) {
+            assertSame(services[0], service);
+            assertTrue(service.Initialized);
+        }
+    }
+
+    @Test
+    public void warmUp() throws Exception {
+        ServiceLocator.setSettingProvider(new ServiceSettingProviderMock());
+
+        ServiceLocator.warmUp(WarmService.class).await();
+
+        WarmService service = ServiceLocator.getService(WarmService.class);
+        assertTrue(service.Initialized);
+        assertFalse(service.Reseted);
+
+        ServiceLocator.resetAll();
+        assertTrue(service.Reseted);
+        assertSame(service, ServiceLocator.getService(WarmService.class));
+    }
+
+    public static class SlowService implements Service {
+        static final AtomicInteger InstanceCount = new AtomicInteger();
+        volatile boolean Initialized;
+
+        public SlowService() {
+            InstanceCount.incrementAndGet();
+        }
+
+        @Override
+        public void initialize(ServiceSettingProvider settingProvider) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+            }
+            Initialized = true;
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    public static class WarmService implements Service {
+        volatile boolean Initialized;
+        volatile boolean Reseted;
+
+        @Override
+        public void initialize(ServiceSettingProvider settingProvider) {
+            Initialized = true;
+        }
+
+        @Override
+        public void reset() {
+            Reseted = true;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.etiennebaudoux.clipboardzanager.componentmodel.services;
+
+import com.etiennebaudoux.clipboardzanager.mocks.ServiceSettingProviderMock;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SettingsServiceTest {
+    @Test
+    public void snapshot() {
+        ServiceSettingProviderMock settingProvider = new ServiceSettingProviderMock();
+        settingProvider.resetSettings();
+        settingProvider.MaxDataToKeep = "abc";
+        settingProvider.DateExpireLimit = null;
+
+        Settings settings = Settings.read(settingProvider);
+
+        assertTrue(settings.isKeepDataAfterRebootEnabled());
+        assertTrue(settings.isAvoidPasswordsEnabled());
+        assertFalse(settings.isCollapseNearDuplicatesEnabled());
+        assertEquals(25, settings.getMaxDataToKeep());
+        assertEquals(30, settings.getDateExpireLimit());
+    }
+
+    @Test
+    public void changeNotifications() throws InterruptedException {
+        ServiceSettingProviderMock settingProvider = new ServiceSettingProviderMock();
+        settingProvider.resetSettings();
+
+        SettingsService service = new SettingsService();
+        service.initialize(settingProvider);
+        Settings initialSettings = service.getSettings();
+
+        List<String> changedSettings = new ArrayList<>();
+        CountDownLatch changed = new CountDownLatch(1);
+        service.addSettingChangedHandler(Settings.MaxDataToKeep, (sender, args) -> {
+            changedSettings.add(args.getSettingName());
+            assertEquals(10, args.getSettings().getMaxDataToKeep());
+            changed.countDown();
+        });
+        service.addSettingChangedHandler(Settings.AvoidPasswords, (sender, args) -> changedSettings.add(args.getSettingName()));
+
+        service.onSettingChanged("DropBoxAccessToken");
+        assertSame(initialSettings, service.getSettings());
+
+        settingProvider.MaxDataToKeep = "10";
+        service.onSettingChanged(Settings.MaxDataToKeep);
+
+        assertTrue(changed.await(5, TimeUnit.SECONDS));
+        assertEquals(10, service.getSettings().getMaxDataToKeep());
+        assertEquals(1, changedSettings.size());
+        assertEquals(Settings.MaxDataToKeep, changedSettings.get(0));
+    }
+}
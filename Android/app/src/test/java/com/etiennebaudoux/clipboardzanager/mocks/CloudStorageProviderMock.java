@@ -7,6 +7,7 @@ import com.etiennebaudoux.clipboardzanager.componentmodel.cloudstorage.CloudToke
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.StringUtils;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.Event;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.events.EventArgs;
+import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.CancellationToken;
 import com.etiennebaudoux.clipboardzanager.componentmodel.core.tasks.Task;
 import com.etiennebaudoux.clipboardzanager.componentmodel.exceptions.NotAuthenticatedException;
 
@@ -108,8 +109,14 @@ public class CloudStorageProviderMock implements CloudStorageProvider {
 
     @Override
     public Task<CloudFile> uploadFileAsync(InputStream baseStream, String remotePath) {
+        return uploadFileAsync(baseStream, remotePath, CancellationToken.None);
+    }
+
+    @Override
+    public Task<CloudFile> uploadFileAsync(InputStream baseStream, String remotePath, CancellationToken cancellationToken) {
         return new Task<>(() -> {
             thowIfNotConnected();
+            cancellationToken.throwIfCancellationRequested();
 
             if (baseStream == null)
             {
@@ -123,13 +130,19 @@ public class CloudStorageProviderMock implements CloudStorageProvider {
             Date currentDate = new Date(System.currentTimeMillis());
             result.setLastModificationUtcDate(currentDate);
             return result;
-        });
+        }, cancellationToken);
     }
 
     @Override
     public Task<Void> downloadFileAsync(String remotePath, OutputStream targetStream) {
+        return downloadFileAsync(remotePath, targetStream, CancellationToken.None);
+    }
+
+    @Override
+    public Task<Void> downloadFileAsync(String remotePath, OutputStream targetStream, CancellationToken cancellationToken) {
         return new Task<>(() -> {
             thowIfNotConnected();
+            cancellationToken.throwIfCancellationRequested();
 
             if (targetStream == null)
             {
@@ -145,7 +158,7 @@ public class CloudStorageProviderMock implements CloudStorageProvider {
             targetStream.write(data, 0, data.length);
 
             return null;
-        });
+        }, cancellationToken);
     }
 
     @Override
@@ -10,6 +10,8 @@ public class ServiceSettingProviderMock implements ServiceSettingProvider {
     public String AvoidCreditCard;
     public String MaxDataToKeep;
     public String DateExpireLimit;
+    public String CollapseNearDuplicates;
+    public String DeltaEncodeClipboardData;
 
     @Override
     public String getSetting(String settingName) {
@@ -47,6 +49,14 @@ public class ServiceSettingProviderMock implements ServiceSettingProvider {
                 value = DateExpireLimit;
                 break;
 
+            case "CollapseNearDuplicates":
+                value = CollapseNearDuplicates;
+                break;
+
+            case "DeltaEncodeClipboardData":
+                value = DeltaEncodeClipboardData;
+                break;
+
             default:
                 throw new RuntimeException("Unable to find the setting " + settingName);
         }
@@ -72,5 +82,7 @@ public class ServiceSettingProviderMock implements ServiceSettingProvider {
         AvoidCreditCard = "true";
         MaxDataToKeep = "25";
         DateExpireLimit = "30";
+        CollapseNearDuplicates = "false";
+        DeltaEncodeClipboardData = "false";
     }
 }